@@ -0,0 +1,130 @@
+package com.thief.reader.benchmark;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * 对比两次JMH运行的JSON结果
+ * 用法：CompareResults 基准结果.json 当前结果.json [回退阈值百分比，默认5]
+ * 任何基准的吞吐量下降或单次分配增加超过阈值时以退出码1结束，可直接用于CI
+ */
+public final class CompareResults {
+    
+    private static final String ALLOCATION_METRIC = "gc.alloc.rate.norm";
+    
+    private CompareResults() {
+    }
+    
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("用法: CompareResults <baseline.json> <current.json> [threshold%]");
+            System.exit(2);
+        }
+        Map<String, Result> baseline = load(args[0]);
+        Map<String, Result> current = load(args[1]);
+        double threshold = args.length > 2 ? Double.parseDouble(args[2]) : 5.0;
+        
+        int regressions = 0;
+        System.out.println(String.format("%-70s %14s %14s %9s %12s %12s %9s",
+                "Benchmark", "Baseline", "Current", "Change", "Alloc/op", "Alloc/op", "Change"));
+        for (Map.Entry<String, Result> entry : current.entrySet()) {
+            Result now = entry.getValue();
+            Result before = baseline.get(entry.getKey());
+            if (before == null) {
+                System.out.println(String.format("%-70s %14s %14.3f %9s", entry.getKey(), "-", now.score, "new"));
+                continue;
+            }
+            double scoreChange = change(before.score, now.score);
+            // 吞吐量越高越好，其他模式（平均时间等）越低越好
+            double improvement = "thrpt".equals(now.mode) ? scoreChange : -scoreChange;
+            double allocationChange = change(before.allocation, now.allocation);
+            boolean regressed = improvement < -threshold || allocationChange > threshold;
+            if (regressed) {
+                regressions++;
+            }
+            System.out.println(String.format("%-70s %14.3f %14.3f %8.1f%% %12.0f %12.0f %8.1f%%%s",
+                    entry.getKey(), before.score, now.score, scoreChange,
+                    before.allocation, now.allocation, allocationChange, regressed ? "  <-- 回退" : ""));
+        }
+        for (String removed : baseline.keySet()) {
+            if (!current.containsKey(removed)) {
+                System.out.println(String.format("%-70s %14.3f %14s %9s", removed, baseline.get(removed).score, "-", "removed"));
+            }
+        }
+        
+        if (regressions > 0) {
+            System.out.println(regressions + " 项超过 " + threshold + "% 的回退阈值");
+            System.exit(1);
+        }
+    }
+    
+    private static double change(double before, double now) {
+        if (before == 0 || Double.isNaN(before) || Double.isNaN(now)) {
+            return 0;
+        }
+        return (now - before) / before * 100;
+    }
+    
+    private static Map<String, Result> load(String path) throws IOException {
+        Map<String, Result> results = new LinkedHashMap<>();
+        try (Reader reader = Files.newBufferedReader(Paths.get(path), StandardCharsets.UTF_8)) {
+            JsonArray runs = new JsonParser().parse(reader).getAsJsonArray();
+            for (JsonElement element : runs) {
+                JsonObject run = element.getAsJsonObject();
+                Result result = new Result();
+                result.mode = run.get("mode").getAsString();
+                result.score = run.getAsJsonObject("primaryMetric").get("score").getAsDouble();
+                result.allocation = Double.NaN;
+                JsonObject secondary = run.getAsJsonObject("secondaryMetrics");
+                if (secondary != null) {
+                    for (Map.Entry<String, JsonElement> metric : secondary.entrySet()) {
+                        // 旧版本JMH的次要指标名带有"·"前缀
+                        if (metric.getKey().replace("·", "").equals(ALLOCATION_METRIC)) {
+                            result.allocation = metric.getValue().getAsJsonObject().get("score").getAsDouble();
+                        }
+                    }
+                }
+                results.put(key(run), result);
+            }
+        }
+        return results;
+    }
+    
+    private static String key(JsonObject run) {
+        String benchmark = run.get("benchmark").getAsString();
+        // 去掉包名，只保留类名和方法名
+        int method = benchmark.lastIndexOf('.');
+        int type = benchmark.lastIndexOf('.', method - 1);
+        StringBuilder key = new StringBuilder(benchmark.substring(type + 1));
+        JsonObject params = run.getAsJsonObject("params");
+        if (params != null) {
+            // 参数按名称排序，保证两次结果的键一致
+            Map<String, String> sorted = new TreeMap<>();
+            for (Map.Entry<String, JsonElement> param : params.entrySet()) {
+                sorted.put(param.getKey(), param.getValue().getAsString());
+            }
+            key.append(sorted);
+        }
+        return key.toString();
+    }
+    
+    /**
+     * 单个基准组合的结果
+     */
+    private static final class Result {
+        private String mode;
+        private double score;
+        private double allocation;
+    }
+}
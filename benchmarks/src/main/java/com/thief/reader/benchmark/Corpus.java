@@ -0,0 +1,281 @@
+package com.thief.reader.benchmark;
+
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDPageContentStream;
+import org.apache.pdfbox.pdmodel.font.PDType1Font;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * 基准测试使用的生成语料
+ * 内容由固定种子生成，同样的参数在不同版本之间得到相同的文件，生成后缓存在语料目录中供多次运行复用
+ */
+public final class Corpus {
+    
+    /** 语料目录，可通过 -Dcorpus.dir 指定 */
+    public static final String DIRECTORY_PROPERTY = "corpus.dir";
+    
+    private static final long SEED = 20240501L;
+    private static final int PDF_LINES_PER_PAGE = 45;
+    
+    private static final String[] CJK_SENTENCES = {
+        "窗外的雨一直没有停，他把那本旧书翻到了折角的一页。",
+        "这一章讨论的是缓存失效以及如何在不阻塞界面的情况下重新加载。",
+        "城市的灯火渐次亮起，远处传来列车进站的声音。",
+        "如果文件在解析期间被修改，应当以解析开始时的内容为准。",
+        "她说，慢一点读，很多细节只有第二遍才看得出来。",
+    };
+    
+    private static final String[] LATIN_SENTENCES = {
+        "The quick brown fox jumps over the lazy dog while the reader keeps scrolling.",
+        "Rendering is deferred until a block becomes visible in the viewport.",
+        "Large files are indexed by line offsets instead of being decoded at once.",
+    };
+    
+    private Corpus() {
+    }
+    
+    /**
+     * 获取Markdown语料，包含标题、段落、列表、表格和代码块
+     * @param bytes 目标大小（字节）
+     * @return 语料文件
+     * @throws IOException 文件写入异常
+     */
+    public static File markdown(long bytes) throws IOException {
+        Path target = directory().resolve("corpus-" + bytes + ".md");
+        if (!isComplete(target, bytes)) {
+            generate(target, bytes, Charset.forName("UTF-8"), true);
+        }
+        return target.toFile();
+    }
+    
+    /**
+     * 获取纯文本语料，中英文混排的长篇小说样式文本
+     * @param bytes 目标大小（字节）
+     * @param charset 文件编码
+     * @return 语料文件
+     * @throws IOException 文件写入异常
+     */
+    public static File text(long bytes, Charset charset) throws IOException {
+        Path target = directory().resolve("corpus-" + bytes + "-" + charset.name().toLowerCase(Locale.ROOT) + ".txt");
+        if (!isComplete(target, bytes)) {
+            generate(target, bytes, charset, false);
+        }
+        return target.toFile();
+    }
+    
+    /**
+     * 获取PDF语料，标准14字体只支持拉丁字符，页面内容只使用英文
+     * @param pages 页数
+     * @return 语料文件
+     * @throws IOException 文件写入异常
+     */
+    public static File pdf(int pages) throws IOException {
+        Path target = directory().resolve("corpus-" + pages + "p.pdf");
+        if (Files.isRegularFile(target)) {
+            return target.toFile();
+        }
+        Random random = new Random(SEED);
+        Path temp = temporary(target);
+        try (PDDocument document = new PDDocument()) {
+            for (int i = 0; i < pages; i++) {
+                PDPage page = new PDPage();
+                document.addPage(page);
+                try (PDPageContentStream content = new PDPageContentStream(document, page)) {
+                    content.beginText();
+                    content.setFont(PDType1Font.HELVETICA, 10);
+                    content.setLeading(14);
+                    content.newLineAtOffset(50, 740);
+                    content.showText("Page " + (i + 1));
+                    for (int line = 0; line < PDF_LINES_PER_PAGE; line++) {
+                        content.newLine();
+                        content.showText(LATIN_SENTENCES[random.nextInt(LATIN_SENTENCES.length)]);
+                    }
+                    content.endText();
+                }
+            }
+            document.save(temp.toFile());
+        }
+        moveIntoPlace(temp, target);
+        return target.toFile();
+    }
+    
+    /**
+     * 解析大小参数，例如 16KB、1MB、1GB
+     * @param size 大小描述
+     * @return 字节数
+     */
+    public static long parseSize(String size) {
+        String value = size.trim().toUpperCase(Locale.ROOT);
+        long unit = 1;
+        if (value.endsWith("KB")) {
+            unit = 1024L;
+        } else if (value.endsWith("MB")) {
+            unit = 1024L * 1024;
+        } else if (value.endsWith("GB")) {
+            unit = 1024L * 1024 * 1024;
+        }
+        String digits = unit == 1 ? value : value.substring(0, value.length() - 2);
+        return Long.parseLong(digits.trim()) * unit;
+    }
+    
+    private static Path directory() throws IOException {
+        String configured = System.getProperty(DIRECTORY_PROPERTY);
+        Path directory = configured != null
+                ? Paths.get(configured)
+                : Paths.get(System.getProperty("java.io.tmpdir"), "thief-reader-corpus");
+        Files.createDirectories(directory);
+        return directory;
+    }
+    
+    private static boolean isComplete(Path target, long bytes) throws IOException {
+        // 生成时写满目标大小后才会放入目录，大小不足说明不是本工具生成的
+        return Files.isRegularFile(target) && Files.size(target) >= bytes;
+    }
+    
+    private static void generate(Path target, long bytes, Charset charset, boolean markdown) throws IOException {
+        Random random = new Random(SEED);
+        Path temp = temporary(target);
+        try (CountingOutputStream counter = new CountingOutputStream(
+                new BufferedOutputStream(Files.newOutputStream(temp), 1024 * 1024));
+             Writer out = new OutputStreamWriter(counter, charset)) {
+            int block = 0;
+            while (counter.count < bytes) {
+                if (markdown) {
+                    writeMarkdownBlock(out, random, block);
+                } else {
+                    writeTextBlock(out, random, block);
+                }
+                block++;
+                // 编码器自带缓冲，刷新后计数才准确；计数流不会把刷新传到磁盘
+                out.flush();
+            }
+        }
+        moveIntoPlace(temp, target);
+    }
+    
+    private static void writeMarkdownBlock(Writer out, Random random, int block) throws IOException {
+        if (block % 40 == 0) {
+            out.write("# 第" + (block / 40 + 1) + "章 基准测试语料\n\n");
+        } else if (block % 10 == 0) {
+            out.write("## 小节 " + block + "\n\n");
+        }
+        switch (random.nextInt(8)) {
+            case 0:
+                for (int i = 0; i < 4; i++) {
+                    out.write("- " + sentence(random) + "\n");
+                }
+                break;
+            case 1:
+                out.write("| 名称 | 大小 | 说明 |\n|------|------|------|\n");
+                for (int i = 0; i < 4; i++) {
+                    out.write("| 项目" + i + " | " + random.nextInt(100000) + " | " + sentence(random) + " |\n");
+                }
+                break;
+            case 2:
+                out.write("```java\n");
+                for (int i = 0; i < 5; i++) {
+                    out.write("int value" + i + " = compute(" + random.nextInt(1000) + ");\n");
+                }
+                out.write("```\n");
+                break;
+            case 3:
+                out.write("> " + sentence(random) + "\n");
+                break;
+            default:
+                StringBuilder paragraph = new StringBuilder();
+                for (int i = 0; i < 6; i++) {
+                    paragraph.append(i % 3 == 2 ? "**" + sentence(random) + "**" : sentence(random));
+                }
+                out.write(paragraph.toString());
+                out.write('\n');
+                break;
+        }
+        out.write('\n');
+    }
+    
+    private static void writeTextBlock(Writer out, Random random, int block) throws IOException {
+        if (block % 200 == 0) {
+            out.write("第" + (block / 200 + 1) + "章\n\n");
+        }
+        StringBuilder paragraph = new StringBuilder("　　");
+        int sentences = 2 + random.nextInt(8);
+        for (int i = 0; i < sentences; i++) {
+            paragraph.append(sentence(random));
+        }
+        out.write(paragraph.toString());
+        out.write('\n');
+    }
+    
+    private static String sentence(Random random) {
+        // 以中文为主，偶尔混入英文
+        return random.nextInt(5) == 0
+                ? LATIN_SENTENCES[random.nextInt(LATIN_SENTENCES.length)] + " "
+                : CJK_SENTENCES[random.nextInt(CJK_SENTENCES.length)];
+    }
+    
+    private static Path temporary(Path target) throws IOException {
+        return Files.createTempFile(target.getParent(), target.getFileName().toString(), ".tmp");
+    }
+    
+    private static void moveIntoPlace(Path temp, Path target) throws IOException {
+        // 多个fork可能同时生成同一份语料，原子替换保证读到的总是完整文件
+        try {
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+    
+    /**
+     * 统计写入的字节数
+     */
+    private static final class CountingOutputStream extends OutputStream {
+        
+        private final OutputStream out;
+        private long count;
+        
+        CountingOutputStream(OutputStream out) {
+            this.out = out;
+        }
+        
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            count++;
+        }
+        
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            count += len;
+        }
+        
+        @Override
+        public void flush() {
+            // 只在关闭时写入磁盘，避免每个块都触发一次写入
+        }
+        
+        @Override
+        public void close() throws IOException {
+            out.flush();
+            out.close();
+        }
+    }
+}
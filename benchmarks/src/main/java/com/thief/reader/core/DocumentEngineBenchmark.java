@@ -0,0 +1,92 @@
+package com.thief.reader.core;
+
+import com.thief.reader.benchmark.Corpus;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * 完整解析流程的基准测试，包括解析器选择和两级缓存
+ * cold：每次都重新解析；memory：命中内存缓存；disk：内存缓存清空后从磁盘缓存读取
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DocumentEngineBenchmark {
+    
+    // PDF按每页约4KB文本换算页数
+    private static final long PDF_BYTES_PER_PAGE = 4 * 1024;
+    
+    @Param({"md", "txt", "pdf"})
+    public String format;
+    
+    @Param({"64KB", "1MB"})
+    public String size;
+    
+    @Param({"cold", "memory", "disk"})
+    public String cache;
+    
+    private DocumentEngine engine;
+    private Path cacheDirectory;
+    private File file;
+    
+    @Setup
+    public void setUp() throws IOException {
+        long bytes = Corpus.parseSize(size);
+        if ("md".equals(format)) {
+            file = Corpus.markdown(bytes);
+        } else if ("txt".equals(format)) {
+            file = Corpus.text(bytes, StandardCharsets.UTF_8);
+        } else {
+            file = Corpus.pdf((int) Math.max(1, bytes / PDF_BYTES_PER_PAGE));
+        }
+        if ("disk".equals(cache)) {
+            cacheDirectory = Files.createTempDirectory("render-cache-bench");
+            engine = new DocumentEngine(new DiskRenderCache(cacheDirectory, DiskRenderCache.DEFAULT_MAX_BYTES));
+            engine.setMemoryCacheEnabled(false);
+            // 第一次解析写入磁盘缓存，写入在后台进行，等待写入完成后再开始测量
+            engine.parseDocument(file);
+            engine.flush();
+        } else {
+            engine = new DocumentEngine(null);
+            // 关闭内存缓存代替每次调用前清空，避免在吞吐量模式下使用Level.Invocation
+            engine.setMemoryCacheEnabled("memory".equals(cache));
+        }
+    }
+    
+    @Benchmark
+    public String parseDocument() throws IOException {
+        return engine.parseDocument(file);
+    }
+    
+    @TearDown
+    public void tearDown() throws IOException {
+        if (cacheDirectory == null) {
+            return;
+        }
+        try (Stream<Path> entries = Files.walk(cacheDirectory)) {
+            entries.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package com.thief.reader.core;
+
+import com.thief.reader.benchmark.Corpus;
+import com.thief.reader.util.FileUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Markdown解析和模板包装的基准测试
+ * 与被测类放在同一个包中，以便直接测量包内可见的渲染步骤
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MarkdownParserBenchmark {
+    
+    // 整篇解析会在内存中保留源码和HTML，GB级别需要通过 -jvmArgsAppend 加大堆
+    @Param({"16KB", "1MB", "16MB"})
+    public String size;
+    
+    private MarkdownParser parser;
+    private File file;
+    private String fragment;
+    
+    @Setup
+    public void setUp() throws IOException {
+        file = Corpus.markdown(Corpus.parseSize(size));
+        parser = new MarkdownParser();
+        fragment = parser.renderFragment(FileUtils.readText(file));
+    }
+    
+    @Benchmark
+    public String parse() throws IOException {
+        return parser.parse(file);
+    }
+    
+    @Benchmark
+    public String wrapInStyledTemplate() {
+        return parser.wrapInStyledTemplate(fragment);
+    }
+}
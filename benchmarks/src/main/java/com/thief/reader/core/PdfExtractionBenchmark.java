@@ -0,0 +1,51 @@
+package com.thief.reader.core;
+
+import com.thief.reader.benchmark.Corpus;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * PDF全文提取的串行与并行对比，threads=1即串行路径
+ * 加速比为同一页数下各线程数的耗时与threads=1之比
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PdfExtractionBenchmark {
+    
+    @Param({"100", "500", "2000"})
+    public int pages;
+    
+    @Param({"1", "2", "4", "8", "16"})
+    public int threads;
+    
+    private PdfParser parser;
+    private File file;
+    
+    @Setup
+    public void setUp() throws IOException {
+        file = Corpus.pdf(pages);
+        parser = new PdfParser();
+    }
+    
+    @Benchmark
+    public String extract() throws IOException {
+        return parser.parse(file, threads);
+    }
+}
@@ -0,0 +1,52 @@
+package com.thief.reader.core;
+
+import com.thief.reader.benchmark.Corpus;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * PDF文本提取的基准测试，语料大小按页数计
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PdfParserBenchmark {
+    
+    @Param({"1", "50", "500"})
+    public int pages;
+    
+    private PdfParser parser;
+    private File file;
+    
+    @Setup
+    public void setUp() throws IOException {
+        file = Corpus.pdf(pages);
+        parser = new PdfParser();
+    }
+    
+    @Benchmark
+    public String parse() throws IOException {
+        return parser.parse(file);
+    }
+    
+    @Benchmark
+    public DocumentInfo describe() throws IOException {
+        return parser.describe(file);
+    }
+}
@@ -0,0 +1,63 @@
+package com.thief.reader.core;
+
+import com.thief.reader.benchmark.Corpus;
+import com.thief.reader.util.CharsetDetector;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 纯文本读取的基准测试
+ * parse对应小文件一次性读取，openLines对应大文件打开时建立行索引的开销
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TextParserBenchmark {
+    
+    @Param({"16KB", "1MB", "64MB"})
+    public String size;
+    
+    @Param({"UTF-8", "GBK"})
+    public String charset;
+    
+    private TextParser parser;
+    private File file;
+    
+    @Setup
+    public void setUp() throws IOException {
+        file = Corpus.text(Corpus.parseSize(size), Charset.forName(charset));
+        parser = new TextParser();
+    }
+    
+    // 编码检测结果按文件缓存，每次都清空才能计入检测的开销，清空一个条目的开销可以忽略
+    @Benchmark
+    public String parse() throws IOException {
+        CharsetDetector.clearCache();
+        return parser.parse(file);
+    }
+    
+    @Benchmark
+    public int openLines() throws IOException {
+        CharsetDetector.clearCache();
+        try (TextLineIndex lines = parser.openLines(file)) {
+            return lines.lineCount();
+        }
+    }
+}
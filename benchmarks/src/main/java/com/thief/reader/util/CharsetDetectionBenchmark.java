@@ -0,0 +1,51 @@
+package com.thief.reader.util;
+
+import com.thief.reader.benchmark.Corpus;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 编码检测的基准测试
+ * 检测只读取采样的片段，文件大小不应明显影响结果
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CharsetDetectionBenchmark {
+    
+    @Param({"16KB", "64MB", "1GB"})
+    public String size;
+    
+    @Param({"UTF-8", "GBK"})
+    public String charset;
+    
+    private File file;
+    
+    @Setup
+    public void setUp() throws IOException {
+        file = Corpus.text(Corpus.parseSize(size), Charset.forName(charset));
+    }
+    
+    // 检测结果按文件缓存，直接调用不经过缓存的采样检测，否则除第一次外都只是查表
+    @Benchmark
+    public Charset detectCharset() throws IOException {
+        return CharsetDetector.detectSampled(file);
+    }
+}
@@ -4,18 +4,34 @@ import com.thief.reader.ui.MainController;
 import javafx.application.Application;
 import javafx.stage.Stage;
 
+import java.util.Arrays;
+
 /**
  * 应用程序入口类
  */
 public class App extends Application {
     
+    private MainController mainController;
+    
     @Override
     public void start(Stage primaryStage) {
         // 启动应用程序
-        new MainController(primaryStage);
+        mainController = new MainController(primaryStage);
+    }
+    
+    @Override
+    public void stop() {
+        // 保存阅读位置等尚未写入磁盘的数据
+        if (mainController != null) {
+            mainController.shutdown();
+        }
     }
     
     public static void main(String[] args) {
+        // 批量转换不需要界面；JDK 8的启动器会为Application子类先初始化JavaFX，无显示器的环境应直接运行BatchConverter
+        if (args.length > 0 && BatchConverter.COMMAND.equals(args[0])) {
+            System.exit(BatchConverter.run(Arrays.copyOfRange(args, 1, args.length), System.out, System.err));
+        }
         launch(args);
     }
 }
\ No newline at end of file
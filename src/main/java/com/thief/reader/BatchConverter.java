@@ -0,0 +1,419 @@
+package com.thief.reader;
+
+import com.thief.reader.core.DiskRenderCache;
+import com.thief.reader.core.DocumentEngine;
+import com.thief.reader.core.DocumentParser;
+import com.thief.reader.core.HtmlTemplate;
+import com.thief.reader.core.PdfParser;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 无界面的批量转换
+ * 把目录中的Markdown、纯文本和PDF转换为带样式的HTML，复用文档引擎和解析器，不初始化JavaFX
+ * 用法: java -cp thief-java-reader.jar com.thief.reader.BatchConverter [选项] &lt;文件或目录&gt;... -o &lt;输出目录&gt;
+ */
+public class BatchConverter {
+    
+    // 通过App启动时的子命令
+    public static final String COMMAND = "--convert";
+    // 按内容哈希跳过时记录上次转换结果的清单，位于输出目录中
+    static final String MANIFEST = ".thief-convert.properties";
+    // 等待中的任务数为线程数的倍数，遍历目录不会一次性把所有文件排入队列
+    private static final int QUEUE_PER_THREAD = 4;
+    
+    private final DocumentEngine engine = new DocumentEngine(null);
+    private final List<File> inputs;
+    private final File outputDir;
+    private final int threads;
+    private final SkipMode skipMode;
+    private final PrintStream err;
+    private final Properties manifest = new Properties();
+    // 输出文件对应的输入文件，不同的输入不能写入同一个输出文件，只在遍历线程中访问
+    private final Map<Path, Path> targets = new HashMap<>();
+    private final AtomicInteger converted = new AtomicInteger();
+    private final AtomicInteger skipped = new AtomicInteger();
+    private final AtomicInteger failed = new AtomicInteger();
+    private final AtomicLong bytes = new AtomicLong();
+    
+    /**
+     * @param inputs 输入文件或目录
+     * @param outputDir 输出目录，目录中的相对路径与输入目录相同
+     * @param threads 转换线程数
+     * @param skipMode 跳过未变化文件的方式
+     * @param err 输出转换失败的信息
+     */
+    public BatchConverter(List<File> inputs, File outputDir, int threads, SkipMode skipMode, PrintStream err) {
+        this.inputs = new ArrayList<>(inputs);
+        this.outputDir = outputDir;
+        this.threads = Math.max(1, threads);
+        this.skipMode = skipMode;
+        this.err = err;
+        // 每个文件只转换一次，缓存解析结果只会占用内存
+        engine.setMemoryCacheEnabled(false);
+        // 只修改本转换器自己的解析器实例，不影响同一进程中的其他文档引擎
+        engine.getRegistry().get(PdfParser.class).setExtractionThreads(1);
+    }
+    
+    public static void main(String[] args) {
+        System.exit(run(args, System.out, System.err));
+    }
+    
+    /**
+     * 解析命令行参数并执行转换
+     * @param args 命令行参数
+     * @param out 输出统计信息
+     * @param err 输出错误信息
+     * @return 退出码：0成功，1有文件转换失败，2参数错误
+     */
+    public static int run(String[] args, PrintStream out, PrintStream err) {
+        List<File> inputs = new ArrayList<>();
+        File outputDir = null;
+        int threads = Runtime.getRuntime().availableProcessors();
+        SkipMode skipMode = SkipMode.MTIME;
+        try {
+            for (int i = 0; i < args.length; i++) {
+                String arg = args[i];
+                if ("-h".equals(arg) || "--help".equals(arg)) {
+                    out.println(usage());
+                    return 0;
+                } else if ("-o".equals(arg) || "--output".equals(arg)) {
+                    outputDir = new File(value(args, ++i, arg));
+                } else if ("-j".equals(arg) || "--threads".equals(arg)) {
+                    threads = Integer.parseInt(value(args, ++i, arg));
+                } else if ("--skip".equals(arg)) {
+                    skipMode = SkipMode.valueOf(value(args, ++i, arg).toUpperCase());
+                } else if (arg.startsWith("-")) {
+                    throw new IllegalArgumentException("未知选项: " + arg);
+                } else {
+                    inputs.add(new File(arg));
+                }
+            }
+            if (inputs.isEmpty() || outputDir == null) {
+                throw new IllegalArgumentException("需要指定输入和输出目录");
+            }
+            if (threads < 1) {
+                throw new IllegalArgumentException("线程数必须大于0");
+            }
+        } catch (IllegalArgumentException e) {
+            // 数字格式和枚举名称错误也在这里处理
+            err.println(e.getMessage());
+            err.println(usage());
+            return 2;
+        }
+        try {
+            Summary summary = new BatchConverter(inputs, outputDir, threads, skipMode, err).run();
+            out.println(summary);
+            return summary.getFailed() > 0 ? 1 : 0;
+        } catch (IOException e) {
+            err.println("转换失败: " + e.getMessage());
+            return 1;
+        }
+    }
+    
+    /**
+     * 遍历输入并在线程池中转换
+     * PDF文档之间已经并行，单个PDF不再分段提取
+     * @return 统计结果
+     * @throws IOException 输入目录无法遍历或输出目录无法创建
+     */
+    public Summary run() throws IOException {
+        long start = System.nanoTime();
+        Files.createDirectories(outputDir.toPath());
+        if (skipMode == SkipMode.HASH) {
+            loadManifest();
+        }
+        AtomicInteger threadCount = new AtomicInteger();
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(threads * QUEUE_PER_THREAD), r -> {
+                    Thread thread = new Thread(r, "batch-convert-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }, new ThreadPoolExecutor.CallerRunsPolicy());
+        try {
+            for (File input : inputs) {
+                submitAll(executor, input);
+            }
+            executor.shutdown();
+            executor.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("转换已中断", e);
+        } finally {
+            executor.shutdownNow();
+            engine.flush();
+        }
+        if (skipMode == SkipMode.HASH) {
+            saveManifest();
+        }
+        return new Summary(converted.get(), skipped.get(), failed.get(), bytes.get(), System.nanoTime() - start);
+    }
+    
+    private void submitAll(ThreadPoolExecutor executor, File input) throws IOException {
+        if (input.isFile()) {
+            Path root = input.getAbsoluteFile().getParentFile().toPath();
+            submit(executor, root, input.getAbsoluteFile().toPath());
+            return;
+        }
+        if (!input.isDirectory()) {
+            err.println("文件不存在: " + input);
+            failed.incrementAndGet();
+            return;
+        }
+        Path root = input.getAbsoluteFile().toPath();
+        Path output = outputDir.getAbsoluteFile().toPath();
+        Files.walkFileTree(root, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+                // 输出目录位于输入目录中时不转换已输出的文件
+                return dir.equals(output) ? FileVisitResult.SKIP_SUBTREE : FileVisitResult.CONTINUE;
+            }
+            
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                if (attrs.isRegularFile() && isSupported(file.toFile())) {
+                    submit(executor, root, file);
+                }
+                return FileVisitResult.CONTINUE;
+            }
+            
+            @Override
+            public FileVisitResult visitFileFailed(Path file, IOException e) {
+                err.println("无法读取: " + file + ": " + e.getMessage());
+                failed.incrementAndGet();
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+    
+    /**
+     * 遍历目录时只按扩展名筛选，避免读取图片等无关文件的文件头
+     */
+    private boolean isSupported(File file) {
+        for (DocumentParser parser : engine.getRegistry().getParsers()) {
+            if (parser.supports(file)) {
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    /**
+     * 在遍历线程中检查输出冲突后提交转换，先遍历到的输入优先
+     */
+    private void submit(ThreadPoolExecutor executor, Path root, Path source) {
+        String relative = root.relativize(source).toString().replace(File.separatorChar, '/');
+        Path target = outputDir.getAbsoluteFile().toPath().resolve(outputName(relative)).normalize();
+        Path previous = targets.putIfAbsent(target, source.normalize());
+        if (previous == null) {
+            executor.execute(() -> convert(root, source));
+        } else if (!previous.equals(source.normalize())) {
+            // 例如不同目录下的同名单个文件，或同一目录中的a.md和a.txt
+            err.println("输出文件冲突: " + source + " 与 " + previous + " 都会输出到 " + target);
+            failed.incrementAndGet();
+        }
+        // 同一文件在多个输入中出现时只转换一次
+    }
+    
+    private void convert(Path root, Path source) {
+        String relative = root.relativize(source).toString().replace(File.separatorChar, '/');
+        Path target = outputDir.toPath().resolve(outputName(relative));
+        File file = source.toFile();
+        try {
+            String manifestKey = null;
+            if (skipMode == SkipMode.MTIME && Files.isRegularFile(target)
+                    && Files.getLastModifiedTime(target).toMillis() >= file.lastModified()) {
+                skipped.incrementAndGet();
+                return;
+            }
+            if (skipMode == SkipMode.HASH) {
+                manifestKey = DiskRenderCache.hashContent(file) + "|" + parserKey(file);
+                if (Files.isRegularFile(target) && manifestKey.equals(manifest.getProperty(relative))) {
+                    skipped.incrementAndGet();
+                    return;
+                }
+            }
+            String content = engine.parseDocument(file);
+            String html = engine.isHtmlDocument(file) ? content : HtmlTemplate.wrapText(content);
+            write(target, html);
+            if (manifestKey != null) {
+                manifest.setProperty(relative, manifestKey);
+            }
+            converted.incrementAndGet();
+            bytes.addAndGet(file.length());
+        } catch (IOException | RuntimeException e) {
+            err.println("转换失败: " + source + ": " + e.getMessage());
+            failed.incrementAndGet();
+        }
+    }
+    
+    /**
+     * 解析器或渲染设置变化后，即使内容未变也重新转换
+     */
+    private String parserKey(File file) {
+        DocumentParser parser = engine.getRegistry().find(file);
+        return parser == null ? "" : parser.getClass().getSimpleName() + ":" + parser.version() + ":" + parser.renderFingerprint();
+    }
+    
+    /**
+     * 输出文件名，扩展名替换为.html
+     * @param relative 相对于输入目录的路径
+     * @return 输出文件的相对路径
+     */
+    static String outputName(String relative) {
+        int slash = relative.lastIndexOf('/');
+        int dot = relative.lastIndexOf('.');
+        return (dot > slash + 1 ? relative.substring(0, dot) : relative) + ".html";
+    }
+    
+    private static void write(Path target, String html) throws IOException {
+        Files.createDirectories(target.getParent());
+        // 先写临时文件再原子替换，中途退出不会留下不完整的页面
+        Path temp = Files.createTempFile(target.getParent(), target.getFileName().toString(), ".tmp");
+        try {
+            Files.write(temp, html.getBytes(StandardCharsets.UTF_8));
+            moveAtomically(temp, target);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+    
+    private static void moveAtomically(Path source, Path target) throws IOException {
+        try {
+            Files.move(source, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+    
+    private void loadManifest() {
+        Path path = outputDir.toPath().resolve(MANIFEST);
+        if (!Files.isRegularFile(path)) {
+            return;
+        }
+        try (InputStream in = Files.newInputStream(path)) {
+            manifest.load(in);
+        } catch (IOException e) {
+            // 清单损坏时全部重新转换
+            manifest.clear();
+        }
+    }
+    
+    private void saveManifest() throws IOException {
+        Path path = outputDir.toPath().resolve(MANIFEST);
+        Path temp = Files.createTempFile(outputDir.toPath(), MANIFEST, ".tmp");
+        try {
+            try (OutputStream out = Files.newOutputStream(temp)) {
+                manifest.store(out, "thief-reader batch conversion");
+            }
+            moveAtomically(temp, path);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+    
+    private static String value(String[] args, int index, String option) {
+        if (index >= args.length) {
+            throw new IllegalArgumentException("选项缺少参数: " + option);
+        }
+        return args[index];
+    }
+    
+    private static String usage() {
+        return "用法: BatchConverter [选项] <文件或目录>... -o <输出目录>\n"
+                + "  -o, --output <目录>      输出目录，保留输入目录中的相对路径\n"
+                + "  -j, --threads <数量>     转换线程数，默认为处理器核数\n"
+                + "  --skip <mtime|hash|none> 跳过未变化的文件：按修改时间（默认）、按内容哈希或不跳过";
+    }
+    
+    /**
+     * 跳过未变化文件的方式
+     */
+    public enum SkipMode {
+        // 输出文件比输入文件新时跳过
+        MTIME,
+        // 内容哈希和解析器版本与上次转换相同时跳过，适合检出后修改时间都变化的目录
+        HASH,
+        NONE
+    }
+    
+    /**
+     * 转换的统计结果
+     */
+    public static final class Summary {
+        
+        private final int converted;
+        private final int skipped;
+        private final int failed;
+        private final long bytes;
+        private final long nanos;
+        
+        Summary(int converted, int skipped, int failed, long bytes, long nanos) {
+            this.converted = converted;
+            this.skipped = skipped;
+            this.failed = failed;
+            this.bytes = bytes;
+            this.nanos = nanos;
+        }
+        
+        public int getConverted() {
+            return converted;
+        }
+        
+        public int getSkipped() {
+            return skipped;
+        }
+        
+        public int getFailed() {
+            return failed;
+        }
+        
+        public long getBytes() {
+            return bytes;
+        }
+        
+        /**
+         * 每秒转换的文件数，不计跳过的文件
+         * @return 文件数/秒
+         */
+        public double filesPerSecond() {
+            return nanos > 0 ? converted / (nanos / 1e9) : 0;
+        }
+        
+        /**
+         * 每秒转换的输入字节数
+         * @return MB/秒
+         */
+        public double megabytesPerSecond() {
+            return nanos > 0 ? bytes / (1024.0 * 1024) / (nanos / 1e9) : 0;
+        }
+        
+        @Override
+        public String toString() {
+            return String.format("转换 %d 个文件，跳过 %d 个，失败 %d 个，用时 %.2fs | %.1f 文件/s | %.2f MB/s",
+                    converted, skipped, failed, nanos / 1e9, filesPerSecond(), megabytesPerSecond());
+        }
+    }
+}
@@ -23,6 +23,33 @@ public class AppConfig {
     // 是否自动保存阅读位置
     private boolean autoSavePosition = true;
     
+    // 最近打开文件列表的容量
+    private int maxRecentFiles = 20;
+    
+    // 启动时是否在后台预解析最近打开的文档
+    private boolean preloadRecentFiles = true;
+    
+    // 是否在状态栏显示性能信息
+    private boolean showMetricsOverlay = false;
+    
+    // 文件被修改后是否自动刷新
+    private boolean liveReload = true;
+    
+    // 纯文本是否跟随文件末尾（查看日志）
+    private boolean followTail = false;
+    
+    // PDF是否显示为页面图像，关闭时只有提取不到文本的PDF显示为图像
+    private boolean pdfPageImages = false;
+    
+    // PDF加载的内存模式：auto/memory/mixed/file，auto按文件大小和可用堆内存选择
+    private String pdfMemoryMode = "auto";
+    
+    // 混合模式的内存上限（MB），0表示按可用堆内存计算
+    private long pdfMaxMainMemoryMb = 0;
+    
+    // PDF全文提取的线程数，0表示按处理器核数，1为串行提取
+    private int pdfExtractThreads = 0;
+    
     // getter和setter方法
     public String getDefaultMode() {
         return defaultMode;
@@ -71,4 +98,76 @@ public class AppConfig {
     public void setAutoSavePosition(boolean autoSavePosition) {
         this.autoSavePosition = autoSavePosition;
     }
-}
\ No newline at end of file
+    
+    public int getMaxRecentFiles() {
+        return maxRecentFiles;
+    }
+    
+    public void setMaxRecentFiles(int maxRecentFiles) {
+        this.maxRecentFiles = maxRecentFiles;
+    }
+    
+    public boolean isPreloadRecentFiles() {
+        return preloadRecentFiles;
+    }
+    
+    public void setPreloadRecentFiles(boolean preloadRecentFiles) {
+        this.preloadRecentFiles = preloadRecentFiles;
+    }
+    
+    public boolean isShowMetricsOverlay() {
+        return showMetricsOverlay;
+    }
+    
+    public void setShowMetricsOverlay(boolean showMetricsOverlay) {
+        this.showMetricsOverlay = showMetricsOverlay;
+    }
+    
+    public boolean isLiveReload() {
+        return liveReload;
+    }
+    
+    public void setLiveReload(boolean liveReload) {
+        this.liveReload = liveReload;
+    }
+    
+    public boolean isFollowTail() {
+        return followTail;
+    }
+    
+    public void setFollowTail(boolean followTail) {
+        this.followTail = followTail;
+    }
+    
+    public boolean isPdfPageImages() {
+        return pdfPageImages;
+    }
+    
+    public void setPdfPageImages(boolean pdfPageImages) {
+        this.pdfPageImages = pdfPageImages;
+    }
+    
+    public String getPdfMemoryMode() {
+        return pdfMemoryMode;
+    }
+    
+    public void setPdfMemoryMode(String pdfMemoryMode) {
+        this.pdfMemoryMode = pdfMemoryMode;
+    }
+    
+    public long getPdfMaxMainMemoryMb() {
+        return pdfMaxMainMemoryMb;
+    }
+    
+    public void setPdfMaxMainMemoryMb(long pdfMaxMainMemoryMb) {
+        this.pdfMaxMainMemoryMb = pdfMaxMainMemoryMb;
+    }
+    
+    public int getPdfExtractThreads() {
+        return pdfExtractThreads;
+    }
+    
+    public void setPdfExtractThreads(int pdfExtractThreads) {
+        this.pdfExtractThreads = pdfExtractThreads;
+    }
+}
@@ -1,19 +1,26 @@
 package com.thief.reader.config;
 
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.prefs.Preferences;
 
 /**
  * 应用程序偏好设置管理类
- * 提供统一的Preferences节点访问
+ * 提供统一的Preferences节点访问，并维护一份内存中的设置快照，设置变化时通知监听器
  */
 public class AppPreferences {
     
     private static final String NODE_NAME = "com.thief.reader";
     private static AppPreferences instance;
     private final Preferences prefs;
+    private final List<SettingsListener> listeners = new CopyOnWriteArrayList<>();
+    private volatile ReaderSettings settings;
     
     private AppPreferences() {
         this.prefs = Preferences.userRoot().node(NODE_NAME);
+        this.settings = readSettings();
+        // 其他实例或外部修改Preferences时同样刷新快照
+        prefs.addPreferenceChangeListener(event -> refreshSettings());
     }
     
     public static synchronized AppPreferences getInstance() {
@@ -31,6 +38,61 @@ public class AppPreferences {
         return prefs;
     }
     
+    /**
+     * 获取当前设置快照，不访问Preferences
+     * @return 设置快照
+     */
+    public ReaderSettings getSettings() {
+        return settings;
+    }
+    
+    /**
+     * 添加设置变化监听器
+     * @param listener 监听器
+     */
+    public void addSettingsListener(SettingsListener listener) {
+        listeners.add(listener);
+    }
+    
+    /**
+     * 移除设置变化监听器
+     * @param listener 监听器
+     */
+    public void removeSettingsListener(SettingsListener listener) {
+        listeners.remove(listener);
+    }
+    
+    /**
+     * 重新读取Preferences，值有变化时更新快照并发布事件
+     */
+    private void refreshSettings() {
+        ReaderSettings oldSettings;
+        ReaderSettings newSettings;
+        synchronized (this) {
+            oldSettings = settings;
+            newSettings = readSettings();
+            if (newSettings.equals(oldSettings)) {
+                return;
+            }
+            settings = newSettings;
+        }
+        SettingsChangeEvent event = new SettingsChangeEvent(oldSettings, newSettings);
+        for (SettingsListener listener : listeners) {
+            listener.settingsChanged(event);
+        }
+    }
+    
+    private ReaderSettings readSettings() {
+        return new ReaderSettings(
+            prefs.getDouble("font_size", ReaderSettings.DEFAULT_SCALE),
+            prefs.get("font_family", ReaderSettings.DEFAULT_FONT_FAMILY),
+            prefs.getDouble("background_opacity", ReaderSettings.DEFAULT_BACKGROUND_OPACITY),
+            prefs.getDouble("text_opacity", ReaderSettings.DEFAULT_TEXT_OPACITY),
+            prefs.get("pdf_quality", ReaderSettings.DEFAULT_PDF_QUALITY),
+            prefs.getBoolean("auto_save_position", ReaderSettings.DEFAULT_AUTO_SAVE_POSITION)
+        );
+    }
+    
     /**
      * 获取字体大小/缩放比例设置
      * @param defaultValue 默认值
@@ -46,6 +108,7 @@ public class AppPreferences {
      */
     public void setFontSize(double fontSize) {
         prefs.putDouble("font_size", fontSize);
+        refreshSettings();
     }
     
     /**
@@ -63,6 +126,7 @@ public class AppPreferences {
      */
     public void setFontFamily(String fontFamily) {
         prefs.put("font_family", fontFamily);
+        refreshSettings();
     }
     
     /**
@@ -80,6 +144,7 @@ public class AppPreferences {
      */
     public void setBackgroundOpacity(double opacity) {
         prefs.putDouble("background_opacity", opacity);
+        refreshSettings();
     }
     
     /**
@@ -97,6 +162,7 @@ public class AppPreferences {
      */
     public void setTextOpacity(double opacity) {
         prefs.putDouble("text_opacity", opacity);
+        refreshSettings();
     }
     
     /**
@@ -114,6 +180,7 @@ public class AppPreferences {
      */
     public void setPdfQuality(String quality) {
         prefs.put("pdf_quality", quality);
+        refreshSettings();
     }
     
     /**
@@ -131,5 +198,6 @@ public class AppPreferences {
      */
     public void setAutoSavePosition(boolean autoSave) {
         prefs.putBoolean("auto_save_position", autoSave);
+        refreshSettings();
     }
 }
\ No newline at end of file
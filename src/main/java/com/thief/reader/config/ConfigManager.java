@@ -7,6 +7,8 @@ import java.io.File;
 import java.io.FileReader;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 
 /**
  * 配置管理器
@@ -14,6 +16,7 @@ import java.io.IOException;
 public class ConfigManager {
     
     private static final String CONFIG_FILE = "app_config.json";
+    private static final String CONFIG_DIRECTORY = ".thief-reader";
     private static ConfigManager instance;
     private AppConfig config;
     private final Gson gson;
@@ -30,6 +33,14 @@ public class ConfigManager {
         return instance;
     }
     
+    /**
+     * 获取用户配置目录，缓存等数据文件保存在该目录下
+     * @return 用户目录下的配置目录
+     */
+    public static Path getConfigDirectory() {
+        return Paths.get(System.getProperty("user.home"), CONFIG_DIRECTORY);
+    }
+    
     private void loadConfig() {
         File configFile = new File(CONFIG_FILE);
         if (configFile.exists()) {
@@ -0,0 +1,84 @@
+package com.thief.reader.config;
+
+import java.util.Objects;
+
+/**
+ * 阅读设置快照
+ * 不可变对象，读取时无需访问Preferences，可在任意线程共享
+ */
+public final class ReaderSettings {
+    
+    public static final double DEFAULT_SCALE = 100.0;
+    public static final String DEFAULT_FONT_FAMILY = "Microsoft YaHei";
+    public static final double DEFAULT_BACKGROUND_OPACITY = 0.9;
+    public static final double DEFAULT_TEXT_OPACITY = 1.0;
+    public static final String DEFAULT_PDF_QUALITY = "中等质量";
+    public static final boolean DEFAULT_AUTO_SAVE_POSITION = true;
+    
+    private final double scale;
+    private final String fontFamily;
+    private final double backgroundOpacity;
+    private final double textOpacity;
+    private final String pdfQuality;
+    private final boolean autoSavePosition;
+    
+    public ReaderSettings(double scale, String fontFamily, double backgroundOpacity, double textOpacity,
+                          String pdfQuality, boolean autoSavePosition) {
+        this.scale = scale;
+        this.fontFamily = fontFamily;
+        this.backgroundOpacity = backgroundOpacity;
+        this.textOpacity = textOpacity;
+        this.pdfQuality = pdfQuality;
+        this.autoSavePosition = autoSavePosition;
+    }
+    
+    /**
+     * 获取缩放比例（百分比）
+     * @return 缩放比例
+     */
+    public double getScale() {
+        return scale;
+    }
+    
+    public String getFontFamily() {
+        return fontFamily;
+    }
+    
+    public double getBackgroundOpacity() {
+        return backgroundOpacity;
+    }
+    
+    public double getTextOpacity() {
+        return textOpacity;
+    }
+    
+    public String getPdfQuality() {
+        return pdfQuality;
+    }
+    
+    public boolean isAutoSavePosition() {
+        return autoSavePosition;
+    }
+    
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof ReaderSettings)) {
+            return false;
+        }
+        ReaderSettings other = (ReaderSettings) o;
+        return Double.compare(scale, other.scale) == 0
+                && Double.compare(backgroundOpacity, other.backgroundOpacity) == 0
+                && Double.compare(textOpacity, other.textOpacity) == 0
+                && autoSavePosition == other.autoSavePosition
+                && fontFamily.equals(other.fontFamily)
+                && pdfQuality.equals(other.pdfQuality);
+    }
+    
+    @Override
+    public int hashCode() {
+        return Objects.hash(scale, fontFamily, backgroundOpacity, textOpacity, pdfQuality, autoSavePosition);
+    }
+}
@@ -0,0 +1,57 @@
+package com.thief.reader.config;
+
+/**
+ * 文档的阅读位置
+ * 锚点是文档内容中的偏移，不依赖窗口大小、字体等排版设置
+ */
+public final class ReadingPosition {
+    
+    /**
+     * 锚点偏移的单位
+     */
+    public enum Unit {
+        // 纯文本中行首的字节偏移，与行索引的建立进度无关
+        BYTE,
+        // 网页正文文本中的字符偏移
+        CHAR
+    }
+    
+    private final String path;
+    private final Unit unit;
+    private final long offset;
+    private final long savedAt;
+    
+    ReadingPosition(String path, Unit unit, long offset, long savedAt) {
+        this.path = path;
+        this.unit = unit;
+        this.offset = offset;
+        this.savedAt = savedAt;
+    }
+    
+    /**
+     * 创建不写入存储的位置，重新加载同一文档后用于恢复
+     * @param path 文档路径
+     * @param unit 偏移单位
+     * @param offset 偏移
+     * @return 阅读位置
+     */
+    public static ReadingPosition of(String path, Unit unit, long offset) {
+        return new ReadingPosition(path, unit, offset, System.currentTimeMillis());
+    }
+    
+    public String getPath() {
+        return path;
+    }
+    
+    public Unit getUnit() {
+        return unit;
+    }
+    
+    public long getOffset() {
+        return offset;
+    }
+    
+    public long getSavedAt() {
+        return savedAt;
+    }
+}
@@ -0,0 +1,224 @@
+package com.thief.reader.config;
+
+import com.google.gson.Gson;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 阅读位置存储
+ * 每次保存只在内存中更新，合并一段时间内的修改后在后台线程追加写入日志，日志过长时压缩为每个文档一条记录
+ */
+public class ReadingPositionStore implements Closeable {
+    
+    public static final long FLUSH_DELAY_MILLIS = 1000;
+    
+    private static final String JOURNAL_FILE = "reading-positions.journal";
+    // 日志记录数超过有效条目数的该倍数时压缩
+    private static final int COMPACT_RATIO = 4;
+    private static final int COMPACT_MIN_RECORDS = 1000;
+    
+    private final Path journal;
+    private final Gson gson = new Gson();
+    private final Map<String, ReadingPosition> positions = new HashMap<>();
+    // 尚未写入日志的修改，同一文档只保留最后一次
+    private final Map<String, ReadingPosition> pending = new LinkedHashMap<>();
+    private final Object flushLock = new Object();
+    private final ScheduledExecutorService writer;
+    private ScheduledFuture<?> scheduledFlush;
+    private int journalRecords;
+    // 日志末尾是不完整的记录时，下次追加前先换行
+    private boolean danglingRecord;
+    
+    public ReadingPositionStore(Path journal) {
+        this.journal = journal;
+        this.writer = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "reading-position-writer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        load();
+    }
+    
+    /**
+     * 打开用户配置目录下的默认存储
+     * @return 阅读位置存储
+     */
+    public static ReadingPositionStore openDefault() {
+        return new ReadingPositionStore(ConfigManager.getConfigDirectory().resolve(JOURNAL_FILE));
+    }
+    
+    /**
+     * 获取文档的阅读位置
+     * @param file 文档文件
+     * @return 阅读位置，没有记录时返回null
+     * @throws IOException 无法获取规范路径
+     */
+    public ReadingPosition get(File file) throws IOException {
+        String path = file.getCanonicalPath();
+        synchronized (this) {
+            return positions.get(path);
+        }
+    }
+    
+    /**
+     * 保存阅读位置，立即对get可见，稍后在后台写入磁盘
+     * @param file 文档文件
+     * @param unit 锚点单位
+     * @param offset 锚点偏移
+     * @throws IOException 无法获取规范路径
+     */
+    public void put(File file, ReadingPosition.Unit unit, long offset) throws IOException {
+        String path = file.getCanonicalPath();
+        synchronized (this) {
+            ReadingPosition previous = positions.get(path);
+            if (previous != null && previous.getUnit() == unit && previous.getOffset() == offset) {
+                return;
+            }
+            ReadingPosition position = new ReadingPosition(path, unit, offset, System.currentTimeMillis());
+            positions.put(path, position);
+            pending.put(path, position);
+            if (scheduledFlush == null && !writer.isShutdown()) {
+                // 第一次修改时安排写入，之后的修改合并到同一次写入中
+                scheduledFlush = writer.schedule(this::flushQuietly, FLUSH_DELAY_MILLIS, TimeUnit.MILLISECONDS);
+            }
+        }
+    }
+    
+    /**
+     * 立即写入所有未保存的修改
+     * @throws IOException 日志写入异常
+     */
+    public void flush() throws IOException {
+        synchronized (flushLock) {
+            List<ReadingPosition> batch;
+            synchronized (this) {
+                batch = new ArrayList<>(pending.values());
+                pending.clear();
+                if (scheduledFlush != null) {
+                    scheduledFlush.cancel(false);
+                    scheduledFlush = null;
+                }
+            }
+            if (batch.isEmpty()) {
+                return;
+            }
+            StringBuilder records = new StringBuilder();
+            if (danglingRecord) {
+                records.append('\n');
+                danglingRecord = false;
+            }
+            for (ReadingPosition position : batch) {
+                records.append(gson.toJson(position)).append('\n');
+            }
+            Files.createDirectories(journal.getParent());
+            // 一次追加写入整批记录，中途退出最多留下一条不完整的记录
+            Files.write(journal, records.toString().getBytes(StandardCharsets.UTF_8),
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+            journalRecords += batch.size();
+            compactIfNeeded();
+        }
+    }
+    
+    /**
+     * 写入未保存的修改并停止后台线程
+     * @throws IOException 日志写入异常
+     */
+    @Override
+    public void close() throws IOException {
+        writer.shutdown();
+        flush();
+    }
+    
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (IOException e) {
+            // 写入失败时只丢失这一批位置，下次保存会再次尝试
+        }
+    }
+    
+    private void compactIfNeeded() throws IOException {
+        List<ReadingPosition> snapshot;
+        synchronized (this) {
+            if (journalRecords < COMPACT_MIN_RECORDS || journalRecords < positions.size() * COMPACT_RATIO) {
+                return;
+            }
+            snapshot = new ArrayList<>(positions.values());
+        }
+        Path temp = Files.createTempFile(journal.getParent(), "reading-positions", ".tmp");
+        try {
+            try (Writer out = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+                for (ReadingPosition position : snapshot) {
+                    out.write(gson.toJson(position));
+                    out.write('\n');
+                }
+            }
+            try {
+                Files.move(temp, journal, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, journal, StandardCopyOption.REPLACE_EXISTING);
+            }
+            journalRecords = snapshot.size();
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+    
+    private boolean endsWithoutNewline() throws IOException {
+        try (SeekableByteChannel channel = Files.newByteChannel(journal)) {
+            if (channel.size() == 0) {
+                return false;
+            }
+            ByteBuffer last = ByteBuffer.allocate(1);
+            channel.position(channel.size() - 1).read(last);
+            return last.get(0) != '\n';
+        }
+    }
+    
+    private void load() {
+        if (!Files.isRegularFile(journal)) {
+            return;
+        }
+        try (BufferedReader reader = Files.newBufferedReader(journal, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                journalRecords++;
+                ReadingPosition position;
+                try {
+                    position = gson.fromJson(line, ReadingPosition.class);
+                } catch (RuntimeException e) {
+                    // 异常退出时最后一条记录可能不完整
+                    continue;
+                }
+                if (position != null && position.getPath() != null && position.getUnit() != null) {
+                    // 后写入的记录覆盖先前的记录
+                    positions.put(position.getPath(), position);
+                }
+            }
+            danglingRecord = endsWithoutNewline();
+        } catch (IOException e) {
+            // 日志无法读取时从空白开始，之后的保存会重新写入
+        }
+    }
+}
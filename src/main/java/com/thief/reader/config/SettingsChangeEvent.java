@@ -0,0 +1,50 @@
+package com.thief.reader.config;
+
+/**
+ * 设置变化事件
+ * 只有设置值实际发生变化时才会发布
+ */
+public final class SettingsChangeEvent {
+    
+    private final ReaderSettings oldSettings;
+    private final ReaderSettings newSettings;
+    
+    public SettingsChangeEvent(ReaderSettings oldSettings, ReaderSettings newSettings) {
+        this.oldSettings = oldSettings;
+        this.newSettings = newSettings;
+    }
+    
+    public ReaderSettings getOldSettings() {
+        return oldSettings;
+    }
+    
+    public ReaderSettings getNewSettings() {
+        return newSettings;
+    }
+    
+    /**
+     * 检查影响文档样式的设置（缩放、字体、文字不透明度）是否变化
+     * @return 是否变化
+     */
+    public boolean isStyleChanged() {
+        return Double.compare(oldSettings.getScale(), newSettings.getScale()) != 0
+                || !oldSettings.getFontFamily().equals(newSettings.getFontFamily())
+                || Double.compare(oldSettings.getTextOpacity(), newSettings.getTextOpacity()) != 0;
+    }
+    
+    /**
+     * 检查背景不透明度是否变化
+     * @return 是否变化
+     */
+    public boolean isBackgroundOpacityChanged() {
+        return Double.compare(oldSettings.getBackgroundOpacity(), newSettings.getBackgroundOpacity()) != 0;
+    }
+    
+    /**
+     * 检查PDF渲染质量是否变化
+     * @return 是否变化
+     */
+    public boolean isPdfQualityChanged() {
+        return !oldSettings.getPdfQuality().equals(newSettings.getPdfQuality());
+    }
+}
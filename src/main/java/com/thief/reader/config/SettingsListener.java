@@ -0,0 +1,14 @@
+package com.thief.reader.config;
+
+/**
+ * 设置变化监听器
+ * 回调在修改设置的线程上执行，界面代码需要自行切换到JavaFX线程
+ */
+public interface SettingsListener {
+    
+    /**
+     * 设置发生变化
+     * @param event 变化事件
+     */
+    void settingsChanged(SettingsChangeEvent event);
+}
@@ -0,0 +1,349 @@
+package com.thief.reader.core;
+
+import com.thief.reader.config.ConfigManager;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * 持久化的渲染结果缓存
+ * 按文件内容哈希寻址，跨会话重新打开文档时无需再次解析
+ */
+public class DiskRenderCache {
+
+    public static final long DEFAULT_MAX_BYTES = 256L * 1024 * 1024;
+
+    private static final String CACHE_DIRECTORY = "render-cache";
+    private static final String ENTRY_SUFFIX = ".gz";
+    private static final String STAT_INDEX_FILE = "stat-index.properties";
+    private static final int HASH_BUFFER_SIZE = 1024 * 1024;
+    private static final int MAX_STAT_INDEX_ENTRIES = 10000;
+    // SHA-256的十六进制长度，索引中其他长度的哈希是旧版本的校验和，需要重新计算
+    private static final int HASH_HEX_LENGTH = 64;
+    // 新计算的哈希在该时间内合并为一次索引写入
+    private static final long STAT_INDEX_SAVE_DELAY_MILLIS = 2000;
+
+    private static final ScheduledExecutorService INDEX_WRITER = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "stat-index-writer");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final Path directory;
+    private final long maxBytes;
+    // 规范路径 -> 大小,修改时间,内容哈希，大小和修改时间未变时无需重新计算哈希
+    private final Properties statIndex = new Properties();
+    private final Object statIndexFileLock = new Object();
+    private long totalBytes = -1;
+    private long hitCount;
+    private long missCount;
+    private boolean statIndexSaveScheduled;
+
+    public DiskRenderCache(Path directory, long maxBytes) {
+        this.directory = directory;
+        this.maxBytes = maxBytes;
+        loadStatIndex();
+    }
+
+    /**
+     * 打开用户配置目录下的默认缓存
+     * @return 渲染结果缓存
+     */
+    public static DiskRenderCache openDefault() {
+        return new DiskRenderCache(ConfigManager.getConfigDirectory().resolve(CACHE_DIRECTORY), DEFAULT_MAX_BYTES);
+    }
+
+    /**
+     * 读取缓存的渲染结果
+     * @param contentHash 文档内容哈希
+     * @param parserKey 解析器标识、版本以及渲染设置指纹
+     * @return 渲染结果，未命中时返回null
+     * @throws IOException 缓存读取异常
+     */
+    public String get(String contentHash, String parserKey) throws IOException {
+        Path entry = entryPath(contentHash, parserKey);
+        if (!Files.isRegularFile(entry)) {
+            recordMiss();
+            return null;
+        }
+        try (Reader reader = new InputStreamReader(new GZIPInputStream(Files.newInputStream(entry)), StandardCharsets.UTF_8);
+             BufferedReader in = new BufferedReader(reader)) {
+            // 条目头部记录了完整的键，文件名哈希冲突时视为未命中
+            String header = in.readLine();
+            if (!(contentHash + "|" + parserKey).equals(header)) {
+                recordMiss();
+                return null;
+            }
+            StringBuilder content = new StringBuilder();
+            char[] buffer = new char[8192];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                content.append(buffer, 0, read);
+            }
+            // 更新修改时间作为LRU的访问时间
+            Files.setLastModifiedTime(entry, FileTime.fromMillis(System.currentTimeMillis()));
+            recordHit();
+            return content.toString();
+        }
+    }
+
+    /**
+     * 写入渲染结果，先写临时文件再原子替换，避免中途退出留下损坏的条目
+     * @param contentHash 文档内容哈希，应在解析之前计算，避免文件在解析期间被修改
+     * @param parserKey 解析器标识、版本以及渲染设置指纹
+     * @param content 渲染结果
+     * @throws IOException 缓存写入异常
+     */
+    public void put(String contentHash, String parserKey, String content) throws IOException {
+        Path entry = entryPath(contentHash, parserKey);
+        Files.createDirectories(directory);
+        Path temp = Files.createTempFile(directory, "entry", ".tmp");
+        try {
+            try (OutputStream out = new GZIPOutputStream(Files.newOutputStream(temp), 64 * 1024);
+                 Writer writer = new OutputStreamWriter(out, StandardCharsets.UTF_8)) {
+                writer.write(contentHash + "|" + parserKey);
+                writer.write('\n');
+                writer.write(content);
+            }
+            long entrySize = Files.size(temp);
+            long previousSize = Files.isRegularFile(entry) ? Files.size(entry) : 0;
+            moveAtomically(temp, entry);
+            synchronized (this) {
+                if (totalBytes >= 0) {
+                    totalBytes += entrySize - previousSize;
+                }
+            }
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+        evictIfNeeded();
+    }
+
+    /**
+     * 获取缓存占用的磁盘空间
+     * @return 字节数
+     * @throws IOException 目录读取异常
+     */
+    public synchronized long getTotalBytes() throws IOException {
+        if (totalBytes < 0) {
+            long total = 0;
+            for (Path entry : listEntries()) {
+                total += Files.size(entry);
+            }
+            totalBytes = total;
+        }
+        return totalBytes;
+    }
+
+    public synchronized long getHitCount() {
+        return hitCount;
+    }
+
+    public synchronized long getMissCount() {
+        return missCount;
+    }
+
+    /**
+     * 计算文件内容哈希，大小和修改时间未变时直接使用上次的结果
+     * @param file 文档文件
+     * @return 内容哈希
+     * @throws IOException 文件读取异常
+     */
+    public String contentHash(File file) throws IOException {
+        String path = file.getCanonicalPath();
+        String stat = file.length() + "," + file.lastModified();
+        synchronized (this) {
+            String indexed = statIndex.getProperty(path);
+            if (indexed != null && indexed.startsWith(stat + ",")
+                    && indexed.length() == stat.length() + 1 + HASH_HEX_LENGTH) {
+                return indexed.substring(stat.length() + 1);
+            }
+        }
+
+        String hash = hashContent(file);
+
+        synchronized (this) {
+            if (statIndex.size() >= MAX_STAT_INDEX_ENTRIES) {
+                // 索引只是加速手段，过大时直接重建
+                statIndex.clear();
+            }
+            statIndex.setProperty(path, stat + "," + hash);
+            scheduleStatIndexSave();
+        }
+        return hash;
+    }
+
+    /**
+     * 立即写入大小和修改时间索引，没有未保存的修改时不写入
+     */
+    public void flushStatIndex() {
+        // 写入在锁外进行，单独的锁保证较旧的快照不会覆盖较新的
+        synchronized (statIndexFileLock) {
+            Properties snapshot = new Properties();
+            synchronized (this) {
+                if (!statIndexSaveScheduled) {
+                    return;
+                }
+                statIndexSaveScheduled = false;
+                snapshot.putAll(statIndex);
+            }
+            saveStatIndex(snapshot);
+        }
+    }
+
+    /**
+     * 计算文件内容哈希，不使用索引
+     * @param file 文件
+     * @return 内容哈希
+     * @throws IOException 文件读取异常
+     */
+    public static String hashContent(File file) throws IOException {
+        // 哈希是缓存的寻址键，内容不同的文件不能得到相同的键，因此使用抗碰撞的摘要而不是校验和
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("缺少SHA-256算法", e);
+        }
+        ByteBuffer buffer = ByteBuffer.allocateDirect(HASH_BUFFER_SIZE);
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            while (channel.read(buffer) != -1) {
+                buffer.flip();
+                digest.update(buffer);
+                buffer.clear();
+            }
+        }
+        StringBuilder hex = new StringBuilder(HASH_HEX_LENGTH);
+        for (byte b : digest.digest()) {
+            hex.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+        }
+        return hex.toString();
+    }
+
+    private Path entryPath(String contentHash, String parserKey) {
+        CRC32 keyHash = new CRC32();
+        keyHash.update(parserKey.getBytes(StandardCharsets.UTF_8));
+        return directory.resolve(contentHash + "-" + String.format("%08x", keyHash.getValue()) + ENTRY_SUFFIX);
+    }
+
+    private void evictIfNeeded() throws IOException {
+        synchronized (this) {
+            if (getTotalBytes() <= maxBytes) {
+                return;
+            }
+        }
+        List<Path> entries = listEntries();
+        // 修改时间即最近访问时间，先删除最久未访问的条目
+        entries.sort(Comparator.comparingLong(entry -> entry.toFile().lastModified()));
+        for (Path entry : entries) {
+            synchronized (this) {
+                if (totalBytes <= maxBytes) {
+                    break;
+                }
+                long size = Files.size(entry);
+                if (Files.deleteIfExists(entry)) {
+                    totalBytes -= size;
+                }
+            }
+        }
+    }
+
+    private List<Path> listEntries() throws IOException {
+        List<Path> entries = new ArrayList<>();
+        if (!Files.isDirectory(directory)) {
+            return entries;
+        }
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, "*" + ENTRY_SUFFIX)) {
+            for (Path entry : stream) {
+                entries.add(entry);
+            }
+        }
+        return entries;
+    }
+
+    private void loadStatIndex() {
+        Path indexFile = directory.resolve(STAT_INDEX_FILE);
+        if (!Files.isRegularFile(indexFile)) {
+            return;
+        }
+        try (InputStream in = Files.newInputStream(indexFile)) {
+            statIndex.load(in);
+        } catch (IOException | IllegalArgumentException e) {
+            // 索引损坏时丢弃，之后会重新计算哈希
+            statIndex.clear();
+        }
+    }
+
+    /**
+     * 在后台写入索引，调用时需持有锁
+     */
+    private void scheduleStatIndexSave() {
+        if (statIndexSaveScheduled) {
+            return;
+        }
+        statIndexSaveScheduled = true;
+        INDEX_WRITER.schedule(this::flushStatIndex, STAT_INDEX_SAVE_DELAY_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    private void saveStatIndex(Properties snapshot) {
+        try {
+            Files.createDirectories(directory);
+            Path temp = Files.createTempFile(directory, "stat-index", ".tmp");
+            try {
+                try (OutputStream out = Files.newOutputStream(temp)) {
+                    snapshot.store(out, null);
+                }
+                moveAtomically(temp, directory.resolve(STAT_INDEX_FILE));
+            } finally {
+                Files.deleteIfExists(temp);
+            }
+        } catch (IOException e) {
+            // 索引写入失败只会导致下次重新计算哈希
+        }
+    }
+
+    private static void moveAtomically(Path source, Path target) throws IOException {
+        try {
+            Files.move(source, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    private synchronized void recordHit() {
+        hitCount++;
+    }
+
+    private synchronized void recordMiss() {
+        missCount++;
+    }
+}
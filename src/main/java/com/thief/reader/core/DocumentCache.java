@@ -0,0 +1,175 @@
+package com.thief.reader.core;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * 解析结果缓存
+ * 按字节权重做LRU淘汰，键包含文件路径、大小、修改时间以及渲染设置指纹
+ */
+public class DocumentCache {
+
+    public static final long DEFAULT_MAX_WEIGHT = 64L * 1024 * 1024;
+
+    // 每个缓存项的固定开销估算（键、链表节点等）
+    private static final long ENTRY_OVERHEAD = 256;
+
+    private final long maxWeight;
+    private final LinkedHashMap<CacheKey, String> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long weight;
+    private long hitCount;
+    private long missCount;
+    private long evictionCount;
+
+    public DocumentCache() {
+        this(DEFAULT_MAX_WEIGHT);
+    }
+
+    public DocumentCache(long maxWeight) {
+        this.maxWeight = maxWeight;
+    }
+
+    /**
+     * 根据文件当前状态生成缓存键
+     * @param file 文档文件
+     * @param fingerprint 渲染设置指纹
+     * @return 缓存键
+     * @throws IOException 无法获取规范路径
+     */
+    public static CacheKey keyFor(File file, String fingerprint) throws IOException {
+        return new CacheKey(file.getCanonicalPath(), file.length(), file.lastModified(), fingerprint);
+    }
+
+    /**
+     * 查找缓存的解析结果
+     * @param key 缓存键
+     * @return 解析结果，未命中时返回null
+     */
+    public synchronized String get(CacheKey key) {
+        String content = entries.get(key);
+        if (content != null) {
+            hitCount++;
+        } else {
+            missCount++;
+        }
+        return content;
+    }
+
+    /**
+     * 缓存解析结果，超出容量时淘汰最久未使用的项
+     * @param key 缓存键
+     * @param content 解析结果
+     */
+    public synchronized void put(CacheKey key, String content) {
+        long entryWeight = weigh(content);
+        if (entryWeight > maxWeight) {
+            // 单个结果超过容量时不缓存，避免清空整个缓存
+            return;
+        }
+        String previous = entries.put(key, content);
+        if (previous != null) {
+            weight -= weigh(previous);
+        }
+        weight += entryWeight;
+
+        Iterator<Map.Entry<CacheKey, String>> iterator = entries.entrySet().iterator();
+        while (weight > maxWeight && iterator.hasNext()) {
+            Map.Entry<CacheKey, String> eldest = iterator.next();
+            weight -= weigh(eldest.getValue());
+            iterator.remove();
+            evictionCount++;
+        }
+    }
+
+    /**
+     * 清空缓存
+     */
+    public synchronized void clear() {
+        entries.clear();
+        weight = 0;
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public synchronized long getWeight() {
+        return weight;
+    }
+
+    public long getMaxWeight() {
+        return maxWeight;
+    }
+
+    public synchronized long getHitCount() {
+        return hitCount;
+    }
+
+    public synchronized long getMissCount() {
+        return missCount;
+    }
+
+    public synchronized long getEvictionCount() {
+        return evictionCount;
+    }
+
+    /**
+     * 获取命中率
+     * @return 命中率（0.0-1.0），没有访问记录时返回0
+     */
+    public synchronized double getHitRate() {
+        long total = hitCount + missCount;
+        return total == 0 ? 0.0 : (double) hitCount / total;
+    }
+
+    private static long weigh(String content) {
+        // String内部按UTF-16存储，每个字符按2字节估算
+        return content.length() * 2L + ENTRY_OVERHEAD;
+    }
+
+    /**
+     * 缓存键
+     */
+    public static final class CacheKey {
+
+        private final String canonicalPath;
+        private final long size;
+        private final long lastModified;
+        private final String fingerprint;
+
+        CacheKey(String canonicalPath, long size, long lastModified, String fingerprint) {
+            this.canonicalPath = canonicalPath;
+            this.size = size;
+            this.lastModified = lastModified;
+            this.fingerprint = fingerprint;
+        }
+
+        public String getCanonicalPath() {
+            return canonicalPath;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof CacheKey)) {
+                return false;
+            }
+            CacheKey other = (CacheKey) o;
+            return size == other.size
+                    && lastModified == other.lastModified
+                    && canonicalPath.equals(other.canonicalPath)
+                    && fingerprint.equals(other.fingerprint);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(canonicalPath, size, lastModified, fingerprint);
+        }
+    }
+}
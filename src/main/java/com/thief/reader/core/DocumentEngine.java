@@ -4,14 +4,63 @@ import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.BooleanSupplier;
 
 /**
  * 文档引擎核心类
  */
 public class DocumentEngine {
     
+    // 小于该大小的文件不写入磁盘缓存
+    private static final long MIN_DISK_CACHE_SIZE = 32 * 1024;
+    // 退出时等待磁盘缓存写入完成的最长时间
+    private static final long FLUSH_TIMEOUT_SECONDS = 10;
+    
+    // 磁盘缓存在后台写入，不阻塞文档显示
+    private static final ExecutorService CACHE_WRITER = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "render-cache-writer");
+        thread.setDaemon(true);
+        return thread;
+    });
+    
+    // 文档在后台线程加载，线程数有上限：每个加载可能映射大文件或完整提取PDF
+    // 至少两个线程，被取消但仍在解析的加载不会挡住新的加载；排队中被取消的加载开始前直接丢弃
+    private static final int LOADER_THREADS = Math.max(2, Math.min(4, Runtime.getRuntime().availableProcessors()));
+    private static final ExecutorService LOADER = newLoader();
+    
+    // 最近文件的元数据和预解析在单独的低优先级线程中依次进行，不与用户打开的文档争用加载线程
+    private static final ExecutorService PREFETCH = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "document-prefetch");
+        thread.setDaemon(true);
+        thread.setPriority(Thread.MIN_PRIORITY);
+        return thread;
+    });
+    
+    private final ParserRegistry registry = new ParserRegistry();
+    private final DocumentCache cache = new DocumentCache();
+    private final DiskRenderCache diskCache;
+    private final ReaderMetrics metrics = ReaderMetrics.getInstance();
+    // 批量转换时每个文档只解析一次，结果不放入内存缓存
+    private volatile boolean memoryCacheEnabled = true;
+    
     public DocumentEngine() {
-        // 构造函数保持空实现
+        this(DiskRenderCache.openDefault());
+    }
+    
+    /**
+     * @param diskCache 持久化的渲染结果缓存，为null时不使用
+     */
+    public DocumentEngine(DiskRenderCache diskCache) {
+        this.diskCache = diskCache;
     }
     
     /**
@@ -22,14 +71,300 @@ public class DocumentEngine {
      * @throws UnsupportedOperationException 不支持的文件类型
      */
     public String parseDocument(File file) throws IOException {
-        if (file.getName().toLowerCase().endsWith(".md")) {
-            // 每次都创建新的MarkdownParser实例以确保获取最新的设置
-            return new MarkdownParser().parse(file);
-        } else if (file.getName().toLowerCase().endsWith(".txt")) {
-            return new TextParser().parse(file);
-        } else if (file.getName().toLowerCase().endsWith(".pdf")) {
-            return new PdfParser().parse(file);
-        }
-        throw new UnsupportedOperationException("不支持的文件类型: " + file.getName());
+        DocumentParser parser = parserFor(file);
+        String fingerprint = parser.renderFingerprint();
+        DocumentCache.CacheKey key = DocumentCache.keyFor(file, fingerprint);
+        if (memoryCacheEnabled) {
+            String cached = cache.get(key);
+            metrics.recordMemoryCache(cached != null);
+            if (cached != null) {
+                return cached;
+            }
+        }
+        
+        // 小文件直接解析比读取压缩的缓存更快
+        String contentHash = null;
+        String parserKey = parser.getClass().getSimpleName() + ":" + parser.version() + ":" + fingerprint;
+        if (diskCache != null && file.length() >= MIN_DISK_CACHE_SIZE) {
+            try {
+                String[] hash = new String[1];
+                String persisted = metrics.time(ReaderMetrics.Stage.CACHE, () -> {
+                    hash[0] = diskCache.contentHash(file);
+                    return diskCache.get(hash[0], parserKey);
+                });
+                contentHash = hash[0];
+                metrics.recordDiskCache(persisted != null);
+                if (persisted != null) {
+                    if (memoryCacheEnabled) {
+                        cache.put(key, persisted);
+                    }
+                    return persisted;
+                }
+            } catch (IOException e) {
+                // 磁盘缓存不可用时退回直接解析
+                contentHash = null;
+            }
+        }
+        
+        String content = parser.parse(file);
+        if (memoryCacheEnabled) {
+            cache.put(key, content);
+        }
+        if (contentHash != null) {
+            persistAsync(contentHash, parserKey, content);
+        }
+        return content;
+    }
+    
+    /**
+     * 在后台线程加载文档
+     * 取消返回的Future后，已打开的资源会被释放，正在进行的解析完成后结果仍会进入缓存
+     * @param file 文档文件
+     * @param listener 进度监听器，在加载线程中回调，可以为null
+     * @return 加载结果
+     */
+    public CompletableFuture<LoadedDocument> loadDocumentAsync(File file, LoadProgressListener listener) {
+        CompletableFuture<LoadedDocument> future = new CompletableFuture<>();
+        LOADER.execute(() -> {
+            if (future.isCancelled()) {
+                return;
+            }
+            try {
+                LoadedDocument document = loadDocument(file, listener, future::isCancelled);
+                if (!future.complete(document)) {
+                    // 加载期间被取消
+                    document.close();
+                }
+            } catch (Throwable e) {
+                future.completeExceptionally(e);
+            }
+        });
+        return future;
+    }
+    
+    /**
+     * 加载文档：纯文本只建立开头部分的行索引，大Markdown和PDF只准备第一页，其余文档完整解析
+     * @param file 文档文件
+     * @param listener 进度监听器，可以为null
+     * @return 加载结果
+     * @throws IOException 文件读取异常
+     * @throws UnsupportedOperationException 不支持的文件类型
+     */
+    public LoadedDocument loadDocument(File file, LoadProgressListener listener) throws IOException {
+        return loadDocument(file, listener, () -> false);
+    }
+    
+    private LoadedDocument loadDocument(File file, LoadProgressListener listener, BooleanSupplier cancelled)
+            throws IOException {
+        // 本线程中各阶段的耗时计入这次加载的明细
+        LoadTrace trace = metrics.beginLoad(file);
+        Object event = ReaderEvents.beginLoad();
+        LoadedDocument document = null;
+        try {
+            document = openDocument(file, listener, cancelled);
+            document.setTrace(trace);
+            return document;
+        } finally {
+            metrics.endLoad(trace, document != null);
+            ReaderEvents.commitLoad(event, trace, document);
+        }
+    }
+    
+    private LoadedDocument openDocument(File file, LoadProgressListener listener, BooleanSupplier cancelled)
+            throws IOException {
+        LoadProgressListener progress = listener != null ? listener : (message, value) -> { };
+        progress.onProgress("正在识别文件类型", 0.0);
+        DocumentParser parser = parserFor(file);
+        
+        if (parser instanceof TextParser) {
+            // 纯文本由原生视图按行显示，这里只索引文件开头，其余部分由视图在后台继续索引
+            progress.onProgress("正在建立行索引", 0.3);
+            TextLineIndex lines = ((TextParser) parser).openLines(file);
+            try {
+                checkCancelled(cancelled);
+            } catch (CancellationException e) {
+                lines.close();
+                throw e;
+            }
+            progress.onProgress("加载完成", 1.0);
+            return LoadedDocument.lines(file, lines);
+        }
+        
+        PagedContent pagedContent = null;
+        if (parser instanceof MarkdownParser && ((MarkdownParser) parser).isProgressive(file)) {
+            progress.onProgress("正在拆分Markdown", 0.3);
+            pagedContent = ((MarkdownParser) parser).openProgressive(file);
+        } else if (parser instanceof PdfParser) {
+            progress.onProgress("正在打开PDF", 0.3);
+            pagedContent = ((PdfParser) parser).openPaged(file);
+        }
+        
+        if (pagedContent != null) {
+            try {
+                checkCancelled(cancelled);
+                progress.onProgress("正在读取第一页", 0.6);
+                String firstPage = pagedContent.pageCount() > 0 ? pagedContent.pageText(0) : "";
+                checkCancelled(cancelled);
+                progress.onProgress("加载完成", 1.0);
+                return LoadedDocument.paged(file, pagedContent, firstPage);
+            } catch (IOException | RuntimeException e) {
+                pagedContent.close();
+                throw e;
+            }
+        }
+        
+        progress.onProgress("正在解析", LoadProgressListener.INDETERMINATE);
+        String content = parseDocument(file);
+        checkCancelled(cancelled);
+        progress.onProgress("加载完成", 1.0);
+        return LoadedDocument.whole(file, content, parser.producesHtml());
+    }
+    
+    /**
+     * 在后台读取文档的元数据
+     * @param file 文档文件
+     * @return 元数据，文件不存在时exists()为false
+     */
+    public CompletableFuture<DocumentInfo> describeAsync(File file) {
+        return CompletableFuture.supplyAsync(() -> {
+            if (!file.isFile()) {
+                return DocumentInfo.missing();
+            }
+            DocumentParser parser = registry.find(file);
+            try {
+                return parser != null ? parser.describe(file) : DocumentInfo.of(file, DocumentInfo.UNKNOWN_PAGES, null);
+            } catch (IOException | RuntimeException e) {
+                // 元数据无法读取时只保留文件状态
+                return DocumentInfo.of(file, DocumentInfo.UNKNOWN_PAGES, null);
+            }
+        }, PREFETCH);
+    }
+    
+    /**
+     * 在后台预先解析文档并放入缓存，之后打开时直接命中缓存
+     * 纯文本、大Markdown和PDF本身就是按需加载的，无需预解析
+     * @param file 文档文件
+     * @return 是否进行了预解析
+     */
+    public CompletableFuture<Boolean> preloadAsync(File file) {
+        return CompletableFuture.supplyAsync(() -> {
+            DocumentParser parser = file.isFile() ? registry.find(file) : null;
+            if (parser == null || parser instanceof TextParser || parser instanceof PdfParser
+                    || (parser instanceof MarkdownParser && ((MarkdownParser) parser).isProgressive(file))) {
+                return false;
+            }
+            try {
+                parseDocument(file);
+                return true;
+            } catch (IOException | RuntimeException e) {
+                return false;
+            }
+        }, PREFETCH);
+    }
+    
+    private static void checkCancelled(BooleanSupplier cancelled) {
+        if (cancelled.getAsBoolean()) {
+            throw new CancellationException();
+        }
+    }
+    
+    /**
+     * 获取解析结果缓存
+     * @return 解析结果缓存
+     */
+    public DocumentCache getCache() {
+        return cache;
+    }
+    
+    /**
+     * 设置解析结果是否放入内存缓存，关闭后{@link #parseDocument(File)}每次都重新解析或读取磁盘缓存
+     * @param enabled 是否使用内存缓存
+     */
+    public void setMemoryCacheEnabled(boolean enabled) {
+        this.memoryCacheEnabled = enabled;
+    }
+    
+    /**
+     * 等待后台的磁盘缓存写入完成并保存哈希索引，退出前调用，否则最近解析的结果会丢失
+     */
+    public void flush() {
+        // 写入线程按提交顺序执行，空任务完成时之前的写入都已完成
+        try {
+            CACHE_WRITER.submit(() -> { }).get(FLUSH_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException | TimeoutException e) {
+            // 写入过慢时放弃等待，只影响下次打开的速度
+        }
+        if (diskCache != null) {
+            diskCache.flushStatIndex();
+        }
+    }
+    
+    /**
+     * 获取解析器注册表
+     * @return 解析器注册表
+     */
+    public ParserRegistry getRegistry() {
+        return registry;
+    }
+    
+    private static ExecutorService newLoader() {
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(LOADER_THREADS, LOADER_THREADS, 60L, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(), r -> {
+                    Thread thread = new Thread(r, "document-loader");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        // 空闲时不保留线程
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+    
+    private DocumentParser parserFor(File file) {
+        DocumentParser parser = registry.find(file);
+        if (parser == null) {
+            throw new UnsupportedOperationException("不支持的文件类型: " + file.getName());
+        }
+        return parser;
+    }
+    
+    private void persistAsync(String contentHash, String parserKey, String content) {
+        CACHE_WRITER.execute(() -> {
+            try {
+                diskCache.put(contentHash, parserKey, content);
+            } catch (IOException e) {
+                // 写入失败只影响下次启动时的打开速度
+            }
+        });
+    }
+    
+    /**
+     * 检查文档的解析结果是否为完整的HTML页面
+     * @param file 文档文件
+     * @return 是否输出HTML，否则为纯文本
+     */
+    public boolean isHtmlDocument(File file) {
+        DocumentParser parser = registry.find(file);
+        return parser != null && parser.producesHtml();
+    }
+    
+    /**
+     * 检查文件是否为按页加载的PDF
+     * @param file 文档文件
+     * @return 是否按页加载
+     */
+    public boolean isPagedPdf(File file) {
+        return registry.find(file) instanceof PdfParser;
+    }
+    
+    /**
+     * 以按页提取的方式打开PDF文档
+     * @param file PDF文件
+     * @return 按页提取的文档，使用完毕后需要关闭
+     * @throws IOException 文件读取异常
+     */
+    public PagedPdfDocument openPagedPdf(File file) throws IOException {
+        return registry.get(PdfParser.class).openPaged(file);
     }
 }
\ No newline at end of file
@@ -0,0 +1,66 @@
+package com.thief.reader.core;
+
+import java.io.File;
+
+/**
+ * 文档元数据，用于在不打开文档的情况下显示标题和页数
+ */
+public final class DocumentInfo {
+    
+    public static final int UNKNOWN_PAGES = -1;
+    
+    private final boolean exists;
+    private final long size;
+    private final long lastModified;
+    private final int pageCount;
+    private final String title;
+    
+    private DocumentInfo(boolean exists, long size, long lastModified, int pageCount, String title) {
+        this.exists = exists;
+        this.size = size;
+        this.lastModified = lastModified;
+        this.pageCount = pageCount;
+        this.title = title;
+    }
+    
+    /**
+     * 根据文件当前状态生成元数据
+     * @param file 文档文件
+     * @param pageCount 页数，未知时为UNKNOWN_PAGES
+     * @param title 标题，没有时为null
+     * @return 元数据
+     */
+    public static DocumentInfo of(File file, int pageCount, String title) {
+        String trimmed = title == null ? null : title.trim();
+        return new DocumentInfo(true, file.length(), file.lastModified(), pageCount,
+                trimmed == null || trimmed.isEmpty() ? null : trimmed);
+    }
+    
+    /**
+     * 文件不存在时的元数据
+     * @return 元数据
+     */
+    public static DocumentInfo missing() {
+        return new DocumentInfo(false, 0, 0, UNKNOWN_PAGES, null);
+    }
+    
+    public boolean exists() {
+        return exists;
+    }
+    
+    public long getSize() {
+        return size;
+    }
+    
+    public long getLastModified() {
+        return lastModified;
+    }
+    
+    public int getPageCount() {
+        return pageCount;
+    }
+    
+    public String getTitle() {
+        return title;
+    }
+}
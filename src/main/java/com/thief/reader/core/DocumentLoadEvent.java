@@ -0,0 +1,44 @@
+package com.thief.reader.core;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * 一次文档加载的JFR事件，覆盖DocumentEngine中从识别文件类型到返回结果的全过程
+ */
+@Name("com.thief.reader.DocumentLoad")
+@Label("文档加载")
+@Category({"Thief Reader", "文档加载"})
+@Description("后台加载文档的总耗时，不包括页面显示")
+public class DocumentLoadEvent extends jdk.jfr.Event {
+    
+    @Label("文件")
+    String path;
+    
+    @Label("文件大小")
+    @DataAmount(DataAmount.BYTES)
+    long fileSize;
+    
+    @Label("类型")
+    String fileType;
+    
+    @Label("编码")
+    String charset;
+    
+    @Label("加载方式")
+    @Description("whole：完整解析；paged：分页；lines：按行显示")
+    String kind;
+    
+    @Label("缓存")
+    String cache;
+    
+    @Label("处理字节数")
+    @DataAmount(DataAmount.BYTES)
+    long bytesProcessed;
+    
+    @Label("成功")
+    boolean succeeded;
+}
@@ -22,4 +22,48 @@ public interface DocumentParser {
      * @return 是否支持
      */
     boolean supports(File file);
+    
+    /**
+     * 根据文件头判断是否为该解析器处理的格式，用于识别扩展名错误的文件
+     * @param header 文件开头的若干字节
+     * @return 是否可以确定为该格式
+     */
+    default boolean supportsContent(byte[] header) {
+        return false;
+    }
+    
+    /**
+     * 读取标题和页数等元数据，只读取必要的部分，不做完整解析
+     * @param file 文档文件
+     * @return 元数据
+     * @throws IOException 文件读取异常
+     */
+    default DocumentInfo describe(File file) throws IOException {
+        return DocumentInfo.of(file, DocumentInfo.UNKNOWN_PAGES, null);
+    }
+    
+    /**
+     * 解析结果是否为完整的HTML页面，否则为纯文本
+     * @return 是否输出HTML
+     */
+    default boolean producesHtml() {
+        return false;
+    }
+    
+    /**
+     * 影响解析结果的渲染设置指纹，设置变化后缓存的解析结果会失效
+     * 实现必须是线程安全的，解析器实例在各线程间共享
+     * @return 设置指纹
+     */
+    default String renderFingerprint() {
+        return "";
+    }
+    
+    /**
+     * 解析器版本，输出格式变化时递增，用于使持久化的解析结果失效
+     * @return 版本号
+     */
+    default int version() {
+        return 1;
+    }
 }
\ No newline at end of file
@@ -0,0 +1,25 @@
+package com.thief.reader.core;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Threshold;
+
+/**
+ * FX线程卡顿的JFR事件，持续时间为心跳任务在事件队列中等待的时间
+ */
+@Name("com.thief.reader.FxStall")
+@Label("界面卡顿")
+@Category({"Thief Reader", "界面"})
+@Description("FX线程超过阈值没有处理事件")
+@Threshold("200 ms")
+public class FxStallEvent extends jdk.jfr.Event {
+    
+    @Label("FX线程堆栈")
+    @Description("卡顿期间采样到的FX线程调用栈")
+    String fxStack;
+    
+    @Label("当前文件")
+    String path;
+}
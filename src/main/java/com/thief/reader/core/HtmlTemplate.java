@@ -0,0 +1,133 @@
+package com.thief.reader.core;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * HTML页面模板
+ * 样式表是静态的，字体、缩放等设置通过CSS变量在页面加载后注入
+ */
+public final class HtmlTemplate {
+    
+    private static final String STYLESHEET = loadResource("reader.css");
+    private static final String FIND_SCRIPT = loadResource("find.js");
+    
+    private HtmlTemplate() {
+    }
+    
+    /**
+     * 将HTML片段包装为完整的页面
+     * @param bodyHtml 页面主体的HTML
+     * @return 完整的HTML文档
+     */
+    public static String wrap(String bodyHtml) {
+        return wrap(bodyHtml, "");
+    }
+    
+    /**
+     * 将纯文本包装为保留空白的完整页面
+     * @param text 纯文本
+     * @return 完整的HTML文档
+     */
+    public static String wrapText(String text) {
+        return wrap(escapeHtml(text), " class=\"plain-text\"");
+    }
+    
+    /**
+     * 生成作为用户样式表使用的data URL
+     * 用户样式表在页面首次绘制前生效，避免加载时出现默认样式的闪烁
+     * @param style 阅读样式
+     * @param transparent 是否强制透明背景（极简模式）
+     * @return data URL
+     */
+    public static String userStyleSheet(ReaderStyle style, boolean transparent) {
+        String css = ":root {" + style.toCssVariables() + "}";
+        if (transparent) {
+            css += "body, html { background: transparent !important; background-color: transparent !important; }";
+        }
+        return "data:text/css;charset=utf-8;base64," + Base64.getEncoder().encodeToString(css.getBytes(StandardCharsets.UTF_8));
+    }
+    
+    /**
+     * 获取页面内查找脚本，在页面加载完成后注入
+     * @return JavaScript脚本
+     */
+    public static String findScript() {
+        return FIND_SCRIPT;
+    }
+    
+    /**
+     * 生成更新已加载页面样式的脚本
+     * @param style 阅读样式
+     * @return JavaScript脚本
+     */
+    public static String styleScript(ReaderStyle style) {
+        String declarations = style.toCssVariables().replace("\\", "\\\\").replace("\"", "\\\"");
+        return "(function(declarations) {" +
+                "  var style = document.documentElement.style;" +
+                "  declarations.split(';').forEach(function(declaration) {" +
+                "    var index = declaration.indexOf(':');" +
+                "    if (index > 0) {" +
+                "      style.setProperty(declaration.substring(0, index).trim(), declaration.substring(index + 1).trim());" +
+                "    }" +
+                "  });" +
+                "})(\"" + declarations + "\");";
+    }
+    
+    /**
+     * 转义HTML特殊字符
+     * @param text 纯文本
+     * @return 转义后的文本
+     */
+    public static String escapeHtml(String text) {
+        StringBuilder sb = new StringBuilder(text.length() + 16);
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            switch (c) {
+                case '<':
+                    sb.append("&lt;");
+                    break;
+                case '>':
+                    sb.append("&gt;");
+                    break;
+                case '&':
+                    sb.append("&amp;");
+                    break;
+                default:
+                    sb.append(c);
+            }
+        }
+        return sb.toString();
+    }
+    
+    private static String wrap(String bodyHtml, String bodyAttributes) {
+        return new StringBuilder(bodyHtml.length() + STYLESHEET.length() + 128)
+                .append("<!DOCTYPE html>\n<html>\n<head>\n    <meta charset='UTF-8'>\n    <style>\n")
+                .append(STYLESHEET)
+                .append("    </style>\n</head>\n<body").append(bodyAttributes).append(">\n")
+                .append(bodyHtml)
+                .append("\n</body>\n</html>")
+                .toString();
+    }
+    
+    private static String loadResource(String name) {
+        try (InputStream in = HtmlTemplate.class.getResourceAsStream(name)) {
+            if (in == null) {
+                throw new IllegalStateException("缺少资源文件: " + name);
+            }
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                out.write(buffer, 0, read);
+            }
+            return new String(out.toByteArray(), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package com.thief.reader.core;
+
+/**
+ * 文档加载进度监听器
+ * 回调在加载线程中执行，界面代码需要自行切换到FX线程
+ */
+@FunctionalInterface
+public interface LoadProgressListener {
+    
+    // 无法估算进度时使用的值
+    double INDETERMINATE = -1;
+    
+    /**
+     * 加载进度更新
+     * @param message 当前阶段描述
+     * @param progress 进度（0.0-1.0），无法估算时为INDETERMINATE
+     */
+    void onProgress(String message, double progress);
+}
@@ -0,0 +1,158 @@
+package com.thief.reader.core;
+
+import java.io.File;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * 一次文档加载的耗时明细
+ * 解析阶段在加载线程中记录，页面显示阶段稍后由界面在FX线程中补充
+ */
+public final class LoadTrace {
+    
+    private final File file;
+    private final long startNanos;
+    private final EnumMap<ReaderMetrics.Stage, Long> stageNanos = new EnumMap<>(ReaderMetrics.Stage.class);
+    private long loadNanos = -1;
+    private long bytes;
+    private String cacheResult = "未使用";
+    private String charset;
+    private String pdfMemory;
+    
+    LoadTrace(File file) {
+        this.file = file;
+        this.startNanos = System.nanoTime();
+    }
+    
+    public File getFile() {
+        return file;
+    }
+    
+    synchronized void addStage(ReaderMetrics.Stage stage, long nanos) {
+        Long previous = stageNanos.get(stage);
+        stageNanos.put(stage, previous != null ? previous + nanos : nanos);
+    }
+    
+    synchronized void addBytes(long count) {
+        bytes += count;
+    }
+    
+    synchronized void setCacheResult(String cacheResult) {
+        this.cacheResult = cacheResult;
+    }
+    
+    synchronized void setCharset(String charset) {
+        this.charset = charset;
+    }
+    
+    /**
+     * 检测到的文本编码
+     * @return 编码名称，PDF等不需要检测编码的文档为null
+     */
+    public synchronized String getCharset() {
+        return charset;
+    }
+    
+    synchronized void setPdfMemory(String pdfMemory) {
+        this.pdfMemory = pdfMemory;
+    }
+    
+    /**
+     * PDF文档实际使用的内存模式
+     * @return 模式说明，例如“混合 64MB”，不是PDF时为null
+     */
+    public synchronized String getPdfMemory() {
+        return pdfMemory;
+    }
+    
+    synchronized void finish() {
+        loadNanos = System.nanoTime() - startNanos;
+    }
+    
+    /**
+     * 获取各阶段耗时，按阶段在流程中的顺序排列
+     * @return 阶段 -> 纳秒
+     */
+    public synchronized Map<ReaderMetrics.Stage, Long> getStageNanos() {
+        return new EnumMap<>(stageNanos);
+    }
+    
+    /**
+     * 获取后台加载的总耗时，不包括页面显示
+     * @return 纳秒，加载未完成时为-1
+     */
+    public synchronized long getLoadNanos() {
+        return loadNanos;
+    }
+    
+    /**
+     * 获取从开始加载到页面显示完成的总耗时
+     * @return 纳秒，加载未完成时为-1
+     */
+    public synchronized long getTotalNanos() {
+        if (loadNanos < 0) {
+            return -1;
+        }
+        Long render = stageNanos.get(ReaderMetrics.Stage.RENDER);
+        return loadNanos + (render != null ? render : 0);
+    }
+    
+    public synchronized long getBytes() {
+        return bytes;
+    }
+    
+    /**
+     * 解析结果缓存的命中情况
+     * @return 内存缓存、磁盘缓存、未命中或未使用
+     */
+    public synchronized String getCacheResult() {
+        return cacheResult;
+    }
+    
+    /**
+     * 生成单行摘要，例如：读取 3ms · Markdown渲染 40ms · 页面显示 120ms | 合计 166ms | 1.2MB | 未命中
+     * @return 摘要文本
+     */
+    public synchronized String summary() {
+        StringBuilder summary = new StringBuilder();
+        for (Map.Entry<ReaderMetrics.Stage, Long> entry : stageNanos.entrySet()) {
+            if (summary.length() > 0) {
+                summary.append(" · ");
+            }
+            summary.append(entry.getKey().getLabel()).append(' ').append(formatMillis(entry.getValue()));
+        }
+        if (summary.length() > 0) {
+            summary.append(" | ");
+        }
+        summary.append("合计 ").append(formatMillis(getTotalNanos()))
+                .append(" | ").append(formatBytes(bytes))
+                .append(" | ").append(cacheResult);
+        if (pdfMemory != null) {
+            summary.append(" | ").append(pdfMemory);
+        }
+        return summary.toString();
+    }
+    
+    @Override
+    public String toString() {
+        return file.getName() + ": " + summary();
+    }
+    
+    static String formatMillis(long nanos) {
+        if (nanos < 0) {
+            return "-";
+        }
+        double millis = nanos / 1e6;
+        return millis < 10 ? String.format("%.1fms", millis) : String.format("%.0fms", millis);
+    }
+    
+    private static String formatBytes(long bytes) {
+        if (bytes < 1024) {
+            return bytes + "B";
+        }
+        if (bytes < 1024 * 1024) {
+            return String.format("%.1fKB", bytes / 1024.0);
+        }
+        return String.format("%.1fMB", bytes / (1024.0 * 1024));
+    }
+}
@@ -0,0 +1,108 @@
+package com.thief.reader.core;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * 加载完成的文档
+ * 小文档持有完整的解析结果，大Markdown和PDF持有分页内容以及已提取的第一页，纯文本持有行索引
+ */
+public final class LoadedDocument implements Closeable {
+    
+    private final File file;
+    private final String content;
+    private final boolean html;
+    private final PagedContent pagedContent;
+    private final TextLineIndex lines;
+    private LoadTrace trace;
+    
+    private LoadedDocument(File file, String content, boolean html, PagedContent pagedContent, TextLineIndex lines) {
+        this.file = file;
+        this.content = content;
+        this.html = html;
+        this.pagedContent = pagedContent;
+        this.lines = lines;
+    }
+    
+    static LoadedDocument whole(File file, String content, boolean html) {
+        return new LoadedDocument(file, content, html, null, null);
+    }
+    
+    static LoadedDocument paged(File file, PagedContent pagedContent, String firstPage) {
+        return new LoadedDocument(file, firstPage, pagedContent.producesHtml(), pagedContent, null);
+    }
+    
+    static LoadedDocument lines(File file, TextLineIndex lines) {
+        return new LoadedDocument(file, "", false, null, lines);
+    }
+    
+    public File getFile() {
+        return file;
+    }
+    
+    void setTrace(LoadTrace trace) {
+        this.trace = trace;
+    }
+    
+    /**
+     * 获取加载耗时明细
+     * @return 加载明细，不是通过DocumentEngine加载时为null
+     */
+    public LoadTrace getTrace() {
+        return trace;
+    }
+    
+    /**
+     * 获取文档内容，分页文档只包含第一页
+     * @return 文档内容
+     */
+    public String getContent() {
+        return content;
+    }
+    
+    /**
+     * 内容是否为HTML，完整文档为带样式的页面，分页文档为第一页的HTML片段；否则为纯文本
+     * @return 是否为HTML
+     */
+    public boolean isHtml() {
+        return html;
+    }
+    
+    public boolean isPaged() {
+        return pagedContent != null;
+    }
+    
+    /**
+     * 获取分页内容，所有权随之转移给调用者
+     * @return 分页内容，非分页文档返回null
+     */
+    public PagedContent getPagedContent() {
+        return pagedContent;
+    }
+    
+    /**
+     * 获取纯文本文档的行索引，所有权随之转移给调用者
+     * @return 行索引，其他文档返回null
+     */
+    public TextLineIndex getLines() {
+        return lines;
+    }
+    
+    /**
+     * 释放分页内容或行索引，加载被取消或结果被丢弃时调用
+     */
+    @Override
+    public void close() {
+        try {
+            if (pagedContent != null) {
+                pagedContent.close();
+            }
+            if (lines != null) {
+                lines.close();
+            }
+        } catch (IOException e) {
+            // 关闭失败不影响后续加载
+        }
+    }
+}
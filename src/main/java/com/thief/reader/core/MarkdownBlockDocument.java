@@ -0,0 +1,227 @@
+package com.thief.reader.core;
+
+import com.thief.reader.util.FileUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * 渐进渲染的Markdown文档
+ * 源码按顶层块拆分成批，每一批是一页，首屏只渲染第一批，后台线程提前渲染后续批次
+ * 文件修改后只重新渲染变化所在的批次，其余批次的渲染结果继续使用
+ */
+public class MarkdownBlockDocument implements PagedContent {
+    
+    // 第一批约为一屏的内容，后续批次更大以减少追加次数
+    static final int FIRST_BATCH_CHARS = 8 * 1024;
+    static final int BATCH_CHARS = 64 * 1024;
+    
+    // 每次访问后提前渲染的批数
+    private static final int PREFETCH_BATCHES = 2;
+    
+    private final MarkdownParser parser;
+    // 以下三项在更新时一起替换，由this保护
+    private String source;
+    private MarkdownBlockSplitter.Result batches;
+    private String[] pages;
+    private final ExecutorService renderExecutor;
+    private volatile boolean closed;
+    
+    MarkdownBlockDocument(MarkdownParser parser, String source) {
+        this.parser = parser;
+        this.source = source;
+        this.batches = MarkdownBlockSplitter.split(source, FIRST_BATCH_CHARS, BATCH_CHARS);
+        this.pages = new String[batches.batchCount()];
+        this.renderExecutor = Executors.newSingleThreadExecutor(r -> {
+            Thread thread = new Thread(r, "markdown-block-render");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+    
+    @Override
+    public synchronized int pageCount() {
+        return pages.length;
+    }
+    
+    /**
+     * 获取指定批次渲染后的HTML片段
+     * @param index 批次序号（从0开始）
+     * @return HTML片段
+     * @throws IOException 文档已关闭
+     */
+    @Override
+    public String pageText(int index) throws IOException {
+        if (index < 0 || index >= pageCount()) {
+            throw new IndexOutOfBoundsException("批次序号越界: " + index);
+        }
+        if (closed) {
+            throw new IOException("文档已关闭");
+        }
+        String html = render(index);
+        prefetch(index + 1);
+        return html;
+    }
+    
+    @Override
+    public boolean producesHtml() {
+        return true;
+    }
+    
+    /**
+     * 检查批次是否已经渲染
+     * @param index 批次序号（从0开始）
+     * @return 是否已渲染
+     */
+    public synchronized boolean isRendered(int index) {
+        return pages[index] != null;
+    }
+    
+    @Override
+    public void close() {
+        closed = true;
+        renderExecutor.shutdownNow();
+    }
+    
+    /**
+     * 读取修改后的文件并计算变化，只渲染其中已经显示的批次，可以在后台线程调用
+     * @param file Markdown文件
+     * @param loadedPages 已经显示的页数，这些页中变化的批次需要立即替换
+     * @return 变化，内容没有变化时返回null
+     * @throws IOException 文件读取异常
+     */
+    public Update diff(File file, int loadedPages) throws IOException {
+        return diff(FileUtils.readText(file), loadedPages);
+    }
+    
+    Update diff(String newSource, int loadedPages) {
+        String oldSource;
+        MarkdownBlockSplitter.Result oldBatches;
+        synchronized (this) {
+            oldSource = source;
+            oldBatches = batches;
+        }
+        if (oldSource.equals(newSource)) {
+            return null;
+        }
+        MarkdownBlockSplitter.Edit edit = MarkdownBlockSplitter.resplit(oldSource, oldBatches, newSource,
+                FIRST_BATCH_CHARS, BATCH_CHARS);
+        int visible = Math.max(0, Math.min(edit.getInsertedBatches(), loadedPages - edit.getFirstBatch()));
+        String[] rendered = new String[edit.getInsertedBatches()];
+        for (int i = 0; i < visible; i++) {
+            rendered[i] = renderBatch(newSource, edit.getResult(), edit.getFirstBatch() + i);
+        }
+        return new Update(oldSource, newSource, edit, rendered);
+    }
+    
+    /**
+     * 应用变化，未变化批次的渲染结果原样保留
+     * @param update 由diff计算的变化
+     * @return 是否应用成功，计算之后内容又被更新过时返回false
+     */
+    public synchronized boolean apply(Update update) {
+        if (closed || update.baseSource != source) {
+            return false;
+        }
+        MarkdownBlockSplitter.Edit edit = update.edit;
+        int first = edit.getFirstBatch();
+        int tail = pages.length - first - edit.getRemovedBatches();
+        String[] updated = new String[first + edit.getInsertedBatches() + tail];
+        System.arraycopy(pages, 0, updated, 0, first);
+        System.arraycopy(update.rendered, 0, updated, first, update.rendered.length);
+        System.arraycopy(pages, first + edit.getRemovedBatches(), updated, first + edit.getInsertedBatches(), tail);
+        source = update.newSource;
+        batches = edit.getResult();
+        pages = updated;
+        return true;
+    }
+    
+    private String render(int index) {
+        String snapshotSource;
+        MarkdownBlockSplitter.Result snapshotBatches;
+        String[] snapshotPages;
+        synchronized (this) {
+            if (pages[index] != null) {
+                return pages[index];
+            }
+            snapshotSource = source;
+            snapshotBatches = batches;
+            snapshotPages = pages;
+        }
+        String html = renderBatch(snapshotSource, snapshotBatches, index);
+        synchronized (this) {
+            // 渲染期间内容被更新时不写入新的批次数组
+            if (snapshotPages != pages) {
+                return html;
+            }
+            if (pages[index] == null) {
+                pages[index] = html;
+            }
+            return pages[index];
+        }
+    }
+    
+    private String renderBatch(String markdown, MarkdownBlockSplitter.Result result, int index) {
+        String batch = markdown.substring(result.batchStart(index), result.batchEnd(index));
+        // 每批都附加链接引用定义，使引用式链接在任意批次中都能解析
+        return "<div class=\"md-block\">"
+                + parser.renderFragment(batch + "\n\n" + result.getReferenceDefinitions())
+                + "</div>\n";
+    }
+    
+    private void prefetch(int from) {
+        int to;
+        synchronized (this) {
+            to = Math.min(pages.length - 1, from + PREFETCH_BATCHES - 1);
+            if (from > to || closed) {
+                return;
+            }
+            if (pages[from] != null && pages[to] != null) {
+                return;
+            }
+        }
+        renderExecutor.execute(() -> {
+            for (int i = from; i <= to && !closed; i++) {
+                try {
+                    render(i);
+                } catch (RuntimeException e) {
+                    // 预渲染失败不影响前台读取，前台访问时会重新渲染
+                    return;
+                }
+            }
+        });
+    }
+    
+    /**
+     * 源码的一次变化，新批次替换原来从getFirstPage()开始的getRemovedPages()页
+     */
+    public static final class Update {
+        
+        private final String baseSource;
+        private final String newSource;
+        private final MarkdownBlockSplitter.Edit edit;
+        // 新批次中已经渲染的部分，其余为null
+        private final String[] rendered;
+        
+        Update(String baseSource, String newSource, MarkdownBlockSplitter.Edit edit, String[] rendered) {
+            this.baseSource = baseSource;
+            this.newSource = newSource;
+            this.edit = edit;
+            this.rendered = rendered;
+        }
+        
+        public int getFirstPage() {
+            return edit.getFirstBatch();
+        }
+        
+        public int getRemovedPages() {
+            return edit.getRemovedBatches();
+        }
+        
+        public int getInsertedPages() {
+            return edit.getInsertedBatches();
+        }
+    }
+}
@@ -0,0 +1,278 @@
+package com.thief.reader.core;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * Markdown源码的顶层块拆分器
+ * 只在代码块之外、下一行没有缩进的空行处拆分，拆分后的每一批可以独立渲染
+ */
+final class MarkdownBlockSplitter {
+    
+    // 链接引用定义对整个文档生效，需要附加到每一批的源码中
+    private static final Pattern REFERENCE_DEFINITION = Pattern.compile("^ {0,3}\\[[^\\]]+\\]:\\s*\\S.*");
+    
+    private MarkdownBlockSplitter() {
+    }
+    
+    /**
+     * 拆分Markdown源码
+     * @param source Markdown源码
+     * @param firstBatchChars 第一批的最少字符数，约为一屏的内容
+     * @param batchChars 后续每批的最少字符数
+     * @return 拆分结果
+     */
+    static Result split(String source, int firstBatchChars, int batchChars) {
+        List<Integer> starts = new ArrayList<>();
+        StringBuilder references = new StringBuilder();
+        starts.add(0);
+        int batchStart = 0;
+        int budget = firstBatchChars;
+        char fenceChar = 0;
+        int fenceLength = 0;
+        boolean previousBlank = false;
+        
+        int lineStart = 0;
+        while (lineStart < source.length()) {
+            int lineEnd = source.indexOf('\n', lineStart);
+            int next = lineEnd < 0 ? source.length() : lineEnd + 1;
+            String line = source.substring(lineStart, lineEnd < 0 ? source.length() : lineEnd);
+            boolean blank = line.trim().isEmpty();
+            
+            if (fenceChar != 0) {
+                if (closesFence(line, fenceChar, fenceLength)) {
+                    fenceChar = 0;
+                }
+            } else {
+                // 空行之后没有缩进的行才是新的顶层块，缩进行可能是列表项的延续
+                if (previousBlank && !blank && !isIndented(line) && lineStart - batchStart >= budget) {
+                    starts.add(lineStart);
+                    batchStart = lineStart;
+                    budget = batchChars;
+                }
+                int fence = fenceLength(line);
+                if (fence > 0) {
+                    fenceChar = line.trim().charAt(0);
+                    fenceLength = fence;
+                } else if (REFERENCE_DEFINITION.matcher(line).matches()) {
+                    references.append(line).append('\n');
+                }
+            }
+            previousBlank = blank;
+            lineStart = next;
+        }
+        
+        int[] bounds = new int[starts.size() + 1];
+        for (int i = 0; i < starts.size(); i++) {
+            bounds[i] = starts.get(i);
+        }
+        bounds[starts.size()] = source.length();
+        // 结尾处于代码块之外且最后一行为空行时，紧随其后的无缩进行可以作为新的顶层块
+        boolean openEnd = source.isEmpty() || (fenceChar == 0 && previousBlank && source.endsWith("\n"));
+        return new Result(bounds, references.toString(), openEnd);
+    }
+    
+    /**
+     * 源码修改后只重新拆分变化所在的批次，之前和之后的批次边界原样保留
+     * 变化跨越了边界（例如新增了未闭合的代码块）时向后扩大范围，链接引用定义变化时重新拆分全文
+     * @param oldSource 修改前的源码
+     * @param old 修改前的拆分结果
+     * @param newSource 修改后的源码
+     * @param firstBatchChars 第一批的最少字符数
+     * @param batchChars 后续每批的最少字符数
+     * @return 拆分结果以及被替换的批次范围
+     */
+    static Edit resplit(String oldSource, Result old, String newSource, int firstBatchChars, int batchChars) {
+        int oldLength = oldSource.length();
+        int newLength = newSource.length();
+        int limit = Math.min(oldLength, newLength);
+        int prefix = 0;
+        while (prefix < limit && oldSource.charAt(prefix) == newSource.charAt(prefix)) {
+            prefix++;
+        }
+        int suffix = 0;
+        while (suffix < limit - prefix
+                && oldSource.charAt(oldLength - 1 - suffix) == newSource.charAt(newLength - 1 - suffix)) {
+            suffix++;
+        }
+        int delta = newLength - oldLength;
+        int count = old.batchCount();
+        if (count == 0) {
+            return full(old, newSource, firstBatchChars, batchChars);
+        }
+        
+        // 变化恰好从批次开头开始时，这一行可能不再是顶层块的起点，从上一批开始重新拆分
+        int first = batchAt(old, prefix);
+        if (first > 0 && old.batchStart(first) == prefix) {
+            first--;
+        }
+        int last = Math.max(first, batchAt(old, Math.max(prefix, oldLength - suffix - 1)));
+        int start = old.batchStart(first);
+        while (true) {
+            int end = old.batchEnd(last) + delta;
+            Result region = split(newSource.substring(start, end), first == 0 ? firstBatchChars : batchChars, batchChars);
+            if (end < newLength && !region.openEnd && last + 1 < count) {
+                last++;
+                continue;
+            }
+            Result previous = split(oldSource.substring(start, old.batchEnd(last)), first == 0 ? firstBatchChars : batchChars,
+                    batchChars);
+            if (!region.referenceDefinitions.equals(previous.referenceDefinitions)) {
+                return full(old, newSource, firstBatchChars, batchChars);
+            }
+            
+            int inserted = region.batchCount();
+            int[] bounds = new int[count - (last - first + 1) + inserted + 1];
+            System.arraycopy(old.bounds, 0, bounds, 0, first);
+            for (int i = 0; i < inserted; i++) {
+                bounds[first + i] = start + region.bounds[i];
+            }
+            for (int i = last + 1; i <= count; i++) {
+                bounds[first + inserted + i - last - 1] = old.bounds[i] + delta;
+            }
+            Result result = new Result(bounds, old.referenceDefinitions, last + 1 == count ? region.openEnd : old.openEnd);
+            return new Edit(result, first, last - first + 1, inserted);
+        }
+    }
+    
+    private static Edit full(Result old, String newSource, int firstBatchChars, int batchChars) {
+        Result result = split(newSource, firstBatchChars, batchChars);
+        return new Edit(result, 0, old.batchCount(), result.batchCount());
+    }
+    
+    /**
+     * 查找包含该偏移的批次
+     */
+    private static int batchAt(Result result, int offset) {
+        int lo = 0;
+        int hi = result.batchCount() - 1;
+        while (lo < hi) {
+            int mid = (lo + hi + 1) >>> 1;
+            if (result.bounds[mid] <= offset) {
+                lo = mid;
+            } else {
+                hi = mid - 1;
+            }
+        }
+        return lo;
+    }
+    
+    private static boolean isIndented(String line) {
+        return line.startsWith(" ") || line.startsWith("\t");
+    }
+    
+    /**
+     * 计算代码块起始标记的长度
+     * @return 标记长度，不是代码块起始行时返回0
+     */
+    private static int fenceLength(String line) {
+        int indent = leadingSpaces(line);
+        if (indent > 3 || indent >= line.length()) {
+            return 0;
+        }
+        char c = line.charAt(indent);
+        if (c != '`' && c != '~') {
+            return 0;
+        }
+        int length = 0;
+        while (indent + length < line.length() && line.charAt(indent + length) == c) {
+            length++;
+        }
+        if (length < 3) {
+            return 0;
+        }
+        // 反引号代码块的信息字符串中不能再出现反引号
+        if (c == '`' && line.indexOf('`', indent + length) >= 0) {
+            return 0;
+        }
+        return length;
+    }
+    
+    private static int leadingSpaces(String line) {
+        int count = 0;
+        while (count < line.length() && line.charAt(count) == ' ') {
+            count++;
+        }
+        return count;
+    }
+    
+    private static boolean closesFence(String line, char fenceChar, int openLength) {
+        String trimmed = line.trim();
+        if (leadingSpaces(line) > 3 || trimmed.length() < openLength) {
+            return false;
+        }
+        for (int i = 0; i < trimmed.length(); i++) {
+            if (trimmed.charAt(i) != fenceChar) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    /**
+     * 拆分结果
+     */
+    static final class Result {
+        
+        private final int[] bounds;
+        private final String referenceDefinitions;
+        private final boolean openEnd;
+        
+        Result(int[] bounds, String referenceDefinitions, boolean openEnd) {
+            this.bounds = bounds;
+            this.referenceDefinitions = referenceDefinitions;
+            this.openEnd = openEnd;
+        }
+        
+        int batchCount() {
+            return bounds.length - 1;
+        }
+        
+        int batchStart(int index) {
+            return bounds[index];
+        }
+        
+        int batchEnd(int index) {
+            return bounds[index + 1];
+        }
+        
+        String getReferenceDefinitions() {
+            return referenceDefinitions;
+        }
+    }
+    
+    /**
+     * 局部重新拆分的结果，新批次替换原来从firstBatch开始的removedBatches个批次
+     */
+    static final class Edit {
+        
+        private final Result result;
+        private final int firstBatch;
+        private final int removedBatches;
+        private final int insertedBatches;
+        
+        Edit(Result result, int firstBatch, int removedBatches, int insertedBatches) {
+            this.result = result;
+            this.firstBatch = firstBatch;
+            this.removedBatches = removedBatches;
+            this.insertedBatches = insertedBatches;
+        }
+        
+        Result getResult() {
+            return result;
+        }
+        
+        int getFirstBatch() {
+            return firstBatch;
+        }
+        
+        int getRemovedBatches() {
+            return removedBatches;
+        }
+        
+        int getInsertedBatches() {
+            return insertedBatches;
+        }
+    }
+}
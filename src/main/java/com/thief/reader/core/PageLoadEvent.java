@@ -0,0 +1,37 @@
+package com.thief.reader.core;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * WebView加载页面的JFR事件，从loadContent开始到加载状态变为结束状态为止
+ */
+@Name("com.thief.reader.PageLoad")
+@Label("页面加载")
+@Category({"Thief Reader", "界面"})
+@Description("WebKit加载并排版页面内容的耗时")
+public class PageLoadEvent extends jdk.jfr.Event {
+    
+    @Label("文件")
+    String path;
+    
+    @Label("文件大小")
+    @DataAmount(DataAmount.BYTES)
+    long fileSize;
+    
+    @Label("类型")
+    String fileType;
+    
+    @Label("内容长度")
+    @Description("传给loadContent的字符数")
+    long contentLength;
+    
+    @Label("模式")
+    String mode;
+    
+    @Label("结束状态")
+    String state;
+}
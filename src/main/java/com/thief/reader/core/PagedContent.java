@@ -0,0 +1,33 @@
+package com.thief.reader.core;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * 可按页读取的文档内容
+ * 用于大文档的增量显示，只有被访问的页才会被读取或提取
+ */
+public interface PagedContent extends Closeable {
+    
+    /**
+     * 获取总页数
+     * @return 页数
+     */
+    int pageCount();
+    
+    /**
+     * 获取指定页的内容
+     * @param index 页序号（从0开始）
+     * @return 页面文本
+     * @throws IOException 文件读取异常
+     */
+    String pageText(int index) throws IOException;
+    
+    /**
+     * 页面内容是否为HTML片段，否则为纯文本
+     * @return 是否为HTML
+     */
+    default boolean producesHtml() {
+        return false;
+    }
+}
@@ -0,0 +1,163 @@
+package com.thief.reader.core;
+
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.text.PDFTextStripper;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * 按页提取文本的PDF文档
+ * 页面在首次访问时提取并缓存，后台线程会预取后续页面
+ */
+public class PagedPdfDocument implements PagedContent {
+    
+    // 每次访问后预取的页数
+    private static final int PREFETCH_PAGES = 4;
+    
+    private final PDDocument document;
+    private final int pageCount;
+    private final String[] pages;
+    private final ExecutorService prefetchExecutor;
+    private volatile boolean closed;
+    
+    PagedPdfDocument(PDDocument document) {
+        this.document = document;
+        this.pageCount = document.getNumberOfPages();
+        this.pages = new String[pageCount];
+        this.prefetchExecutor = Executors.newSingleThreadExecutor(r -> {
+            Thread thread = new Thread(r, "pdf-page-prefetch");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+    
+    @Override
+    public int pageCount() {
+        return pageCount;
+    }
+    
+    /**
+     * 获取指定页的文本，已提取的页直接返回缓存
+     * @param index 页序号（从0开始）
+     * @return 页面文本
+     * @throws IOException PDF读取异常
+     */
+    @Override
+    public String pageText(int index) throws IOException {
+        if (index < 0 || index >= pageCount) {
+            throw new IndexOutOfBoundsException("页序号越界: " + index);
+        }
+        String text = ReaderMetrics.getInstance().time(ReaderMetrics.Stage.PDF, () -> extract(index, index));
+        prefetch(index + 1, PREFETCH_PAGES);
+        return text;
+    }
+    
+    /**
+     * 检查页面是否已经提取
+     * @param index 页序号（从0开始）
+     * @return 是否已提取
+     */
+    public synchronized boolean isExtracted(int index) {
+        return pages[index] != null;
+    }
+    
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        prefetchExecutor.shutdownNow();
+        // 等待正在进行的提取结束后再关闭文档
+        synchronized (this) {
+            document.close();
+        }
+    }
+    
+    /**
+     * 提取一段连续的页面，PDDocument不是线程安全的，提取过程需要加锁
+     * @return 第一页的文本
+     */
+    private synchronized String extract(int from, int to) throws IOException {
+        if (closed) {
+            throw new IOException("文档已关闭");
+        }
+        // 跳过已缓存的页
+        int first = from;
+        while (first <= to && pages[first] != null) {
+            first++;
+        }
+        int last = to;
+        while (last >= first && pages[last] != null) {
+            last--;
+        }
+        if (first <= last) {
+            Map<Integer, String> extracted = new PageCollectingStripper().extract(document, first + 1, last + 1);
+            for (int i = first; i <= last; i++) {
+                // 没有内容流的页不会触发回调，按空页处理
+                String text = extracted.get(i + 1);
+                if (pages[i] == null) {
+                    pages[i] = text != null ? text : "";
+                }
+            }
+        }
+        return pages[from];
+    }
+    
+    private void prefetch(int from, int count) {
+        int to = Math.min(pageCount - 1, from + count - 1);
+        if (from > to || closed) {
+            return;
+        }
+        synchronized (this) {
+            if (pages[to] != null && pages[from] != null) {
+                return;
+            }
+        }
+        prefetchExecutor.execute(() -> {
+            try {
+                if (!closed) {
+                    extract(from, to);
+                }
+            } catch (IOException | RuntimeException e) {
+                // 预取失败不影响前台读取，前台访问时会重新提取
+            }
+        });
+    }
+    
+    /**
+     * 一次提取多页并按页拆分结果的文本提取器
+     */
+    private static final class PageCollectingStripper extends PDFTextStripper {
+        
+        private final StringWriter output = new StringWriter();
+        private final Map<Integer, String> pages = new HashMap<>();
+        private int pageStart;
+        
+        PageCollectingStripper() throws IOException {
+            super();
+        }
+        
+        Map<Integer, String> extract(PDDocument document, int startPage, int endPage) throws IOException {
+            setStartPage(startPage);
+            setEndPage(endPage);
+            writeText(document, output);
+            return pages;
+        }
+        
+        @Override
+        protected void startPage(PDPage page) throws IOException {
+            super.startPage(page);
+            pageStart = output.getBuffer().length();
+        }
+        
+        @Override
+        protected void endPage(PDPage page) throws IOException {
+            super.endPage(page);
+            pages.put(getCurrentPageNo(), output.getBuffer().substring(pageStart));
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package com.thief.reader.core;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.ServiceLoader;
+
+/**
+ * 解析器注册表
+ * 解析器实例只创建一次并在各线程间共享，第三方解析器可通过ServiceLoader注册
+ */
+public class ParserRegistry {
+    
+    // 文件头嗅探读取的字节数
+    private static final int HEADER_SIZE = 16;
+    
+    private final List<DocumentParser> parsers;
+    
+    public ParserRegistry() {
+        List<DocumentParser> list = new ArrayList<>();
+        // 通过 META-INF/services 注册的解析器优先，可覆盖内置解析器
+        for (DocumentParser parser : ServiceLoader.load(DocumentParser.class)) {
+            list.add(parser);
+        }
+        list.add(new MarkdownParser());
+        list.add(new TextParser());
+        list.add(new PdfParser());
+        this.parsers = Collections.unmodifiableList(list);
+    }
+    
+    /**
+     * 查找能处理该文件的解析器
+     * 先按文件头嗅探，扩展名错误的文件（如改名为.txt的PDF）也能正确识别，再按扩展名匹配
+     * @param file 文档文件
+     * @return 解析器，不支持时返回null
+     */
+    public DocumentParser find(File file) {
+        byte[] header = readHeader(file);
+        if (header.length > 0) {
+            for (DocumentParser parser : parsers) {
+                if (parser.supportsContent(header)) {
+                    return parser;
+                }
+            }
+        }
+        for (DocumentParser parser : parsers) {
+            if (parser.supports(file)) {
+                return parser;
+            }
+        }
+        return null;
+    }
+    
+    /**
+     * 获取指定类型的共享解析器实例
+     * @param type 解析器类型
+     * @return 解析器实例，未注册时返回null
+     */
+    public <T extends DocumentParser> T get(Class<T> type) {
+        for (DocumentParser parser : parsers) {
+            if (type.isInstance(parser)) {
+                return type.cast(parser);
+            }
+        }
+        return null;
+    }
+    
+    /**
+     * 获取所有已注册的解析器
+     * @return 解析器列表
+     */
+    public List<DocumentParser> getParsers() {
+        return parsers;
+    }
+    
+    private static byte[] readHeader(File file) {
+        if (!file.isFile()) {
+            return new byte[0];
+        }
+        try (InputStream in = Files.newInputStream(file.toPath())) {
+            byte[] buffer = new byte[HEADER_SIZE];
+            int total = 0;
+            int read;
+            while (total < buffer.length && (read = in.read(buffer, total, buffer.length - total)) != -1) {
+                total += read;
+            }
+            byte[] header = new byte[total];
+            System.arraycopy(buffer, 0, header, 0, total);
+            return header;
+        } catch (IOException e) {
+            // 读取失败时只按扩展名匹配
+            return new byte[0];
+        }
+    }
+}
@@ -0,0 +1,200 @@
+package com.thief.reader.core;
+
+import org.apache.pdfbox.io.MemoryUsageSetting;
+
+import java.io.File;
+
+/**
+ * PDF加载时的内存策略
+ * PDFBox默认把解码后的流全部缓存在内存中，大的扫描件会耗尽堆内存；
+ * 混合模式在内存上限之内使用内存，超出部分写入临时文件
+ */
+public final class PdfMemoryPolicy {
+    
+    // 自动模式下文件小于可用堆内存的该比例时完全使用内存
+    private static final int MEMORY_RATIO = 8;
+    // 自动模式下混合模式的内存上限范围
+    private static final long MIN_MIXED_BYTES = 16L * 1024 * 1024;
+    private static final long MAX_MIXED_BYTES = 256L * 1024 * 1024;
+    // 为界面和其他文档保留的堆内存：最大堆内存的该比例，且不少于LOW_HEAP_BYTES
+    private static final int RESERVE_RATIO = 4;
+    private static final long LOW_HEAP_BYTES = 64L * 1024 * 1024;
+    
+    private static final File SCRATCH_DIR = new File(System.getProperty("java.io.tmpdir"), "thief-reader-pdf");
+    
+    private final Mode mode;
+    private final long maxMainMemoryBytes;
+    
+    private PdfMemoryPolicy(Mode mode, long maxMainMemoryBytes) {
+        this.mode = mode;
+        this.maxMainMemoryBytes = maxMainMemoryBytes;
+    }
+    
+    /**
+     * 按文件大小和当前可用的堆内存自动选择
+     * @return 内存策略
+     */
+    public static PdfMemoryPolicy auto() {
+        return new PdfMemoryPolicy(Mode.AUTO, 0);
+    }
+    
+    /**
+     * 根据配置创建内存策略
+     * @param mode 模式名称（auto/memory/mixed/file），无法识别时为auto
+     * @param maxMainMemoryMb 混合模式的内存上限（MB），不大于0时自动计算
+     * @return 内存策略
+     */
+    public static PdfMemoryPolicy fromConfig(String mode, long maxMainMemoryMb) {
+        return new PdfMemoryPolicy(Mode.fromConfig(mode), Math.max(0, maxMainMemoryMb) * 1024 * 1024);
+    }
+    
+    public Mode getMode() {
+        return mode;
+    }
+    
+    /**
+     * 为文件选择PDFBox的内存设置
+     * 自动模式在打开之前按堆内存留出余量选定模式，不依赖打开失败后重试
+     * @param file PDF文件
+     * @param parts 同时打开的文档数，内存上限在各文档之间平分
+     * @return 内存设置
+     */
+    public Resolved resolve(File file, int parts) {
+        Runtime runtime = Runtime.getRuntime();
+        long maxHeap = runtime.maxMemory();
+        long available = maxHeap - (runtime.totalMemory() - runtime.freeMemory());
+        return resolve(file.length(), available, maxHeap, Math.max(1, parts));
+    }
+    
+    Resolved resolve(long fileLength, long availableHeap, long maxHeap, int parts) {
+        Mode effective = mode;
+        long budget = maxMainMemoryBytes;
+        // 扣除保留部分后才是PDF可以使用的堆内存
+        long usable = availableHeap - Math.max(LOW_HEAP_BYTES, maxHeap / RESERVE_RATIO);
+        if (effective == Mode.AUTO) {
+            if (usable < MIN_MIXED_BYTES * parts) {
+                effective = Mode.FILE;
+            } else if (fileLength * MEMORY_RATIO * parts <= usable) {
+                effective = Mode.MEMORY;
+            } else {
+                effective = Mode.MIXED;
+            }
+        }
+        if (effective == Mode.MIXED && budget <= 0) {
+            budget = Math.min(MAX_MIXED_BYTES, Math.max(MIN_MIXED_BYTES, usable / 4));
+        }
+        budget = effective == Mode.MIXED ? Math.max(1, budget / parts) : 0;
+        return new Resolved(effective, budget);
+    }
+    
+    /**
+     * 临时文件所在的目录，各文档的临时文件在关闭时删除
+     * @return 目录
+     */
+    public static File getScratchDir() {
+        return SCRATCH_DIR;
+    }
+    
+    /**
+     * 统计当前写入临时文件的字节数
+     * @return 字节数
+     */
+    public static long scratchBytes() {
+        File[] files = SCRATCH_DIR.listFiles();
+        long total = 0;
+        if (files != null) {
+            for (File file : files) {
+                total += file.length();
+            }
+        }
+        return total;
+    }
+    
+    @Override
+    public String toString() {
+        return maxMainMemoryBytes > 0 ? mode.configName() + " " + (maxMainMemoryBytes >> 20) + "MB" : mode.configName();
+    }
+    
+    /**
+     * 内存模式
+     */
+    public enum Mode {
+        AUTO("自动"),
+        MEMORY("内存"),
+        MIXED("混合"),
+        FILE("临时文件");
+        
+        private final String label;
+        
+        Mode(String label) {
+            this.label = label;
+        }
+        
+        public String getLabel() {
+            return label;
+        }
+        
+        /**
+         * 配置文件中使用的名称
+         * @return auto/memory/mixed/file
+         */
+        public String configName() {
+            return name().toLowerCase();
+        }
+        
+        static Mode fromConfig(String value) {
+            for (Mode mode : values()) {
+                if (mode.configName().equalsIgnoreCase(value)) {
+                    return mode;
+                }
+            }
+            return AUTO;
+        }
+    }
+    
+    /**
+     * 为某个文件选定的内存设置
+     */
+    public static final class Resolved {
+        
+        private final Mode mode;
+        private final long maxMainMemoryBytes;
+        
+        Resolved(Mode mode, long maxMainMemoryBytes) {
+            this.mode = mode;
+            this.maxMainMemoryBytes = maxMainMemoryBytes;
+        }
+        
+        /**
+         * 实际使用的模式，不会是AUTO
+         * @return 模式
+         */
+        public Mode getMode() {
+            return mode;
+        }
+        
+        /**
+         * 混合模式的内存上限
+         * @return 字节数，其他模式为0
+         */
+        public long getMaxMainMemoryBytes() {
+            return maxMainMemoryBytes;
+        }
+        
+        MemoryUsageSetting toSetting() {
+            if (mode == Mode.MEMORY) {
+                return MemoryUsageSetting.setupMainMemoryOnly();
+            }
+            SCRATCH_DIR.mkdirs();
+            MemoryUsageSetting setting = mode == Mode.FILE
+                    ? MemoryUsageSetting.setupTempFileOnly()
+                    : MemoryUsageSetting.setupMixed(maxMainMemoryBytes);
+            return setting.setTempDir(SCRATCH_DIR);
+        }
+        
+        @Override
+        public String toString() {
+            return mode == Mode.MIXED ? mode.getLabel() + " " + (maxMainMemoryBytes >> 20) + "MB" : mode.getLabel();
+        }
+    }
+}
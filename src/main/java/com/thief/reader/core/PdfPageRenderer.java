@@ -0,0 +1,224 @@
+package com.thief.reader.core;
+
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.apache.pdfbox.rendering.ImageType;
+import org.apache.pdfbox.rendering.PDFRenderer;
+
+import java.awt.image.BufferedImage;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
+
+/**
+ * PDF页面的光栅化渲染器
+ * PDDocument不是线程安全的，每个工作线程从文档池中取用独立的PDDocument，多页可以并行渲染
+ * 混合内存模式下内存上限在池中的文档之间平分
+ * 低分辨率的请求优先处理，同一分辨率下最新的请求优先，滚动时先渲染当前可见的页面
+ */
+public class PdfPageRenderer implements Closeable {
+    
+    private final File file;
+    // 每页旋转之后的宽高（点）
+    private final float[] widths;
+    private final float[] heights;
+    private final int maxDocuments;
+    private final BlockingQueue<PDDocument> idleDocuments = new LinkedBlockingQueue<>();
+    private final List<PDDocument> documents = new ArrayList<>();
+    private final ThreadPoolExecutor executor;
+    private final AtomicLong sequence = new AtomicLong();
+    private volatile boolean closed;
+    
+    private PdfPageRenderer(File file, PDDocument first, int workers) {
+        this.file = file;
+        this.maxDocuments = workers;
+        int count = first.getNumberOfPages();
+        this.widths = new float[count];
+        this.heights = new float[count];
+        int index = 0;
+        for (PDPage page : first.getPages()) {
+            PDRectangle box = page.getCropBox();
+            boolean rotated = page.getRotation() % 180 != 0;
+            widths[index] = rotated ? box.getHeight() : box.getWidth();
+            heights[index] = rotated ? box.getWidth() : box.getHeight();
+            index++;
+        }
+        documents.add(first);
+        idleDocuments.add(first);
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(workers, workers, 0L, TimeUnit.MILLISECONDS,
+                new PriorityBlockingQueue<>(), r -> {
+                    Thread thread = new Thread(r, "pdf-page-render-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+    }
+    
+    /**
+     * 打开PDF文档并读取每页的尺寸，其余的文档在需要并行渲染时才打开
+     * @param file PDF文件
+     * @param workers 渲染线程数
+     * @return 渲染器，使用完毕后需要关闭
+     * @throws IOException 文件读取异常
+     */
+    public static PdfPageRenderer open(File file, int workers) throws IOException {
+        int count = Math.max(1, workers);
+        return new PdfPageRenderer(file, PdfParser.loadDocument(file, count), count);
+    }
+    
+    /**
+     * 默认的渲染线程数，保留一个核心给界面线程
+     * @return 线程数
+     */
+    public static int defaultWorkers() {
+        return Math.max(1, Math.min(3, Runtime.getRuntime().availableProcessors() - 1));
+    }
+    
+    public File getFile() {
+        return file;
+    }
+    
+    public int pageCount() {
+        return widths.length;
+    }
+    
+    /**
+     * 获取页面宽度，渲染之前用于按比例占位
+     * @param index 页序号（从0开始）
+     * @return 宽度（点）
+     */
+    public float pageWidth(int index) {
+        return widths[index];
+    }
+    
+    /**
+     * 获取页面高度
+     * @param index 页序号（从0开始）
+     * @return 高度（点）
+     */
+    public float pageHeight(int index) {
+        return heights[index];
+    }
+    
+    /**
+     * 在工作线程中渲染页面
+     * @param index 页序号（从0开始）
+     * @param dpi 分辨率
+     * @param wanted 开始渲染前检查是否仍然需要，页面已滚出视图时跳过
+     * @return 页面图像；不再需要时以CancellationException完成
+     */
+    public CompletableFuture<BufferedImage> render(int index, float dpi, BooleanSupplier wanted) {
+        if (index < 0 || index >= widths.length) {
+            throw new IndexOutOfBoundsException("页序号越界: " + index);
+        }
+        CompletableFuture<BufferedImage> result = new CompletableFuture<>();
+        if (closed) {
+            result.completeExceptionally(new IOException("文档已关闭"));
+            return result;
+        }
+        executor.execute(new RenderTask(index, dpi, wanted, sequence.incrementAndGet(), result));
+        return result;
+    }
+    
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        for (Runnable pending : executor.shutdownNow()) {
+            ((RenderTask) pending).result.completeExceptionally(new CancellationException());
+        }
+        try {
+            // 等待正在进行的渲染结束后再关闭文档
+            executor.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        synchronized (documents) {
+            for (PDDocument document : documents) {
+                document.close();
+            }
+            documents.clear();
+        }
+    }
+    
+    private BufferedImage renderPage(int index, float dpi) throws IOException {
+        PDDocument document = acquireDocument();
+        try {
+            return ReaderMetrics.getInstance().time(ReaderMetrics.Stage.PDF,
+                    () -> new PDFRenderer(document).renderImageWithDPI(index, dpi, ImageType.RGB));
+        } finally {
+            idleDocuments.add(document);
+        }
+    }
+    
+    private PDDocument acquireDocument() throws IOException {
+        PDDocument document = idleDocuments.poll();
+        if (document != null) {
+            return document;
+        }
+        synchronized (documents) {
+            if (documents.size() < maxDocuments && !closed) {
+                document = PdfParser.openDocument(file, maxDocuments);
+                documents.add(document);
+                return document;
+            }
+        }
+        try {
+            return idleDocuments.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("渲染已取消", e);
+        }
+    }
+    
+    /**
+     * 渲染任务，按分辨率从低到高、请求从新到旧排序
+     */
+    private final class RenderTask implements Runnable, Comparable<RenderTask> {
+        
+        private final int index;
+        private final float dpi;
+        private final BooleanSupplier wanted;
+        private final long order;
+        private final CompletableFuture<BufferedImage> result;
+        
+        RenderTask(int index, float dpi, BooleanSupplier wanted, long order, CompletableFuture<BufferedImage> result) {
+            this.index = index;
+            this.dpi = dpi;
+            this.wanted = wanted;
+            this.order = order;
+            this.result = result;
+        }
+        
+        @Override
+        public void run() {
+            if (closed || !wanted.getAsBoolean()) {
+                result.completeExceptionally(new CancellationException());
+                return;
+            }
+            try {
+                result.complete(renderPage(index, dpi));
+            } catch (IOException | RuntimeException e) {
+                result.completeExceptionally(e);
+            }
+        }
+        
+        @Override
+        public int compareTo(RenderTask other) {
+            int byDpi = Float.compare(dpi, other.dpi);
+            return byDpi != 0 ? byDpi : Long.compare(other.order, order);
+        }
+    }
+}
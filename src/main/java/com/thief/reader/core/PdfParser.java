@@ -1,26 +1,213 @@
 package com.thief.reader.core;
 
 import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDDocumentInformation;
 import org.apache.pdfbox.text.PDFTextStripper;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * PDF文档解析器
  */
 public class PdfParser implements DocumentParser {
     
+    // 页数少于该值时串行提取，打开多个文档的开销大于并行的收益
+    static final int MIN_PARALLEL_PAGES = 32;
+    // 每个分段的最少页数
+    private static final int MIN_CHUNK_PAGES = 8;
+    // 每个线程平均分到的分段数，分段越多各线程的负载越均衡
+    private static final int CHUNKS_PER_THREAD = 4;
+    
+    private static final AtomicInteger EXTRACT_THREADS = new AtomicInteger();
+    private static final ExecutorService EXTRACT_EXECUTOR = Executors.newCachedThreadPool(r -> {
+        Thread thread = new Thread(r, "pdf-text-extract-" + EXTRACT_THREADS.incrementAndGet());
+        thread.setDaemon(true);
+        return thread;
+    });
+    
+    // 所有PDF文档共用的内存策略，由配置设置
+    private static volatile PdfMemoryPolicy memoryPolicy = PdfMemoryPolicy.auto();
+    
+    // 该解析器实例提取文本的线程数，各文档引擎的注册表持有各自的实例
+    private volatile int extractionThreads = defaultExtractionThreads();
+    
+    /**
+     * 设置加载PDF时的内存策略，之后打开的文档生效
+     * @param policy 内存策略
+     */
+    public static void setMemoryPolicy(PdfMemoryPolicy policy) {
+        memoryPolicy = policy;
+    }
+    
+    public static PdfMemoryPolicy getMemoryPolicy() {
+        return memoryPolicy;
+    }
+    
+    /**
+     * 设置该解析器提取全文时的线程数，不影响其他文档引擎
+     * @param threads 线程数，1为串行提取，不大于0时按处理器核数
+     */
+    public void setExtractionThreads(int threads) {
+        extractionThreads = threads > 0 ? threads : defaultExtractionThreads();
+    }
+    
+    public int getExtractionThreads() {
+        return extractionThreads;
+    }
+    
+    private static int defaultExtractionThreads() {
+        return Runtime.getRuntime().availableProcessors();
+    }
+    
     @Override
     public String parse(File file) throws IOException {
-        try (PDDocument document = PDDocument.load(file)) {
-            PDFTextStripper stripper = new PDFTextStripper();
-            return stripper.getText(document);
+        return parse(file, extractionThreads);
+    }
+    
+    /**
+     * 提取全文，页数较多时把页面分段并行提取
+     * PDDocument和PDFTextStripper都不是线程安全的，每个线程打开独立的文档，各段按页序合并
+     * @param file PDF文件
+     * @param threads 线程数，1为串行提取
+     * @return 全文
+     * @throws IOException 文件读取异常
+     */
+    String parse(File file, int threads) throws IOException {
+        try (PDDocument document = loadDocument(file, Math.max(1, threads))) {
+            int pageCount = document.getNumberOfPages();
+            return ReaderMetrics.getInstance().time(ReaderMetrics.Stage.PDF, () -> {
+                if (threads <= 1 || pageCount < MIN_PARALLEL_PAGES) {
+                    return new PDFTextStripper().getText(document);
+                }
+                return extractParallel(file, document, pageCount, threads);
+            });
+        }
+    }
+    
+    private String extractParallel(File file, PDDocument document, int pageCount, int threads) throws IOException {
+        int chunkPages = Math.max(MIN_CHUNK_PAGES, (pageCount + threads * CHUNKS_PER_THREAD - 1) / (threads * CHUNKS_PER_THREAD));
+        int chunkCount = (pageCount + chunkPages - 1) / chunkPages;
+        int workers = Math.min(threads, chunkCount);
+        String[] chunks = new String[chunkCount];
+        AtomicInteger nextChunk = new AtomicInteger();
+        // 其余线程各自打开文档，当前线程使用已经打开的文档
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 1; i < workers; i++) {
+            futures.add(EXTRACT_EXECUTOR.submit(() -> {
+                try (PDDocument own = openDocument(file, workers)) {
+                    extractChunks(own, pageCount, chunkPages, nextChunk, chunks);
+                }
+                return null;
+            }));
+        }
+        try {
+            extractChunks(document, pageCount, chunkPages, nextChunk, chunks);
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("文本提取已取消", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            throw new IOException("文本提取失败: " + cause.getMessage(), cause);
+        } finally {
+            // 出错时让其余线程尽快结束
+            nextChunk.set(chunkCount);
         }
+        int length = 0;
+        for (String chunk : chunks) {
+            length += chunk.length();
+        }
+        StringBuilder text = new StringBuilder(length);
+        for (String chunk : chunks) {
+            text.append(chunk);
+        }
+        return text.toString();
+    }
+    
+    /**
+     * 循环领取分段并提取，直到所有分段都已领取
+     */
+    private static void extractChunks(PDDocument document, int pageCount, int chunkPages,
+                                      AtomicInteger nextChunk, String[] chunks) throws IOException {
+        PDFTextStripper stripper = new PDFTextStripper();
+        int chunk;
+        while ((chunk = nextChunk.getAndIncrement()) < chunks.length) {
+            int first = chunk * chunkPages + 1;
+            stripper.setStartPage(first);
+            stripper.setEndPage(Math.min(pageCount, first + chunkPages - 1));
+            chunks[chunk] = stripper.getText(document);
+        }
+    }
+    
+    /**
+     * 以按页提取的方式打开PDF文档
+     * @param file PDF文件
+     * @return 按页提取的文档，使用完毕后需要关闭
+     * @throws IOException 文件读取异常
+     */
+    public PagedPdfDocument openPaged(File file) throws IOException {
+        return new PagedPdfDocument(loadDocument(file));
+    }
+    
+    @Override
+    public DocumentInfo describe(File file) throws IOException {
+        // 页数和文档信息字典都在文件尾部的结构中，无需提取文本
+        try (PDDocument document = loadDocument(file)) {
+            PDDocumentInformation information = document.getDocumentInformation();
+            return DocumentInfo.of(file, document.getNumberOfPages(), information != null ? information.getTitle() : null);
+        }
+    }
+    
+    static PDDocument loadDocument(File file) throws IOException {
+        return loadDocument(file, 1);
+    }
+    
+    /**
+     * 按内存策略打开PDF文档
+     * @param file PDF文件
+     * @param parts 同一文件同时打开的文档数，混合模式的内存上限在各文档之间平分
+     * @return 文档，使用完毕后需要关闭
+     * @throws IOException 文件读取异常
+     */
+    static PDDocument loadDocument(File file, int parts) throws IOException {
+        ReaderMetrics metrics = ReaderMetrics.getInstance();
+        metrics.recordBytes(file.length());
+        return metrics.time(ReaderMetrics.Stage.PDF, () -> openDocument(file, parts));
+    }
+    
+    /**
+     * 按内存策略打开文档，不记录读取的字节数，用于同一文件的其他副本
+     */
+    static PDDocument openDocument(File file, int parts) throws IOException {
+        ReaderMetrics metrics = ReaderMetrics.getInstance();
+        PdfMemoryPolicy.Resolved resolved = memoryPolicy.resolve(file, parts);
+        PDDocument document = PDDocument.load(file, resolved.toSetting());
+        metrics.recordPdfMemory(resolved);
+        return document;
     }
     
     @Override
     public boolean supports(File file) {
         return file.getName().toLowerCase().endsWith(".pdf");
     }
+    
+    @Override
+    public boolean supportsContent(byte[] header) {
+        // PDF文件以 %PDF- 开头
+        return header.length >= 5 && header[0] == '%' && header[1] == 'P' && header[2] == 'D'
+                && header[3] == 'F' && header[4] == '-';
+    }
 }
\ No newline at end of file
@@ -0,0 +1,48 @@
+package com.thief.reader.core;
+
+/**
+ * PDF页面图像的渲染质量
+ * 设置中保存的是界面上的选项文字，配置文件中保存的是low/medium/high，两种写法都可以识别
+ */
+public enum PdfRenderQuality {
+
+    LOW(72f),
+    MEDIUM(108f),
+    HIGH(150f);
+
+    // 先显示的缩略图分辨率，渲染很快，滚动时可以立即占位
+    public static final float THUMBNAIL_DPI = 24f;
+
+    private final float dpi;
+
+    PdfRenderQuality(float dpi) {
+        this.dpi = dpi;
+    }
+
+    public float getDpi() {
+        return dpi;
+    }
+
+    /**
+     * 解析设置中的渲染质量
+     * @param value 设置值（低质量/中等质量/高质量，或low/medium/high）
+     * @return 渲染质量，无法识别时为中等质量
+     */
+    public static PdfRenderQuality fromSetting(String value) {
+        if ("低质量".equals(value) || "low".equalsIgnoreCase(value)) {
+            return LOW;
+        }
+        if ("高质量".equals(value) || "high".equalsIgnoreCase(value)) {
+            return HIGH;
+        }
+        return MEDIUM;
+    }
+
+    /**
+     * 配置文件中使用的名称
+     * @return low/medium/high
+     */
+    public String configName() {
+        return name().toLowerCase();
+    }
+}
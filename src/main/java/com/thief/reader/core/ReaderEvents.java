@@ -0,0 +1,173 @@
+package com.thief.reader.core;
+
+import com.thief.reader.util.FileUtils;
+
+import java.io.File;
+
+/**
+ * 发出JFR事件的入口
+ * JFR从JDK 8u262开始提供，运行时不可用或没有在录制时，这里的方法只返回null，不会加载事件类
+ */
+public final class ReaderEvents {
+    
+    private static final boolean AVAILABLE = detectJfr();
+    
+    private ReaderEvents() {
+    }
+    
+    public static boolean isAvailable() {
+        return AVAILABLE;
+    }
+    
+    private static boolean detectJfr() {
+        try {
+            Class.forName("jdk.jfr.Event");
+            return true;
+        } catch (ClassNotFoundException | LinkageError e) {
+            return false;
+        }
+    }
+    
+    static Object beginStage() {
+        if (!AVAILABLE) {
+            return null;
+        }
+        StageEvent event = new StageEvent();
+        if (!event.isEnabled()) {
+            return null;
+        }
+        event.begin();
+        return event;
+    }
+    
+    static void commitStage(Object handle, ReaderMetrics.Stage stage, LoadTrace trace) {
+        if (handle == null) {
+            return;
+        }
+        StageEvent event = (StageEvent) handle;
+        event.end();
+        // 只有超过阈值、需要写入时才填充字段
+        if (event.shouldCommit()) {
+            event.stage = stage.getLabel();
+            if (trace != null) {
+                event.path = trace.getFile().getPath();
+                event.fileSize = trace.getFile().length();
+                event.fileType = FileUtils.getFileExtension(trace.getFile());
+                event.charset = trace.getCharset();
+            }
+            event.commit();
+        }
+    }
+    
+    static Object beginLoad() {
+        if (!AVAILABLE) {
+            return null;
+        }
+        DocumentLoadEvent event = new DocumentLoadEvent();
+        if (!event.isEnabled()) {
+            return null;
+        }
+        event.begin();
+        return event;
+    }
+    
+    static void commitLoad(Object handle, LoadTrace trace, LoadedDocument document) {
+        if (handle == null) {
+            return;
+        }
+        DocumentLoadEvent event = (DocumentLoadEvent) handle;
+        event.end();
+        if (event.shouldCommit()) {
+            File file = trace.getFile();
+            event.path = file.getPath();
+            event.fileSize = file.length();
+            event.fileType = FileUtils.getFileExtension(file);
+            event.charset = trace.getCharset();
+            event.cache = trace.getCacheResult();
+            event.bytesProcessed = trace.getBytes();
+            event.succeeded = document != null;
+            if (document != null) {
+                event.kind = document.getLines() != null ? "lines" : document.isPaged() ? "paged" : "whole";
+            }
+            event.commit();
+        }
+    }
+    
+    /**
+     * 在调用WebEngine.loadContent之前开始记录页面加载
+     * @return 事件句柄，没有在录制时为null
+     */
+    public static Object beginPage() {
+        if (!AVAILABLE) {
+            return null;
+        }
+        PageLoadEvent event = new PageLoadEvent();
+        if (!event.isEnabled()) {
+            return null;
+        }
+        event.begin();
+        return event;
+    }
+    
+    /**
+     * 页面加载进入结束状态时提交事件
+     * @param handle beginPage返回的句柄
+     * @param file 文档文件，可以为null
+     * @param contentLength 页面内容的字符数
+     * @param mode 显示模式
+     * @param state 结束状态
+     */
+    public static void commitPage(Object handle, File file, long contentLength, String mode, String state) {
+        if (handle == null) {
+            return;
+        }
+        PageLoadEvent event = (PageLoadEvent) handle;
+        event.end();
+        if (event.shouldCommit()) {
+            if (file != null) {
+                event.path = file.getPath();
+                event.fileSize = file.length();
+                event.fileType = FileUtils.getFileExtension(file);
+            }
+            event.contentLength = contentLength;
+            event.mode = mode;
+            event.state = state;
+            event.commit();
+        }
+    }
+    
+    /**
+     * 在投递心跳任务时开始记录可能的卡顿
+     * @return 事件句柄，没有在录制时为null
+     */
+    public static Object beginStall() {
+        if (!AVAILABLE) {
+            return null;
+        }
+        FxStallEvent event = new FxStallEvent();
+        if (!event.isEnabled()) {
+            return null;
+        }
+        event.begin();
+        return event;
+    }
+    
+    /**
+     * 心跳任务执行时提交事件，未超过阈值的事件由JFR丢弃
+     * @param handle beginStall返回的句柄
+     * @param fxStack 卡顿期间采样到的FX线程堆栈，可以为null
+     * @param file 当前文档，可以为null
+     */
+    public static void commitStall(Object handle, String fxStack, File file) {
+        if (handle == null) {
+            return;
+        }
+        FxStallEvent event = (FxStallEvent) handle;
+        event.end();
+        if (event.shouldCommit()) {
+            event.fxStack = fxStack;
+            event.path = file != null ? file.getPath() : null;
+            event.commit();
+        }
+    }
+}
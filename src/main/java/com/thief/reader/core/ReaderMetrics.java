@@ -0,0 +1,424 @@
+package com.thief.reader.core;
+
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.io.File;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 文档加载的性能指标
+ * 按阶段记录耗时直方图、处理的字节数以及缓存命中率，加载线程中的记录同时计入当前加载的明细
+ * 正在录制JFR时，每个阶段同时作为{@link StageEvent}写入录制文件
+ */
+public final class ReaderMetrics implements ReaderMetricsMXBean {
+    
+    public static final String OBJECT_NAME = "com.thief.reader:type=ReaderMetrics";
+    
+    private static ReaderMetrics instance;
+    
+    private final EnumMap<Stage, Histogram> histograms = new EnumMap<>(Stage.class);
+    // 加载线程当前正在记录的明细，其他线程（预取、后台渲染）只计入直方图
+    private final ThreadLocal<LoadTrace> currentLoad = new ThreadLocal<>();
+    private final List<Runnable> listeners = new CopyOnWriteArrayList<>();
+    private final AtomicLong loadCount = new AtomicLong();
+    private final AtomicLong bytesProcessed = new AtomicLong();
+    private final AtomicLong memoryHits = new AtomicLong();
+    private final AtomicLong memoryMisses = new AtomicLong();
+    private final AtomicLong diskHits = new AtomicLong();
+    private final AtomicLong diskMisses = new AtomicLong();
+    private volatile LoadTrace lastLoad;
+    private volatile String lastPdfMemory = "";
+    private boolean registered;
+    
+    ReaderMetrics() {
+        for (Stage stage : Stage.values()) {
+            histograms.put(stage, new Histogram());
+        }
+    }
+    
+    public static synchronized ReaderMetrics getInstance() {
+        if (instance == null) {
+            instance = new ReaderMetrics();
+        }
+        return instance;
+    }
+    
+    /**
+     * 执行一个阶段并记录耗时，抛出异常时同样记录
+     * @param stage 阶段
+     * @param action 阶段的操作
+     * @return 操作的结果
+     * @throws E 操作抛出的异常
+     */
+    public <T, E extends Exception> T time(Stage stage, StageAction<T, E> action) throws E {
+        long start = System.nanoTime();
+        // 正在录制JFR时的阶段事件
+        Object event = ReaderEvents.beginStage();
+        try {
+            return action.run();
+        } finally {
+            record(stage, System.nanoTime() - start);
+            ReaderEvents.commitStage(event, stage, currentLoad.get());
+        }
+    }
+    
+    /**
+     * 记录一个阶段的耗时
+     * @param stage 阶段
+     * @param nanos 纳秒
+     */
+    public void record(Stage stage, long nanos) {
+        histograms.get(stage).record(nanos);
+        LoadTrace trace = currentLoad.get();
+        if (trace != null) {
+            trace.addStage(stage, nanos);
+        }
+    }
+    
+    /**
+     * 记录读取或解析的字节数
+     * @param bytes 字节数
+     */
+    public void recordBytes(long bytes) {
+        bytesProcessed.addAndGet(bytes);
+        LoadTrace trace = currentLoad.get();
+        if (trace != null) {
+            trace.addBytes(bytes);
+        }
+    }
+    
+    /**
+     * 记录检测到的文本编码
+     * @param charset 编码
+     */
+    public void recordCharset(Charset charset) {
+        LoadTrace trace = currentLoad.get();
+        if (trace != null) {
+            trace.setCharset(charset.name());
+        }
+    }
+    
+    /**
+     * 记录PDF文档实际使用的内存模式
+     * @param resolved 内存设置
+     */
+    void recordPdfMemory(PdfMemoryPolicy.Resolved resolved) {
+        String description = resolved.toString();
+        lastPdfMemory = description;
+        LoadTrace trace = currentLoad.get();
+        if (trace != null) {
+            trace.setPdfMemory(description);
+        }
+    }
+    
+    void recordMemoryCache(boolean hit) {
+        (hit ? memoryHits : memoryMisses).incrementAndGet();
+        LoadTrace trace = currentLoad.get();
+        if (trace != null) {
+            trace.setCacheResult(hit ? "内存缓存" : "未命中");
+        }
+    }
+    
+    void recordDiskCache(boolean hit) {
+        (hit ? diskHits : diskMisses).incrementAndGet();
+        LoadTrace trace = currentLoad.get();
+        if (trace != null) {
+            trace.setCacheResult(hit ? "磁盘缓存" : "未命中");
+        }
+    }
+    
+    /**
+     * 开始记录当前线程中的一次加载
+     * @param file 文档文件
+     * @return 加载明细
+     */
+    LoadTrace beginLoad(File file) {
+        LoadTrace trace = new LoadTrace(file);
+        currentLoad.set(trace);
+        return trace;
+    }
+    
+    /**
+     * 结束当前线程中的加载记录
+     * @param trace 加载明细
+     * @param succeeded 是否加载成功，失败的加载不计入统计
+     */
+    void endLoad(LoadTrace trace, boolean succeeded) {
+        currentLoad.remove();
+        if (!succeeded) {
+            return;
+        }
+        trace.finish();
+        loadCount.incrementAndGet();
+        lastLoad = trace;
+        fireChanged();
+    }
+    
+    /**
+     * 记录页面显示的耗时，由界面在内容显示完成后调用
+     * @param trace 加载明细
+     * @param nanos 纳秒
+     */
+    public void recordRender(LoadTrace trace, long nanos) {
+        histograms.get(Stage.RENDER).record(nanos);
+        trace.addStage(Stage.RENDER, nanos);
+        fireChanged();
+    }
+    
+    public LoadTrace getLastLoadTrace() {
+        return lastLoad;
+    }
+    
+    public Histogram getHistogram(Stage stage) {
+        return histograms.get(stage);
+    }
+    
+    /**
+     * 添加指标变化监听器，在加载或显示完成时回调，回调可能在任意线程中执行
+     * @param listener 监听器
+     */
+    public void addListener(Runnable listener) {
+        listeners.add(listener);
+    }
+    
+    public void removeListener(Runnable listener) {
+        listeners.remove(listener);
+    }
+    
+    /**
+     * 注册到平台MBeanServer，重复调用不会重复注册
+     * @return 是否已注册
+     */
+    public synchronized boolean registerMBean() {
+        if (registered) {
+            return true;
+        }
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            server.registerMBean(this, new ObjectName(OBJECT_NAME));
+            registered = true;
+        } catch (InstanceAlreadyExistsException e) {
+            registered = true;
+        } catch (JMException | SecurityException e) {
+            // JMX不可用时只在界面中显示
+            registered = false;
+        }
+        return registered;
+    }
+    
+    private void fireChanged() {
+        for (Runnable listener : listeners) {
+            listener.run();
+        }
+    }
+    
+    @Override
+    public long getLoadCount() {
+        return loadCount.get();
+    }
+    
+    @Override
+    public long getBytesProcessed() {
+        return bytesProcessed.get();
+    }
+    
+    @Override
+    public double getMemoryCacheHitRate() {
+        return hitRate(memoryHits.get(), memoryMisses.get());
+    }
+    
+    @Override
+    public double getDiskCacheHitRate() {
+        return hitRate(diskHits.get(), diskMisses.get());
+    }
+    
+    @Override
+    public Map<String, Long> getStageCounts() {
+        Map<String, Long> counts = new LinkedHashMap<>();
+        for (Map.Entry<Stage, Histogram> entry : histograms.entrySet()) {
+            counts.put(entry.getKey().name(), entry.getValue().count());
+        }
+        return counts;
+    }
+    
+    @Override
+    public Map<String, Double> getStageMeanMillis() {
+        Map<String, Double> means = new LinkedHashMap<>();
+        for (Map.Entry<Stage, Histogram> entry : histograms.entrySet()) {
+            means.put(entry.getKey().name(), entry.getValue().meanNanos() / 1e6);
+        }
+        return means;
+    }
+    
+    @Override
+    public Map<String, Double> getStageP50Millis() {
+        return percentileMillis(0.5);
+    }
+    
+    @Override
+    public Map<String, Double> getStageP95Millis() {
+        return percentileMillis(0.95);
+    }
+    
+    @Override
+    public Map<String, Double> getStageMaxMillis() {
+        Map<String, Double> max = new LinkedHashMap<>();
+        for (Map.Entry<Stage, Histogram> entry : histograms.entrySet()) {
+            max.put(entry.getKey().name(), entry.getValue().maxNanos() / 1e6);
+        }
+        return max;
+    }
+    
+    @Override
+    public String getPdfMemory() {
+        return lastPdfMemory;
+    }
+    
+    @Override
+    public long getPdfScratchBytes() {
+        return PdfMemoryPolicy.scratchBytes();
+    }
+    
+    @Override
+    public String getLastLoad() {
+        LoadTrace trace = lastLoad;
+        return trace != null ? trace.toString() : "";
+    }
+    
+    @Override
+    public void reset() {
+        for (Histogram histogram : histograms.values()) {
+            histogram.reset();
+        }
+        loadCount.set(0);
+        bytesProcessed.set(0);
+        memoryHits.set(0);
+        memoryMisses.set(0);
+        diskHits.set(0);
+        diskMisses.set(0);
+        lastLoad = null;
+        lastPdfMemory = "";
+        fireChanged();
+    }
+    
+    private Map<String, Double> percentileMillis(double percentile) {
+        Map<String, Double> values = new LinkedHashMap<>();
+        for (Map.Entry<Stage, Histogram> entry : histograms.entrySet()) {
+            values.put(entry.getKey().name(), entry.getValue().percentileNanos(percentile) / 1e6);
+        }
+        return values;
+    }
+    
+    private static double hitRate(long hits, long misses) {
+        long total = hits + misses;
+        return total == 0 ? 0.0 : (double) hits / total;
+    }
+    
+    /**
+     * 加载流程中的阶段，按执行顺序排列
+     */
+    public enum Stage {
+        READ("读取"),
+        CHARSET("编码检测"),
+        DECODE("解码"),
+        CACHE("磁盘缓存"),
+        LINE_INDEX("行索引"),
+        MARKDOWN("Markdown渲染"),
+        PDF("PDF解析"),
+        TEMPLATE("模板包装"),
+        RENDER("页面显示");
+        
+        private final String label;
+        
+        Stage(String label) {
+            this.label = label;
+        }
+        
+        public String getLabel() {
+            return label;
+        }
+    }
+    
+    /**
+     * 计时的阶段操作
+     */
+    @FunctionalInterface
+    public interface StageAction<T, E extends Exception> {
+        
+        T run() throws E;
+    }
+    
+    /**
+     * 耗时直方图
+     * 按2的幂划分微秒区间，记录只需一次加锁和一次数组写入，百分位取所在区间的上界
+     */
+    public static final class Histogram {
+        
+        // 第i个区间为[2^(i-1), 2^i)微秒，最后一个区间约36分钟
+        private static final int BUCKETS = 32;
+        
+        private final long[] buckets = new long[BUCKETS];
+        private long count;
+        private long sumNanos;
+        private long maxNanos;
+        
+        public synchronized void record(long nanos) {
+            long micros = Math.max(0, nanos / 1000);
+            int bucket = Math.min(BUCKETS - 1, 64 - Long.numberOfLeadingZeros(micros));
+            buckets[bucket]++;
+            count++;
+            sumNanos += nanos;
+            maxNanos = Math.max(maxNanos, nanos);
+        }
+        
+        public synchronized long count() {
+            return count;
+        }
+        
+        public synchronized double meanNanos() {
+            return count == 0 ? 0.0 : (double) sumNanos / count;
+        }
+        
+        public synchronized long maxNanos() {
+            return maxNanos;
+        }
+        
+        /**
+         * 估算百分位
+         * @param percentile 百分位（0.0-1.0）
+         * @return 纳秒，不超过记录到的最大值；没有记录时为0
+         */
+        public synchronized long percentileNanos(double percentile) {
+            if (count == 0) {
+                return 0;
+            }
+            long rank = (long) Math.ceil(percentile * count);
+            long seen = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                seen += buckets[i];
+                if (seen >= rank && buckets[i] > 0) {
+                    long upperMicros = 1L << i;
+                    return Math.min(maxNanos, upperMicros * 1000);
+                }
+            }
+            return maxNanos;
+        }
+        
+        synchronized void reset() {
+            Arrays.fill(buckets, 0);
+            count = 0;
+            sumNanos = 0;
+            maxNanos = 0;
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package com.thief.reader.core;
+
+import java.util.Map;
+
+/**
+ * 通过JMX导出的性能指标
+ * 阶段耗时以毫秒为单位，键为{@link ReaderMetrics.Stage}的名称
+ */
+public interface ReaderMetricsMXBean {
+    
+    long getLoadCount();
+    
+    long getBytesProcessed();
+    
+    double getMemoryCacheHitRate();
+    
+    double getDiskCacheHitRate();
+    
+    Map<String, Long> getStageCounts();
+    
+    Map<String, Double> getStageMeanMillis();
+    
+    Map<String, Double> getStageP50Millis();
+    
+    Map<String, Double> getStageP95Millis();
+    
+    Map<String, Double> getStageMaxMillis();
+    
+    /**
+     * 最近打开的PDF文档使用的内存模式
+     * @return 模式说明，例如“混合 64MB”，还没有打开过PDF时为空字符串
+     */
+    String getPdfMemory();
+    
+    /**
+     * PDF文档当前写入临时文件的字节数
+     * @return 字节数
+     */
+    long getPdfScratchBytes();
+    
+    /**
+     * 最近一次加载的各阶段耗时
+     * @return 摘要文本，还没有加载过文档时为空字符串
+     */
+    String getLastLoad();
+    
+    /**
+     * 清空所有统计
+     */
+    void reset();
+}
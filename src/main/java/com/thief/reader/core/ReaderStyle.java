@@ -0,0 +1,92 @@
+package com.thief.reader.core;
+
+import com.thief.reader.config.AppPreferences;
+import com.thief.reader.config.ReaderSettings;
+
+import java.util.Locale;
+
+/**
+ * 阅读样式设置
+ * 对应样式表中的CSS变量，与文档内容分离
+ */
+public final class ReaderStyle {
+    
+    // 缩放比例为100%时的基准字体大小和内边距
+    private static final double BASE_FONT_SIZE = 16.0;
+    private static final double BASE_PADDING = 20.0;
+    
+    private final double scale;
+    private final String fontFamily;
+    private final double textOpacity;
+    
+    public ReaderStyle(double scale, String fontFamily, double textOpacity) {
+        this.scale = scale;
+        this.fontFamily = fontFamily;
+        this.textOpacity = textOpacity;
+    }
+    
+    /**
+     * 根据当前偏好设置创建样式
+     * @param appPrefs 偏好设置
+     * @return 阅读样式
+     */
+    public static ReaderStyle fromPreferences(AppPreferences appPrefs) {
+        return fromSettings(appPrefs.getSettings());
+    }
+    
+    /**
+     * 根据设置快照创建样式
+     * @param settings 设置快照
+     * @return 阅读样式
+     */
+    public static ReaderStyle fromSettings(ReaderSettings settings) {
+        return new ReaderStyle(settings.getScale(), settings.getFontFamily(), settings.getTextOpacity());
+    }
+    
+    public double getScale() {
+        return scale;
+    }
+    
+    public String getFontFamily() {
+        return fontFamily;
+    }
+    
+    public double getTextOpacity() {
+        return textOpacity;
+    }
+    
+    /**
+     * 获取实际字体大小（基于默认16px，四舍五入到整数）
+     * @return 字体像素大小
+     */
+    public int getFontSizePx() {
+        return (int) Math.round(BASE_FONT_SIZE * (scale / 100.0));
+    }
+    
+    /**
+     * 获取基于缩放比例的内边距（四舍五入到整数）
+     * @return 内边距像素大小
+     */
+    public int getPaddingPx() {
+        return (int) Math.round(BASE_PADDING * (scale / 100.0));
+    }
+    
+    /**
+     * 获取应用了文字不透明度的颜色
+     * @return CSS颜色值
+     */
+    public String getTextColor() {
+        return String.format(Locale.ROOT, "rgba(51, 51, 51, %.2f)", textOpacity);
+    }
+    
+    /**
+     * 获取CSS变量声明
+     * @return 形如 --reader-font-size: 16px; 的声明列表
+     */
+    public String toCssVariables() {
+        return "--reader-font-family: '" + fontFamily.replace("\\", "\\\\").replace("'", "\\'") + "';" +
+                "--reader-font-size: " + getFontSizePx() + "px;" +
+                "--reader-padding: " + getPaddingPx() + "px;" +
+                "--reader-text-color: " + getTextColor() + ";";
+    }
+}
@@ -0,0 +1,33 @@
+package com.thief.reader.core;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * 加载阶段的JFR事件，与{@link ReaderMetrics.Stage}一一对应
+ */
+@Name("com.thief.reader.LoadStage")
+@Label("加载阶段")
+@Category({"Thief Reader", "文档加载"})
+@Description("读取、编码检测、解析、模板包装等单个阶段的耗时")
+public class StageEvent extends jdk.jfr.Event {
+    
+    @Label("阶段")
+    String stage;
+    
+    @Label("文件")
+    String path;
+    
+    @Label("文件大小")
+    @DataAmount(DataAmount.BYTES)
+    long fileSize;
+    
+    @Label("类型")
+    String fileType;
+    
+    @Label("编码")
+    String charset;
+}
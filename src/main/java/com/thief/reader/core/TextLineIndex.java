@@ -0,0 +1,391 @@
+package com.thief.reader.core;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 文本文件的行索引
+ * 只记录每个行块（64行）起始位置的字节偏移，按块解码并缓存，内存占用和单行访问开销都与文件大小无关
+ * 文件增长时只为新增的字节建立索引（跟随日志文件）
+ */
+public class TextLineIndex implements Closeable {
+    
+    // 打开文档时同步建立索引的字节数，足够显示第一屏
+    public static final int INITIAL_SCAN_BYTES = 1024 * 1024;
+    
+    static final int LINES_PER_BLOCK = 64;
+    
+    // 超长的行按该长度拆成多行显示，避免单个单元格解码过多内容
+    static final int MAX_LINE_BYTES = 16 * 1024;
+    
+    // 定位到尚未建立索引的位置时，每次继续建立索引的字节数
+    private static final long SEEK_SCAN_BYTES = 8L * 1024 * 1024;
+    
+    private static final int MAX_CACHED_BLOCKS = 32;
+    private static final int BUFFER_SIZE = 64 * 1024;
+    
+    private final TextWindowReader reader;
+    private final int unitWidth;
+    private final byte[] newline;
+    private final byte[] carriageReturn;
+    private final Object scanLock = new Object();
+    private final Map<Integer, String[]> blocks;
+    private long[] blockStarts = new long[256];
+    private int lineCount;
+    private long scannedBytes;
+    
+    public TextLineIndex(TextWindowReader reader) throws IOException {
+        this.reader = reader;
+        Charset charset = reader.getCharset();
+        String name = charset.name();
+        this.unitWidth = name.startsWith("UTF-32") ? 4 : name.startsWith("UTF-16") ? 2 : 1;
+        this.newline = encodeUnit('\n', charset);
+        this.carriageReturn = encodeUnit('\r', charset);
+        // 对齐偏移0即得到BOM之后的位置
+        this.scannedBytes = reader.alignToCharBoundary(0);
+        this.blocks = new LinkedHashMap<Integer, String[]>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, String[]> eldest) {
+                return size() > MAX_CACHED_BLOCKS;
+            }
+        };
+        if ("UTF-16".equals(name) || "UTF-32".equals(name)) {
+            // 不带字节序的编码按BOM判断，小端BOM时换行符的字节顺序相反
+            byte[] head = reader.readBytes(0, (int) Math.min(2, reader.size()));
+            if (head.length == 2 && (head[0] & 0xFF) == 0xFF && (head[1] & 0xFF) == 0xFE) {
+                reverse(newline);
+                reverse(carriageReturn);
+            }
+        }
+    }
+    
+    public TextWindowReader getReader() {
+        return reader;
+    }
+    
+    /**
+     * 获取已建立索引的行数
+     * @return 行数
+     */
+    public synchronized int lineCount() {
+        return lineCount;
+    }
+    
+    /**
+     * 获取已建立索引的字节数
+     * @return 字节偏移
+     */
+    public synchronized long scannedBytes() {
+        return scannedBytes;
+    }
+    
+    /**
+     * 检查整个文件是否都已建立索引
+     * @return 是否完成
+     */
+    public synchronized boolean isComplete() {
+        return scannedBytes >= reader.size();
+    }
+    
+    /**
+     * 继续建立索引，可以在后台线程中调用，已建立的部分随时可读
+     * @param maxBytes 本次最多扫描的字节数
+     * @return 是否已到达文件末尾
+     * @throws IOException 文件读取异常
+     */
+    public boolean scan(long maxBytes) throws IOException {
+        synchronized (scanLock) {
+            long size = reader.size();
+            long pos;
+            int count;
+            synchronized (this) {
+                pos = scannedBytes;
+                count = lineCount;
+            }
+            long limit = Math.min(size, pos + maxBytes);
+            ByteCursor cursor = new ByteCursor();
+            while (pos < limit) {
+                if (count % LINES_PER_BLOCK == 0) {
+                    // 新的行块开始，先记录起点再发布行数
+                    synchronized (this) {
+                        addBlockStart(count / LINES_PER_BLOCK, pos);
+                        lineCount = count;
+                        scannedBytes = pos;
+                    }
+                }
+                pos = nextLineStart(cursor, pos);
+                count++;
+            }
+            synchronized (this) {
+                lineCount = count;
+                scannedBytes = pos;
+            }
+            return pos >= size;
+        }
+    }
+    
+    /**
+     * 文件增长后为新增的内容建立索引，读取和解码的字节数与新增的字节数成正比
+     * 之前的最后一行没有换行符时，与新增的内容合并为同一行
+     * @return 第一个内容发生变化的行，没有新内容时返回-1
+     * @throws IOException 文件读取异常
+     */
+    public int extend() throws IOException {
+        synchronized (scanLock) {
+            if (!isComplete()) {
+                // 之前的索引尚未完成，由后台索引继续
+                return -1;
+            }
+            if (!reader.refresh()) {
+                return -1;
+            }
+            int first;
+            synchronized (this) {
+                first = lineCount;
+                if (lineCount > 0 && !endsWithNewline(scannedBytes)) {
+                    // 重新扫描未结束的最后一行
+                    first = lineCount - 1;
+                }
+            }
+            long start = first < lineCount() ? lineStart(first) : scannedBytes();
+            synchronized (this) {
+                lineCount = first;
+                scannedBytes = start;
+                blocks.remove(first / LINES_PER_BLOCK);
+            }
+            scan(reader.size() - start);
+            return first;
+        }
+    }
+    
+    /**
+     * 获取指定行的内容，不包含换行符
+     * @param index 行序号（从0开始）
+     * @return 行内容
+     * @throws IOException 文件读取异常
+     */
+    public String line(int index) throws IOException {
+        int block = index / LINES_PER_BLOCK;
+        int offset = index % LINES_PER_BLOCK;
+        long start;
+        int count;
+        synchronized (this) {
+            if (index < 0 || index >= lineCount) {
+                throw new IndexOutOfBoundsException("行序号越界: " + index);
+            }
+            String[] cached = blocks.get(block);
+            if (cached != null && offset < cached.length) {
+                return cached[offset];
+            }
+            start = blockStarts[block];
+            count = Math.min(LINES_PER_BLOCK, lineCount - block * LINES_PER_BLOCK);
+        }
+        String[] lines = decodeBlock(start, count);
+        synchronized (this) {
+            blocks.put(block, lines);
+        }
+        return lines[offset];
+    }
+    
+    /**
+     * 获取行首的字节偏移，作为与行索引进度无关的稳定锚点
+     * @param line 行序号
+     * @return 字节偏移
+     * @throws IOException 文件读取异常
+     */
+    public long lineStart(int line) throws IOException {
+        long start;
+        synchronized (this) {
+            if (line < 0 || line >= lineCount) {
+                throw new IndexOutOfBoundsException("行序号越界: " + line);
+            }
+            start = blockStarts[line / LINES_PER_BLOCK];
+        }
+        ByteCursor cursor = new ByteCursor();
+        long pos = start;
+        for (int i = line % LINES_PER_BLOCK; i > 0; i--) {
+            pos = nextLineStart(cursor, pos);
+        }
+        return pos;
+    }
+    
+    /**
+     * 查找包含指定字节偏移的行，必要时继续建立索引直到覆盖该偏移
+     * 只扫描换行符，不解码偏移之前的内容
+     * @param byteOffset 字节偏移
+     * @return 行序号，文件为空时返回0
+     * @throws IOException 文件读取异常
+     */
+    public int lineAt(long byteOffset) throws IOException {
+        while (!isComplete() && scannedBytes() <= byteOffset) {
+            scan(SEEK_SCAN_BYTES);
+        }
+        int block;
+        long start;
+        int count;
+        synchronized (this) {
+            if (lineCount == 0) {
+                return 0;
+            }
+            int lo = 0;
+            int hi = (lineCount - 1) / LINES_PER_BLOCK;
+            while (lo < hi) {
+                int mid = (lo + hi + 1) >>> 1;
+                if (blockStarts[mid] <= byteOffset) {
+                    lo = mid;
+                } else {
+                    hi = mid - 1;
+                }
+            }
+            block = lo;
+            start = blockStarts[block];
+            count = Math.min(LINES_PER_BLOCK, lineCount - block * LINES_PER_BLOCK);
+        }
+        ByteCursor cursor = new ByteCursor();
+        long pos = start;
+        int line = 0;
+        while (line + 1 < count) {
+            long next = nextLineStart(cursor, pos);
+            if (next > byteOffset) {
+                break;
+            }
+            pos = next;
+            line++;
+        }
+        return block * LINES_PER_BLOCK + line;
+    }
+    
+    /**
+     * 从指定行读取到所在块的末尾，结果不放入缓存，供查找等顺序遍历使用，避免挤掉显示用的缓存
+     * @param firstLine 起始行序号
+     * @return 连续的若干行，至少包含一行
+     * @throws IOException 文件读取异常
+     */
+    public String[] readLines(int firstLine) throws IOException {
+        int block = firstLine / LINES_PER_BLOCK;
+        long start;
+        int count;
+        synchronized (this) {
+            if (firstLine < 0 || firstLine >= lineCount) {
+                throw new IndexOutOfBoundsException("行序号越界: " + firstLine);
+            }
+            start = blockStarts[block];
+            count = Math.min(LINES_PER_BLOCK, lineCount - block * LINES_PER_BLOCK);
+        }
+        String[] lines = decodeBlock(start, count);
+        int skip = firstLine % LINES_PER_BLOCK;
+        return skip == 0 ? lines : Arrays.copyOfRange(lines, skip, count);
+    }
+    
+    @Override
+    public void close() throws IOException {
+        synchronized (this) {
+            blocks.clear();
+        }
+        reader.close();
+    }
+    
+    private String[] decodeBlock(long start, int count) throws IOException {
+        String[] lines = new String[count];
+        ByteCursor cursor = new ByteCursor();
+        long pos = start;
+        for (int i = 0; i < count; i++) {
+            long next = nextLineStart(cursor, pos);
+            long end = next;
+            if (end - unitWidth >= pos && cursor.matches(end - unitWidth, newline)) {
+                end -= unitWidth;
+                if (end - unitWidth >= pos && cursor.matches(end - unitWidth, carriageReturn)) {
+                    end -= unitWidth;
+                }
+            }
+            lines[i] = end > pos ? reader.decodeAligned(pos, end) : "";
+            pos = next;
+        }
+        return lines;
+    }
+    
+    /**
+     * 查找下一行的起始位置：换行符之后，或超长行的拆分点
+     */
+    private long nextLineStart(ByteCursor cursor, long lineStart) throws IOException {
+        long size = reader.size();
+        long splitAt = lineStart + MAX_LINE_BYTES;
+        for (long pos = lineStart; pos + unitWidth <= size; pos += unitWidth) {
+            if (pos >= splitAt) {
+                // 拆分点之前没有换行符，从行首向后找到字符边界
+                return reader.alignForward(lineStart, pos);
+            }
+            if (cursor.matches(pos, newline)) {
+                return pos + unitWidth;
+            }
+        }
+        return size;
+    }
+    
+    private boolean endsWithNewline(long end) throws IOException {
+        return end - unitWidth >= 0 && new ByteCursor().matches(end - unitWidth, newline);
+    }
+    
+    private void addBlockStart(int block, long start) {
+        if (block >= blockStarts.length) {
+            blockStarts = Arrays.copyOf(blockStarts, blockStarts.length * 2);
+        }
+        blockStarts[block] = start;
+    }
+    
+    private byte[] encodeUnit(char c, Charset charset) throws IOException {
+        try {
+            ByteBuffer encoded = charset.newEncoder().encode(CharBuffer.wrap(new char[] {c}));
+            byte[] bytes = new byte[encoded.remaining()];
+            encoded.get(bytes);
+            // 不带字节序的编码会在前面输出BOM，只保留最后一个编码单元
+            return Arrays.copyOfRange(bytes, bytes.length - unitWidth, bytes.length);
+        } catch (CharacterCodingException | UnsupportedOperationException e) {
+            throw new IOException("不支持的文本编码: " + charset.name(), e);
+        }
+    }
+    
+    private static void reverse(byte[] bytes) {
+        for (int i = 0, j = bytes.length - 1; i < j; i++, j--) {
+            byte t = bytes[i];
+            bytes[i] = bytes[j];
+            bytes[j] = t;
+        }
+    }
+    
+    /**
+     * 顺序读取时使用的字节缓冲，避免逐字节访问映射区
+     */
+    private final class ByteCursor {
+        
+        private final byte[] buffer = new byte[BUFFER_SIZE];
+        private long bufferStart = -1;
+        private int bufferLength;
+        
+        boolean matches(long position, byte[] unit) throws IOException {
+            for (int i = 0; i < unit.length; i++) {
+                if (byteAt(position + i) != unit[i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        
+        private byte byteAt(long position) throws IOException {
+            if (bufferStart < 0 || position < bufferStart || position >= bufferStart + bufferLength) {
+                int length = (int) Math.min(BUFFER_SIZE, reader.size() - position);
+                reader.readBytes(position, buffer, length);
+                bufferStart = position;
+                bufferLength = length;
+            }
+            return buffer[(int) (position - bufferStart)];
+        }
+    }
+}
@@ -5,8 +5,6 @@ import com.thief.reader.util.FileUtils;
 import java.io.File;
 import java.io.IOException;
 import java.nio.charset.Charset;
-import java.nio.file.Files;
-import java.nio.file.Paths;
 
 /**
  * 纯文本文档解析器
@@ -15,13 +13,47 @@ public class TextParser implements DocumentParser {
     
     @Override
     public String parse(File file) throws IOException {
-        // 检测文件编码
+        // 只读取一次文件，编码检测直接使用读入的内容
+        return FileUtils.readText(file);
+    }
+    
+    @Override
+    public int version() {
+        // 2: 统计方式检测GBK等编码，并去除BOM
+        return 2;
+    }
+    
+    /**
+     * 以窗口化方式打开文本文件，只按需解码视口附近的内容
+     * @param file 文本文件
+     * @return 窗口读取器
+     * @throws IOException 文件读取异常
+     */
+    public TextWindowReader openWindowed(File file) throws IOException {
         Charset charset = FileUtils.detectCharset(file);
-        return new String(Files.readAllBytes(Paths.get(file.toURI())), charset);
+        return TextWindowReader.open(file, charset);
+    }
+    
+    /**
+     * 打开文本文件并建立行索引，供原生文本视图按行显示
+     * @param file 文本文件
+     * @return 行索引，此时只索引了文件开头的一部分
+     * @throws IOException 文件读取异常
+     */
+    public TextLineIndex openLines(File file) throws IOException {
+        TextLineIndex lines = new TextLineIndex(openWindowed(file));
+        try {
+            ReaderMetrics.getInstance().time(ReaderMetrics.Stage.LINE_INDEX, () -> lines.scan(TextLineIndex.INITIAL_SCAN_BYTES));
+            ReaderMetrics.getInstance().recordBytes(lines.scannedBytes());
+        } catch (IOException | RuntimeException e) {
+            lines.close();
+            throw e;
+        }
+        return lines;
     }
     
     @Override
     public boolean supports(File file) {
         return file.getName().toLowerCase().endsWith(".txt");
     }
-}
\ No newline at end of file
+}
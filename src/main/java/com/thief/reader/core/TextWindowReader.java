@@ -0,0 +1,577 @@
+package com.thief.reader.core;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * 基于内存映射的窗口化文本读取器
+ * 打开文件时只获取文件大小，内容按窗口映射和解码，适合GB级的大文本
+ * 只追加内容的文件（如日志）增长后可以刷新大小，继续读取新增的部分
+ */
+public class TextWindowReader implements PagedContent {
+
+    public static final int DEFAULT_WINDOW_SIZE = 256 * 1024;
+
+    // 分段映射，单个映射不能超过2GB
+    private static final long MAP_CHUNK_SIZE = 64L * 1024 * 1024;
+    private static final int MAX_MAPPED_CHUNKS = 16;
+    private static final int MAX_CACHED_WINDOWS = 8;
+
+    // 向前查找换行符的最大距离，用于窗口边界对齐
+    private static final int MAX_ALIGN_SCAN = 4096;
+    // 高位字节总是成对出现的双字节编码，可以按连续高位字节数的奇偶判断字符边界
+    // Shift_JIS的半角片假名是高位范围内的单字节，不能这样判断
+    private static final Set<String> PAIRED_HIGH_BYTE_CHARSETS = new HashSet<>(Arrays.asList(
+            "GBK", "GB2312", "GB18030", "Big5", "Big5-HKSCS", "x-windows-950"));
+
+    // 预取线程为所有读取器共享的守护线程
+    private static final ExecutorService PREFETCH_EXECUTOR = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "text-window-prefetch");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final File file;
+    private final FileChannel channel;
+    private final Charset charset;
+    private final int windowSize;
+    // 文件增长后随之更新，末尾不完整的多字节字符不计入
+    private volatile long size;
+    // 打开时文件的标识，用于判断文件是否被替换
+    private final Object fileKey;
+    private final int bomLength;
+    private final Map<Long, MappedByteBuffer> chunks;
+    private final Map<Integer, TextWindow> windows;
+    private volatile boolean closed;
+
+    private TextWindowReader(File file, Charset charset, int windowSize) throws IOException {
+        this.file = file;
+        this.channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+        this.charset = charset;
+        this.windowSize = windowSize;
+        this.size = channel.size();
+        this.fileKey = readFileKey();
+        this.chunks = new LinkedHashMap<Long, MappedByteBuffer>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, MappedByteBuffer> eldest) {
+                return size() > MAX_MAPPED_CHUNKS;
+            }
+        };
+        this.windows = new LinkedHashMap<Integer, TextWindow>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, TextWindow> eldest) {
+                return size() > MAX_CACHED_WINDOWS;
+            }
+        };
+        this.bomLength = detectBomLength();
+        this.size = completeLength(size);
+    }
+
+    /**
+     * 打开文件，耗时与文件大小无关
+     * @param file 文本文件
+     * @param charset 文件编码
+     * @return 窗口读取器
+     * @throws IOException 文件读取异常
+     */
+    public static TextWindowReader open(File file, Charset charset) throws IOException {
+        return open(file, charset, DEFAULT_WINDOW_SIZE);
+    }
+
+    /**
+     * 以指定窗口大小打开文件
+     * @param file 文本文件
+     * @param charset 文件编码
+     * @param windowSize 每个窗口的字节数
+     * @return 窗口读取器
+     * @throws IOException 文件读取异常
+     */
+    public static TextWindowReader open(File file, Charset charset, int windowSize) throws IOException {
+        if (windowSize < 16) {
+            throw new IllegalArgumentException("窗口过小: " + windowSize);
+        }
+        return new TextWindowReader(file, charset, windowSize);
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    public Charset getCharset() {
+        return charset;
+    }
+
+    public long size() {
+        return size;
+    }
+
+    /**
+     * 获取窗口数量
+     * @return 窗口数量
+     */
+    public int windowCount() {
+        long content = size - bomLength;
+        if (content <= 0) {
+            return 1;
+        }
+        return (int) ((content + windowSize - 1) / windowSize);
+    }
+
+    @Override
+    public int pageCount() {
+        return windowCount();
+    }
+
+    @Override
+    public String pageText(int index) throws IOException {
+        return window(index).getText();
+    }
+
+    /**
+     * 获取包含指定字节偏移的窗口序号
+     * @param byteOffset 字节偏移
+     * @return 窗口序号
+     * @throws IOException 文件读取异常
+     */
+    public int windowIndexAt(long byteOffset) throws IOException {
+        long relative = Math.max(0, byteOffset - bomLength);
+        int index = Math.min((int) (relative / windowSize), windowCount() - 1);
+        // 对齐后的窗口边界与名义边界可能相差一段，超长行中可能相差多个窗口，需要向两侧校正
+        while (index > 0 && byteOffset < windowStart(index)) {
+            index--;
+        }
+        while (index + 1 < windowCount() && byteOffset >= windowStart(index + 1)) {
+            index++;
+        }
+        return index;
+    }
+
+    /**
+     * 获取指定窗口的内容，并在后台预取相邻窗口
+     * @param index 窗口序号
+     * @return 解码后的窗口
+     * @throws IOException 文件读取异常
+     */
+    public TextWindow window(int index) throws IOException {
+        TextWindow window = loadWindow(index);
+        prefetch(index + 1);
+        prefetch(index - 1);
+        return window;
+    }
+
+    /**
+     * 解码字节区间内的文本，区间两端会先对齐到字符边界
+     * @param start 起始字节偏移
+     * @param end 结束字节偏移
+     * @return 解码后的文本
+     * @throws IOException 文件读取异常
+     */
+    public String decode(long start, long end) throws IOException {
+        long alignedStart = alignToCharBoundary(start);
+        long alignedEnd = alignToCharBoundary(end);
+        if (alignedEnd <= alignedStart) {
+            return "";
+        }
+        return decodeAligned(alignedStart, alignedEnd);
+    }
+
+    /**
+     * 将字节偏移对齐到不会截断多字节字符的位置
+     * 兼容ASCII的编码优先对齐到行首，这样窗口总是从完整的一行开始
+     * @param offset 字节偏移
+     * @return 对齐后的偏移
+     * @throws IOException 文件读取异常
+     */
+    public long alignToCharBoundary(long offset) throws IOException {
+        if (offset <= bomLength) {
+            return bomLength;
+        }
+        if (offset >= size) {
+            return size;
+        }
+        String name = charset.name();
+        if (name.startsWith("UTF-16")) {
+            long aligned = offset - ((offset - bomLength) & 1);
+            // 不从低位代理项开始
+            if (aligned + 1 < size && isLowSurrogate(aligned)) {
+                aligned += 2;
+            }
+            return Math.min(aligned, size);
+        }
+        if (name.startsWith("UTF-32")) {
+            return offset - ((offset - bomLength) & 3);
+        }
+
+        // GBK、Big5、Shift_JIS等编码的尾字节不会是0x0A，换行符之后一定是字符边界
+        long limit = Math.max(bomLength, offset - Math.min(MAX_ALIGN_SCAN, windowSize));
+        for (long pos = offset - 1; pos >= limit; pos--) {
+            if (byteAt(pos) == '\n') {
+                return pos + 1;
+            }
+        }
+
+        if (StandardCharsets.UTF_8.equals(charset)) {
+            // 跳过UTF-8的后续字节
+            long pos = offset;
+            while (pos < size && pos - offset < 4 && (byteAt(pos) & 0xC0) == 0x80) {
+                pos++;
+            }
+            return pos;
+        }
+        if (charset.newEncoder().maxBytesPerChar() <= 1) {
+            return offset;
+        }
+        if (!isPairedHighByte()) {
+            // 其他多字节编码无法从中间判断字符边界，退回到更早的换行符之后，没有换行符时从头开始
+            for (long pos = limit - 1; pos >= bomLength; pos--) {
+                if (byteAt(pos) == '\n') {
+                    return pos + 1;
+                }
+            }
+            return bomLength;
+        }
+
+        // 没有换行符的超长行：统计之前连续的高位字节，奇数个说明当前位置是双字节字符的尾字节
+        int highBytes = 0;
+        long runLimit = Math.max(bomLength, offset - MAX_ALIGN_SCAN);
+        for (long pos = offset - 1; pos >= runLimit && (byteAt(pos) & 0x80) != 0; pos--) {
+            highBytes++;
+        }
+        return (highBytes & 1) == 0 ? offset : offset + 1;
+    }
+
+    /**
+     * 从已知的字符边界向后查找不早于偏移的第一个字符边界，用于拆分没有换行符的超长行
+     * @param boundary 已知的字符边界，不晚于offset
+     * @param offset 字节偏移
+     * @return 对齐后的偏移，不早于offset
+     * @throws IOException 文件读取异常
+     */
+    public long alignForward(long boundary, long offset) throws IOException {
+        String name = charset.name();
+        if (name.startsWith("UTF-") || isPairedHighByte() || charset.newEncoder().maxBytesPerChar() <= 1) {
+            return Math.max(offset, alignToCharBoundary(offset));
+        }
+        // 无法从中间判断边界的编码逐个字符解码，输出缓冲区只容纳一个字符，每次解码后输入位置就是下一个字符的起点
+        long end = Math.min(size, offset + 4);
+        ByteBuffer in = ByteBuffer.wrap(readBytes(boundary, (int) (end - boundary)));
+        CharBuffer out = CharBuffer.allocate(1);
+        CharsetDecoder decoder = charset.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        while (boundary + in.position() < offset) {
+            out.clear();
+            int before = in.position();
+            decoder.decode(in, out, false);
+            if (in.position() == before) {
+                break;
+            }
+        }
+        return Math.max(offset, boundary + in.position());
+    }
+
+    private boolean isPairedHighByte() {
+        return PAIRED_HIGH_BYTE_CHARSETS.contains(charset.name());
+    }
+
+    /**
+     * 重新读取文件大小，只读取新增内容的末尾几个字节用于字符边界对齐
+     * 末尾不完整的多字节字符不计入大小，补全后下次刷新时再读取
+     * @return 是否有新增的内容
+     * @throws IOException 文件读取异常
+     */
+    public boolean refresh() throws IOException {
+        long current = channel.size();
+        long complete = completeLength(current);
+        synchronized (this) {
+            long previous = size;
+            if (complete <= previous) {
+                return false;
+            }
+            // 最后一个映射分段和窗口都截止于原来的末尾，需要重新映射和解码
+            long lastChunk = previous == 0 ? 0 : (previous - 1) / MAP_CHUNK_SIZE;
+            chunks.remove(lastChunk);
+            windows.remove(windowCount() - 1);
+            size = complete;
+            return true;
+        }
+    }
+    
+    /**
+     * 检查文件是否被截断或替换，这时之前读取的内容不再有效，只能重新打开
+     * 编辑器保存时通常先写入新文件再重命名，打开的通道仍然指向原来的文件
+     * @return 是否需要重新打开
+     * @throws IOException 文件属性读取异常
+     */
+    public boolean isReplaced() throws IOException {
+        if (!file.isFile() || channel.size() < size) {
+            return true;
+        }
+        Object current = readFileKey();
+        return fileKey != null && !fileKey.equals(current);
+    }
+
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        synchronized (this) {
+            windows.clear();
+            chunks.clear();
+        }
+        channel.close();
+    }
+
+    private TextWindow loadWindow(int index) throws IOException {
+        if (index < 0 || index >= windowCount()) {
+            throw new IndexOutOfBoundsException("窗口序号越界: " + index);
+        }
+        synchronized (this) {
+            TextWindow cached = windows.get(index);
+            if (cached != null) {
+                return cached;
+            }
+        }
+        long start = windowStart(index);
+        long end = index + 1 < windowCount() ? windowStart(index + 1) : size;
+        TextWindow window = new TextWindow(index, start, end, decodeAligned(start, end));
+        synchronized (this) {
+            windows.put(index, window);
+        }
+        return window;
+    }
+
+    private void prefetch(int index) {
+        if (index < 0 || index >= windowCount()) {
+            return;
+        }
+        synchronized (this) {
+            if (windows.containsKey(index)) {
+                return;
+            }
+        }
+        PREFETCH_EXECUTOR.execute(() -> {
+            if (closed) {
+                return;
+            }
+            try {
+                loadWindow(index);
+            } catch (IOException | RuntimeException e) {
+                // 预取失败不影响前台读取，前台读取时会重新尝试
+            }
+        });
+    }
+
+    private long windowStart(int index) throws IOException {
+        if (index == 0) {
+            return bomLength;
+        }
+        return alignToCharBoundary(bomLength + (long) index * windowSize);
+    }
+
+    /**
+     * 解码已对齐到字符边界的字节区间
+     */
+    String decodeAligned(long start, long end) throws IOException {
+        byte[] bytes = readBytes(start, (int) (end - start));
+        CharsetDecoder decoder = charset.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        try {
+            CharBuffer chars = decoder.decode(ByteBuffer.wrap(bytes));
+            return chars.toString();
+        } catch (CharacterCodingException e) {
+            // 使用REPLACE策略时不会出现
+            throw new IOException("无法解码文件: " + file.getName(), e);
+        }
+    }
+
+    /**
+     * 读取字节区间，跨越映射分段时逐段复制
+     */
+    byte[] readBytes(long start, int length) throws IOException {
+        byte[] bytes = new byte[length];
+        readBytes(start, bytes, length);
+        return bytes;
+    }
+
+    /**
+     * 将字节区间读取到已有的数组中
+     */
+    void readBytes(long start, byte[] bytes, int length) throws IOException {
+        int copied = 0;
+        while (copied < length) {
+            long position = start + copied;
+            long chunkIndex = position / MAP_CHUNK_SIZE;
+            MappedByteBuffer chunk = chunk(chunkIndex);
+            int offsetInChunk = (int) (position - chunkIndex * MAP_CHUNK_SIZE);
+            int count = Math.min(length - copied, chunk.capacity() - offsetInChunk);
+            ByteBuffer view = chunk.duplicate();
+            view.position(offsetInChunk);
+            view.get(bytes, copied, count);
+            copied += count;
+        }
+    }
+
+    private byte byteAt(long position) throws IOException {
+        long chunkIndex = position / MAP_CHUNK_SIZE;
+        return chunk(chunkIndex).get((int) (position - chunkIndex * MAP_CHUNK_SIZE));
+    }
+
+    private synchronized MappedByteBuffer chunk(long chunkIndex) throws IOException {
+        MappedByteBuffer chunk = chunks.get(chunkIndex);
+        if (chunk == null) {
+            long position = chunkIndex * MAP_CHUNK_SIZE;
+            long length = Math.min(MAP_CHUNK_SIZE, size - position);
+            chunk = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+            chunks.put(chunkIndex, chunk);
+        }
+        return chunk;
+    }
+
+    private Object readFileKey() throws IOException {
+        // Windows等平台不提供文件标识，只能通过大小判断
+        return Files.readAttributes(file.toPath(), BasicFileAttributes.class).fileKey();
+    }
+
+    /**
+     * 计算不截断多字节字符的最大长度，只读取末尾几个字节
+     */
+    private long completeLength(long length) throws IOException {
+        if (length <= bomLength) {
+            return length;
+        }
+        String name = charset.name();
+        if (name.startsWith("UTF-32")) {
+            return length - ((length - bomLength) & 3);
+        }
+        if (name.startsWith("UTF-16")) {
+            long aligned = length - ((length - bomLength) & 1);
+            // 代理对只写入了高位代理项
+            if (aligned - 2 >= bomLength) {
+                byte[] unit = readTail(aligned - 2, 2);
+                int high = "UTF-16LE".equals(name) ? unit[1] & 0xFF : unit[0] & 0xFF;
+                if (high >= 0xD8 && high <= 0xDB) {
+                    aligned -= 2;
+                }
+            }
+            return aligned;
+        }
+        int count = (int) Math.min(4, length - bomLength);
+        byte[] tail = readTail(length - count, count);
+        if (StandardCharsets.UTF_8.equals(charset)) {
+            // 从末尾找到最后一个首字节，检查它需要的后续字节是否都已写入
+            for (int i = count - 1; i >= 0; i--) {
+                int b = tail[i] & 0xFF;
+                if ((b & 0xC0) == 0x80) {
+                    continue;
+                }
+                int needed = b >= 0xF0 ? 4 : b >= 0xE0 ? 3 : b >= 0xC0 ? 2 : 1;
+                return count - i >= needed ? length : length - (count - i);
+            }
+            return length;
+        }
+        // 双字节编码：末尾连续的高位字节为奇数个时，最后一个字节是不完整字符的首字节
+        int highBytes = 0;
+        long runLimit = Math.max(bomLength, length - MAX_ALIGN_SCAN);
+        byte[] run = readTail(runLimit, (int) (length - runLimit));
+        for (int i = run.length - 1; i >= 0 && (run[i] & 0x80) != 0; i--) {
+            highBytes++;
+        }
+        return (highBytes & 1) == 0 ? length : length - 1;
+    }
+
+    /**
+     * 直接从通道读取，不经过映射，可以读取当前大小之外新增的字节
+     */
+    private byte[] readTail(long position, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                break;
+            }
+        }
+        return buffer.array();
+    }
+
+    private boolean isLowSurrogate(long position) throws IOException {
+        int high = "UTF-16LE".equals(charset.name()) ? byteAt(position + 1) & 0xFF : byteAt(position) & 0xFF;
+        return high >= 0xDC && high <= 0xDF;
+    }
+
+    private int detectBomLength() throws IOException {
+        if (size < 2) {
+            return 0;
+        }
+        int b0 = byteAt(0) & 0xFF;
+        int b1 = byteAt(1) & 0xFF;
+        if (size >= 3 && b0 == 0xEF && b1 == 0xBB && (byteAt(2) & 0xFF) == 0xBF) {
+            return 3;
+        }
+        String name = charset.name();
+        if (name.startsWith("UTF-32") && size >= 4) {
+            int b2 = byteAt(2) & 0xFF;
+            int b3 = byteAt(3) & 0xFF;
+            if ((b0 == 0 && b1 == 0 && b2 == 0xFE && b3 == 0xFF) || (b0 == 0xFF && b1 == 0xFE && b2 == 0 && b3 == 0)) {
+                return 4;
+            }
+            return 0;
+        }
+        if (name.startsWith("UTF-16") && ((b0 == 0xFE && b1 == 0xFF) || (b0 == 0xFF && b1 == 0xFE))) {
+            return 2;
+        }
+        return 0;
+    }
+
+    /**
+     * 解码后的文本窗口
+     */
+    public static final class TextWindow {
+
+        private final int index;
+        private final long startByte;
+        private final long endByte;
+        private final String text;
+
+        TextWindow(int index, long startByte, long endByte, String text) {
+            this.index = index;
+            this.startByte = startByte;
+            this.endByte = endByte;
+            this.text = text;
+        }
+
+        public int getIndex() {
+            return index;
+        }
+
+        public long getStartByte() {
+            return startByte;
+        }
+
+        public long getEndByte() {
+            return endByte;
+        }
+
+        public String getText() {
+            return text;
+        }
+    }
+}
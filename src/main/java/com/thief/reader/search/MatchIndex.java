@@ -0,0 +1,184 @@
+package com.thief.reader.search;
+
+import com.thief.reader.core.TextLineIndex;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * 文档内查找的匹配位置索引
+ * 在后台线程中一次性计算所有匹配的位置（段序号+段内偏移），界面线程据此在匹配之间跳转，无需再次扫描文档
+ * 纯文本的段为行，网页内容只有一个段，偏移为正文文本中的字符位置
+ */
+public class MatchIndex {
+    
+    // 行索引尚未覆盖整个文件时，每次继续建立索引的字节数
+    private static final long LINE_SCAN_STEP_BYTES = 8L * 1024 * 1024;
+    
+    private final String query;
+    private int[] segments = new int[64];
+    private int[] offsets = new int[64];
+    private int size;
+    private volatile boolean complete;
+    private volatile boolean cancelled;
+    
+    /**
+     * @param query 查询文本，不区分大小写
+     */
+    public MatchIndex(String query) {
+        this.query = lowerCase(query);
+    }
+    
+    public String getQuery() {
+        return query;
+    }
+    
+    public int queryLength() {
+        return query.length();
+    }
+    
+    public synchronized int size() {
+        return size;
+    }
+    
+    public synchronized int segment(int index) {
+        checkIndex(index);
+        return segments[index];
+    }
+    
+    public synchronized int offset(int index) {
+        checkIndex(index);
+        return offsets[index];
+    }
+    
+    /**
+     * 二分查找不早于指定位置的第一个匹配
+     * @param segment 段序号
+     * @param offset 段内偏移
+     * @return 匹配序号，没有时返回size()
+     */
+    public synchronized int indexAtOrAfter(int segment, int offset) {
+        int lo = 0;
+        int hi = size;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (segments[mid] < segment || (segments[mid] == segment && offsets[mid] < offset)) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+    
+    /**
+     * 检查段内是否有匹配
+     * @param segment 段序号
+     * @return 是否有匹配
+     */
+    public synchronized boolean containsSegment(int segment) {
+        int index = indexAtOrAfter(segment, 0);
+        return index < size && segments[index] == segment;
+    }
+    
+    /**
+     * 扫描是否已覆盖整个文档
+     * @return 是否完成
+     */
+    public boolean isComplete() {
+        return complete;
+    }
+    
+    /**
+     * 取消扫描，已找到的匹配仍然有效
+     */
+    public void cancel() {
+        cancelled = true;
+    }
+    
+    public boolean isCancelled() {
+        return cancelled;
+    }
+    
+    /**
+     * 扫描一段文本，段和偏移必须不早于已有的匹配
+     * @param segment 段序号
+     * @param text 文本
+     * @param baseOffset 文本在段内的起始偏移
+     */
+    public void scanText(int segment, CharSequence text, int baseOffset) {
+        if (query.isEmpty() || text.length() < query.length()) {
+            return;
+        }
+        String lowered = lowerCase(text);
+        int from = 0;
+        int found;
+        // 与浏览器一致，匹配之间不重叠
+        while ((found = lowered.indexOf(query, from)) >= 0) {
+            add(segment, baseOffset + found);
+            from = found + query.length();
+        }
+    }
+    
+    /**
+     * 逐行扫描文本，行索引尚未覆盖整个文件时会继续建立行索引
+     * @param lines 行索引
+     * @param progress 每扫描完一个块后调用，可以为null
+     * @throws IOException 文件读取异常
+     */
+    public void scanLines(TextLineIndex lines, Runnable progress) throws IOException {
+        int line = 0;
+        while (!cancelled) {
+            if (line >= lines.lineCount()) {
+                if (lines.isComplete()) {
+                    break;
+                }
+                lines.scan(LINE_SCAN_STEP_BYTES);
+                continue;
+            }
+            for (String text : lines.readLines(line)) {
+                scanText(line++, text, 0);
+            }
+            if (progress != null) {
+                progress.run();
+            }
+        }
+        markComplete();
+    }
+    
+    /**
+     * 标记扫描完成
+     */
+    public void markComplete() {
+        if (!cancelled) {
+            complete = true;
+        }
+    }
+    
+    private synchronized void add(int segment, int offset) {
+        if (size == segments.length) {
+            segments = Arrays.copyOf(segments, size * 2);
+            offsets = Arrays.copyOf(offsets, size * 2);
+        }
+        segments[size] = segment;
+        offsets[size] = offset;
+        size++;
+    }
+    
+    private void checkIndex(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("匹配序号越界: " + index);
+        }
+    }
+    
+    /**
+     * 逐字符转为小写，保证偏移与原文一致
+     */
+    private static String lowerCase(CharSequence text) {
+        char[] chars = new char[text.length()];
+        for (int i = 0; i < chars.length; i++) {
+            chars[i] = Character.toLowerCase(text.charAt(i));
+        }
+        return new String(chars);
+    }
+}
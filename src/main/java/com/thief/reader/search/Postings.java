@@ -0,0 +1,99 @@
+package com.thief.reader.search;
+
+import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
+
+/**
+ * 倒排列表的编码
+ * 文档编号按升序存储差值，差值和词频都使用变长整数编码
+ */
+final class Postings {
+    
+    private int[] docIds;
+    private int[] frequencies;
+    private int size;
+    
+    Postings() {
+        this(4);
+    }
+    
+    Postings(int capacity) {
+        this.docIds = new int[Math.max(1, capacity)];
+        this.frequencies = new int[Math.max(1, capacity)];
+    }
+    
+    /**
+     * 追加一项，文档编号必须大于已有的编号
+     */
+    void add(int docId, int frequency) {
+        if (size == docIds.length) {
+            docIds = Arrays.copyOf(docIds, size * 2);
+            frequencies = Arrays.copyOf(frequencies, size * 2);
+        }
+        docIds[size] = docId;
+        frequencies[size] = frequency;
+        size++;
+    }
+    
+    int size() {
+        return size;
+    }
+    
+    int docId(int index) {
+        return docIds[index];
+    }
+    
+    int frequency(int index) {
+        return frequencies[index];
+    }
+    
+    Postings copy() {
+        Postings copy = new Postings(size);
+        System.arraycopy(docIds, 0, copy.docIds, 0, size);
+        System.arraycopy(frequencies, 0, copy.frequencies, 0, size);
+        copy.size = size;
+        return copy;
+    }
+    
+    byte[] encode() {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(size * 3);
+        int previous = 0;
+        for (int i = 0; i < size; i++) {
+            writeVarInt(out, docIds[i] - previous);
+            writeVarInt(out, frequencies[i]);
+            previous = docIds[i];
+        }
+        return out.toByteArray();
+    }
+    
+    static Postings decode(byte[] data) {
+        Postings postings = new Postings(data.length / 2);
+        int[] position = {0};
+        int docId = 0;
+        while (position[0] < data.length) {
+            docId += readVarInt(data, position);
+            postings.add(docId, readVarInt(data, position));
+        }
+        return postings;
+    }
+    
+    static void writeVarInt(ByteArrayOutputStream out, int value) {
+        while ((value & ~0x7F) != 0) {
+            out.write((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.write(value);
+    }
+    
+    static int readVarInt(byte[] data, int[] position) {
+        int value = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = data[position[0]++];
+            value |= (b & 0x7F) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+        return value;
+    }
+}
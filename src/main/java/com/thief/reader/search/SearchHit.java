@@ -0,0 +1,30 @@
+package com.thief.reader.search;
+
+import java.io.File;
+
+/**
+ * 搜索结果
+ */
+public final class SearchHit {
+    
+    private final File file;
+    private final double score;
+    
+    SearchHit(File file, double score) {
+        this.file = file;
+        this.score = score;
+    }
+    
+    public File getFile() {
+        return file;
+    }
+    
+    public double getScore() {
+        return score;
+    }
+    
+    @Override
+    public String toString() {
+        return file.getName();
+    }
+}
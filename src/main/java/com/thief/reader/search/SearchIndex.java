@@ -0,0 +1,504 @@
+package com.thief.reader.search;
+
+import com.google.gson.Gson;
+import com.thief.reader.config.ConfigManager;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 增量更新的全文倒排索引
+ * 已提交的倒排列表保存在磁盘上，内存中只保留排序的词典；新增文档先进入内存增量，提交时与磁盘数据合并写入新的一代文件
+ */
+public class SearchIndex {
+    
+    private static final String INDEX_DIRECTORY = "search-index";
+    private static final String STATE_FILE = "documents.json";
+    private static final String POSTINGS_PREFIX = "postings-";
+    private static final String TERMS_PREFIX = "terms-";
+    
+    private final Path directory;
+    private final Gson gson = new Gson();
+    // 同一时间只允许一个提交，提交期间仍可以查询和添加文档
+    private final Object commitLock = new Object();
+    
+    private final Map<String, IndexedDocument> documentsByPath = new HashMap<>();
+    private final Map<Integer, IndexedDocument> documentsById = new HashMap<>();
+    private int nextDocId;
+    private int generation;
+    private boolean removalsPending;
+    private Dictionary dictionary = Dictionary.EMPTY;
+    private Map<String, Postings> delta = new HashMap<>();
+    private Map<String, Postings> merging = Collections.emptyMap();
+    
+    /**
+     * 打开索引目录，索引损坏时从空索引开始
+     * @param directory 索引目录
+     */
+    public SearchIndex(Path directory) {
+        this.directory = directory;
+        load();
+    }
+    
+    /**
+     * 打开用户配置目录下的默认索引
+     * @return 全文索引
+     */
+    public static SearchIndex openDefault() {
+        return new SearchIndex(ConfigManager.getConfigDirectory().resolve(INDEX_DIRECTORY));
+    }
+    
+    /**
+     * 检查文件的索引是否为最新，大小和修改时间未变的文件无需重新索引
+     * @param file 文档文件
+     * @return 是否为最新
+     * @throws IOException 无法获取规范路径
+     */
+    public boolean isUpToDate(File file) throws IOException {
+        String path = file.getCanonicalPath();
+        synchronized (this) {
+            IndexedDocument document = documentsByPath.get(path);
+            return document != null && document.size == file.length() && document.lastModified == file.lastModified();
+        }
+    }
+    
+    /**
+     * 添加或替换文档，提交之前即可被查询到
+     * @param file 文档文件
+     * @param size 提取内容之前的文件大小
+     * @param lastModified 提取内容之前的修改时间
+     * @param frequencies 词项及其出现次数
+     * @param tokenCount 词项总数
+     * @throws IOException 无法获取规范路径
+     */
+    public void addDocument(File file, long size, long lastModified, Map<String, int[]> frequencies, int tokenCount)
+            throws IOException {
+        String path = file.getCanonicalPath();
+        synchronized (this) {
+            removeByPath(path);
+            IndexedDocument document = new IndexedDocument(nextDocId++, path, size, lastModified, tokenCount);
+            documentsByPath.put(path, document);
+            documentsById.put(document.id, document);
+            for (Map.Entry<String, int[]> entry : frequencies.entrySet()) {
+                delta.computeIfAbsent(entry.getKey(), term -> new Postings()).add(document.id, entry.getValue()[0]);
+            }
+        }
+    }
+    
+    /**
+     * 移除文档，倒排列表中的旧数据在下次提交时清理
+     * @param file 文档文件
+     * @throws IOException 无法获取规范路径
+     */
+    public void removeDocument(File file) throws IOException {
+        String path = file.getCanonicalPath();
+        synchronized (this) {
+            removeByPath(path);
+        }
+    }
+    
+    public synchronized int documentCount() {
+        return documentsById.size();
+    }
+    
+    /**
+     * 获取已索引的文档
+     * @return 文档文件列表
+     */
+    public synchronized List<File> getDocuments() {
+        List<File> files = new ArrayList<>();
+        for (String path : documentsByPath.keySet()) {
+            files.add(new File(path));
+        }
+        return files;
+    }
+    
+    /**
+     * 搜索同时包含所有查询词项的文档，按TF-IDF排序
+     * @param query 查询语句
+     * @param limit 最多返回的结果数
+     * @return 搜索结果
+     * @throws IOException 索引读取异常
+     */
+    public List<SearchHit> search(String query, int limit) throws IOException {
+        List<String> terms = Tokenizer.queryTerms(query);
+        if (terms.isEmpty()) {
+            return Collections.emptyList();
+        }
+        
+        // 内存中的增量在锁内复制，磁盘上的倒排列表在锁外读取
+        // 倒排列表文件也在锁内打开，提交在替换词典之后才删除旧文件，已打开的文件不会在读取前被删除
+        Dictionary dict;
+        FileChannel postingsChannel;
+        Map<Integer, IndexedDocument> live;
+        List<List<Postings>> memoryPostings = new ArrayList<>();
+        synchronized (this) {
+            dict = dictionary;
+            live = new HashMap<>(documentsById);
+            if (live.isEmpty()) {
+                return Collections.emptyList();
+            }
+            postingsChannel = dict.open();
+            for (String term : terms) {
+                List<Postings> postings = new ArrayList<>(2);
+                Postings merged = merging.get(term);
+                if (merged != null) {
+                    postings.add(merged.copy());
+                }
+                Postings pending = delta.get(term);
+                if (pending != null) {
+                    postings.add(pending.copy());
+                }
+                memoryPostings.add(postings);
+            }
+        }
+        Map<Integer, double[]> scores = null;
+        try (FileChannel channel = postingsChannel) {
+            for (int t = 0; t < terms.size(); t++) {
+                List<Postings> postings = new ArrayList<>(memoryPostings.get(t));
+                int index = dict.indexOf(terms.get(t));
+                if (index >= 0) {
+                    postings.add(Postings.decode(dict.read(channel, index)));
+                }
+                Map<Integer, Integer> termFrequencies = new HashMap<>();
+                for (Postings list : postings) {
+                    for (int i = 0; i < list.size(); i++) {
+                        if (live.containsKey(list.docId(i))) {
+                            termFrequencies.put(list.docId(i), list.frequency(i));
+                        }
+                    }
+                }
+                double idf = Math.log(1.0 + (double) live.size() / Math.max(1, termFrequencies.size()));
+                Map<Integer, double[]> next = new HashMap<>();
+                for (Map.Entry<Integer, Integer> entry : termFrequencies.entrySet()) {
+                    double[] previous = scores == null ? new double[1] : scores.get(entry.getKey());
+                    if (previous == null) {
+                        continue;
+                    }
+                    IndexedDocument document = live.get(entry.getKey());
+                    previous[0] += entry.getValue() / Math.sqrt(Math.max(1, document.tokenCount)) * idf;
+                    next.put(entry.getKey(), previous);
+                }
+                scores = next;
+                if (scores.isEmpty()) {
+                    break;
+                }
+            }
+        }
+        
+        List<SearchHit> hits = new ArrayList<>();
+        for (Map.Entry<Integer, double[]> entry : scores.entrySet()) {
+            hits.add(new SearchHit(new File(live.get(entry.getKey()).path), entry.getValue()[0]));
+        }
+        hits.sort((a, b) -> Double.compare(b.getScore(), a.getScore()));
+        return hits.size() > limit ? new ArrayList<>(hits.subList(0, limit)) : hits;
+    }
+    
+    /**
+     * 将内存增量与磁盘上的倒排列表合并，写入新的一代索引文件
+     * @throws IOException 索引写入异常
+     */
+    public void commit() throws IOException {
+        synchronized (commitLock) {
+            Dictionary oldDictionary;
+            Map<String, Postings> toMerge;
+            Map<Integer, IndexedDocument> liveSnapshot;
+            int nextIdSnapshot;
+            int newGeneration;
+            synchronized (this) {
+                if (delta.isEmpty() && !removalsPending) {
+                    return;
+                }
+                merging = delta;
+                delta = new HashMap<>();
+                toMerge = merging;
+                oldDictionary = dictionary;
+                liveSnapshot = new HashMap<>(documentsById);
+                nextIdSnapshot = nextDocId;
+                newGeneration = generation + 1;
+                removalsPending = false;
+            }
+            
+            Dictionary newDictionary;
+            try {
+                newDictionary = merge(oldDictionary, toMerge, liveSnapshot.keySet(), newGeneration);
+                writeState(new IndexState(newGeneration, nextIdSnapshot, new ArrayList<>(liveSnapshot.values())));
+            } catch (IOException | RuntimeException e) {
+                synchronized (this) {
+                    restoreMerging();
+                    removalsPending = true;
+                }
+                throw e;
+            }
+            synchronized (this) {
+                dictionary = newDictionary;
+                generation = newGeneration;
+                merging = Collections.emptyMap();
+            }
+            deleteOtherGenerations(newGeneration);
+        }
+    }
+    
+    private void removeByPath(String path) {
+        IndexedDocument previous = documentsByPath.remove(path);
+        if (previous != null) {
+            documentsById.remove(previous.id);
+            removalsPending = true;
+        }
+    }
+    
+    /**
+     * 提交失败时把正在合并的增量放回，文档编号仍然保持升序
+     */
+    private void restoreMerging() {
+        Map<String, Postings> restored = merging;
+        for (Map.Entry<String, Postings> entry : delta.entrySet()) {
+            Postings target = restored.computeIfAbsent(entry.getKey(), term -> new Postings());
+            Postings newer = entry.getValue();
+            for (int i = 0; i < newer.size(); i++) {
+                target.add(newer.docId(i), newer.frequency(i));
+            }
+        }
+        delta = restored;
+        merging = Collections.emptyMap();
+    }
+    
+    private Dictionary merge(Dictionary old, Map<String, Postings> additions, Set<Integer> live, int newGeneration)
+            throws IOException {
+        Files.createDirectories(directory);
+        Path postingsFile = directory.resolve(POSTINGS_PREFIX + newGeneration + ".bin");
+        Path termsFile = directory.resolve(TERMS_PREFIX + newGeneration + ".bin");
+        String[] newTerms = additions.keySet().toArray(new String[0]);
+        Arrays.sort(newTerms);
+        
+        List<String> terms = new ArrayList<>(old.terms.length + newTerms.length);
+        long[] offsets = new long[old.terms.length + newTerms.length];
+        int[] lengths = new int[offsets.length];
+        long offset = 0;
+        try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(postingsFile), 64 * 1024);
+             FileChannel oldChannel = old.open()) {
+            int i = 0;
+            int j = 0;
+            while (i < old.terms.length || j < newTerms.length) {
+                int cmp = i >= old.terms.length ? 1 : j >= newTerms.length ? -1 : old.terms[i].compareTo(newTerms[j]);
+                String term = cmp <= 0 ? old.terms[i] : newTerms[j];
+                Postings merged = new Postings();
+                if (cmp <= 0) {
+                    appendLive(merged, Postings.decode(old.read(oldChannel, i)), live);
+                    i++;
+                }
+                if (cmp >= 0) {
+                    // 新文档的编号总是大于已提交的文档，直接追加即可保持升序
+                    appendLive(merged, additions.get(term), live);
+                    j++;
+                }
+                if (merged.size() == 0) {
+                    continue;
+                }
+                byte[] encoded = merged.encode();
+                out.write(encoded);
+                offsets[terms.size()] = offset;
+                lengths[terms.size()] = encoded.length;
+                terms.add(term);
+                offset += encoded.length;
+            }
+        }
+        
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(termsFile)))) {
+            out.writeInt(terms.size());
+            for (int k = 0; k < terms.size(); k++) {
+                out.writeUTF(terms.get(k));
+                out.writeInt(lengths[k]);
+            }
+        }
+        return new Dictionary(postingsFile, terms.toArray(new String[0]),
+                Arrays.copyOf(offsets, terms.size()), Arrays.copyOf(lengths, terms.size()));
+    }
+    
+    private static void appendLive(Postings target, Postings source, Set<Integer> live) {
+        for (int i = 0; i < source.size(); i++) {
+            if (live.contains(source.docId(i))) {
+                target.add(source.docId(i), source.frequency(i));
+            }
+        }
+    }
+    
+    private void load() {
+        Path stateFile = directory.resolve(STATE_FILE);
+        if (!Files.isRegularFile(stateFile)) {
+            return;
+        }
+        try (Reader reader = Files.newBufferedReader(stateFile, StandardCharsets.UTF_8)) {
+            IndexState state = gson.fromJson(reader, IndexState.class);
+            Dictionary loaded = Dictionary.load(directory.resolve(TERMS_PREFIX + state.generation + ".bin"),
+                    directory.resolve(POSTINGS_PREFIX + state.generation + ".bin"));
+            for (IndexedDocument document : state.documents) {
+                documentsByPath.put(document.path, document);
+                documentsById.put(document.id, document);
+            }
+            dictionary = loaded;
+            generation = state.generation;
+            nextDocId = state.nextDocId;
+        } catch (IOException | RuntimeException e) {
+            // 索引损坏时丢弃，文档会在之后重新索引
+            documentsByPath.clear();
+            documentsById.clear();
+            dictionary = Dictionary.EMPTY;
+            generation = 0;
+            nextDocId = 0;
+        }
+    }
+    
+    private void writeState(IndexState state) throws IOException {
+        Path temp = Files.createTempFile(directory, "documents", ".tmp");
+        try {
+            try (Writer writer = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+                gson.toJson(state, writer);
+            }
+            try {
+                Files.move(temp, directory.resolve(STATE_FILE), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, directory.resolve(STATE_FILE), StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+    
+    private void deleteOtherGenerations(int current) {
+        String postingsName = POSTINGS_PREFIX + current + ".bin";
+        String termsName = TERMS_PREFIX + current + ".bin";
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, "*.bin")) {
+            for (Path path : stream) {
+                String name = path.getFileName().toString();
+                if (!name.equals(postingsName) && !name.equals(termsName)) {
+                    try {
+                        Files.deleteIfExists(path);
+                    } catch (IOException e) {
+                        // Windows上正被查询读取的文件无法删除，下次提交时再删除
+                    }
+                }
+            }
+        } catch (IOException e) {
+            // 旧文件只占用磁盘空间，不影响索引
+        }
+    }
+    
+    /**
+     * 排序的词典，记录每个词项的倒排列表在文件中的位置
+     */
+    private static final class Dictionary {
+        
+        static final Dictionary EMPTY = new Dictionary(null, new String[0], new long[0], new int[0]);
+        
+        private final Path postingsFile;
+        private final String[] terms;
+        private final long[] offsets;
+        private final int[] lengths;
+        
+        Dictionary(Path postingsFile, String[] terms, long[] offsets, int[] lengths) {
+            this.postingsFile = postingsFile;
+            this.terms = terms;
+            this.offsets = offsets;
+            this.lengths = lengths;
+        }
+        
+        static Dictionary load(Path termsFile, Path postingsFile) throws IOException {
+            try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(termsFile)))) {
+                int count = in.readInt();
+                String[] terms = new String[count];
+                long[] offsets = new long[count];
+                int[] lengths = new int[count];
+                long offset = 0;
+                for (int i = 0; i < count; i++) {
+                    terms[i] = in.readUTF();
+                    lengths[i] = in.readInt();
+                    offsets[i] = offset;
+                    offset += lengths[i];
+                }
+                if (offset > Files.size(postingsFile)) {
+                    throw new IOException("倒排列表文件不完整");
+                }
+                return new Dictionary(postingsFile, terms, offsets, lengths);
+            }
+        }
+        
+        int indexOf(String term) {
+            return Arrays.binarySearch(terms, term);
+        }
+        
+        FileChannel open() throws IOException {
+            return postingsFile == null ? null : FileChannel.open(postingsFile, StandardOpenOption.READ);
+        }
+        
+        byte[] read(FileChannel channel, int index) throws IOException {
+            ByteBuffer buffer = ByteBuffer.allocate(lengths[index]);
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer, offsets[index] + buffer.position()) < 0) {
+                    throw new IOException("倒排列表文件不完整");
+                }
+            }
+            return buffer.array();
+        }
+    }
+    
+    /**
+     * 持久化的索引状态
+     */
+    private static final class IndexState {
+        
+        private int generation;
+        private int nextDocId;
+        private List<IndexedDocument> documents = new ArrayList<>();
+        
+        IndexState(int generation, int nextDocId, Collection<IndexedDocument> documents) {
+            this.generation = generation;
+            this.nextDocId = nextDocId;
+            this.documents = new ArrayList<>(documents);
+        }
+    }
+    
+    /**
+     * 已索引的文档
+     */
+    private static final class IndexedDocument {
+        
+        private int id;
+        private String path;
+        private long size;
+        private long lastModified;
+        private int tokenCount;
+        
+        IndexedDocument(int id, String path, long size, long lastModified, int tokenCount) {
+            this.id = id;
+            this.path = path;
+            this.size = size;
+            this.lastModified = lastModified;
+            this.tokenCount = tokenCount;
+        }
+    }
+}
@@ -0,0 +1,175 @@
+package com.thief.reader.search;
+
+import com.thief.reader.core.DocumentParser;
+import com.thief.reader.core.MarkdownParser;
+import com.thief.reader.core.ParserRegistry;
+import com.thief.reader.core.TextParser;
+import com.thief.reader.core.TextWindowReader;
+import com.thief.reader.util.FileUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.regex.Pattern;
+
+/**
+ * 后台建立全文索引并执行搜索
+ * 索引和查询使用不同的线程，建立索引期间仍可搜索
+ */
+public class SearchIndexer {
+    
+    private static final ExecutorService INDEX_EXECUTOR = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "search-indexer");
+        thread.setDaemon(true);
+        thread.setPriority(Thread.MIN_PRIORITY);
+        return thread;
+    });
+    
+    private static final ExecutorService QUERY_EXECUTOR = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "search-query");
+        thread.setDaemon(true);
+        return thread;
+    });
+    
+    private static final Pattern HIDDEN_BLOCK = Pattern.compile("(?is)<(style|script)[^>]*>.*?</\\1>");
+    private static final Pattern TAG = Pattern.compile("<[^>]*>");
+    
+    private final SearchIndex index;
+    private final ParserRegistry registry;
+    
+    public SearchIndexer(SearchIndex index, ParserRegistry registry) {
+        this.index = index;
+        this.registry = registry;
+    }
+    
+    public SearchIndex getIndex() {
+        return index;
+    }
+    
+    /**
+     * 在后台索引文件，内容未变的文件直接跳过，不存在的文件从索引中移除
+     * @param files 文档文件
+     * @return 新索引的文件数
+     */
+    public CompletableFuture<Integer> indexAsync(Collection<File> files) {
+        List<File> snapshot = new ArrayList<>(files);
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return indexFiles(snapshot);
+            } catch (IOException e) {
+                throw new CompletionException(e);
+            }
+        }, INDEX_EXECUTOR);
+    }
+    
+    /**
+     * 在后台执行搜索
+     * @param query 查询语句
+     * @param limit 最多返回的结果数
+     * @return 搜索结果
+     */
+    public CompletableFuture<List<SearchHit>> searchAsync(String query, int limit) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return index.search(query, limit);
+            } catch (IOException e) {
+                throw new CompletionException(e);
+            }
+        }, QUERY_EXECUTOR);
+    }
+    
+    /**
+     * 索引文件并提交
+     * @param files 文档文件
+     * @return 新索引的文件数
+     * @throws IOException 索引写入异常
+     */
+    public int indexFiles(Collection<File> files) throws IOException {
+        int indexed = 0;
+        for (File file : files) {
+            if (!file.isFile()) {
+                index.removeDocument(file);
+                continue;
+            }
+            if (index.isUpToDate(file)) {
+                continue;
+            }
+            // 在提取内容之前记录文件状态，提取期间文件被修改时下次会重新索引
+            long size = file.length();
+            long lastModified = file.lastModified();
+            TermCounter counter = new TermCounter();
+            try {
+                if (!extract(file, counter)) {
+                    continue;
+                }
+            } catch (IOException | RuntimeException e) {
+                // 单个文件无法解析时跳过，不影响其他文件
+                continue;
+            }
+            index.addDocument(file, size, lastModified, counter.frequencies, counter.tokenCount);
+            indexed++;
+        }
+        index.commit();
+        return indexed;
+    }
+    
+    private boolean extract(File file, TermCounter counter) throws IOException {
+        DocumentParser parser = registry.find(file);
+        if (parser == null) {
+            return false;
+        }
+        if (parser instanceof TextParser) {
+            // 纯文本逐个窗口读取，大文件也不会整体读入内存
+            try (TextWindowReader reader = ((TextParser) parser).openWindowed(file)) {
+                for (int i = 0; i < reader.windowCount(); i++) {
+                    Tokenizer.tokenize(reader.window(i).getText(), counter::accept);
+                }
+            }
+        } else if (parser instanceof MarkdownParser) {
+            // 直接索引Markdown源文本，无需渲染
+            Tokenizer.tokenize(FileUtils.readText(file), counter::accept);
+        } else {
+            String content = parser.parse(file);
+            Tokenizer.tokenize(parser.producesHtml() ? stripHtml(content) : content, counter::accept);
+        }
+        return true;
+    }
+    
+    static String stripHtml(String html) {
+        String text = HIDDEN_BLOCK.matcher(html).replaceAll(" ");
+        text = TAG.matcher(text).replaceAll(" ");
+        return text.replace("&lt;", "<")
+                .replace("&gt;", ">")
+                .replace("&quot;", "\"")
+                .replace("&#39;", "'")
+                .replace("&nbsp;", " ")
+                .replace("&amp;", "&");
+    }
+    
+    /**
+     * 统计单个文档的词频
+     */
+    private static final class TermCounter {
+        
+        private final Map<String, int[]> frequencies = new HashMap<>();
+        private int tokenCount;
+        
+        void accept(String term) {
+            int[] count = frequencies.get(term);
+            if (count == null) {
+                frequencies.put(term, new int[] {1});
+            } else {
+                count[0]++;
+            }
+            tokenCount++;
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package com.thief.reader.search;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * 全文检索的分词器
+ * 中日韩文字按单字和相邻二元组切分，拉丁字母和数字按单词切分并转为小写
+ */
+public final class Tokenizer {
+    
+    // 超长的单词截断，避免把编码数据等内容整段作为词项
+    static final int MAX_WORD_LENGTH = 40;
+    
+    private Tokenizer() {
+    }
+    
+    /**
+     * 切分文档内容，输出索引用的词项（中日韩文字同时输出单字和二元组，以支持单字查询）
+     * @param text 文档内容
+     * @param sink 词项接收器
+     */
+    public static void tokenize(CharSequence text, Consumer<String> sink) {
+        scan(text, sink, true);
+    }
+    
+    /**
+     * 切分查询语句，连续的中日韩文字只使用二元组，单个汉字才使用单字
+     * @param query 查询语句
+     * @return 去重后的词项
+     */
+    public static List<String> queryTerms(String query) {
+        Set<String> terms = new LinkedHashSet<>();
+        scan(query, terms::add, false);
+        return new ArrayList<>(terms);
+    }
+    
+    private static void scan(CharSequence text, Consumer<String> sink, boolean indexing) {
+        StringBuilder word = new StringBuilder();
+        int previousCjk = -1;
+        boolean runHasBigram = false;
+        int length = text.length();
+        int i = 0;
+        while (i < length) {
+            int codePoint = Character.codePointAt(text, i);
+            i += Character.charCount(codePoint);
+            if (isCjk(codePoint)) {
+                flushWord(word, sink);
+                if (indexing) {
+                    sink.accept(new String(Character.toChars(codePoint)));
+                }
+                if (previousCjk >= 0) {
+                    sink.accept(new StringBuilder(4).appendCodePoint(previousCjk).appendCodePoint(codePoint).toString());
+                    runHasBigram = true;
+                }
+                previousCjk = codePoint;
+                continue;
+            }
+            flushSingle(previousCjk, runHasBigram, indexing, sink);
+            previousCjk = -1;
+            runHasBigram = false;
+            if (Character.isLetterOrDigit(codePoint)) {
+                if (word.length() < MAX_WORD_LENGTH) {
+                    word.appendCodePoint(Character.toLowerCase(codePoint));
+                }
+            } else {
+                flushWord(word, sink);
+            }
+        }
+        flushSingle(previousCjk, runHasBigram, indexing, sink);
+        flushWord(word, sink);
+    }
+    
+    private static void flushSingle(int previousCjk, boolean runHasBigram, boolean indexing, Consumer<String> sink) {
+        // 查询中孤立的单个汉字只能按单字匹配
+        if (!indexing && previousCjk >= 0 && !runHasBigram) {
+            sink.accept(new String(Character.toChars(previousCjk)));
+        }
+    }
+    
+    private static void flushWord(StringBuilder word, Consumer<String> sink) {
+        if (word.length() > 0) {
+            sink.accept(word.toString().toLowerCase(Locale.ROOT));
+            word.setLength(0);
+        }
+    }
+    
+    static boolean isCjk(int codePoint) {
+        Character.UnicodeScript script = Character.UnicodeScript.of(codePoint);
+        return script == Character.UnicodeScript.HAN
+                || script == Character.UnicodeScript.HIRAGANA
+                || script == Character.UnicodeScript.KATAKANA
+                || script == Character.UnicodeScript.HANGUL;
+    }
+}
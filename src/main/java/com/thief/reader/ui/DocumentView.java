@@ -0,0 +1,678 @@
+package com.thief.reader.ui;
+
+import com.thief.reader.config.AppPreferences;
+import com.thief.reader.config.ReadingPosition;
+import com.thief.reader.config.ReadingPositionStore;
+import com.thief.reader.config.SettingsChangeEvent;
+import com.thief.reader.config.SettingsListener;
+import com.thief.reader.core.DocumentEngine;
+import com.thief.reader.core.HtmlTemplate;
+import com.thief.reader.core.LoadProgressListener;
+import com.thief.reader.core.LoadTrace;
+import com.thief.reader.core.LoadedDocument;
+import com.thief.reader.core.MarkdownBlockDocument;
+import com.thief.reader.core.PagedContent;
+import com.thief.reader.core.PagedPdfDocument;
+import com.thief.reader.core.PdfPageRenderer;
+import com.thief.reader.core.PdfRenderQuality;
+import com.thief.reader.core.ReaderEvents;
+import com.thief.reader.core.ReaderMetrics;
+import com.thief.reader.core.ReaderStyle;
+import com.thief.reader.core.TextLineIndex;
+import com.thief.reader.util.FileWatcher;
+import javafx.animation.PauseTransition;
+import javafx.application.Platform;
+import javafx.concurrent.Worker;
+import javafx.geometry.Insets;
+import javafx.geometry.Pos;
+import javafx.scene.Node;
+import javafx.scene.input.KeyCode;
+import javafx.scene.input.KeyEvent;
+import javafx.scene.layout.Region;
+import javafx.scene.layout.StackPane;
+import javafx.scene.web.WebView;
+import javafx.util.Duration;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * 文档显示视图
+ * 文档内容只在打开时渲染一次，字体、缩放和不透明度等设置通过CSS变量实时更新
+ * 纯文本使用原生的虚拟化文本视图，其他文档使用WebView，两者都支持Ctrl+F查找
+ * 扫描件等没有文本的PDF显示为页面图像
+ * 滚动停止后记录阅读位置，重新打开时直接定位到上次的位置
+ * 文件被修改后自动刷新：大Markdown只替换变化的块，纯文本只读取新增的内容，其他文档重新加载并停留在原来的位置
+ * 跟随模式下纯文本停留在末尾，适合查看不断增长的日志
+ */
+public class DocumentView {
+    
+    // 读取修改后的文件并计算变化的线程
+    private static final ExecutorService RELOAD_EXECUTOR = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "live-reload");
+        thread.setDaemon(true);
+        return thread;
+    });
+    // 读取修改后的文件失败（例如保存到一半）时的重试次数
+    private static final int MAX_RELOAD_RETRIES = 5;
+    
+    private final DocumentEngine documentEngine;
+    private final AppPreferences appPrefs;
+    private final WebView webView;
+    private final PagedContentLoader pagedContentLoader;
+    private final TextLineView textLineView;
+    private final PdfPageView pdfPageView;
+    private final WebFindHighlighter webText;
+    private final FindBar findBar;
+    private final ReadingPositionStore positionStore;
+    private final FileWatcher fileWatcher;
+    private boolean liveReload;
+    private boolean followTail;
+    // 在加载线程中读取
+    private volatile boolean pdfPageImages;
+    // 滚动停止一段时间后才记录位置
+    private final PauseTransition positionDelay = new PauseTransition(Duration.millis(500));
+    // 读取修改后的文件失败时稍后重试
+    private final PauseTransition reloadRetry = new PauseTransition(Duration.millis(300));
+    private int reloadRetries;
+    // 网页加载完成后需要恢复的字符偏移，-1表示不需要恢复
+    private long pendingWebRestore = -1;
+    private final StackPane container;
+    private final SettingsListener settingsListener = this::onSettingsChanged;
+    private boolean transparentBackground;
+    private ReaderStyle style;
+    private File currentFile;
+    private CompletableFuture<LoadedDocument> pendingLoad;
+    // 加载期间被修改的文件，加载完成后再刷新
+    private File changedDuringLoad;
+    // 每次加载递增，用于丢弃过期加载的进度和结果
+    private long loadGeneration;
+    // 等待页面显示完成的加载明细，页面加载完成时补充显示耗时
+    private LoadTrace renderTrace;
+    private long renderStart;
+    // 正在录制JFR时的页面加载事件
+    private Object pageEvent;
+    private long pageContentLength;
+    
+    public DocumentView(DocumentEngine documentEngine, ReadingPositionStore positionStore) {
+        this.documentEngine = documentEngine;
+        this.positionStore = positionStore;
+        this.appPrefs = AppPreferences.getInstance();
+        this.webView = new WebView();
+        this.pagedContentLoader = new PagedContentLoader(webView);
+        this.textLineView = new TextLineView();
+        this.pdfPageView = new PdfPageView();
+        this.webText = new WebFindHighlighter(webView, this::onWebViewportChanged);
+        this.findBar = new FindBar(webView, textLineView, webText);
+        this.fileWatcher = new FileWatcher(file -> Platform.runLater(() -> fileModified(file)),
+                FileWatcher.DEFAULT_DEBOUNCE_MILLIS);
+        this.container = new StackPane(webView, textLineView.getNode(), pdfPageView.getNode(), findBar.getNode());
+        StackPane.setAlignment(findBar.getNode(), Pos.TOP_RIGHT);
+        StackPane.setMargin(findBar.getNode(), new Insets(6, 18, 0, 0));
+        pagedContentLoader.setOnPageAppended(findBar::contentAppended);
+        textLineView.setOnScroll(this::schedulePositionSave);
+        positionDelay.setOnFinished(e -> savePosition());
+        container.addEventFilter(KeyEvent.KEY_PRESSED, event -> {
+            if (event.isControlDown() && event.getCode() == KeyCode.F) {
+                findBar.show();
+                event.consume();
+            }
+        });
+        this.style = ReaderStyle.fromPreferences(appPrefs);
+        webView.getEngine().setUserStyleSheetLocation(HtmlTemplate.userStyleSheet(style, transparentBackground));
+        textLineView.applyStyle(style, transparentBackground);
+        showView(webView);
+        
+        // 页面加载完成后再注入一次样式，确保加载期间的设置变化也能生效
+        webView.getEngine().getLoadWorker().stateProperty().addListener((obs, oldState, newState) -> {
+            if (newState == Worker.State.SUCCEEDED) {
+                webView.getEngine().executeScript(HtmlTemplate.styleScript(style));
+                onPageLoaded();
+                recordRender();
+            } else if (newState == Worker.State.CANCELLED || newState == Worker.State.FAILED) {
+                renderTrace = null;
+            }
+            if (newState == Worker.State.SUCCEEDED || newState == Worker.State.CANCELLED
+                    || newState == Worker.State.FAILED) {
+                ReaderEvents.commitPage(pageEvent, currentFile, pageContentLength,
+                        transparentBackground ? "minimal" : "normal", newState.name());
+                pageEvent = null;
+            }
+        });
+        
+        // 设置变化时才更新样式，不再每帧轮询Preferences
+        appPrefs.addSettingsListener(settingsListener);
+    }
+    
+    /**
+     * 获取放入界面布局的节点
+     * @return 视图节点
+     */
+    public Region getNode() {
+        return container;
+    }
+    
+    public WebView getWebView() {
+        return webView;
+    }
+    
+    public File getCurrentFile() {
+        return currentFile;
+    }
+    
+    /**
+     * 显示文档内查找栏
+     */
+    public void showFindBar() {
+        findBar.show();
+    }
+    
+    /**
+     * 设置是否强制页面背景透明（极简模式）
+     * @param transparent 是否透明
+     */
+    public void setTransparentBackground(boolean transparent) {
+        this.transparentBackground = transparent;
+        webView.getEngine().setUserStyleSheetLocation(HtmlTemplate.userStyleSheet(style, transparentBackground));
+        textLineView.applyStyle(style, transparentBackground);
+    }
+    
+    /**
+     * 设置文件被修改后是否自动刷新
+     * @param enabled 是否自动刷新
+     */
+    public void setLiveReload(boolean enabled) {
+        this.liveReload = enabled;
+        watchCurrentFile();
+    }
+    
+    public boolean isLiveReload() {
+        return liveReload;
+    }
+    
+    /**
+     * 设置是否跟随纯文本文件的末尾，文件增长时只读取新增的内容并自动滚动
+     * @param follow 是否跟随
+     */
+    public void setFollowTail(boolean follow) {
+        this.followTail = follow;
+        textLineView.setFollowTail(follow);
+        watchCurrentFile();
+    }
+    
+    public boolean isFollowTail() {
+        return followTail;
+    }
+    
+    /**
+     * 设置PDF是否显示为页面图像，关闭时只有提取不到文本的PDF才显示为图像
+     * @param enabled 是否显示为页面图像
+     */
+    public void setPdfPageImages(boolean enabled) {
+        if (pdfPageImages == enabled) {
+            return;
+        }
+        this.pdfPageImages = enabled;
+        if (currentFile != null && documentEngine.isPagedPdf(currentFile)) {
+            reload();
+        }
+    }
+    
+    public boolean isPdfPageImages() {
+        return pdfPageImages;
+    }
+    
+    /**
+     * 在后台加载文档，新的加载请求会取消尚未完成的加载
+     * @param file 文档文件
+     * @param listener 进度监听器，在FX线程中回调，可以为null
+     * @return 加载结果，在FX线程中完成；被新的加载取代时以CancellationException完成
+     */
+    public CompletableFuture<LoadedDocument> load(File file, LoadProgressListener listener) {
+        savePosition();
+        return load(file, listener, restorablePosition(file));
+    }
+    
+    private CompletableFuture<LoadedDocument> load(File file, LoadProgressListener listener, ReadingPosition saved) {
+        cancelPendingLoad();
+        long generation = ++loadGeneration;
+        CompletableFuture<LoadedDocument> load = documentEngine.loadDocumentAsync(file, (message, progress) ->
+            Platform.runLater(() -> {
+                if (generation == loadGeneration && listener != null) {
+                    listener.onProgress(message, progress);
+                }
+            }));
+        pendingLoad = load;
+        // 纯文本的行号在加载线程中定位，只扫描换行符，不解码之前的内容
+        return load.thenApply(document -> new OpenedDocument(document, resolveLine(document, saved),
+                openPageImages(document)))
+            .handleAsync((opened, error) -> {
+                if (generation != loadGeneration) {
+                    if (opened != null) {
+                        opened.close();
+                    }
+                    throw new CancellationException();
+                }
+                pendingLoad = null;
+                File changed = changedDuringLoad;
+                changedDuringLoad = null;
+                if (error != null) {
+                    // 加载失败时当前文档保持不变，加载期间的修改仍需刷新
+                    if (changed != null) {
+                        onFileChanged(changed);
+                    }
+                    throw error instanceof CompletionException ? (CompletionException) error : new CompletionException(error);
+                }
+                // 网页在加载完成后才能定位
+                pendingWebRestore = saved != null && saved.getUnit() == ReadingPosition.Unit.CHAR
+                        && opened.document.getLines() == null ? saved.getOffset() : -1;
+                show(opened);
+                // 跟随模式下纯文本停留在末尾
+                if (opened.line > 0 && !followTail) {
+                    textLineView.scrollToLine(opened.line);
+                }
+                // 加载读取文件之后的修改需要补上
+                if (changed != null) {
+                    onFileChanged(changed);
+                }
+                return opened.document;
+            }, Platform::runLater);
+    }
+    
+    /**
+     * 取消尚未完成的加载
+     */
+    public void cancelPendingLoad() {
+        if (pendingLoad != null) {
+            pendingLoad.cancel(false);
+            pendingLoad = null;
+            loadGeneration++;
+        }
+    }
+    
+    private void show(OpenedDocument opened) {
+        LoadedDocument document = opened.document;
+        currentFile = document.getFile();
+        watchCurrentFile();
+        renderTrace = document.getTrace();
+        renderStart = System.nanoTime();
+        if (opened.pageImages != null) {
+            // 页面图像由渲染器的文档池渲染，不再需要按页提取的文本
+            document.close();
+            pagedContentLoader.close();
+            textLineView.close();
+            pdfPageView.setQuality(PdfRenderQuality.fromSetting(appPrefs.getSettings().getPdfQuality()));
+            pdfPageView.open(opened.pageImages);
+            showView(pdfPageView.getNode());
+            findBar.documentChanged(false);
+            recordRender();
+            webView.getEngine().loadContent("", "text/html");
+            return;
+        }
+        pdfPageView.close();
+        if (document.getLines() != null) {
+            pagedContentLoader.close();
+            textLineView.open(document.getLines());
+            showView(textLineView.getNode());
+            findBar.documentChanged(true);
+            recordRender();
+            // 释放上一个文档的DOM
+            webView.getEngine().loadContent("", "text/html");
+            return;
+        }
+        textLineView.close();
+        showView(webView);
+        findBar.documentChanged(false);
+        
+        String html;
+        if (document.isPaged()) {
+            // 大文本、大Markdown和PDF先显示第一页，后续页面随滚动追加
+            pagedContentLoader.open(document.getPagedContent());
+            html = document.isHtml() ? HtmlTemplate.wrap(document.getContent()) : HtmlTemplate.wrapText(document.getContent());
+        } else {
+            pagedContentLoader.close();
+            // Markdown的解析结果已经是带样式的页面
+            html = document.isHtml() ? document.getContent() : HtmlTemplate.wrapText(document.getContent());
+        }
+        pageEvent = ReaderEvents.beginPage();
+        pageContentLength = html.length();
+        webView.getEngine().loadContent(html, "text/html");
+    }
+    
+    /**
+     * 立即记录当前文档的阅读位置，切换文档或模式之前调用
+     */
+    public void savePosition() {
+        positionDelay.stop();
+        if (currentFile == null || !appPrefs.getSettings().isAutoSavePosition()) {
+            return;
+        }
+        try {
+            ReadingPosition position = currentPosition();
+            if (position != null) {
+                positionStore.put(currentFile, position.getUnit(), position.getOffset());
+            }
+        } catch (IOException | RuntimeException e) {
+            // 位置记录失败不影响阅读
+        }
+    }
+    
+    /**
+     * 获取当前显示的位置
+     * @return 阅读位置，页面尚未就绪时返回null
+     * @throws IOException 行索引读取异常
+     */
+    private ReadingPosition currentPosition() throws IOException {
+        if (pdfPageView.isOpen()) {
+            // 页面图像没有文本偏移可以作为锚点
+            return null;
+        }
+        TextLineIndex lines = textLineView.getIndex();
+        if (lines != null) {
+            int line = textLineView.firstVisibleLine();
+            if (line < lines.lineCount()) {
+                return ReadingPosition.of(currentFile.getPath(), ReadingPosition.Unit.BYTE, lines.lineStart(line));
+            }
+        } else if (webText.isReady() && pendingWebRestore < 0) {
+            return ReadingPosition.of(currentFile.getPath(), ReadingPosition.Unit.CHAR, webText.viewportOffset());
+        }
+        return null;
+    }
+    
+    private void watchCurrentFile() {
+        try {
+            fileWatcher.watch(liveReload || followTail ? currentFile : null);
+        } catch (IOException e) {
+            // 无法监视时只是不能自动刷新
+        }
+    }
+    
+    /**
+     * 文件监视器报告修改，在FX线程中调用
+     */
+    private void fileModified(File file) {
+        reloadRetry.stop();
+        reloadRetries = 0;
+        onFileChanged(file);
+    }
+    
+    /**
+     * 当前文档被修改，在FX线程中调用
+     */
+    private void onFileChanged(File file) {
+        if (pendingLoad != null) {
+            // 正在加载时不能计算变化，记下来等加载完成后再刷新
+            changedDuringLoad = file;
+            return;
+        }
+        if (currentFile == null || !file.equals(currentFile.getAbsoluteFile())) {
+            return;
+        }
+        TextLineIndex lines = textLineView.getIndex();
+        if (lines != null) {
+            appendLines(lines, file);
+            return;
+        }
+        if (!liveReload) {
+            return;
+        }
+        PagedContent content = pagedContentLoader.getContent();
+        if (!(content instanceof MarkdownBlockDocument) || !webText.isReady()) {
+            reload();
+            return;
+        }
+        // 大Markdown只重新渲染变化的块，并直接替换页面中对应的元素
+        MarkdownBlockDocument document = (MarkdownBlockDocument) content;
+        int loadedPages = pagedContentLoader.loadedPages();
+        long generation = loadGeneration;
+        CompletableFuture.supplyAsync(() -> {
+            try {
+                return document.diff(file, loadedPages);
+            } catch (IOException e) {
+                throw new CompletionException(e);
+            }
+        }, RELOAD_EXECUTOR).whenCompleteAsync((update, error) -> {
+            if (generation != loadGeneration || pagedContentLoader.getContent() != document) {
+                return;
+            }
+            if (error != null) {
+                // 读取失败（例如保存到一半）时保留当前内容，稍后再试
+                retryFileChanged(file);
+                return;
+            }
+            reloadRetries = 0;
+            if (update == null) {
+                // 内容没有变化
+                return;
+            }
+            if (!document.apply(update)) {
+                // 计算期间内容已被更新，基于最新内容重新计算
+                onFileChanged(file);
+                return;
+            }
+            try {
+                pagedContentLoader.replacePages(update.getFirstPage(), update.getRemovedPages(), update.getInsertedPages());
+                webText.reset();
+                findBar.contentReplaced();
+            } catch (IOException | RuntimeException e) {
+                reload();
+            }
+        }, Platform::runLater);
+    }
+    
+    /**
+     * 纯文本文件增长后只为新增的内容建立索引，文件被截断或替换时重新加载
+     */
+    private void appendLines(TextLineIndex lines, File file) {
+        CompletableFuture.supplyAsync(() -> {
+            try {
+                return lines.getReader().isReplaced() ? null : lines.extend();
+            } catch (IOException e) {
+                throw new CompletionException(e);
+            }
+        }, RELOAD_EXECUTOR).whenCompleteAsync((first, error) -> {
+            if (textLineView.getIndex() != lines) {
+                return;
+            }
+            if (error != null) {
+                retryFileChanged(file);
+                return;
+            }
+            reloadRetries = 0;
+            if (first == null) {
+                // 日志轮转或编辑器保存时文件被替换，之前的索引不再有效
+                reload();
+            } else if (first >= 0) {
+                textLineView.linesAppended(first);
+            }
+        }, Platform::runLater);
+    }
+    
+    /**
+     * 读取修改后的文件失败时稍后重试，超过次数后等待下一次修改
+     */
+    private void retryFileChanged(File file) {
+        if (reloadRetries >= MAX_RELOAD_RETRIES) {
+            return;
+        }
+        reloadRetries++;
+        reloadRetry.setOnFinished(e -> onFileChanged(file));
+        reloadRetry.playFromStart();
+    }
+    
+    /**
+     * 重新加载当前文档并停留在当前位置
+     */
+    private void reload() {
+        ReadingPosition position;
+        try {
+            position = currentPosition();
+        } catch (IOException | RuntimeException e) {
+            position = null;
+        }
+        load(currentFile, null, position).exceptionally(error -> null);
+    }
+    
+    private void schedulePositionSave() {
+        if (currentFile != null) {
+            positionDelay.playFromStart();
+        }
+    }
+    
+    private void onWebViewportChanged() {
+        findBar.onViewportChanged();
+        schedulePositionSave();
+    }
+    
+    private void recordRender() {
+        if (renderTrace != null) {
+            ReaderMetrics.getInstance().recordRender(renderTrace, System.nanoTime() - renderStart);
+            renderTrace = null;
+        }
+    }
+    
+    private void onPageLoaded() {
+        // 注入脚本后页面滚动才会回调，用于记录阅读位置
+        webText.install();
+        long offset = pendingWebRestore;
+        if (offset < 0) {
+            return;
+        }
+        pendingWebRestore = -1;
+        try {
+            // 分页内容追加到包含锚点的页面为止
+            while (webText.textLength() <= offset && pagedContentLoader.appendNextPage()) {
+                // 继续追加
+            }
+            webText.scrollToOffset(offset);
+        } catch (RuntimeException e) {
+            // 定位失败时从头显示
+        }
+    }
+    
+    private ReadingPosition restorablePosition(File file) {
+        if (!appPrefs.getSettings().isAutoSavePosition()) {
+            return null;
+        }
+        try {
+            return positionStore.get(file);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+    
+    private static int resolveLine(LoadedDocument document, ReadingPosition saved) {
+        if (saved == null || saved.getUnit() != ReadingPosition.Unit.BYTE || document.getLines() == null) {
+            return -1;
+        }
+        try {
+            return document.getLines().lineAt(saved.getOffset());
+        } catch (IOException e) {
+            return -1;
+        }
+    }
+    
+    private void showView(Node visible) {
+        webView.setVisible(visible == webView);
+        textLineView.getNode().setVisible(visible == textLineView.getNode());
+        pdfPageView.getNode().setVisible(visible == pdfPageView.getNode());
+    }
+    
+    /**
+     * 在加载线程中判断PDF是否显示为页面图像，需要时打开渲染器
+     * @return 渲染器，不显示为页面图像时返回null
+     */
+    private PdfPageRenderer openPageImages(LoadedDocument document) {
+        if (!(document.getPagedContent() instanceof PagedPdfDocument)) {
+            return null;
+        }
+        // 第一页提取不到文本时通常是扫描件
+        if (!pdfPageImages && !document.getContent().trim().isEmpty()) {
+            return null;
+        }
+        try {
+            return PdfPageRenderer.open(document.getFile(), PdfPageRenderer.defaultWorkers());
+        } catch (IOException e) {
+            // 无法渲染时仍然显示文本
+            return null;
+        }
+    }
+    
+    /**
+     * 将最新的样式设置应用到已加载的页面，不重新解析文档，也不会丢失滚动位置
+     */
+    public void applyStyle() {
+        style = ReaderStyle.fromSettings(appPrefs.getSettings());
+        webView.getEngine().setUserStyleSheetLocation(HtmlTemplate.userStyleSheet(style, transparentBackground));
+        textLineView.applyStyle(style, transparentBackground);
+        if (webView.getEngine().getLoadWorker().getState() == Worker.State.SUCCEEDED) {
+            webView.getEngine().executeScript(HtmlTemplate.styleScript(style));
+        }
+        findBar.refresh();
+    }
+    
+    /**
+     * 释放视图，取消设置监听并关闭分页内容
+     */
+    public void dispose() {
+        savePosition();
+        appPrefs.removeSettingsListener(settingsListener);
+        fileWatcher.close();
+        cancelPendingLoad();
+        findBar.documentChanged(false);
+        pagedContentLoader.close();
+        textLineView.close();
+        pdfPageView.close();
+    }
+    
+    private void onSettingsChanged(SettingsChangeEvent event) {
+        if (event.isPdfQualityChanged()) {
+            PdfRenderQuality quality = PdfRenderQuality.fromSetting(event.getNewSettings().getPdfQuality());
+            Platform.runLater(() -> pdfPageView.setQuality(quality));
+        }
+        if (!event.isStyleChanged()) {
+            return;
+        }
+        // 设置可能在任意线程修改，WebView只能在FX线程访问
+        if (Platform.isFxApplicationThread()) {
+            applyStyle();
+        } else {
+            Platform.runLater(this::applyStyle);
+        }
+    }
+    
+    /**
+     * 加载完成的文档、需要恢复到的行以及PDF页面图像的渲染器
+     */
+    private static final class OpenedDocument {
+        
+        private final LoadedDocument document;
+        private final int line;
+        private final PdfPageRenderer pageImages;
+        
+        OpenedDocument(LoadedDocument document, int line, PdfPageRenderer pageImages) {
+            this.document = document;
+            this.line = line;
+            this.pageImages = pageImages;
+        }
+        
+        void close() {
+            document.close();
+            if (pageImages != null) {
+                // 关闭时需要等待正在进行的渲染结束，不在FX线程中等待
+                CompletableFuture.runAsync(() -> {
+                    try {
+                        pageImages.close();
+                    } catch (IOException e) {
+                        // 关闭失败不影响后续加载
+                    }
+                });
+            }
+        }
+    }
+}
@@ -0,0 +1,367 @@
+package com.thief.reader.ui;
+
+import com.thief.reader.core.TextLineIndex;
+import com.thief.reader.search.MatchIndex;
+import javafx.animation.Animation;
+import javafx.animation.PauseTransition;
+import javafx.application.Platform;
+import javafx.concurrent.Worker;
+import javafx.geometry.Insets;
+import javafx.geometry.Pos;
+import javafx.scene.Node;
+import javafx.scene.control.Button;
+import javafx.scene.control.Label;
+import javafx.scene.control.TextField;
+import javafx.scene.input.KeyCode;
+import javafx.scene.layout.HBox;
+import javafx.scene.layout.Region;
+import javafx.scene.web.WebView;
+import javafx.util.Duration;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * 文档内查找栏
+ * 匹配位置在后台线程中一次性计算，前后跳转只是在匹配索引中移动；网页内容只高亮视口附近的一批匹配
+ */
+public class FindBar {
+    
+    // 每次绘制的匹配数，以及其中位于视口之前的数量
+    private static final int HIGHLIGHT_BATCH = 200;
+    private static final int HIGHLIGHT_BEFORE = 20;
+    // 后台查找时刷新界面的最小间隔
+    private static final long PROGRESS_INTERVAL_NANOS = 200_000_000L;
+    
+    private static final ExecutorService FIND_EXECUTOR = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "document-find");
+        thread.setDaemon(true);
+        return thread;
+    });
+    
+    private final WebView webView;
+    private final TextLineView textView;
+    private final WebFindHighlighter highlighter;
+    private final HBox bar;
+    private final TextField queryField = new TextField();
+    private final Label countLabel = new Label();
+    // 输入停顿后再查找，避免每输入一个字符都扫描一次文档
+    private final PauseTransition typingDelay = new PauseTransition(Duration.millis(250));
+    private boolean textMode;
+    private MatchIndex matches;
+    private int current = -1;
+    
+    public FindBar(WebView webView, TextLineView textView, WebFindHighlighter highlighter) {
+        this.webView = webView;
+        this.textView = textView;
+        this.highlighter = highlighter;
+        
+        queryField.setPromptText("查找");
+        queryField.setPrefColumnCount(16);
+        queryField.textProperty().addListener((obs, oldText, newText) -> typingDelay.playFromStart());
+        typingDelay.setOnFinished(e -> search());
+        queryField.setOnKeyPressed(event -> {
+            if (event.getCode() == KeyCode.ENTER) {
+                if (typingDelay.getStatus() == Animation.Status.RUNNING) {
+                    typingDelay.stop();
+                    search();
+                } else if (event.isShiftDown()) {
+                    previous();
+                } else {
+                    next();
+                }
+                event.consume();
+            } else if (event.getCode() == KeyCode.ESCAPE) {
+                hide();
+                event.consume();
+            }
+        });
+        
+        Button previousButton = new Button("↑");
+        previousButton.setOnAction(e -> previous());
+        Button nextButton = new Button("↓");
+        nextButton.setOnAction(e -> next());
+        Button closeButton = new Button("×");
+        closeButton.setOnAction(e -> hide());
+        countLabel.setMinWidth(60);
+        
+        bar = new HBox(4, queryField, countLabel, previousButton, nextButton, closeButton);
+        bar.setAlignment(Pos.CENTER_LEFT);
+        bar.setPadding(new Insets(4));
+        bar.setStyle("-fx-background-color: #f4f4f4; -fx-border-color: #cccccc; -fx-background-radius: 3; -fx-border-radius: 3;");
+        bar.setMaxSize(Region.USE_PREF_SIZE, Region.USE_PREF_SIZE);
+        bar.setVisible(false);
+        
+        // 网页加载完成后才能收集正文，查找栏打开时自动重新查找
+        webView.getEngine().getLoadWorker().stateProperty().addListener((obs, oldState, newState) -> {
+            if (newState == Worker.State.SUCCEEDED && !textMode && isShowing()) {
+                search();
+            }
+        });
+    }
+    
+    public Node getNode() {
+        return bar;
+    }
+    
+    public boolean isShowing() {
+        return bar.isVisible();
+    }
+    
+    /**
+     * 显示查找栏并聚焦输入框
+     */
+    public void show() {
+        bar.setVisible(true);
+        queryField.requestFocus();
+        queryField.selectAll();
+        if (matches == null && !queryField.getText().isEmpty()) {
+            search();
+        }
+    }
+    
+    /**
+     * 隐藏查找栏并清除高亮
+     */
+    public void hide() {
+        cancelSearch();
+        bar.setVisible(false);
+        if (textMode) {
+            textView.getNode().requestFocus();
+        } else {
+            webView.requestFocus();
+        }
+    }
+    
+    /**
+     * 显示的文档发生变化，之前的匹配全部失效
+     * @param textMode 是否为原生文本视图
+     */
+    public void documentChanged(boolean textMode) {
+        cancelSearch();
+        this.textMode = textMode;
+        // 网页在加载完成后再查找
+        if (textMode && isShowing()) {
+            search();
+        }
+    }
+    
+    /**
+     * 网页内容被局部替换，之前的匹配全部失效，查找栏显示时重新查找
+     */
+    public void contentReplaced() {
+        cancelSearch();
+        if (!textMode && isShowing()) {
+            search();
+        }
+    }
+    
+    /**
+     * 分页内容追加了新页面，只扫描新增的正文
+     */
+    public void contentAppended() {
+        if (textMode || matches == null) {
+            return;
+        }
+        // 追加发生在页面脚本的回调中，稍后再访问页面
+        Platform.runLater(() -> {
+            MatchIndex index = matches;
+            if (textMode || index == null || !highlighter.isReady()) {
+                return;
+            }
+            int base = highlighter.collectedLength();
+            String tail = highlighter.collectedTail(index.queryLength() - 1);
+            String chunk = highlighter.collectAppended();
+            if (!chunk.isEmpty()) {
+                FIND_EXECUTOR.execute(() -> {
+                    scanChunk(index, tail, chunk, base);
+                    Platform.runLater(() -> onProgress(index));
+                });
+            }
+        });
+    }
+    
+    /**
+     * 页面布局变化（如字体设置改变）后重新绘制高亮
+     */
+    public void refresh() {
+        if (!textMode && matches != null) {
+            Platform.runLater(this::onViewportChanged);
+        }
+    }
+    
+    /**
+     * 跳转到下一个匹配
+     */
+    public void next() {
+        if (matches != null && matches.size() > 0) {
+            select((current + 1) % matches.size());
+        }
+    }
+    
+    /**
+     * 跳转到上一个匹配
+     */
+    public void previous() {
+        if (matches != null && matches.size() > 0) {
+            int size = matches.size();
+            select(current < 0 ? size - 1 : (current - 1 + size) % size);
+        }
+    }
+    
+    private void search() {
+        cancelSearch();
+        String query = queryField.getText();
+        if (query.isEmpty()) {
+            return;
+        }
+        if (textMode) {
+            TextLineIndex lines = textView.getIndex();
+            if (lines == null) {
+                return;
+            }
+            MatchIndex index = new MatchIndex(query);
+            matches = index;
+            textView.setMatches(index);
+            FIND_EXECUTOR.execute(() -> scanLines(index, lines));
+        } else {
+            if (!highlighter.isReady()) {
+                return;
+            }
+            // 已收集的正文直接复用，界面线程只读取页面上新增的部分
+            List<String> chunks = highlighter.chunks();
+            MatchIndex index = new MatchIndex(query);
+            matches = index;
+            FIND_EXECUTOR.execute(() -> {
+                scanChunks(index, chunks);
+                index.markComplete();
+                Platform.runLater(() -> onProgress(index));
+            });
+        }
+        updateCount();
+    }
+    
+    private void scanLines(MatchIndex index, TextLineIndex lines) {
+        long[] lastReport = {System.nanoTime()};
+        try {
+            index.scanLines(lines, () -> {
+                long now = System.nanoTime();
+                if (now - lastReport[0] >= PROGRESS_INTERVAL_NANOS) {
+                    lastReport[0] = now;
+                    Platform.runLater(() -> onProgress(index));
+                }
+            });
+        } catch (IOException | RuntimeException e) {
+            // 文本已被关闭或读取失败，已找到的匹配仍然有效
+            index.markComplete();
+        }
+        Platform.runLater(() -> onProgress(index));
+    }
+    
+    private static void scanChunks(MatchIndex index, List<String> chunks) {
+        String tail = "";
+        int base = 0;
+        for (String chunk : chunks) {
+            if (index.isCancelled()) {
+                return;
+            }
+            scanChunk(index, tail, chunk, base);
+            base += chunk.length();
+            int keep = index.queryLength() - 1;
+            tail = chunk.length() >= keep ? chunk.substring(chunk.length() - keep) : tail + chunk;
+            tail = tail.substring(Math.max(0, tail.length() - keep));
+        }
+    }
+    
+    /**
+     * 扫描新的文本块，前面带上上一块末尾不足一个匹配长度的文本，跨越块边界的匹配不会遗漏
+     */
+    private static void scanChunk(MatchIndex index, String tail, String chunk, int base) {
+        index.scanText(0, tail + chunk, base - tail.length());
+    }
+    
+    private void onProgress(MatchIndex index) {
+        if (index != matches) {
+            return;
+        }
+        if (current < 0 && index.size() > 0) {
+            // 从当前阅读位置开始，之后没有匹配时回到开头
+            int start = textMode
+                    ? index.indexAtOrAfter(textView.getSelectedLine(), 0)
+                    : index.indexAtOrAfter(0, highlighter.viewportOffset());
+            if (start < index.size()) {
+                select(start);
+            } else if (index.isComplete()) {
+                select(0);
+            }
+        } else if (textMode) {
+            textView.refreshMatches();
+        } else {
+            onViewportChanged();
+        }
+        updateCount();
+    }
+    
+    private void select(int index) {
+        current = index;
+        if (textMode) {
+            textView.reveal(matches.segment(index));
+        } else {
+            highlighter.reveal(matches.offset(index), matches.queryLength());
+            highlightFrom(Math.max(0, index - HIGHLIGHT_BEFORE));
+        }
+        updateCount();
+    }
+    
+    /**
+     * 网页视口变化后重新绘制视口附近的匹配
+     */
+    void onViewportChanged() {
+        if (textMode || matches == null || !highlighter.isReady()) {
+            return;
+        }
+        int anchor = matches.indexAtOrAfter(0, highlighter.viewportOffset());
+        highlightFrom(Math.max(0, anchor - HIGHLIGHT_BEFORE));
+    }
+    
+    private void highlightFrom(int from) {
+        int to = Math.min(matches.size(), from + HIGHLIGHT_BATCH);
+        StringBuilder offsets = new StringBuilder();
+        for (int i = from; i < to; i++) {
+            if (offsets.length() > 0) {
+                offsets.append(',');
+            }
+            offsets.append(matches.offset(i));
+        }
+        int currentOffset = current >= 0 ? matches.offset(current) : -1;
+        highlighter.highlight(offsets.toString(), matches.queryLength(), currentOffset);
+    }
+    
+    private void updateCount() {
+        if (matches == null) {
+            countLabel.setText("");
+            return;
+        }
+        int size = matches.size();
+        String suffix = matches.isComplete() ? "" : "+";
+        if (size == 0) {
+            countLabel.setText(matches.isComplete() ? "无匹配" : "查找中...");
+        } else {
+            countLabel.setText((current + 1) + "/" + size + suffix);
+        }
+    }
+    
+    private void cancelSearch() {
+        typingDelay.stop();
+        if (matches != null) {
+            matches.cancel();
+            matches = null;
+        }
+        current = -1;
+        textView.setMatches(null);
+        highlighter.clear();
+        updateCount();
+    }
+}
@@ -0,0 +1,98 @@
+package com.thief.reader.ui;
+
+import com.thief.reader.core.ReaderEvents;
+import javafx.application.Platform;
+
+import java.io.File;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * FX线程卡顿检测
+ * 定期向FX线程投递心跳任务，任务等待超过阈值时采样FX线程的堆栈，任务执行时写入JFR事件
+ * 只在JFR可用时启动，没有录制时每次心跳只是一次空的runLater
+ */
+public class FxStallWatchdog {
+    
+    public static final long DEFAULT_THRESHOLD_MILLIS = 200;
+    
+    private static final long HEARTBEAT_MILLIS = 50;
+    private static final int MAX_STACK_FRAMES = 32;
+    
+    private final long thresholdNanos;
+    private final Supplier<File> currentFile;
+    private ScheduledExecutorService executor;
+    private volatile Thread fxThread;
+    // 心跳任务在途时为true，同一时间只有一个心跳
+    private volatile boolean pending;
+    private volatile long postedAt;
+    private volatile String sampledStack;
+    
+    /**
+     * @param thresholdMillis 卡顿阈值（毫秒）
+     * @param currentFile 当前文档，写入事件供定位，可以返回null
+     */
+    public FxStallWatchdog(long thresholdMillis, Supplier<File> currentFile) {
+        this.thresholdNanos = TimeUnit.MILLISECONDS.toNanos(thresholdMillis);
+        this.currentFile = currentFile;
+    }
+    
+    /**
+     * 启动检测，JFR不可用时不做任何事
+     */
+    public synchronized void start() {
+        if (executor != null || !ReaderEvents.isAvailable()) {
+            return;
+        }
+        executor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "fx-stall-watchdog");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.scheduleWithFixedDelay(this::tick, HEARTBEAT_MILLIS, HEARTBEAT_MILLIS, TimeUnit.MILLISECONDS);
+    }
+    
+    /**
+     * 停止检测
+     */
+    public synchronized void stop() {
+        if (executor != null) {
+            executor.shutdownNow();
+            executor = null;
+        }
+    }
+    
+    private void tick() {
+        if (pending) {
+            // 心跳仍在排队，超过阈值时采样一次FX线程正在执行的代码
+            Thread thread = fxThread;
+            if (sampledStack == null && thread != null && System.nanoTime() - postedAt >= thresholdNanos) {
+                sampledStack = formatStack(thread.getStackTrace());
+            }
+            return;
+        }
+        Object event = ReaderEvents.beginStall();
+        if (event == null) {
+            // 没有在录制JFR
+            return;
+        }
+        pending = true;
+        sampledStack = null;
+        postedAt = System.nanoTime();
+        Platform.runLater(() -> {
+            fxThread = Thread.currentThread();
+            ReaderEvents.commitStall(event, sampledStack, currentFile.get());
+            pending = false;
+        });
+    }
+    
+    private static String formatStack(StackTraceElement[] frames) {
+        StringBuilder stack = new StringBuilder();
+        for (int i = 0; i < Math.min(frames.length, MAX_STACK_FRAMES); i++) {
+            stack.append(frames[i]).append('\n');
+        }
+        return stack.toString();
+    }
+}
@@ -1,20 +1,38 @@
 package com.thief.reader.ui;
 
 import com.thief.reader.config.ConfigManager;
+import com.thief.reader.config.ReadingPositionStore;
 import com.thief.reader.core.DocumentEngine;
+import com.thief.reader.core.PdfMemoryPolicy;
+import com.thief.reader.core.PdfParser;
+import com.thief.reader.core.ReaderMetrics;
+import com.thief.reader.util.RecentFilesManager;
+import com.thief.reader.search.SearchIndex;
+import com.thief.reader.search.SearchIndexer;
 import javafx.scene.Scene;
 import javafx.stage.Stage;
 
 import java.io.File;
+import java.io.IOException;
+import java.util.List;
 
 /**
  * 主控制器
  */
 public class MainController {
     
+    // 启动时预解析的最近文档数
+    private static final int PRELOAD_RECENT_FILES = 3;
+    
     private final Stage primaryStage;
     private final DocumentEngine documentEngine;
     private final ConfigManager configManager;
+    private final SearchIndexer searchIndexer;
+    private final ReadingPositionStore readingPositionStore;
+    private final RecentFilesManager recentFilesManager;
+    // 两种模式共用的文档视图，只保留一个WebView，切换模式时不重新解析
+    private final DocumentView documentView;
+    private final FxStallWatchdog stallWatchdog;
     private NormalModeController normalModeController;
     private MinimalModeController minimalModeController;
     private Scene normalModeScene; // 保存正常模式的Scene对象
@@ -23,13 +41,29 @@ public class MainController {
         this.primaryStage = primaryStage;
         this.documentEngine = new DocumentEngine();
         this.configManager = ConfigManager.getInstance();
+        PdfParser.setMemoryPolicy(PdfMemoryPolicy.fromConfig(configManager.getConfig().getPdfMemoryMode(),
+                configManager.getConfig().getPdfMaxMainMemoryMb()));
+        documentEngine.getRegistry().get(PdfParser.class).setExtractionThreads(configManager.getConfig().getPdfExtractThreads());
+        this.searchIndexer = new SearchIndexer(SearchIndex.openDefault(), documentEngine.getRegistry());
+        this.readingPositionStore = ReadingPositionStore.openDefault();
+        this.recentFilesManager = RecentFilesManager.getInstance();
+        this.documentView = new DocumentView(documentEngine, readingPositionStore);
+        documentView.setLiveReload(configManager.getConfig().isLiveReload());
+        documentView.setFollowTail(configManager.getConfig().isFollowTail());
+        documentView.setPdfPageImages(configManager.getConfig().isPdfPageImages());
+        // 加载耗时等指标同时通过JMX导出，可用jconsole等工具查看
+        ReaderMetrics.getInstance().registerMBean();
+        // 录制JFR时记录FX线程卡顿，事件中带有当前文档
+        this.stallWatchdog = new FxStallWatchdog(FxStallWatchdog.DEFAULT_THRESHOLD_MILLIS, documentView::getCurrentFile);
+        stallWatchdog.start();
         initUI();
+        prefetchRecentFiles();
     }
     
     private void initUI() {
         // 初始化正常模式
-        normalModeController = new NormalModeController(this, documentEngine);
-        // 创建新的Scene对象并保存引用
+        normalModeController = new NormalModeController(this, documentEngine, documentView);
+        // 场景只创建一次，切换模式时复用
         normalModeScene = new Scene(normalModeController.getRoot(), 1000, 700);
         primaryStage.setTitle("Thief Java Reader");
         primaryStage.setScene(normalModeScene);
@@ -43,14 +77,32 @@ public class MainController {
         primaryStage.show();
     }
     
+    /**
+     * 在后台检查最近打开的文件，更新列表中的元数据，并预解析最近的几个文档
+     */
+    private void prefetchRecentFiles() {
+        List<RecentFilesManager.RecentDocument> documents = recentFilesManager.getRecentDocuments();
+        for (RecentFilesManager.RecentDocument document : documents) {
+            documentEngine.describeAsync(document.getFile()).thenAccept(info ->
+                    recentFilesManager.updateMetadata(document.getPath(), info.exists(), info.getSize(),
+                            info.getPageCount(), info.getTitle()));
+        }
+        if (configManager.getConfig().isPreloadRecentFiles()) {
+            for (int i = 0; i < Math.min(PRELOAD_RECENT_FILES, documents.size()); i++) {
+                documentEngine.preloadAsync(documents.get(i).getFile());
+            }
+        }
+    }
+    
     /**
      * 切换到极简模式
+     * 文档视图连同已渲染的页面一起移入极简窗口，不重新解析
      */
     public void switchToMinimalMode(File currentFile) {
         if (minimalModeController == null) {
-            minimalModeController = new MinimalModeController(this, documentEngine);
+            minimalModeController = new MinimalModeController(this, documentEngine, documentView);
         }
-        minimalModeController.loadFile(currentFile);
+        minimalModeController.showDocument(currentFile);
         // 直接显示极简模式窗口，不通过Scene对象
         minimalModeController.showWindow();
         
@@ -60,22 +112,16 @@ public class MainController {
     
     /**
      * 切换到正常模式
+     * 复用已有的控制器和场景，文档视图移回正常模式的内容区域
      */
     public void switchToNormalMode(File currentFile) {
-        // 隐藏极简模式窗口（在创建新场景之前）
+        // 先隐藏极简模式窗口，再把视图移回
         if (minimalModeController != null) {
             minimalModeController.hideWindow();
         }
+        normalModeController.showDocument(currentFile);
         
-        // 重新创建NormalModeController实例，避免Scene重复使用问题
-        normalModeController = new NormalModeController(this, documentEngine);
-        normalModeController.loadFile(currentFile);
-        
-        // 创建新的Scene对象并保存引用
-        normalModeScene = new Scene(normalModeController.getRoot(), 1000, 700);
-        primaryStage.setScene(normalModeScene);
         primaryStage.show(); // 确保正常模式窗口显示
-        primaryStage.sizeToScene();
         primaryStage.requestFocus();
     }
     
@@ -94,4 +140,53 @@ public class MainController {
     public ConfigManager getConfigManager() {
         return configManager;
     }
+    
+    /**
+     * 获取全文索引器
+     * @return 全文索引器
+     */
+    public SearchIndexer getSearchIndexer() {
+        return searchIndexer;
+    }
+    
+    /**
+     * 获取阅读位置存储
+     * @return 阅读位置存储
+     */
+    public ReadingPositionStore getReadingPositionStore() {
+        return readingPositionStore;
+    }
+    
+    /**
+     * 获取最近打开文件管理器
+     * @return 最近打开文件管理器
+     */
+    public RecentFilesManager getRecentFilesManager() {
+        return recentFilesManager;
+    }
+    
+    /**
+     * 应用退出时调用，记录当前阅读位置并写入磁盘
+     */
+    public void shutdown() {
+        stallWatchdog.stop();
+        if (normalModeController != null) {
+            normalModeController.dispose();
+        }
+        if (minimalModeController != null) {
+            minimalModeController.dispose();
+        }
+        documentView.dispose();
+        documentEngine.flush();
+        try {
+            recentFilesManager.flush();
+        } catch (IOException e) {
+            // 退出时无法再提示用户
+        }
+        try {
+            readingPositionStore.close();
+        } catch (IOException e) {
+            // 退出时无法再提示用户
+        }
+    }
 }
\ No newline at end of file
@@ -0,0 +1,86 @@
+package com.thief.reader.ui;
+
+import com.thief.reader.core.LoadTrace;
+import com.thief.reader.core.ReaderMetrics;
+import javafx.application.Platform;
+import javafx.scene.Node;
+import javafx.scene.control.Label;
+import javafx.scene.control.Tooltip;
+
+/**
+ * 状态栏中的性能信息
+ * 显示最近一次加载各阶段的耗时，悬停时显示各阶段的直方图统计和缓存命中率
+ */
+public class MetricsOverlay {
+    
+    private final ReaderMetrics metrics;
+    private final Label label = new Label();
+    private final Tooltip tooltip = new Tooltip();
+    // 指标可能在加载线程中更新，统一回到FX线程刷新
+    private final Runnable metricsListener = () -> Platform.runLater(this::refresh);
+    private boolean showing;
+    
+    public MetricsOverlay(ReaderMetrics metrics) {
+        this.metrics = metrics;
+        label.setStyle("-fx-text-fill: #666666;");
+        label.setTooltip(tooltip);
+        setShowing(false);
+    }
+    
+    public Node getNode() {
+        return label;
+    }
+    
+    public boolean isShowing() {
+        return showing;
+    }
+    
+    /**
+     * 显示或隐藏性能信息，隐藏时不监听指标变化
+     * @param showing 是否显示
+     */
+    public void setShowing(boolean showing) {
+        if (this.showing == showing && label.isManaged() == showing) {
+            return;
+        }
+        this.showing = showing;
+        label.setVisible(showing);
+        label.setManaged(showing);
+        if (showing) {
+            metrics.addListener(metricsListener);
+            refresh();
+        } else {
+            metrics.removeListener(metricsListener);
+        }
+    }
+    
+    /**
+     * 释放资源，移除指标监听
+     */
+    public void dispose() {
+        metrics.removeListener(metricsListener);
+    }
+    
+    private void refresh() {
+        if (!showing) {
+            return;
+        }
+        LoadTrace trace = metrics.getLastLoadTrace();
+        label.setText(trace != null ? trace.summary() : "尚无加载记录");
+        
+        StringBuilder details = new StringBuilder();
+        for (ReaderMetrics.Stage stage : ReaderMetrics.Stage.values()) {
+            ReaderMetrics.Histogram histogram = metrics.getHistogram(stage);
+            if (histogram.count() == 0) {
+                continue;
+            }
+            details.append(String.format("%s  次数 %d  平均 %.1fms  P50 %.1fms  P95 %.1fms  最大 %.1fms%n",
+                    stage.getLabel(), histogram.count(), histogram.meanNanos() / 1e6,
+                    histogram.percentileNanos(0.5) / 1e6, histogram.percentileNanos(0.95) / 1e6,
+                    histogram.maxNanos() / 1e6));
+        }
+        details.append(String.format("内存缓存命中率 %.0f%%  磁盘缓存命中率 %.0f%%",
+                metrics.getMemoryCacheHitRate() * 100, metrics.getDiskCacheHitRate() * 100));
+        tooltip.setText(details.toString());
+    }
+}
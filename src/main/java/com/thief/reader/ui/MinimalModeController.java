@@ -1,13 +1,16 @@
 package com.thief.reader.ui;
 
 import com.thief.reader.config.AppPreferences;
+import com.thief.reader.config.SettingsChangeEvent;
+import com.thief.reader.config.SettingsListener;
 import com.thief.reader.core.DocumentEngine;
-import javafx.beans.value.ChangeListener;
+import javafx.application.Platform;
 import javafx.geometry.Insets;
 import javafx.geometry.Pos;
 import javafx.scene.Cursor;
 import javafx.scene.Scene;
 import javafx.scene.control.Alert;
+import javafx.scene.control.CheckMenuItem;
 import javafx.scene.control.ContextMenu;
 import javafx.scene.control.MenuItem;
 import javafx.scene.input.KeyCode;
@@ -21,7 +24,8 @@ import javafx.stage.WindowEvent;
 
 import java.io.File;
 import java.io.IOException;
-import java.text.DecimalFormat;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletionException;
 
 /**
  * 极简模式控制器
@@ -33,7 +37,11 @@ public class MinimalModeController {
     private final AppPreferences appPrefs;
     private final Stage stage;
     private final StackPane root;
+    private final DocumentView documentView;
+    private final SettingsListener settingsListener = this::onSettingsChanged;
     private final WebView webView;
+    private final Region documentNode;
+    private final HBox webViewContainer = new HBox();
     private File currentFile;
     
     // 用于窗口拖动的变量
@@ -48,43 +56,28 @@ public class MinimalModeController {
     private double resizeStartHeight = 0;
     private String resizeDirection = "";
     
-    // 监听设置变化的监听器
-    private ChangeListener<Number> scaleChangeListener;
-    
-    public MinimalModeController(MainController mainController, DocumentEngine documentEngine) {
+    public MinimalModeController(MainController mainController, DocumentEngine documentEngine, DocumentView documentView) {
         this.mainController = mainController;
         this.documentEngine = documentEngine;
         this.appPrefs = AppPreferences.getInstance();
         this.stage = new Stage();
         this.root = new StackPane();
-        this.webView = new WebView();
-
+        // 与正常模式共用同一个视图，切换模式时只移动节点，不重新解析文档
+        this.documentView = documentView;
+        this.webView = documentView.getWebView();
+        this.documentNode = documentView.getNode();
         
         initUI();
         setupEventHandlers();
-        setupScaleListener();
+        setupSettingsListener();
     }
     
     private void initUI() {
         stage.initStyle(StageStyle.TRANSPARENT);
         stage.setTitle("极简阅读模式");
         
-        // 设置 WebView 背景透明
+        // 设置 WebView 背景透明，页面背景由DocumentView的用户样式表控制
         webView.setStyle("-fx-background-color: transparent;");
-        // 确保 WebView 的页面背景也是透明的
-        webView.getEngine().setUserStyleSheetLocation("data:text/css,body,html { background-color: transparent !important; }");
-        // 设置 WebView 的背景为透明
-        webView.getEngine().getLoadWorker().stateProperty().addListener((obs, oldState, newState) -> {
-            if (newState == javafx.concurrent.Worker.State.SUCCEEDED) {
-                // 注入 JavaScript 代码来确保背景透明
-                webView.getEngine().executeScript(
-                    "document.body.style.backgroundColor = 'transparent';" +
-                    "document.documentElement.style.backgroundColor = 'transparent';" +
-                    "document.body.style.background = 'transparent';" +
-                    "document.documentElement.style.background = 'transparent';"
-                );
-            }
-        });
         
         // 创建一个带有圆角和半透明边框的容器
         StackPane container = new StackPane();
@@ -97,10 +90,8 @@ public class MinimalModeController {
             "-fx-effect: dropshadow(gaussian, rgba(0, 0, 0, 0.3), 10, 0, 0, 0);"  // 阴影效果
         );
         
-        // 使用HBox包装WebView以添加内边距
-        HBox webViewContainer = new HBox();
+        // 使用HBox包装WebView以添加内边距，文档视图在显示窗口时放入
         webViewContainer.setPadding(new Insets(10));
-        webViewContainer.getChildren().add(webView);
         container.getChildren().add(webViewContainer);
         
         // 将容器添加到根节点
@@ -113,9 +104,6 @@ public class MinimalModeController {
         // 设置窗口始终置顶，便于隐藏阅读
         stage.setAlwaysOnTop(true);
         
-        // 监听窗口大小变化，确保WebView自适应
-        setupWebViewResizeListener();
-        
         // 监听窗口关闭事件
         stage.setOnCloseRequest((WindowEvent event) -> {
             event.consume(); // 消费事件，防止窗口真正关闭
@@ -123,25 +111,6 @@ public class MinimalModeController {
         });
     }
     
-    private void setupWebViewResizeListener() {
-        // 监听根容器大小变化，调整WebView大小
-        root.widthProperty().addListener((obs, oldVal, newVal) -> {
-            // 确保WebView宽度适应容器
-            webView.setPrefWidth(newVal.doubleValue() - 20); // 减去左右padding(各10px)
-            // 同时调整WebView的宽度，确保内容自适应
-            webView.setMinWidth(newVal.doubleValue() - 20);
-            webView.setMaxWidth(newVal.doubleValue() - 20);
-        });
-        
-        root.heightProperty().addListener((obs, oldVal, newVal) -> {
-            // 确保WebView高度适应容器
-            webView.setPrefHeight(newVal.doubleValue() - 20); // 减去上下padding(各10px)
-            // 同时调整WebView的高度
-            webView.setMinHeight(newVal.doubleValue() - 20);
-            webView.setMaxHeight(newVal.doubleValue() - 20);
-        });
-    }
-    
     private void setupEventHandlers() {
         // 不再通过stage.getScene()获取scene对象，避免Scene重复使用问题
         // ESC键和F3键退出极简模式 - 添加到stage上
@@ -152,8 +121,8 @@ public class MinimalModeController {
             }
         });
         
-        // 右键菜单
-        webView.setOnContextMenuRequested(e -> {
+        // 右键菜单，注册在极简模式自己的容器上，不影响共用视图在正常模式下的行为
+        webViewContainer.setOnContextMenuRequested(e -> {
             ContextMenu contextMenu = new ContextMenu();
             
             MenuItem settingsItem = new MenuItem("设置");
@@ -161,13 +130,22 @@ public class MinimalModeController {
                 showSettingsDialog();
             });
             
+            // 在置顶的小窗口中查看日志
+            CheckMenuItem followItem = new CheckMenuItem("跟随文件末尾");
+            followItem.setSelected(documentView.isFollowTail());
+            followItem.setOnAction(event -> {
+                documentView.setFollowTail(followItem.isSelected());
+                mainController.getConfigManager().getConfig().setFollowTail(followItem.isSelected());
+                mainController.getConfigManager().saveConfig();
+            });
+            
             MenuItem exitItem = new MenuItem("退出极简模式");
             exitItem.setOnAction(event -> {
                 exitMinimalMode();
             });
             
-            contextMenu.getItems().addAll(settingsItem, exitItem);
-            contextMenu.show(webView, e.getScreenX(), e.getScreenY());
+            contextMenu.getItems().addAll(settingsItem, followItem, exitItem);
+            contextMenu.show(documentNode, e.getScreenX(), e.getScreenY());
         });
         
         // 设置窗口拖动
@@ -177,56 +155,21 @@ public class MinimalModeController {
         setupWindowResizing();
     }
     
-    private void setupScaleListener() {
-        // 创建缩放比例变化监听器
-        scaleChangeListener = (obs, oldVal, newVal) -> {
-            // 当缩放比例变化时，重新加载当前文件以更新显示
-            if (currentFile != null) {
-                loadFile(currentFile);
-            }
-        };
-        
-        // 添加监听器到Preferences的变化
-        // 注意：JavaFX的Preferences变化监听需要特殊处理
-        // 这里我们采用轮询方式检查变化
-        setupPreferencesPolling();
+    private void setupSettingsListener() {
+        // 字体、缩放和文字不透明度由DocumentView自行订阅，这里只处理窗口背景
+        appPrefs.addSettingsListener(settingsListener);
     }
     
-    private void setupPreferencesPolling() {
-        // 定期检查Preferences中的缩放比例变化
-        javafx.animation.AnimationTimer timer = new javafx.animation.AnimationTimer() {
-            private double lastScale = appPrefs.getFontSize(100.0);
-            private String lastFontFamily = appPrefs.getFontFamily("Microsoft YaHei");
-            private double lastBackgroundOpacity = appPrefs.getBackgroundOpacity(0.9);  // 添加背景不透明度监听
-            private double lastTextOpacity = appPrefs.getTextOpacity(1.0);  // 添加文字不透明度监听
-            
-            @Override
-            public void handle(long now) {
-                double currentScale = appPrefs.getFontSize(100.0);
-                String currentFontFamily = appPrefs.getFontFamily("Microsoft YaHei");
-                double currentBackgroundOpacity = appPrefs.getBackgroundOpacity(0.9);  // 获取当前背景不透明度
-                double currentTextOpacity = appPrefs.getTextOpacity(1.0);  // 获取当前文字不透明度
-                
-                // 检查缩放比例、字体、背景不透明度或文字不透明度是否有变化
-                // 降低背景不透明度变化的检测阈值，确保极小的变化也能被检测到
-                if (Math.abs(currentScale - lastScale) > 0.1 || 
-                    !lastFontFamily.equals(currentFontFamily) ||
-                    Math.abs(currentBackgroundOpacity - lastBackgroundOpacity) > 0.001 ||  // 降低阈值以检测极小变化
-                    Math.abs(currentTextOpacity - lastTextOpacity) > 0.01) {  // 文字不透明度变化
-                    lastScale = currentScale;
-                    lastFontFamily = currentFontFamily;
-                    lastBackgroundOpacity = currentBackgroundOpacity;  // 更新背景不透明度记录
-                    lastTextOpacity = currentTextOpacity;  // 更新文字不透明度记录
-                    // 当设置变化时，重新加载当前文件以更新显示
-                    if (currentFile != null) {
-                        loadFile(currentFile);
-                    }
-                    // 更新窗口背景不透明度
-                    updateWindowBackgroundOpacity(currentBackgroundOpacity);
-                }
-            }
-        };
-        timer.start();
+    private void onSettingsChanged(SettingsChangeEvent event) {
+        if (!event.isBackgroundOpacityChanged()) {
+            return;
+        }
+        double opacity = event.getNewSettings().getBackgroundOpacity();
+        if (Platform.isFxApplicationThread()) {
+            updateWindowBackgroundOpacity(opacity);
+        } else {
+            Platform.runLater(() -> updateWindowBackgroundOpacity(opacity));
+        }
     }
     
     /**
@@ -520,124 +463,24 @@ public class MinimalModeController {
     }
     
     public void loadFile(File file) {
-        try {
-            currentFile = file;
-            String content = documentEngine.parseDocument(file);
-            
-            if (file.getName().toLowerCase().endsWith(".md")) {
-                // Markdown 文件使用 WebView 渲染（已包含样式）
-                // 为极简模式添加透明背景支持，确保背景透明度设置生效
-                String transparentContent = content.replace(
-                    "background-color: transparent;", 
-                    "background-color: transparent !important;"
-                ).replace(
-                    "</body>", 
-                    "<style>body, html { background: transparent !important; background-color: transparent !important; }</style></body>"
-                );
-                
-                // 确保表格行也使用透明背景
-                transparentContent = transparentContent.replace(
-                    "table tr {", 
-                    "table tr { background-color: transparent !important;"
-                ).replace(
-                    "table tr:nth-child(2n) {", 
-                    "table tr:nth-child(2n) { background-color: rgba(246, 248, 250, 0.7) !important;"
-                );
-                
-                webView.getEngine().loadContent(transparentContent, "text/html");
+        currentFile = file;
+        // 极简模式没有状态栏，只在加载失败时提示
+        documentView.load(file, null).whenComplete((document, error) -> {
+            Throwable cause = error instanceof CompletionException ? error.getCause() : error;
+            if (cause == null || cause instanceof CancellationException) {
+                return;
+            }
+            if (cause instanceof IOException) {
+                showError("文件读取错误", "无法读取文件: " + cause.getMessage());
             } else {
-                // 其他文件直接显示文本（添加基本样式）
-                // 从设置中获取缩放比例，默认为100%
-                double scale = appPrefs.getFontSize(100.0);
-                
-                // 从设置中获取字体，默认为微软雅黑
-                String fontFamily = appPrefs.getFontFamily("Microsoft YaHei");
-                
-                // 从设置中获取文字不透明度，默认为1.0
-                double textOpacity = appPrefs.getTextOpacity(1.0);
-                
-                // 计算实际字体大小（基于默认16px）
-                double baseFontSize = 16.0;
-                double actualFontSize = baseFontSize * (scale / 100.0);
-                
-                // 四舍五入到整数
-                int roundedFontSize = (int) Math.round(actualFontSize);
-                String formattedFontSize = String.valueOf(roundedFontSize);
-                
-                // 计算其他基于缩放比例的尺寸
-                double scaledPadding = 20.0 * (scale / 100.0);
-                // 四舍五入padding到整数
-                int roundedPadding = (int) Math.round(scaledPadding);
-                
-                // 将文字不透明度应用到颜色上
-                String textColor = String.format("rgba(51, 51, 51, %.2f)", textOpacity);
-                
-                String styledContent = "<!DOCTYPE html>\n" +
-                        "<html>\n" +
-                        "<head>\n" +
-                        "    <meta charset='UTF-8'>\n" +
-                        "    <style>\n" +
-                        "        body {\n" +
-                        "            font-family: " + fontFamily + ", -apple-system, BlinkMacSystemFont, 'Segoe UI', Helvetica, Arial, sans-serif, 'Apple Color Emoji', 'Segoe UI Emoji';\n" +
-                        "            font-size: " + formattedFontSize + "px;\n" +
-                        "            line-height: 1.6;\n" +
-                        "            color: " + textColor + ";\n" +  // 应用文字不透明度
-                        "            background-color: transparent;\n" +  // 使用透明背景，让极简模式的背景不透明度设置生效
-                        "            padding: " + roundedPadding + "px;\n" +
-                        "            max-width: none;\n" +
-                        "            margin: 0 auto;\n" +
-                        "            white-space: pre-wrap;\n" +
-                        "            width: 100%;\n" +
-                        "            max-width: 100%;\n" +
-                        "            box-sizing: border-box;\n" +
-                        "            word-wrap: break-word;\n" +
-                        "            -webkit-font-smoothing: antialiased;\n" +
-                        "            -moz-osx-font-smoothing: grayscale;\n" +
-                        "            text-rendering: optimizeLegibility;\n" +
-                        "            -webkit-text-size-adjust: 100%;\n" +  // 防止iOS Safari自动调整字体大小
-                        "            -ms-text-size-adjust: 100%;\n" +      // 防止IE自动调整字体大小
-                        "            text-shadow: 1px 1px 1px rgba(0,0,0,0.004);\n" +  // 轻微阴影提升清晰度
-                        "        }\n" +
-                        "        \n" +
-                        "        /* 美化滚动条样式 */\n" +
-                        "        ::-webkit-scrollbar {\n" +
-                        "            width: 8px;\n" +
-                        "            height: 8px;\n" +
-                        "        }\n" +
-                        "        \n" +
-                        "        ::-webkit-scrollbar-track {\n" +
-                        "            background: rgba(0, 0, 0, 0.05);\n" +
-                        "            border-radius: 4px;\n" +
-                        "        }\n" +
-                        "        \n" +
-                        "        ::-webkit-scrollbar-thumb {\n" +
-                        "            background: rgba(0, 0, 0, 0.2);\n" +
-                        "            border-radius: 4px;\n" +
-                        "        }\n" +
-                        "        \n" +
-                        "        ::-webkit-scrollbar-thumb:hover {\n" +
-                        "            background: rgba(0, 0, 0, 0.3);\n" +
-                        "        }\n" +
-                        "        \n" +
-                        "        ::-webkit-scrollbar-corner {\n" +
-                        "            background: rgba(0, 0, 0, 0.05);\n" +
-                        "        }\n" +
-                        "    </style>\n" +
-                        "</head>\n" +
-                        "<body>\n" +
-                        content + "\n" +
-                        "</body>\n" +
-                        "</html>";
-                webView.getEngine().loadContent(styledContent, "text/html");
+                showError("文件解析错误", "无法解析文件: " + cause.getMessage());
             }
-        } catch (IOException e) {
-            showError("文件读取错误", "无法读取文件: " + e.getMessage());
-        } catch (Exception e) {
-            showError("文件解析错误", "无法解析文件: " + e.getMessage());
-        }
+        });
     }
     
     private void exitMinimalMode() {
+        // 正常模式从当前的阅读位置继续
+        documentView.savePosition();
         // 隐藏极简模式窗口
         stage.hide();
         
@@ -647,6 +490,24 @@ public class MinimalModeController {
         }
     }
     
+    /**
+     * 把共用的文档视图移入极简窗口，文件未变化时直接沿用已渲染的页面和滚动位置
+     * @param file 当前文件
+     */
+    public void showDocument(File file) {
+        if (documentNode.getParent() != webViewContainer) {
+            // 不再固定节点尺寸，由HBox按剩余空间拉伸，回到正常模式时布局不受影响
+            HBox.setHgrow(documentNode, Priority.ALWAYS);
+            webViewContainer.getChildren().setAll(documentNode);
+        }
+        documentView.setTransparentBackground(true);
+        if (file != null && !file.equals(documentView.getCurrentFile())) {
+            loadFile(file);
+        } else {
+            currentFile = file;
+        }
+    }
+    
     public void showWindow() {
         // 在显示窗口前，更新背景不透明度为最新设置值
         updateWindowBackgroundOpacity(appPrefs.getBackgroundOpacity(0.9));
@@ -668,6 +529,13 @@ public class MinimalModeController {
         stage.hide();
     }
     
+    /**
+     * 释放资源，应用退出前调用
+     */
+    public void dispose() {
+        appPrefs.removeSettingsListener(settingsListener);
+    }
+    
     private void showError(String title, String message) {
         Alert alert = new Alert(Alert.AlertType.ERROR);
         alert.setTitle(title);
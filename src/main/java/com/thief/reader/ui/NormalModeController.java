@@ -3,8 +3,10 @@ package com.thief.reader.ui;
 import com.thief.reader.config.AppPreferences;
 import com.thief.reader.config.ConfigManager;
 import com.thief.reader.core.DocumentEngine;
+import com.thief.reader.core.ReaderMetrics;
 import com.thief.reader.util.FileUtils;
 import com.thief.reader.util.RecentFilesManager;
+import javafx.application.Platform;
 import javafx.scene.Node;
 import javafx.scene.Parent;
 import javafx.scene.Scene;
@@ -16,13 +18,15 @@ import javafx.scene.layout.BorderPane;
 import javafx.scene.layout.HBox;
 import javafx.scene.layout.Priority;
 import javafx.scene.layout.VBox;
-import javafx.scene.web.WebView;
 import javafx.stage.FileChooser;
 
 import java.io.File;
 import java.io.IOException;
-import java.text.DecimalFormat;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletionException;
 
 /**
  * 正常模式控制器
@@ -34,24 +38,38 @@ public class NormalModeController {
     private final ConfigManager configManager;
     private final AppPreferences appPrefs;
     private final RecentFilesManager recentFilesManager;
+    private final Runnable recentFilesListener;
     private BorderPane root;
-    private final WebView webView;
+    private final DocumentView documentView;
     private final TreeView<String> sidebarTree;
     private final Label statusLabel;
+    private final ProgressBar loadProgressBar;
+    private final SearchPanel searchPanel;
+    private final MetricsOverlay metricsOverlay;
+    private VBox contentArea;
     private File currentFile;
     
-    public NormalModeController(MainController mainController, DocumentEngine documentEngine) {
+    public NormalModeController(MainController mainController, DocumentEngine documentEngine, DocumentView documentView) {
         this.mainController = mainController;
         this.documentEngine = documentEngine;
         this.configManager = mainController.getConfigManager();
         this.appPrefs = AppPreferences.getInstance();
-        this.recentFilesManager = new RecentFilesManager();
-        this.webView = new WebView();
+        this.recentFilesManager = mainController.getRecentFilesManager();
+        // 列表可能在后台线程中更新（元数据读取完成时），统一回到FX线程刷新
+        this.recentFilesListener = () -> Platform.runLater(this::updateRecentFilesList);
+        // 与极简模式共用同一个视图，切换模式时不重新解析文档
+        this.documentView = documentView;
         this.sidebarTree = new TreeView<>();
         this.statusLabel = new Label("就绪");
+        this.loadProgressBar = new ProgressBar();
+        this.metricsOverlay = new MetricsOverlay(ReaderMetrics.getInstance());
+        metricsOverlay.setShowing(configManager.getConfig().isShowMetricsOverlay());
+        this.searchPanel = new SearchPanel(mainController.getSearchIndexer(), mainController.getPrimaryStage(), this::loadFile);
         initUI();
         setupEventHandlers();
         updateRecentFilesList();
+        recentFilesManager.addListener(recentFilesListener);
+        indexRecentFiles();
     }
     
     private void initUI() {
@@ -68,7 +86,9 @@ public class NormalModeController {
         HBox mainContent = createMainContentArea();
         
         // 创建状态栏
-        HBox statusBar = new HBox(statusLabel);
+        loadProgressBar.setPrefWidth(120);
+        loadProgressBar.setVisible(false);
+        HBox statusBar = new HBox(10, statusLabel, loadProgressBar, metricsOverlay.getNode());
         statusBar.setStyle("-fx-background-color: #f0f0f0; -fx-padding: 5;");
         
         // 组装界面
@@ -81,34 +101,30 @@ public class NormalModeController {
         
         // 设置拖拽支持
         setupDragAndDrop();
-        
-        // 监听设置变化以实现实时更新
-        setupSettingsListener();
     }
     
-    private void setupSettingsListener() {
-        // 定期检查Preferences中的缩放比例变化
-        javafx.animation.AnimationTimer timer = new javafx.animation.AnimationTimer() {
-            private double lastScale = appPrefs.getFontSize(100.0);
-            private String lastFontFamily = appPrefs.getFontFamily("Microsoft YaHei");  // 添加字体监听
-            
-            @Override
-            public void handle(long now) {
-                double currentScale = appPrefs.getFontSize(100.0);
-                String currentFontFamily = appPrefs.getFontFamily("Microsoft YaHei");  // 获取当前字体设置
-                
-                // 检查缩放比例或字体是否有变化
-                if (Math.abs(currentScale - lastScale) > 0.1 || !lastFontFamily.equals(currentFontFamily)) {
-                    lastScale = currentScale;
-                    lastFontFamily = currentFontFamily;  // 更新字体记录
-                    // 当缩放比例或字体变化时，重新加载当前文件以更新显示
-                    if (currentFile != null) {
-                        loadFile(currentFile);
-                    }
-                }
-            }
-        };
-        timer.start();
+    /**
+     * 释放资源，应用退出前调用；共用的文档视图由MainController释放
+     */
+    public void dispose() {
+        recentFilesManager.removeListener(recentFilesListener);
+        metricsOverlay.dispose();
+    }
+    
+    /**
+     * 从极简模式切换回来时，把共用的文档视图放回内容区域
+     * 视图中的页面和滚动位置保持不变
+     * @param file 当前文件
+     */
+    public void showDocument(File file) {
+        Node documentNode = documentView.getNode();
+        if (documentNode.getParent() != contentArea) {
+            contentArea.getChildren().setAll(documentNode);
+        }
+        documentView.setTransparentBackground(false);
+        if (file != null && !file.equals(documentView.getCurrentFile())) {
+            loadFile(file);
+        }
     }
     
     private void setupEventHandlers() {
@@ -146,7 +162,39 @@ public class NormalModeController {
         Menu viewMenu = new Menu("视图");
         MenuItem minimalModeItem = new MenuItem("切换极简模式 (F3)");  // 修改菜单项显示文本
         minimalModeItem.setOnAction(e -> switchToMinimalMode());
-        viewMenu.getItems().add(minimalModeItem);
+        CheckMenuItem metricsItem = new CheckMenuItem("性能信息");
+        metricsItem.setSelected(metricsOverlay.isShowing());
+        metricsItem.setOnAction(e -> {
+            metricsOverlay.setShowing(metricsItem.isSelected());
+            configManager.getConfig().setShowMetricsOverlay(metricsItem.isSelected());
+            configManager.saveConfig();
+        });
+        CheckMenuItem liveReloadItem = new CheckMenuItem("文件修改时自动刷新");
+        liveReloadItem.setSelected(documentView.isLiveReload());
+        liveReloadItem.setOnAction(e -> {
+            documentView.setLiveReload(liveReloadItem.isSelected());
+            configManager.getConfig().setLiveReload(liveReloadItem.isSelected());
+            configManager.saveConfig();
+        });
+        CheckMenuItem followItem = new CheckMenuItem("跟随文件末尾");
+        followItem.setSelected(documentView.isFollowTail());
+        followItem.setOnAction(e -> {
+            documentView.setFollowTail(followItem.isSelected());
+            configManager.getConfig().setFollowTail(followItem.isSelected());
+            configManager.saveConfig();
+        });
+        // 极简模式中也可以切换，显示菜单时同步状态
+        viewMenu.setOnShowing(e -> followItem.setSelected(documentView.isFollowTail()));
+        CheckMenuItem pageImagesItem = new CheckMenuItem("PDF显示为页面图像");
+        pageImagesItem.setSelected(documentView.isPdfPageImages());
+        pageImagesItem.setOnAction(e -> {
+            documentView.setPdfPageImages(pageImagesItem.isSelected());
+            configManager.getConfig().setPdfPageImages(pageImagesItem.isSelected());
+            configManager.saveConfig();
+        });
+        MenuItem findItem = new MenuItem("查找 (Ctrl+F)");
+        findItem.setOnAction(e -> documentView.showFindBar());
+        viewMenu.getItems().addAll(minimalModeItem, findItem, liveReloadItem, followItem, pageImagesItem, metricsItem);
         
         // 设置菜单
         Menu settingsMenu = new Menu("设置");
@@ -191,12 +239,14 @@ public class NormalModeController {
         Label sidebarTitle = new Label("最近文件");
         sidebarTitle.setStyle("-fx-font-weight: bold; -fx-padding: 5;");
         
-        sidebar.getChildren().addAll(sidebarTitle, sidebarTree);
+        sidebar.getChildren().addAll(sidebarTitle, sidebarTree, searchPanel);
         VBox.setVgrow(sidebarTree, Priority.ALWAYS);
+        VBox.setVgrow(searchPanel, Priority.ALWAYS);
         
         // 右侧内容区域
-        VBox contentArea = new VBox(webView);
-        VBox.setVgrow(webView, Priority.ALWAYS);
+        Node documentNode = documentView.getNode();
+        contentArea = new VBox(documentNode);
+        VBox.setVgrow(documentNode, Priority.ALWAYS);
         HBox.setHgrow(contentArea, Priority.ALWAYS);
         
         mainContent.getChildren().addAll(sidebar, contentArea);
@@ -226,107 +276,49 @@ public class NormalModeController {
         File selectedFile = fileChooser.showOpenDialog(mainController.getPrimaryStage());
         if (selectedFile != null) {
             loadFile(selectedFile);
-            recentFilesManager.addFile(selectedFile);
-            updateRecentFilesList(); // 更新最近打开文件列表显示
         }
     }
     
     public void loadFile(File file) {
-        try {
-            currentFile = file;
-            String content = documentEngine.parseDocument(file);
-            
-            if (file.getName().toLowerCase().endsWith(".md")) {
-                // Markdown 文件使用 WebView 渲染（已包含样式）
-                webView.getEngine().loadContent(content, "text/html");
+        currentFile = file;
+        statusLabel.setText("正在加载: " + file.getName());
+        loadProgressBar.setProgress(ProgressBar.INDETERMINATE_PROGRESS);
+        loadProgressBar.setVisible(true);
+        // 解析在后台线程进行，界面保持响应
+        documentView.load(file, (message, progress) -> {
+            statusLabel.setText(message + ": " + file.getName());
+            loadProgressBar.setProgress(progress);
+        }).whenComplete((document, error) -> {
+            Throwable cause = error instanceof CompletionException ? error.getCause() : error;
+            if (cause instanceof CancellationException) {
+                // 已被新的加载请求取代，由新的请求更新状态栏
+                return;
+            }
+            loadProgressBar.setVisible(false);
+            if (cause == null) {
+                statusLabel.setText("已加载: " + file.getName() + " | 类型: " + FileUtils.getFileExtension(file));
+                searchPanel.index(Collections.singletonList(file));
+                // 从任何入口打开的文件都移到最近列表的最前面
+                recentFilesManager.addFile(file);
+            } else if (cause instanceof IOException) {
+                statusLabel.setText("加载失败: " + file.getName());
+                showError("文件读取错误", "无法读取文件: " + cause.getMessage());
             } else {
-                // 其他文件直接显示文本（添加基本样式）
-                // 从设置中获取缩放比例，默认为100%
-                double scale = appPrefs.getFontSize(100.0);
-                
-                // 从设置中获取字体，默认为系统默认字体
-                String fontFamily = appPrefs.getFontFamily("sans-serif");
-                
-                // 计算实际字体大小（基于默认16px）
-                double baseFontSize = 16.0;
-                double actualFontSize = baseFontSize * (scale / 100.0);
-                
-                // 四舍五入到整数
-                int roundedFontSize = (int) Math.round(actualFontSize);
-                String formattedFontSize = String.valueOf(roundedFontSize);
-                
-                // 计算其他基于缩放比例的尺寸
-                double scaledPadding = 20.0 * (scale / 100.0);
-                // 四舍五入padding到整数
-                int roundedPadding = (int) Math.round(scaledPadding);
-                
-                // 正常模式下使用纯白色背景，极简模式下使用透明背景
-                String backgroundColor = "transparent";  // 使用透明背景，让极简模式的背景不透明度设置生效
-                
-                String styledContent = "<!DOCTYPE html>\n" +
-                        "<html>\n" +
-                        "<head>\n" +
-                        "    <meta charset='UTF-8'>\n" +
-                        "    <style>\n" +
-                        "        body {\n" +
-                        "            font-family: " + fontFamily + ", -apple-system, BlinkMacSystemFont, 'Segoe UI', Helvetica, Arial, sans-serif, 'Apple Color Emoji', 'Segoe UI Emoji';\n" +
-                        "            font-size: " + formattedFontSize + "px;\n" +
-                        "            line-height: 1.6;\n" +
-                        "            color: #333;\n" +
-                        "            background-color: transparent;\n" +  // 使用透明背景，让极简模式的背景不透明度设置生效
-                        "            padding: " + roundedPadding + "px;\n" +
-                        "            margin: 0 auto;\n" +
-                        "            white-space: pre-wrap;\n" +
-                        "            width: 100%;\n" +
-                        "            max-width: 100%;\n" +
-                        "            box-sizing: border-box;\n" +
-                        "            word-wrap: break-word;\n" +
-                        "            -webkit-font-smoothing: antialiased;\n" +
-                        "            -moz-osx-font-smoothing: grayscale;\n" +
-                        "            text-rendering: optimizeLegibility;\n" +
-                        "            -webkit-text-size-adjust: 100%;\n" +  // 防止iOS Safari自动调整字体大小
-                        "            -ms-text-size-adjust: 100%;\n" +      // 防止IE自动调整字体大小
-                        "            text-shadow: 1px 1px 1px rgba(0,0,0,0.004);\n" +  // 轻微阴影提升清晰度
-                        "        }\n" +
-                        "        \n" +
-                        "        /* 美化滚动条样式 */\n" +
-                        "        ::-webkit-scrollbar {\n" +
-                        "            width: 8px;\n" +
-                        "            height: 8px;\n" +
-                        "        }\n" +
-                        "        \n" +
-                        "        ::-webkit-scrollbar-track {\n" +
-                        "            background: rgba(0, 0, 0, 0.05);\n" +
-                        "            border-radius: 4px;\n" +
-                        "        }\n" +
-                        "        \n" +
-                        "        ::-webkit-scrollbar-thumb {\n" +
-                        "            background: rgba(0, 0, 0, 0.2);\n" +
-                        "            border-radius: 4px;\n" +
-                        "        }\n" +
-                        "        \n" +
-                        "        ::-webkit-scrollbar-thumb:hover {\n" +
-                        "            background: rgba(0, 0, 0, 0.3);\n" +
-                        "        }\n" +
-                        "        \n" +
-                        "        ::-webkit-scrollbar-corner {\n" +
-                        "            background: rgba(0, 0, 0, 0.05);\n" +
-                        "        }\n" +
-                        "    </style>\n" +
-                        "</head>\n" +
-                        "<body>\n" +
-                        content + "\n" +
-                        "</body>\n" +
-                        "</html>";
-                webView.getEngine().loadContent(styledContent, "text/html");
+                statusLabel.setText("加载失败: " + file.getName());
+                showError("文件解析错误", "无法解析文件: " + cause.getMessage());
             }
-            
-            statusLabel.setText("已加载: " + file.getName() + " | 类型: " + FileUtils.getFileExtension(file));
-        } catch (IOException e) {
-            showError("文件读取错误", "无法读取文件: " + e.getMessage());
-        } catch (Exception e) {
-            showError("文件解析错误", "无法解析文件: " + e.getMessage());
+        });
+    }
+    
+    /**
+     * 在后台索引最近打开的文件，内容未变的文件会被跳过
+     */
+    private void indexRecentFiles() {
+        List<File> files = new ArrayList<>();
+        for (String filePath : recentFilesManager.getRecentFiles()) {
+            files.add(new File(filePath));
         }
+        searchPanel.index(files);
     }
     
     /**
@@ -336,10 +328,9 @@ public class NormalModeController {
         TreeItem<String> rootItem = new TreeItem<>("最近文件");
         rootItem.setExpanded(true);
         
-        List<String> recentFiles = recentFilesManager.getRecentFiles();
-        for (String filePath : recentFiles) {
-            File file = new File(filePath);
-            TreeItem<String> fileItem = new TreeItem<>(file.getName());
+        List<RecentFilesManager.RecentDocument> recentFiles = recentFilesManager.getRecentDocuments();
+        for (RecentFilesManager.RecentDocument document : recentFiles) {
+            TreeItem<String> fileItem = new TreeItem<>(recentFileLabel(document));
             rootItem.getChildren().add(fileItem);
         }
         
@@ -350,21 +341,32 @@ public class NormalModeController {
         sidebarTree.setOnMouseClicked((MouseEvent event) -> {
             TreeItem<String> selectedItem = sidebarTree.getSelectionModel().getSelectedItem();
             if (selectedItem != null && event.getClickCount() == 2) {
-                // 双击文件项时加载文件
-                String selectedFileName = selectedItem.getValue();
-                for (String filePath : recentFiles) {
-                    File file = new File(filePath);
-                    if (file.getName().equals(selectedFileName)) {
-                        loadFile(file);
-                        break;
-                    }
+                // 双击文件项时加载文件，按位置查找，同名文件不会混淆
+                int index = rootItem.getChildren().indexOf(selectedItem);
+                if (index >= 0) {
+                    loadFile(recentFiles.get(index).getFile());
                 }
             }
         });
     }
     
+    /**
+     * 最近文件列表中显示的文本，包含后台读取的标题、页数以及文件是否存在
+     */
+    private static String recentFileLabel(RecentFilesManager.RecentDocument document) {
+        StringBuilder label = new StringBuilder(document.getDisplayName());
+        if (!document.exists()) {
+            label.append(" (文件不存在)");
+        } else if (document.getPageCount() > 0) {
+            label.append(" (").append(document.getPageCount()).append("页)");
+        }
+        return label.toString();
+    }
+    
     private void switchToMinimalMode() {
         if (currentFile != null) {
+            // 极简模式从当前的阅读位置继续
+            documentView.savePosition();
             mainController.switchToMinimalMode(currentFile);
         } else {
             showError("未选择文件", "请先打开一个文件");
@@ -0,0 +1,83 @@
+package com.thief.reader.ui;
+
+import javafx.scene.image.Image;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * PDF页面图像缓存
+ * 按像素占用的字节数做LRU淘汰，同一页可以同时缓存缩略图和正常分辨率的图像
+ */
+public class PageImageCache {
+
+    public static final long DEFAULT_MAX_BYTES = 128L * 1024 * 1024;
+
+    private final long maxBytes;
+    private final LinkedHashMap<String, Image> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long bytes;
+
+    public PageImageCache(long maxBytes) {
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * 查找页面图像
+     * @param page 页序号
+     * @param dpi 分辨率
+     * @return 图像，未缓存时返回null
+     */
+    public synchronized Image get(int page, float dpi) {
+        return entries.get(key(page, dpi));
+    }
+
+    /**
+     * 缓存页面图像，超出容量时淘汰最久未使用的图像
+     * @param page 页序号
+     * @param dpi 分辨率
+     * @param image 图像
+     */
+    public synchronized void put(int page, float dpi, Image image) {
+        long weight = weigh(image);
+        if (weight > maxBytes) {
+            return;
+        }
+        Image previous = entries.put(key(page, dpi), image);
+        if (previous != null) {
+            bytes -= weigh(previous);
+        }
+        bytes += weight;
+        Iterator<Map.Entry<String, Image>> iterator = entries.entrySet().iterator();
+        while (bytes > maxBytes && iterator.hasNext()) {
+            Map.Entry<String, Image> eldest = iterator.next();
+            bytes -= weigh(eldest.getValue());
+            iterator.remove();
+        }
+    }
+
+    /**
+     * 清空缓存，切换文档或渲染质量变化时调用
+     */
+    public synchronized void clear() {
+        entries.clear();
+        bytes = 0;
+    }
+
+    public synchronized long getBytes() {
+        return bytes;
+    }
+
+    public long getMaxBytes() {
+        return maxBytes;
+    }
+
+    private static String key(int page, float dpi) {
+        return page + "@" + dpi;
+    }
+
+    private static long weigh(Image image) {
+        // 每个像素按4字节估算
+        return (long) image.getWidth() * (long) image.getHeight() * 4L;
+    }
+}
@@ -0,0 +1,183 @@
+package com.thief.reader.ui;
+
+import com.thief.reader.core.PagedContent;
+import javafx.concurrent.Worker;
+import javafx.scene.web.WebEngine;
+import javafx.scene.web.WebView;
+import netscape.javascript.JSObject;
+
+import java.io.IOException;
+
+/**
+ * 分页内容的增量加载器
+ * 先显示第一页，滚动接近页面底部时再追加后续页面（大文本的窗口、PDF的页、大Markdown的块）
+ */
+public class PagedContentLoader {
+
+    private final WebView webView;
+    // 必须保持强引用，否则JavaScript侧的回调对象会被回收
+    private final ScrollBridge bridge = new ScrollBridge();
+    private PagedContent content;
+    private int nextPage;
+    private Runnable onPageAppended;
+
+    public PagedContentLoader(WebView webView) {
+        this.webView = webView;
+        webView.getEngine().getLoadWorker().stateProperty().addListener((obs, oldState, newState) -> {
+            if (newState == Worker.State.SUCCEEDED && content != null) {
+                installScrollBridge();
+            }
+        });
+    }
+
+    /**
+     * 打开分页内容，第一页由调用者在后台提取并直接显示
+     * @param content 分页内容
+     */
+    public void open(PagedContent content) {
+        close();
+        this.content = content;
+        this.nextPage = 1;
+    }
+
+    /**
+     * 设置追加页面后的回调，在页面脚本的滚动回调中调用
+     * @param onPageAppended 回调，可以为null
+     */
+    public void setOnPageAppended(Runnable onPageAppended) {
+        this.onPageAppended = onPageAppended;
+    }
+
+    /**
+     * 获取当前的分页内容
+     * @return 分页内容，没有时返回null
+     */
+    public PagedContent getContent() {
+        return content;
+    }
+    
+    /**
+     * 获取已经显示的页数
+     * @return 页数
+     */
+    public int loadedPages() {
+        return content == null ? 0 : nextPage;
+    }
+    
+    /**
+     * 获取加载进度描述
+     * @return 已加载页数/总页数
+     */
+    public String describeProgress() {
+        if (content == null) {
+            return "";
+        }
+        return Math.min(nextPage, content.pageCount()) + "/" + content.pageCount();
+    }
+
+    /**
+     * 关闭当前的分页内容
+     */
+    public void close() {
+        if (content != null) {
+            try {
+                content.close();
+            } catch (IOException e) {
+                // 关闭失败不影响后续加载
+            }
+            content = null;
+        }
+    }
+
+    private void installScrollBridge() {
+        WebEngine engine = webView.getEngine();
+        JSObject window = (JSObject) engine.executeScript("window");
+        window.setMember("pagedContent", bridge);
+        // 距离底部不足一屏时请求下一页，内容不足一屏时持续追加直到填满
+        engine.executeScript(
+            "window.onscroll = function() {" +
+            "  while (window.innerHeight + window.pageYOffset >= document.body.scrollHeight - window.innerHeight" +
+            "      && pagedContent.requestNext()) {" +
+            "  }" +
+            "};" +
+            "window.onscroll();" +
+            // 替换已显示的页面，每一页是body下的一个.md-block元素
+            "window.replacePages = function(first, removed, html) {" +
+            "  var blocks = document.querySelectorAll('body > .md-block');" +
+            "  var anchor = first + removed < blocks.length ? blocks[first + removed] : null;" +
+            "  var holder = document.createElement('div');" +
+            "  holder.innerHTML = html;" +
+            "  while (holder.firstChild) {" +
+            "    document.body.insertBefore(holder.firstChild, anchor);" +
+            "  }" +
+            "  for (var i = first; i < first + removed && i < blocks.length; i++) {" +
+            "    document.body.removeChild(blocks[i]);" +
+            "  }" +
+            "};"
+        );
+    }
+    
+    /**
+     * 用新的页面替换已显示的若干页，不重新加载页面，滚动位置保持不变
+     * 只适用于每一页都包裹在.md-block元素中的内容（渐进渲染的Markdown）
+     * @param first 第一个被替换的页
+     * @param removed 被替换的页数
+     * @param inserted 替换后的页数，内容已经更新为新的页面
+     * @throws IOException 页面读取异常
+     */
+    public void replacePages(int first, int removed, int inserted) throws IOException {
+        if (content == null || first >= nextPage) {
+            // 变化在尚未显示的部分，之后追加时直接读取新的内容
+            return;
+        }
+        WebEngine engine = webView.getEngine();
+        JSObject window = (JSObject) engine.executeScript("window");
+        if (first + removed > nextPage) {
+            // 变化超出已显示的范围，截断到变化处，再随滚动重新追加
+            window.call("replacePages", first, nextPage - first, "");
+            nextPage = first;
+            engine.executeScript("window.onscroll();");
+            return;
+        }
+        StringBuilder html = new StringBuilder();
+        for (int i = 0; i < inserted; i++) {
+            html.append(content.pageText(first + i));
+        }
+        window.call("replacePages", first, removed, html.toString());
+        nextPage += inserted - removed;
+    }
+
+    /**
+     * 追加下一页
+     * @return 是否追加了新页面
+     */
+    public boolean appendNextPage() {
+        if (content == null || nextPage >= content.pageCount()) {
+            return false;
+        }
+        try {
+            // 后续页面已在后台预取，这里通常直接命中缓存
+            String text = content.pageText(nextPage);
+            nextPage++;
+            JSObject body = (JSObject) webView.getEngine().executeScript("document.body");
+            body.call(content.producesHtml() ? "insertAdjacentHTML" : "insertAdjacentText", "beforeend", text);
+            if (onPageAppended != null) {
+                onPageAppended.run();
+            }
+            return true;
+        } catch (IOException e) {
+            // 读取失败时保留已显示的内容，下次滚动会重新尝试
+            return false;
+        }
+    }
+
+    /**
+     * 供JavaScript调用的滚动回调
+     */
+    public class ScrollBridge {
+
+        public boolean requestNext() {
+            return appendNextPage();
+        }
+    }
+}
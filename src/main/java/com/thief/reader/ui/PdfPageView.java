@@ -0,0 +1,194 @@
+package com.thief.reader.ui;
+
+import com.thief.reader.core.PdfPageRenderer;
+import com.thief.reader.core.PdfRenderQuality;
+import javafx.application.Platform;
+import javafx.collections.FXCollections;
+import javafx.collections.ObservableList;
+import javafx.embed.swing.SwingFXUtils;
+import javafx.geometry.Pos;
+import javafx.scene.Node;
+import javafx.scene.control.ListCell;
+import javafx.scene.control.ListView;
+import javafx.scene.image.Image;
+import javafx.scene.image.ImageView;
+import javafx.scene.layout.StackPane;
+
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * PDF页面图像视图，用于扫描件和以图形为主的PDF
+ * 基于ListView的虚拟化单元格，只渲染可见的页面：先显示缩略图占位，再替换为设置的渲染质量
+ * 渲染在工作线程中进行，滚动时只读取缓存，不会等待光栅化
+ */
+public class PdfPageView {
+
+    // 页面之间的间距
+    private static final double PAGE_GAP = 8;
+
+    private final ListView<Integer> listView;
+    private final ObservableList<Integer> pages = FXCollections.observableArrayList();
+    private final PageImageCache cache = new PageImageCache(PageImageCache.DEFAULT_MAX_BYTES);
+    // 正在渲染的页面，避免重复请求
+    private final Set<String> pending = new HashSet<>();
+    private volatile PdfPageRenderer renderer;
+    private volatile float dpi = PdfRenderQuality.MEDIUM.getDpi();
+
+    public PdfPageView() {
+        this.listView = new ListView<>(pages);
+        listView.getStyleClass().add("pdf-page-view");
+        listView.getStylesheets().add(PdfPageView.class.getResource("text-view.css").toExternalForm());
+        listView.setCellFactory(view -> new PageCell());
+    }
+
+    public Node getNode() {
+        return listView;
+    }
+
+    /**
+     * 显示PDF页面，视图接管渲染器的所有权
+     * @param pageRenderer 渲染器
+     */
+    public void open(PdfPageRenderer pageRenderer) {
+        close();
+        this.renderer = pageRenderer;
+        Integer[] indexes = new Integer[pageRenderer.pageCount()];
+        for (int i = 0; i < indexes.length; i++) {
+            indexes[i] = i;
+        }
+        pages.setAll(indexes);
+        listView.scrollTo(0);
+    }
+
+    public boolean isOpen() {
+        return renderer != null;
+    }
+
+    /**
+     * 设置渲染质量，变化时丢弃已渲染的图像并重新渲染可见页面
+     * @param quality 渲染质量
+     */
+    public void setQuality(PdfRenderQuality quality) {
+        if (quality.getDpi() == dpi) {
+            return;
+        }
+        dpi = quality.getDpi();
+        cache.clear();
+        listView.refresh();
+    }
+
+    /**
+     * 滚动使指定页位于顶部
+     * @param page 页序号
+     */
+    public void scrollToPage(int page) {
+        if (page >= 0 && page < pages.size()) {
+            listView.scrollTo(page);
+        }
+    }
+
+    /**
+     * 关闭当前文档，渲染器在后台关闭，不等待正在进行的渲染
+     */
+    public void close() {
+        PdfPageRenderer current = renderer;
+        renderer = null;
+        pages.clear();
+        cache.clear();
+        pending.clear();
+        if (current != null) {
+            CompletableFuture.runAsync(() -> {
+                try {
+                    current.close();
+                } catch (IOException e) {
+                    // 关闭失败不影响后续加载
+                }
+            });
+        }
+    }
+
+    /**
+     * 请求渲染页面，完成后放入缓存并刷新仍然显示该页的单元格
+     */
+    private void request(PdfPageRenderer target, int page, float resolution, PageCell cell) {
+        String key = page + "@" + resolution;
+        if (!pending.add(key)) {
+            return;
+        }
+        target.render(page, resolution, () -> renderer == target && cell.page == page)
+            .thenApply(image -> SwingFXUtils.toFXImage(image, null))
+            .whenComplete((image, error) -> Platform.runLater(() -> {
+                if (renderer != target) {
+                    return;
+                }
+                pending.remove(key);
+                if (image == null) {
+                    // 取消或渲染失败，再次显示该页时重新请求
+                    return;
+                }
+                cache.put(page, resolution, image);
+                if (cell.page == page) {
+                    cell.show(page);
+                }
+            }));
+    }
+
+    /**
+     * 页面单元格，未渲染时按页面比例占位
+     */
+    private final class PageCell extends ListCell<Integer> {
+
+        private final ImageView imageView = new ImageView();
+        private final StackPane holder = new StackPane(imageView);
+        // 工作线程检查单元格是否仍然显示该页
+        private volatile int page = -1;
+
+        PageCell() {
+            imageView.setPreserveRatio(true);
+            imageView.setSmooth(true);
+            holder.setAlignment(Pos.CENTER);
+            // 页面宽度随视图变化，留出滚动条的位置
+            imageView.fitWidthProperty().bind(listView.widthProperty().subtract(40));
+            setAlignment(Pos.CENTER);
+        }
+
+        @Override
+        protected void updateItem(Integer item, boolean empty) {
+            super.updateItem(item, empty);
+            if (empty || item == null || renderer == null) {
+                page = -1;
+                imageView.setImage(null);
+                setGraphic(null);
+                return;
+            }
+            page = item;
+            show(item);
+            setGraphic(holder);
+        }
+
+        void show(int index) {
+            PdfPageRenderer target = renderer;
+            if (target == null) {
+                return;
+            }
+            double width = imageView.getFitWidth();
+            if (target.pageWidth(index) > 0) {
+                holder.setPrefHeight(width * target.pageHeight(index) / target.pageWidth(index) + PAGE_GAP);
+            }
+            Image full = cache.get(index, dpi);
+            if (full != null) {
+                imageView.setImage(full);
+                return;
+            }
+            Image thumbnail = cache.get(index, PdfRenderQuality.THUMBNAIL_DPI);
+            imageView.setImage(thumbnail);
+            if (thumbnail == null) {
+                request(target, index, PdfRenderQuality.THUMBNAIL_DPI, this);
+            }
+            request(target, index, dpi, this);
+        }
+    }
+}
@@ -0,0 +1,139 @@
+package com.thief.reader.ui;
+
+import com.thief.reader.search.SearchHit;
+import com.thief.reader.search.SearchIndexer;
+import com.thief.reader.util.FileUtils;
+import javafx.application.Platform;
+import javafx.geometry.Insets;
+import javafx.scene.control.Button;
+import javafx.scene.control.Label;
+import javafx.scene.control.ListView;
+import javafx.scene.control.TextField;
+import javafx.scene.layout.HBox;
+import javafx.scene.layout.Priority;
+import javafx.scene.layout.VBox;
+import javafx.stage.DirectoryChooser;
+import javafx.stage.Window;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * 全文搜索面板
+ * 搜索已索引的所有文档，双击结果打开文档
+ */
+public class SearchPanel extends VBox {
+    
+    private static final int MAX_RESULTS = 100;
+    
+    private final SearchIndexer indexer;
+    private final TextField queryField = new TextField();
+    private final Label statusLabel = new Label();
+    private final ListView<SearchHit> resultList = new ListView<>();
+    // 只显示最后一次搜索的结果
+    private int searchGeneration;
+    
+    public SearchPanel(SearchIndexer indexer, Window owner, Consumer<File> opener) {
+        this.indexer = indexer;
+        setSpacing(5);
+        setPadding(new Insets(5));
+        
+        Label title = new Label("全文搜索");
+        title.setStyle("-fx-font-weight: bold;");
+        
+        queryField.setPromptText("输入关键词后回车");
+        queryField.setOnAction(e -> search(queryField.getText()));
+        
+        Button indexButton = new Button("索引文件夹");
+        indexButton.setOnAction(e -> {
+            DirectoryChooser chooser = new DirectoryChooser();
+            File directory = chooser.showDialog(owner);
+            if (directory != null) {
+                indexDirectory(directory);
+            }
+        });
+        HBox searchBox = new HBox(5, queryField, indexButton);
+        HBox.setHgrow(queryField, Priority.ALWAYS);
+        
+        statusLabel.setStyle("-fx-font-size: 11px; -fx-text-fill: #666666;");
+        resultList.setOnMouseClicked(event -> {
+            SearchHit hit = resultList.getSelectionModel().getSelectedItem();
+            if (hit != null && event.getClickCount() == 2) {
+                opener.accept(hit.getFile());
+            }
+        });
+        
+        getChildren().addAll(title, searchBox, statusLabel, resultList);
+        VBox.setVgrow(resultList, Priority.ALWAYS);
+        updateDocumentCount();
+    }
+    
+    /**
+     * 在后台索引文件，完成后更新状态
+     * @param files 文档文件
+     */
+    public void index(Collection<File> files) {
+        track(indexer.indexAsync(files));
+    }
+    
+    private void indexDirectory(File directory) {
+        statusLabel.setText("正在索引: " + directory.getName());
+        // 遍历目录同样在后台进行
+        track(CompletableFuture.supplyAsync(() -> listDocuments(directory.toPath()))
+                .thenCompose(indexer::indexAsync));
+    }
+    
+    private void track(CompletableFuture<Integer> indexing) {
+        indexing.whenComplete((count, error) -> Platform.runLater(() -> {
+            if (error != null) {
+                statusLabel.setText("索引失败: " + error.getMessage());
+            } else {
+                updateDocumentCount();
+            }
+        }));
+    }
+    
+    private void search(String query) {
+        int generation = ++searchGeneration;
+        if (query == null || query.trim().isEmpty()) {
+            resultList.getItems().clear();
+            updateDocumentCount();
+            return;
+        }
+        statusLabel.setText("正在搜索...");
+        indexer.searchAsync(query, MAX_RESULTS).whenComplete((hits, error) -> Platform.runLater(() -> {
+            if (generation != searchGeneration) {
+                return;
+            }
+            if (error != null) {
+                statusLabel.setText("搜索失败: " + error.getMessage());
+                return;
+            }
+            resultList.getItems().setAll(hits);
+            statusLabel.setText("找到 " + hits.size() + " 个文档");
+        }));
+    }
+    
+    private void updateDocumentCount() {
+        statusLabel.setText("已索引 " + indexer.getIndex().documentCount() + " 个文档");
+    }
+    
+    private static List<File> listDocuments(Path directory) {
+        try (Stream<Path> paths = Files.walk(directory)) {
+            return paths.map(Path::toFile)
+                    .filter(file -> file.isFile() && FileUtils.isSupportedDocument(file))
+                    .collect(Collectors.toList());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -2,6 +2,7 @@ package com.thief.reader.ui;
 
 import com.thief.reader.config.ConfigManager;
 import com.thief.reader.config.AppPreferences;
+import com.thief.reader.core.PdfRenderQuality;
 import javafx.geometry.Insets;
 import javafx.geometry.Pos;
 import javafx.scene.control.*;
@@ -287,8 +288,9 @@ public class SettingsDialog extends Dialog<Void> {
         // 保存文字不透明度
         appPrefs.setTextOpacity(textOpacitySlider.getValue());
         
-        // 保存PDF质量
+        // 保存PDF质量，配置文件中同步保存，页面图像按该质量渲染
         appPrefs.setPdfQuality(pdfQualityCombo.getValue());
+        configManager.getConfig().setPdfRenderQuality(PdfRenderQuality.fromSetting(pdfQualityCombo.getValue()).configName());
         
         // 保存自动保存位置设置
         appPrefs.setAutoSavePosition(autoSavePositionCheckBox.isSelected());
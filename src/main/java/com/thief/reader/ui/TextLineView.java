@@ -0,0 +1,356 @@
+package com.thief.reader.ui;
+
+import com.thief.reader.core.ReaderStyle;
+import com.thief.reader.core.TextLineIndex;
+import com.thief.reader.search.MatchIndex;
+import javafx.application.Platform;
+import javafx.collections.ObservableListBase;
+import javafx.geometry.Bounds;
+import javafx.geometry.Orientation;
+import javafx.scene.Node;
+import javafx.scene.control.ListCell;
+import javafx.scene.control.ListView;
+import javafx.scene.control.ScrollBar;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * 原生的纯文本视图
+ * 基于ListView的虚拟化单元格，只有可见的行才会被解码和布局，滚动开销与文件大小无关
+ * 跟随模式下停留在末尾时，新增的行会自动滚动到视图中
+ */
+public class TextLineView {
+    
+    // 每次后台索引的字节数，索引完成一段就更新一次行数
+    private static final long SCAN_STEP_BYTES = 8L * 1024 * 1024;
+    
+    private static final ExecutorService INDEX_EXECUTOR = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "text-line-index");
+        thread.setDaemon(true);
+        return thread;
+    });
+    
+    private final ListView<String> listView;
+    private final LineList lines = new LineList();
+    private volatile TextLineIndex index;
+    private MatchIndex matches;
+    private Runnable onScroll;
+    private boolean followTail;
+    
+    public TextLineView() {
+        this.listView = new ListView<>(lines);
+        listView.getStyleClass().add("text-line-view");
+        listView.getStylesheets().add(TextLineView.class.getResource("text-view.css").toExternalForm());
+        listView.setCellFactory(view -> new ListCell<String>() {
+            @Override
+            protected void updateItem(String item, boolean empty) {
+                super.updateItem(item, empty);
+                setText(empty ? null : item);
+                // 按行标记查找结果，只有可见的单元格才会查询匹配索引
+                boolean matched = !empty && matches != null && matches.containsSegment(getIndex());
+                if (matched != getStyleClass().contains("find-match")) {
+                    if (matched) {
+                        getStyleClass().add("find-match");
+                    } else {
+                        getStyleClass().remove("find-match");
+                    }
+                }
+            }
+        });
+        // 滚动条由皮肤创建，滚轮、拖动和键盘滚动都会改变它的值
+        listView.skinProperty().addListener((obs, oldSkin, newSkin) -> {
+            for (Node node : listView.lookupAll(".scroll-bar")) {
+                if (node instanceof ScrollBar && ((ScrollBar) node).getOrientation() == Orientation.VERTICAL) {
+                    ((ScrollBar) node).valueProperty().addListener((o, oldValue, newValue) -> {
+                        if (onScroll != null) {
+                            onScroll.run();
+                        }
+                    });
+                }
+            }
+        });
+    }
+    
+    public Node getNode() {
+        return listView;
+    }
+    
+    /**
+     * 显示文本，未索引的部分在后台继续索引
+     * @param index 行索引，所有权转移给视图
+     */
+    public void open(TextLineIndex index) {
+        close();
+        this.index = index;
+        lines.reset(index.lineCount());
+        listView.scrollTo(followTail ? Math.max(0, lines.size() - 1) : 0);
+        if (!index.isComplete()) {
+            indexRemaining(index);
+        }
+    }
+    
+    /**
+     * 获取当前的行索引
+     * @return 行索引，未打开文本时返回null
+     */
+    public TextLineIndex getIndex() {
+        return index;
+    }
+    
+    /**
+     * 设置需要标记的查找结果
+     * @param matches 匹配索引，段序号为行号，为null时清除标记
+     */
+    public void setMatches(MatchIndex matches) {
+        this.matches = matches;
+        listView.refresh();
+    }
+    
+    /**
+     * 匹配索引增长后刷新可见行的标记
+     */
+    public void refreshMatches() {
+        listView.refresh();
+    }
+    
+    /**
+     * 滚动到指定行并选中
+     * @param line 行号
+     */
+    public void reveal(int line) {
+        if (line >= lines.size()) {
+            return;
+        }
+        // 保留上方几行作为上下文
+        listView.scrollTo(Math.max(0, line - 3));
+        listView.getSelectionModel().clearAndSelect(line);
+    }
+    
+    /**
+     * 滚动使指定行位于顶部
+     * @param line 行号
+     */
+    public void scrollToLine(int line) {
+        if (line < lines.size()) {
+            listView.scrollTo(line);
+        }
+    }
+    
+    /**
+     * 设置是否跟随文件末尾，开启时立即滚动到末尾
+     * @param follow 是否跟随
+     */
+    public void setFollowTail(boolean follow) {
+        this.followTail = follow;
+        if (follow) {
+            scrollToEnd();
+        }
+    }
+    
+    /**
+     * 滚动到最后一行
+     */
+    public void scrollToEnd() {
+        if (lines.size() > 0) {
+            listView.scrollTo(lines.size() - 1);
+        }
+    }
+    
+    /**
+     * 文件增长后显示新增的行，跟随模式下原本停留在末尾时自动滚动
+     * @param firstChanged 第一个内容变化的行，之前未结束的最后一行可能被补全
+     */
+    public void linesAppended(int firstChanged) {
+        TextLineIndex current = index;
+        if (current == null) {
+            return;
+        }
+        boolean stick = followTail && isAtEnd();
+        lines.replaceFrom(firstChanged, current.lineCount());
+        if (stick) {
+            scrollToEnd();
+        }
+    }
+    
+    /**
+     * 最后一行是否可见
+     */
+    private boolean isAtEnd() {
+        int last = -1;
+        for (Node node : listView.lookupAll(".list-cell")) {
+            if (node instanceof ListCell && node.isVisible() && !((ListCell<?>) node).isEmpty()) {
+                last = Math.max(last, ((ListCell<?>) node).getIndex());
+            }
+        }
+        return lines.size() == 0 || last >= lines.size() - 1;
+    }
+    
+    /**
+     * 获取顶部第一个可见的行，只检查当前布局的单元格
+     * @return 行号，没有可见行时返回0
+     */
+    public int firstVisibleLine() {
+        int first = -1;
+        double top = listView.snappedTopInset();
+        for (Node node : listView.lookupAll(".list-cell")) {
+            if (!(node instanceof ListCell) || !node.isVisible()) {
+                continue;
+            }
+            ListCell<?> cell = (ListCell<?>) node;
+            if (cell.isEmpty() || cell.getIndex() < 0) {
+                continue;
+            }
+            // 上半部分已滚出视口的行不算可见
+            Bounds bounds = listView.sceneToLocal(cell.localToScene(cell.getBoundsInLocal()));
+            if (bounds.getMinY() + bounds.getHeight() / 2 >= top && bounds.getMinY() < listView.getHeight()
+                    && (first < 0 || cell.getIndex() < first)) {
+                first = cell.getIndex();
+            }
+        }
+        return Math.max(0, first);
+    }
+    
+    /**
+     * 设置滚动回调
+     * @param onScroll 回调，可以为null
+     */
+    public void setOnScroll(Runnable onScroll) {
+        this.onScroll = onScroll;
+    }
+    
+    /**
+     * 获取当前选中的行，作为查找的起点
+     * @return 行号，没有选中时返回0
+     */
+    public int getSelectedLine() {
+        return Math.max(0, listView.getSelectionModel().getSelectedIndex());
+    }
+    
+    /**
+     * 应用阅读样式
+     * @param style 阅读样式
+     * @param transparent 是否透明背景（极简模式）
+     */
+    public void applyStyle(ReaderStyle style, boolean transparent) {
+        listView.setStyle(
+            "-fx-font-family: \"" + style.getFontFamily().replace("\"", "") + "\";" +
+            "-fx-font-size: " + style.getFontSizePx() + "px;" +
+            "-fx-padding: " + style.getPaddingPx() + "px;" +
+            "-reader-text-color: " + style.getTextColor() + ";"
+        );
+        // 固定行高，虚拟化时无需测量每个单元格
+        listView.setFixedCellSize(Math.ceil(style.getFontSizePx() * 1.6));
+        if (transparent) {
+            if (!listView.getStyleClass().contains("transparent")) {
+                listView.getStyleClass().add("transparent");
+            }
+        } else {
+            listView.getStyleClass().remove("transparent");
+        }
+    }
+    
+    /**
+     * 关闭当前文本
+     */
+    public void close() {
+        TextLineIndex current = index;
+        index = null;
+        matches = null;
+        lines.reset(0);
+        if (current != null) {
+            try {
+                current.close();
+            } catch (IOException e) {
+                // 关闭失败不影响后续加载
+            }
+        }
+    }
+    
+    private void indexRemaining(TextLineIndex target) {
+        INDEX_EXECUTOR.execute(() -> {
+            try {
+                boolean complete = false;
+                while (!complete && index == target) {
+                    complete = target.scan(SCAN_STEP_BYTES);
+                    int count = target.lineCount();
+                    Platform.runLater(() -> {
+                        if (index == target) {
+                            boolean stick = followTail && isAtEnd();
+                            lines.grow(count);
+                            if (stick) {
+                                scrollToEnd();
+                            }
+                        }
+                    });
+                }
+            } catch (IOException e) {
+                // 文本已被关闭或读取失败，保留已索引的部分
+            }
+        });
+    }
+    
+    /**
+     * 按需从行索引读取的列表，不持有行内容
+     */
+    private final class LineList extends ObservableListBase<String> {
+        
+        private int size;
+        
+        @Override
+        public String get(int i) {
+            TextLineIndex current = index;
+            if (current == null) {
+                return "";
+            }
+            try {
+                return current.line(i);
+            } catch (IOException | IndexOutOfBoundsException e) {
+                return "";
+            }
+        }
+        
+        @Override
+        public int size() {
+            return size;
+        }
+        
+        void reset(int newSize) {
+            beginChange();
+            if (size > 0) {
+                nextRemove(0, Collections.nCopies(size, ""));
+            }
+            size = newSize;
+            if (newSize > 0) {
+                nextAdd(0, newSize);
+            }
+            endChange();
+        }
+        
+        /**
+         * 从指定行开始的内容已变化，并且行数变为newSize
+         */
+        void replaceFrom(int from, int newSize) {
+            if (from >= size) {
+                grow(newSize);
+                return;
+            }
+            beginChange();
+            nextReplace(from, newSize, Collections.nCopies(size - from, ""));
+            size = newSize;
+            endChange();
+        }
+        
+        void grow(int newSize) {
+            if (newSize <= size) {
+                return;
+            }
+            beginChange();
+            nextAdd(size, newSize);
+            size = newSize;
+            endChange();
+        }
+    }
+}
@@ -0,0 +1,197 @@
+package com.thief.reader.ui;
+
+import com.thief.reader.core.HtmlTemplate;
+import javafx.concurrent.Worker;
+import javafx.scene.web.WebEngine;
+import javafx.scene.web.WebView;
+import netscape.javascript.JSObject;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 网页内容的查找高亮和文本定位
+ * 查找脚本在需要时注入页面，每次只绘制一批匹配，页面滚动后由脚本回调重新绘制视口附近的匹配
+ * 正文文本中的偏移同时作为阅读位置的锚点
+ */
+public class WebFindHighlighter {
+    
+    private final WebView webView;
+    // 必须保持强引用，否则JavaScript侧的回调对象会被回收
+    private final ViewportBridge bridge;
+    private boolean installed;
+    // 已收集的正文文本，按收集的先后分块保存，分页内容追加时只增加新块
+    private final List<String> chunks = new ArrayList<>();
+    private int collectedLength;
+    
+    public WebFindHighlighter(WebView webView, Runnable onViewportChanged) {
+        this.webView = webView;
+        this.bridge = new ViewportBridge(onViewportChanged);
+        webView.getEngine().getLoadWorker().stateProperty().addListener((obs, oldState, newState) -> {
+            if (newState != Worker.State.SUCCEEDED) {
+                // 新页面需要重新注入脚本
+                installed = false;
+                clearCollected();
+            }
+        });
+    }
+    
+    /**
+     * 页面是否已加载完成，可以注入查找脚本
+     * @return 是否就绪
+     */
+    public boolean isReady() {
+        return webView.getEngine().getLoadWorker().getState() == Worker.State.SUCCEEDED;
+    }
+    
+    /**
+     * 注入查找脚本，之后页面滚动时会回调视口变化
+     */
+    public void install() {
+        if (isReady()) {
+            script();
+        }
+    }
+    
+    /**
+     * 获取页面的全部正文文本，已收集的部分不再从页面读取
+     * @return 按顺序排列的文本块，第一块从偏移0开始
+     */
+    public List<String> chunks() {
+        collectAppended();
+        return Collections.unmodifiableList(new ArrayList<>(chunks));
+    }
+    
+    /**
+     * 获取已收集的正文文本长度
+     * @return 文本长度
+     */
+    public int collectedLength() {
+        return collectedLength;
+    }
+    
+    /**
+     * 获取已收集正文末尾的文本，用于查找跨越块边界的匹配
+     * @param length 最多返回的字符数
+     * @return 末尾文本
+     */
+    public String collectedTail(int length) {
+        StringBuilder tail = new StringBuilder();
+        for (int i = chunks.size() - 1; i >= 0 && tail.length() < length; i--) {
+            String chunk = chunks.get(i);
+            tail.insert(0, chunk.substring(Math.max(0, chunk.length() - (length - tail.length()))));
+        }
+        return tail.toString();
+    }
+    
+    /**
+     * 收集上次之后新增的正文文本
+     * @return 新增的文本
+     */
+    public String collectAppended() {
+        Object chunk = script().call("collect", collectedLength);
+        if (!(chunk instanceof String) || ((String) chunk).isEmpty()) {
+            return "";
+        }
+        chunks.add((String) chunk);
+        collectedLength += ((String) chunk).length();
+        return (String) chunk;
+    }
+    
+    /**
+     * 页面内容被局部替换，丢弃已收集的正文文本，之前的偏移全部失效
+     */
+    public void reset() {
+        clearCollected();
+        if (installed && isReady()) {
+            script().call("reset");
+        }
+    }
+    
+    /**
+     * 获取正文文本的总长度，不把文本传回Java
+     * @return 文本长度
+     */
+    public int textLength() {
+        Object length = script().call("textLength");
+        return length instanceof Number ? ((Number) length).intValue() : 0;
+    }
+    
+    /**
+     * 滚动使偏移所在的位置位于视口顶部
+     * @param offset 文本偏移
+     */
+    public void scrollToOffset(long offset) {
+        script().call("scrollToOffset", (double) offset);
+    }
+    
+    /**
+     * 获取视口顶部在正文文本中的偏移
+     * @return 文本偏移
+     */
+    public int viewportOffset() {
+        Object offset = script().call("viewportOffset");
+        return offset instanceof Number ? ((Number) offset).intValue() : 0;
+    }
+    
+    /**
+     * 绘制一批匹配，替换之前绘制的高亮
+     * @param offsets 逗号分隔的匹配偏移
+     * @param length 匹配长度
+     * @param current 当前匹配的偏移，没有时为-1
+     */
+    public void highlight(String offsets, int length, int current) {
+        script().call("highlight", offsets, length, current);
+    }
+    
+    /**
+     * 滚动到匹配位置
+     * @param offset 匹配偏移
+     * @param length 匹配长度
+     */
+    public void reveal(int offset, int length) {
+        script().call("reveal", offset, length);
+    }
+    
+    /**
+     * 清除高亮
+     */
+    public void clear() {
+        if (installed && isReady()) {
+            script().call("clear");
+        }
+    }
+    
+    private void clearCollected() {
+        chunks.clear();
+        collectedLength = 0;
+    }
+    
+    private JSObject script() {
+        WebEngine engine = webView.getEngine();
+        if (!installed) {
+            engine.executeScript(HtmlTemplate.findScript());
+            JSObject window = (JSObject) engine.executeScript("window");
+            window.setMember("readerFindBridge", bridge);
+            installed = true;
+        }
+        return (JSObject) engine.executeScript("window.readerFind");
+    }
+    
+    /**
+     * 供JavaScript调用的视口变化回调，脚本内已做防抖
+     */
+    public static class ViewportBridge {
+        
+        private final Runnable onViewportChanged;
+        
+        ViewportBridge(Runnable onViewportChanged) {
+            this.onViewportChanged = onViewportChanged;
+        }
+        
+        public void viewportChanged() {
+            onViewportChanged.run();
+        }
+    }
+}
@@ -0,0 +1,485 @@
+package com.thief.reader.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 文本编码检测器
+ * 只读取文件开头和均匀分布的若干块作为样本：先检查BOM和UTF-8结构，再按常用字频率为GB18030、Big5和Shift_JIS打分
+ * 检测结果按文件缓存，文件未修改时不再重复检测
+ */
+public final class CharsetDetector {
+    
+    public static final Charset GB18030 = Charset.forName("GB18030");
+    public static final Charset BIG5 = Charset.forName("Big5");
+    public static final Charset SHIFT_JIS = Charset.forName("Shift_JIS");
+    
+    // 文件开头的样本大小
+    private static final int PREFIX_BYTES = 64 * 1024;
+    // 文件其余部分均匀抽取的样本块
+    private static final int STRIDE_BLOCKS = 8;
+    private static final int STRIDE_BLOCK_BYTES = 8 * 1024;
+    private static final int MAX_CACHED_FILES = 512;
+    
+    // 最常用的汉字，分别按简体和繁体编码后作为频率打分的依据
+    private static final String COMMON_SIMPLIFIED =
+            "的一是不了在人有我他这个们中来上大为和国地到以说时要就出会可也你对生能而子那得于着下自之年过发后作里用道行所然家种事成方多经么去法学如都同现当没动面起看定天分还进好小部其些主样理心她本前开但因只从想实，。、：；？！“”《》";
+    private static final String COMMON_TRADITIONAL =
+            "的一是不了在人有我他這個們中來上大為和國地到以說時要就出會可也你對生能而子那得於著下自之年過發後作裡用道行所然家種事成方多經麼去法學如都同現當沒動面起看定天分還進好小部其些主樣理心她本前開但因只從想實，。、：；？！「」『』";
+    private static final String COMMON_JAPANESE =
+            "日本人年大中出見行言上下前後今時分間新国会社事者的一二三四五十百千円月、。「」・ー";
+    
+    private static final Set<Integer> GB_COMMON = encodePairs(COMMON_SIMPLIFIED, GB18030);
+    private static final Set<Integer> BIG5_COMMON = encodePairs(COMMON_TRADITIONAL, BIG5);
+    private static final Set<Integer> SJIS_COMMON = encodePairs(COMMON_JAPANESE, SHIFT_JIS);
+    
+    private static final Map<String, CachedCharset> CACHE = new LinkedHashMap<String, CachedCharset>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, CachedCharset> eldest) {
+            return size() > MAX_CACHED_FILES;
+        }
+    };
+    
+    private CharsetDetector() {
+    }
+    
+    /**
+     * 检测文件编码，只读取样本
+     * @param file 文件
+     * @return 推测的字符编码，无法读取时返回UTF-8
+     */
+    public static Charset detect(File file) {
+        Charset cached = cached(file);
+        if (cached != null) {
+            return cached;
+        }
+        Charset charset;
+        try {
+            charset = detectSampled(file);
+        } catch (IOException e) {
+            // 无法读取时使用默认编码，由后续的读取报告错误
+            return StandardCharsets.UTF_8;
+        }
+        remember(file, charset);
+        return charset;
+    }
+    
+    /**
+     * 读取样本并检测编码，不使用缓存
+     */
+    static Charset detectSampled(File file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            long size = channel.size();
+            Sample sample = new Sample();
+            sample.add(readBlock(channel, 0, (int) Math.min(PREFIX_BYTES, size)), true);
+            for (long position : stridePositions(size)) {
+                sample.add(readBlock(channel, position, STRIDE_BLOCK_BYTES), false);
+            }
+            return sample.detect();
+        }
+    }
+    
+    /**
+     * 清空按文件缓存的检测结果
+     */
+    public static synchronized void clearCache() {
+        CACHE.clear();
+    }
+    
+    /**
+     * 检测已经读入内存的文件内容的编码，样本直接取自内容，无需再次读取文件
+     * @param file 文件，用于缓存检测结果
+     * @param content 文件的完整内容
+     * @return 推测的字符编码
+     */
+    public static Charset detect(File file, byte[] content) {
+        Charset cached = cached(file);
+        if (cached != null) {
+            return cached;
+        }
+        Charset charset = detect(content);
+        remember(file, charset);
+        return charset;
+    }
+    
+    /**
+     * 检测字节内容的编码
+     * @param content 字节内容
+     * @return 推测的字符编码
+     */
+    public static Charset detect(byte[] content) {
+        Sample sample = new Sample();
+        sample.add(ByteBuffer.wrap(content, 0, Math.min(PREFIX_BYTES, content.length)), true);
+        for (long position : stridePositions(content.length)) {
+            int length = (int) Math.min(STRIDE_BLOCK_BYTES, content.length - position);
+            sample.add(ByteBuffer.wrap(content, (int) position, length), false);
+        }
+        return sample.detect();
+    }
+    
+    /**
+     * 获取内容开头BOM的长度
+     * @param content 字节内容
+     * @return BOM长度，没有BOM时返回0
+     */
+    public static int bomLength(byte[] content) {
+        Charset charset = detectBom(content, content.length);
+        if (charset == null) {
+            return 0;
+        }
+        if (charset.name().startsWith("UTF-32")) {
+            return 4;
+        }
+        return charset.name().startsWith("UTF-16") ? 2 : 3;
+    }
+    
+    private static Charset detectBom(byte[] b, int length) {
+        if (length >= 3 && (b[0] & 0xFF) == 0xEF && (b[1] & 0xFF) == 0xBB && (b[2] & 0xFF) == 0xBF) {
+            return StandardCharsets.UTF_8;
+        }
+        if (length >= 4 && b[0] == 0 && b[1] == 0 && (b[2] & 0xFF) == 0xFE && (b[3] & 0xFF) == 0xFF) {
+            return Charset.forName("UTF-32BE");
+        }
+        if (length >= 4 && (b[0] & 0xFF) == 0xFF && (b[1] & 0xFF) == 0xFE && b[2] == 0 && b[3] == 0) {
+            return Charset.forName("UTF-32LE");
+        }
+        if (length >= 2 && (b[0] & 0xFF) == 0xFE && (b[1] & 0xFF) == 0xFF) {
+            return StandardCharsets.UTF_16BE;
+        }
+        if (length >= 2 && (b[0] & 0xFF) == 0xFF && (b[1] & 0xFF) == 0xFE) {
+            return StandardCharsets.UTF_16LE;
+        }
+        return null;
+    }
+    
+    private static long[] stridePositions(long size) {
+        long rest = size - PREFIX_BYTES;
+        if (rest <= STRIDE_BLOCK_BYTES) {
+            return new long[0];
+        }
+        int blocks = (int) Math.min(STRIDE_BLOCKS, rest / STRIDE_BLOCK_BYTES);
+        long stride = rest / blocks;
+        long[] positions = new long[blocks];
+        for (int i = 0; i < blocks; i++) {
+            positions[i] = PREFIX_BYTES + i * stride;
+        }
+        return positions;
+    }
+    
+    private static ByteBuffer readBlock(FileChannel channel, long position, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position + buffer.position());
+            if (read < 0) {
+                break;
+            }
+        }
+        buffer.flip();
+        return buffer;
+    }
+    
+    private static Set<Integer> encodePairs(String chars, Charset charset) {
+        Set<Integer> pairs = new HashSet<>();
+        for (int i = 0; i < chars.length(); i++) {
+            byte[] bytes = chars.substring(i, i + 1).getBytes(charset);
+            if (bytes.length == 2) {
+                pairs.add((bytes[0] & 0xFF) << 8 | (bytes[1] & 0xFF));
+            }
+        }
+        return pairs;
+    }
+    
+    private static synchronized Charset cached(File file) {
+        CachedCharset cached = CACHE.get(file.getAbsolutePath());
+        if (cached != null && cached.size == file.length() && cached.lastModified == file.lastModified()) {
+            return cached.charset;
+        }
+        return null;
+    }
+    
+    private static synchronized void remember(File file, Charset charset) {
+        CACHE.put(file.getAbsolutePath(), new CachedCharset(file.length(), file.lastModified(), charset));
+    }
+    
+    private static final class CachedCharset {
+        
+        private final long size;
+        private final long lastModified;
+        private final Charset charset;
+        
+        CachedCharset(long size, long lastModified, Charset charset) {
+            this.size = size;
+            this.lastModified = lastModified;
+            this.charset = charset;
+        }
+    }
+    
+    /**
+     * 样本统计，各个样本块分别分析后累加
+     */
+    private static final class Sample {
+        
+        private Charset bom;
+        private int highBytes;
+        private int evenZeros;
+        private int oddZeros;
+        private int total;
+        private int utf8Sequences;
+        private int utf8Errors;
+        private final Score gb = new Score();
+        private final Score big5 = new Score();
+        private final Score sjis = new Score();
+        
+        void add(ByteBuffer block, boolean prefix) {
+            byte[] data = block.array();
+            int start = block.arrayOffset() + block.position();
+            int end = start + block.remaining();
+            if (prefix) {
+                bom = detectBom(Arrays.copyOfRange(data, start, Math.min(end, start + 4)), Math.min(4, end - start));
+            } else {
+                // 中间的样本块可能从字符中间开始，对齐到换行符之后；结尾同样对齐到最后一个换行符
+                int newline = indexOf(data, start, end, (byte) '\n');
+                int last = lastIndexOf(data, start, end, (byte) '\n');
+                if (newline >= 0 && last > newline) {
+                    start = newline + 1;
+                    end = last + 1;
+                }
+            }
+            countBytes(data, start, end, prefix);
+            validateUtf8(data, start, end, !prefix);
+            scoreGb18030(data, start, end);
+            scoreBig5(data, start, end);
+            scoreShiftJis(data, start, end);
+        }
+        
+        Charset detect() {
+            if (bom != null) {
+                return bom;
+            }
+            // 没有BOM的UTF-16：ASCII字符的高位字节为0，且集中在同一奇偶位置
+            if (total >= 16) {
+                if (evenZeros > total / 4 && oddZeros < total / 40) {
+                    return StandardCharsets.UTF_16BE;
+                }
+                if (oddZeros > total / 4 && evenZeros < total / 40) {
+                    return StandardCharsets.UTF_16LE;
+                }
+            }
+            if (highBytes == 0) {
+                return StandardCharsets.UTF_8;
+            }
+            // 合法的UTF-8多字节序列几乎不会在其他编码中成片出现
+            if (utf8Errors == 0 || utf8Errors * 50 < utf8Sequences) {
+                return StandardCharsets.UTF_8;
+            }
+            Charset best = GB18030;
+            long bestScore = gb.value();
+            if (big5.value() > bestScore) {
+                best = BIG5;
+                bestScore = big5.value();
+            }
+            if (sjis.value() > bestScore) {
+                best = SHIFT_JIS;
+            }
+            return best;
+        }
+        
+        private void countBytes(byte[] data, int start, int end, boolean prefix) {
+            for (int i = start; i < end; i++) {
+                int b = data[i] & 0xFF;
+                if (b >= 0x80) {
+                    highBytes++;
+                } else if (b == 0 && prefix) {
+                    // 只有文件开头的样本能确定字节的奇偶位置
+                    if (((i - start) & 1) == 0) {
+                        evenZeros++;
+                    } else {
+                        oddZeros++;
+                    }
+                }
+            }
+            if (prefix) {
+                total += end - start;
+            }
+        }
+        
+        private void validateUtf8(byte[] data, int start, int end, boolean skipLeading) {
+            int i = start;
+            if (skipLeading) {
+                while (i < end && (data[i] & 0xC0) == 0x80) {
+                    i++;
+                }
+            }
+            while (i < end) {
+                int b = data[i] & 0xFF;
+                int length;
+                if (b < 0x80) {
+                    i++;
+                    continue;
+                } else if (b >= 0xC2 && b <= 0xDF) {
+                    length = 2;
+                } else if (b >= 0xE0 && b <= 0xEF) {
+                    length = 3;
+                } else if (b >= 0xF0 && b <= 0xF4) {
+                    length = 4;
+                } else {
+                    utf8Errors++;
+                    i++;
+                    continue;
+                }
+                if (i + length > end) {
+                    // 样本末尾被截断的序列不计入
+                    break;
+                }
+                boolean valid = true;
+                for (int j = 1; j < length; j++) {
+                    if ((data[i + j] & 0xC0) != 0x80) {
+                        valid = false;
+                        break;
+                    }
+                }
+                if (valid) {
+                    utf8Sequences++;
+                    i += length;
+                } else {
+                    utf8Errors++;
+                    i++;
+                }
+            }
+        }
+        
+        private void scoreGb18030(byte[] data, int start, int end) {
+            int i = start;
+            while (i < end) {
+                int b = data[i] & 0xFF;
+                if (b < 0x80) {
+                    i++;
+                } else if (b == 0x80 || b == 0xFF || i + 1 >= end) {
+                    gb.invalid += i + 1 >= end ? 0 : 1;
+                    i++;
+                } else {
+                    int t = data[i + 1] & 0xFF;
+                    if (t >= 0x30 && t <= 0x39) {
+                        // 四字节序列
+                        if (i + 3 < end && (data[i + 2] & 0xFF) >= 0x81 && (data[i + 2] & 0xFF) <= 0xFE
+                                && (data[i + 3] & 0xFF) >= 0x30 && (data[i + 3] & 0xFF) <= 0x39) {
+                            gb.pairs++;
+                            i += 4;
+                        } else {
+                            gb.invalid++;
+                            i++;
+                        }
+                    } else if (t >= 0x40 && t <= 0xFE && t != 0x7F) {
+                        gb.pair(b, t, GB_COMMON);
+                        i += 2;
+                    } else {
+                        gb.invalid++;
+                        i++;
+                    }
+                }
+            }
+        }
+        
+        private void scoreBig5(byte[] data, int start, int end) {
+            int i = start;
+            while (i < end) {
+                int b = data[i] & 0xFF;
+                if (b < 0x80) {
+                    i++;
+                } else if (b < 0x81 || b > 0xFE || i + 1 >= end) {
+                    big5.invalid += i + 1 >= end ? 0 : 1;
+                    i++;
+                } else {
+                    int t = data[i + 1] & 0xFF;
+                    if ((t >= 0x40 && t <= 0x7E) || (t >= 0xA1 && t <= 0xFE)) {
+                        big5.pair(b, t, BIG5_COMMON);
+                        i += 2;
+                    } else {
+                        big5.invalid++;
+                        i++;
+                    }
+                }
+            }
+        }
+        
+        private void scoreShiftJis(byte[] data, int start, int end) {
+            int i = start;
+            while (i < end) {
+                int b = data[i] & 0xFF;
+                if (b < 0x80 || (b >= 0xA1 && b <= 0xDF)) {
+                    // ASCII和半角片假名为单字节
+                    i++;
+                } else if (((b >= 0x81 && b <= 0x9F) || (b >= 0xE0 && b <= 0xFC)) && i + 1 < end) {
+                    int t = data[i + 1] & 0xFF;
+                    if (t >= 0x40 && t <= 0xFC && t != 0x7F) {
+                        int code = b << 8 | t;
+                        // 平假名和片假名是日文中最常见的字符
+                        if ((code >= 0x829F && code <= 0x82F1) || (code >= 0x8340 && code <= 0x8396)) {
+                            sjis.pairs++;
+                            sjis.common++;
+                        } else {
+                            sjis.pair(b, t, SJIS_COMMON);
+                        }
+                        i += 2;
+                    } else {
+                        sjis.invalid++;
+                        i++;
+                    }
+                } else {
+                    sjis.invalid += i + 1 >= end ? 0 : 1;
+                    i++;
+                }
+            }
+        }
+        
+        private static int indexOf(byte[] data, int start, int end, byte value) {
+            for (int i = start; i < end; i++) {
+                if (data[i] == value) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+        
+        private static int lastIndexOf(byte[] data, int start, int end, byte value) {
+            for (int i = end - 1; i >= start; i--) {
+                if (data[i] == value) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+    }
+    
+    /**
+     * 单个候选编码的得分
+     */
+    private static final class Score {
+        
+        private int pairs;
+        private int common;
+        private int invalid;
+        
+        void pair(int lead, int trail, Set<Integer> commonPairs) {
+            pairs++;
+            if (commonPairs.contains(lead << 8 | trail)) {
+                common++;
+            }
+        }
+        
+        long value() {
+            // 常用字命中数为主，非法序列重罚
+            return common * 4L + pairs / 16 - invalid * 8L;
+        }
+    }
+}
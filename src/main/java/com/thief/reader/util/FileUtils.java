@@ -1,10 +1,11 @@
 package com.thief.reader.util;
 
+import com.thief.reader.core.ReaderMetrics;
+
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.IOException;
 import java.nio.charset.Charset;
-import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 
 /**
  * 文件工具类
@@ -17,38 +18,26 @@ public class FileUtils {
      * @return 推测的字符编码
      */
     public static Charset detectCharset(File file) {
-        // 首先尝试检测BOM
-        try (FileInputStream fis = new FileInputStream(file)) {
-            byte[] bom = new byte[4];
-            int bytesRead = fis.read(bom);
-            
-            if (bytesRead >= 3 && bom[0] == (byte) 0xEF && bom[1] == (byte) 0xBB && bom[2] == (byte) 0xBF) {
-                return StandardCharsets.UTF_8;
-            }
-            
-            if (bytesRead >= 4 && bom[0] == (byte) 0x00 && bom[1] == (byte) 0x00 && 
-                bom[2] == (byte) 0xFE && bom[3] == (byte) 0xFF) {
-                return Charset.forName("UTF-32BE");
-            }
-            
-            if (bytesRead >= 4 && bom[0] == (byte) 0xFF && bom[1] == (byte) 0xFE && 
-                bom[2] == (byte) 0x00 && bom[3] == (byte) 0x00) {
-                return Charset.forName("UTF-32LE");
-            }
-            
-            if (bytesRead >= 2 && bom[0] == (byte) 0xFE && bom[1] == (byte) 0xFF) {
-                return Charset.forName("UTF-16BE");
-            }
-            
-            if (bytesRead >= 2 && bom[0] == (byte) 0xFF && bom[1] == (byte) 0xFE) {
-                return Charset.forName("UTF-16LE");
-            }
-        } catch (IOException e) {
-            // 忽略异常，使用默认编码
-        }
-        
-        // 如果没有BOM，使用默认的UTF-8编码
-        return StandardCharsets.UTF_8;
+        ReaderMetrics metrics = ReaderMetrics.getInstance();
+        Charset charset = metrics.time(ReaderMetrics.Stage.CHARSET, () -> CharsetDetector.detect(file));
+        metrics.recordCharset(charset);
+        return charset;
+    }
+    
+    /**
+     * 读取整个文本文件，编码检测直接使用读入的内容，不再单独读取文件
+     * @param file 文本文件
+     * @return 文本内容，不包含BOM
+     * @throws IOException 文件读取异常
+     */
+    public static String readText(File file) throws IOException {
+        ReaderMetrics metrics = ReaderMetrics.getInstance();
+        byte[] content = metrics.time(ReaderMetrics.Stage.READ, () -> Files.readAllBytes(file.toPath()));
+        metrics.recordBytes(content.length);
+        Charset charset = metrics.time(ReaderMetrics.Stage.CHARSET, () -> CharsetDetector.detect(file, content));
+        metrics.recordCharset(charset);
+        int bom = CharsetDetector.bomLength(content);
+        return metrics.time(ReaderMetrics.Stage.DECODE, () -> new String(content, bom, content.length - bom, charset));
     }
     
     /**
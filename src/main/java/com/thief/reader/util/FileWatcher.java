@@ -0,0 +1,160 @@
+package com.thief.reader.util;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * 监视单个文件的修改
+ * WatchService只能监视目录，这里监视文件所在的目录并按文件名过滤
+ * 编辑器保存时通常产生多次事件（截断、写入、重命名替换），安静一段时间后才合并回调一次
+ */
+public class FileWatcher implements Closeable {
+
+    public static final long DEFAULT_DEBOUNCE_MILLIS = 150;
+
+    private final Consumer<File> listener;
+    private final long debounceMillis;
+    private WatchService watchService;
+    private Thread thread;
+    private WatchKey key;
+    private volatile File file;
+    // 上次回调时文件的大小和修改时间，未变化的事件不回调
+    private volatile long lastLength;
+    private volatile long lastModified;
+
+    /**
+     * @param listener 文件修改后的回调，在监视线程中调用
+     * @param debounceMillis 最后一次事件之后等待的毫秒数
+     */
+    public FileWatcher(Consumer<File> listener, long debounceMillis) {
+        this.listener = listener;
+        this.debounceMillis = debounceMillis;
+    }
+
+    /**
+     * 开始监视文件，替换之前监视的文件
+     * @param target 文件，为null时停止监视
+     * @throws IOException 无法监视所在目录
+     */
+    public synchronized void watch(File target) throws IOException {
+        unwatch();
+        if (target == null) {
+            return;
+        }
+        File parent = target.getAbsoluteFile().getParentFile();
+        if (parent == null) {
+            return;
+        }
+        if (watchService == null) {
+            watchService = FileSystems.getDefault().newWatchService();
+            thread = new Thread(this::run, "file-watcher");
+            thread.setDaemon(true);
+            thread.start();
+        }
+        // 重命名替换的保存方式只产生创建事件
+        key = parent.toPath().register(watchService,
+                StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_CREATE);
+        lastLength = target.length();
+        lastModified = target.lastModified();
+        file = target.getAbsoluteFile();
+    }
+
+    /**
+     * 停止监视当前文件
+     */
+    public synchronized void unwatch() {
+        file = null;
+        if (key != null) {
+            key.cancel();
+            key = null;
+        }
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    @Override
+    public synchronized void close() {
+        unwatch();
+        if (watchService != null) {
+            try {
+                watchService.close();
+            } catch (IOException e) {
+                // 关闭失败不影响退出
+            }
+            watchService = null;
+        }
+    }
+
+    private void run() {
+        WatchService service;
+        synchronized (this) {
+            service = watchService;
+        }
+        try {
+            while (true) {
+                if (!matches(service.take())) {
+                    continue;
+                }
+                // 一直等到指定时间内没有新的修改事件
+                long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(debounceMillis);
+                long remaining;
+                while ((remaining = deadline - System.nanoTime()) > 0) {
+                    WatchKey next = service.poll(remaining, TimeUnit.NANOSECONDS);
+                    if (next != null && matches(next)) {
+                        deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(debounceMillis);
+                    }
+                }
+                notifyChanged();
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            // 监视器已关闭
+        }
+    }
+
+    private boolean matches(WatchKey watchKey) {
+        File target = file;
+        boolean matched = false;
+        for (WatchEvent<?> event : watchKey.pollEvents()) {
+            Object context = event.context();
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW
+                    || (target != null && context instanceof Path
+                        && ((Path) context).toString().equals(target.getName()))) {
+                matched = true;
+            }
+        }
+        watchKey.reset();
+        return matched && target != null && watchKey.watchable().equals(target.getParentFile().toPath());
+    }
+
+    private void notifyChanged() {
+        File target = file;
+        // 保存过程中文件可能暂时不存在
+        if (target == null || !target.isFile()) {
+            return;
+        }
+        long length = target.length();
+        long modified = target.lastModified();
+        if (length == lastLength && modified == lastModified) {
+            return;
+        }
+        lastLength = length;
+        lastModified = modified;
+        try {
+            listener.accept(target);
+        } catch (RuntimeException e) {
+            // 回调异常不能终止监视线程
+        }
+    }
+}
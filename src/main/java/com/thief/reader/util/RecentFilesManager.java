@@ -1,63 +1,339 @@
 package com.thief.reader.util;
 
+import com.google.gson.Gson;
+import com.google.gson.reflect.TypeToken;
+import com.thief.reader.config.ConfigManager;
+
 import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 /**
  * 最近打开文件管理器
+ * 线程安全，列表和元数据保存在用户配置目录下，修改后在后台写入
  */
 public class RecentFilesManager {
     
-    private static final int MAX_RECENT_FILES = 10;
-    private final List<String> recentFiles;
+    public static final int DEFAULT_CAPACITY = 20;
+    
+    private static final String RECENT_FILE = "recent-files.json";
+    
+    private static final ExecutorService WRITER = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "recent-files-writer");
+        thread.setDaemon(true);
+        return thread;
+    });
     
-    public RecentFilesManager() {
-        recentFiles = new ArrayList<>();
+    private static RecentFilesManager instance;
+    
+    private final Path storage;
+    private final Gson gson = new Gson();
+    // 按打开时间排序，最近打开的在最后；重新打开时先移除再插入，调整顺序是O(1)的
+    private final LinkedHashMap<String, RecentDocument> documents = new LinkedHashMap<>();
+    private final List<Runnable> listeners = new CopyOnWriteArrayList<>();
+    private int capacity;
+    private boolean saveScheduled;
+    
+    /**
+     * @param storage 保存列表的文件
+     * @param capacity 最多保留的文件数
+     */
+    public RecentFilesManager(Path storage, int capacity) {
+        this.storage = storage;
+        this.capacity = Math.max(1, capacity);
         loadRecentFiles();
     }
     
+    /**
+     * 获取共享的实例，容量由配置文件决定
+     * @return 最近打开文件管理器
+     */
+    public static synchronized RecentFilesManager getInstance() {
+        if (instance == null) {
+            instance = new RecentFilesManager(ConfigManager.getConfigDirectory().resolve(RECENT_FILE),
+                    ConfigManager.getInstance().getConfig().getMaxRecentFiles());
+        }
+        return instance;
+    }
+    
     /**
      * 添加文件到最近打开列表
      * @param file 文件
      */
     public void addFile(File file) {
         String filePath = file.getAbsolutePath();
-        
-        // 如果文件已存在，先移除
-        recentFiles.remove(filePath);
-        
-        // 添加到列表开头
-        recentFiles.add(0, filePath);
-        
-        // 保持列表大小在限制范围内
-        if (recentFiles.size() > MAX_RECENT_FILES) {
-            recentFiles.remove(recentFiles.size() - 1);
+        synchronized (this) {
+            // 保留已读取的元数据，只更新打开时间并移到最前
+            RecentDocument previous = documents.remove(filePath);
+            RecentDocument document = previous != null
+                    ? previous.reopened(System.currentTimeMillis())
+                    : new RecentDocument(filePath, System.currentTimeMillis());
+            documents.put(filePath, document);
+            trimToCapacity();
         }
-        
-        saveRecentFiles();
+        changed();
+    }
+    
+    /**
+     * 从列表中移除文件
+     * @param filePath 文件路径
+     */
+    public void removeFile(String filePath) {
+        synchronized (this) {
+            if (documents.remove(filePath) == null) {
+                return;
+            }
+        }
+        changed();
     }
     
     /**
      * 获取最近打开的文件列表
-     * @return 文件路径列表
+     * @return 文件路径列表，最近打开的在前
      */
     public List<String> getRecentFiles() {
-        return new ArrayList<>(recentFiles);
+        List<String> paths = new ArrayList<>();
+        for (RecentDocument document : getRecentDocuments()) {
+            paths.add(document.getPath());
+        }
+        return paths;
+    }
+    
+    /**
+     * 获取最近打开的文档及其元数据
+     * @return 文档列表，最近打开的在前
+     */
+    public synchronized List<RecentDocument> getRecentDocuments() {
+        List<RecentDocument> list = new ArrayList<>(documents.values());
+        Collections.reverse(list);
+        return list;
+    }
+    
+    /**
+     * 更新后台读取的元数据，不改变列表顺序
+     * @param filePath 文件路径
+     * @param exists 文件是否存在
+     * @param size 文件大小
+     * @param pageCount 页数，未知时为-1
+     * @param title 标题，没有时为null
+     */
+    public void updateMetadata(String filePath, boolean exists, long size, int pageCount, String title) {
+        synchronized (this) {
+            RecentDocument document = documents.get(filePath);
+            if (document == null) {
+                return;
+            }
+            RecentDocument updated = document.withMetadata(exists, size, pageCount, title);
+            if (updated.sameMetadata(document)) {
+                return;
+            }
+            // 替换已有的键不会改变LinkedHashMap的顺序
+            documents.put(filePath, updated);
+        }
+        changed();
+    }
+    
+    public synchronized int getCapacity() {
+        return capacity;
+    }
+    
+    /**
+     * 修改容量，超出的旧文件会被移除
+     * @param capacity 最多保留的文件数
+     */
+    public void setCapacity(int capacity) {
+        synchronized (this) {
+            this.capacity = Math.max(1, capacity);
+            trimToCapacity();
+        }
+        changed();
+    }
+    
+    /**
+     * 添加列表变化监听器，回调可能在任意线程中执行
+     * @param listener 监听器
+     */
+    public void addListener(Runnable listener) {
+        listeners.add(listener);
+    }
+    
+    public void removeListener(Runnable listener) {
+        listeners.remove(listener);
+    }
+    
+    /**
+     * 立即保存列表
+     * @throws IOException 写入异常
+     */
+    public void flush() throws IOException {
+        List<RecentDocument> snapshot;
+        synchronized (this) {
+            saveScheduled = false;
+            snapshot = getRecentDocuments();
+        }
+        Files.createDirectories(storage.getParent());
+        Path temp = Files.createTempFile(storage.getParent(), "recent-files", ".tmp");
+        try {
+            try (Writer writer = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+                gson.toJson(snapshot, writer);
+            }
+            try {
+                Files.move(temp, storage, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, storage, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+    
+    private void trimToCapacity() {
+        Iterator<String> eldest = documents.keySet().iterator();
+        while (documents.size() > capacity && eldest.hasNext()) {
+            eldest.next();
+            eldest.remove();
+        }
+    }
+    
+    private void changed() {
+        saveRecentFiles();
+        for (Runnable listener : listeners) {
+            listener.run();
+        }
     }
     
     /**
      * 加载最近打开的文件列表
      */
     private void loadRecentFiles() {
-        // 简单实现，实际项目中可以从配置文件或数据库加载
-        // 这里为了演示，暂时留空
+        if (!Files.isRegularFile(storage)) {
+            return;
+        }
+        try (Reader reader = Files.newBufferedReader(storage, StandardCharsets.UTF_8)) {
+            List<RecentDocument> saved = gson.fromJson(reader, new TypeToken<List<RecentDocument>>() { }.getType());
+            if (saved == null) {
+                return;
+            }
+            // 文件中最近打开的在前，按相反顺序插入
+            for (int i = saved.size() - 1; i >= 0; i--) {
+                RecentDocument document = saved.get(i);
+                if (document != null && document.getPath() != null) {
+                    documents.remove(document.getPath());
+                    documents.put(document.getPath(), document);
+                }
+            }
+            trimToCapacity();
+        } catch (IOException | RuntimeException e) {
+            // 列表损坏时从空列表开始
+            documents.clear();
+        }
     }
     
     /**
-     * 保存最近打开的文件列表
+     * 在后台保存最近打开的文件列表，连续的修改合并为一次写入
      */
     private void saveRecentFiles() {
-        // 简单实现，实际项目中可以保存到配置文件或数据库
+        synchronized (this) {
+            if (saveScheduled) {
+                return;
+            }
+            saveScheduled = true;
+        }
+        WRITER.execute(() -> {
+            try {
+                flush();
+            } catch (IOException e) {
+                // 保存失败只会导致下次启动时列表不完整
+            }
+        });
+    }
+    
+    /**
+     * 最近打开的文档，元数据在后台读取
+     */
+    public static final class RecentDocument {
+        
+        private final String path;
+        private final long lastOpened;
+        private final boolean exists;
+        private final long size;
+        private final int pageCount;
+        private final String title;
+        
+        RecentDocument(String path, long lastOpened) {
+            this(path, lastOpened, true, 0, -1, null);
+        }
+        
+        private RecentDocument(String path, long lastOpened, boolean exists, long size, int pageCount, String title) {
+            this.path = path;
+            this.lastOpened = lastOpened;
+            this.exists = exists;
+            this.size = size;
+            this.pageCount = pageCount;
+            this.title = title;
+        }
+        
+        RecentDocument reopened(long time) {
+            return new RecentDocument(path, time, true, size, pageCount, title);
+        }
+        
+        RecentDocument withMetadata(boolean exists, long size, int pageCount, String title) {
+            return new RecentDocument(path, lastOpened, exists, size, pageCount, title);
+        }
+        
+        boolean sameMetadata(RecentDocument other) {
+            return exists == other.exists && size == other.size && pageCount == other.pageCount
+                    && (title == null ? other.title == null : title.equals(other.title));
+        }
+        
+        public String getPath() {
+            return path;
+        }
+        
+        public File getFile() {
+            return new File(path);
+        }
+        
+        public long getLastOpened() {
+            return lastOpened;
+        }
+        
+        public boolean exists() {
+            return exists;
+        }
+        
+        public long getSize() {
+            return size;
+        }
+        
+        public int getPageCount() {
+            return pageCount;
+        }
+        
+        public String getTitle() {
+            return title;
+        }
+        
+        /**
+         * 列表中显示的名称：有标题时显示标题，否则显示文件名
+         * @return 显示名称
+         */
+        public String getDisplayName() {
+            return title != null ? title : getFile().getName();
+        }
     }
-}
\ No newline at end of file
+}
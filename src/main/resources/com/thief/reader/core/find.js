@@ -0,0 +1,193 @@
+/*
+ * 页面内查找和阅读位置定位
+ * 记录正文中的文本节点及其在全文中的起始偏移，匹配位置由Java侧的索引给出，阅读位置也以该偏移为锚点
+ * 高亮绘制在正文之外的覆盖层上，不拆分文本节点，已记录的偏移始终有效
+ */
+(function () {
+    if (window.readerFind) {
+        return;
+    }
+    var nodes = [];
+    var starts = [];
+    var total = 0;
+    var last = null;
+    var layer = null;
+    var timer = null;
+
+    function textWalker() {
+        return document.createTreeWalker(document.body, NodeFilter.SHOW_TEXT, {
+            acceptNode: function (node) {
+                var parent = node.parentNode ? node.parentNode.nodeName : '';
+                return parent === 'SCRIPT' || parent === 'STYLE' ? NodeFilter.FILTER_REJECT : NodeFilter.FILTER_ACCEPT;
+            }
+        }, false);
+    }
+
+    // 记录上次之后新增的文本节点，分页内容只会在末尾追加
+    function sync() {
+        var walker = textWalker();
+        var node;
+        if (last) {
+            walker.currentNode = last;
+        }
+        while ((node = walker.nextNode())) {
+            nodes.push(node);
+            starts.push(total);
+            total += node.data.length;
+            last = node;
+        }
+    }
+
+    // 二分查找包含该偏移的文本节点
+    function locate(offset) {
+        var lo = 0;
+        var hi = starts.length - 1;
+        while (lo < hi) {
+            var mid = (lo + hi + 1) >> 1;
+            if (starts[mid] <= offset) {
+                lo = mid;
+            } else {
+                hi = mid - 1;
+            }
+        }
+        return lo;
+    }
+
+    function rangeOf(offset, length) {
+        var first = locate(offset);
+        var lastNode = locate(offset + length - 1);
+        var range = document.createRange();
+        range.setStart(nodes[first], offset - starts[first]);
+        range.setEnd(nodes[lastNode], Math.min(nodes[lastNode].data.length, offset + length - starts[lastNode]));
+        return range;
+    }
+
+    function ensureLayer() {
+        if (!layer) {
+            // 覆盖层放在body之外，追加页面和收集文本都不会受影响
+            layer = document.createElement('div');
+            layer.style.cssText = 'position:absolute;left:0;top:0;width:0;height:0;pointer-events:none;z-index:2147483647;';
+            document.documentElement.appendChild(layer);
+        }
+        return layer;
+    }
+
+    function notifyViewport() {
+        if (timer) {
+            clearTimeout(timer);
+        }
+        timer = setTimeout(function () {
+            timer = null;
+            if (window.readerFindBridge) {
+                window.readerFindBridge.viewportChanged();
+            }
+        }, 80);
+    }
+
+    window.readerFind = {
+        // 返回从指定偏移开始的正文文本，偏移必须是之前返回的文本长度
+        collect: function (from) {
+            sync();
+            if (from >= total) {
+                return '';
+            }
+            var parts = [];
+            for (var i = locate(from); i < nodes.length; i++) {
+                parts.push(nodes[i].data);
+            }
+            return parts.join('');
+        },
+
+        // 页面内容被局部替换后丢弃已记录的文本节点，下次访问时重新收集
+        reset: function () {
+            nodes = [];
+            starts = [];
+            total = 0;
+            last = null;
+        },
+
+        // 正文文本的总长度
+        textLength: function () {
+            sync();
+            return total;
+        },
+
+        // 滚动使偏移所在的位置位于视口顶部，用于恢复阅读位置
+        scrollToOffset: function (offset) {
+            sync();
+            if (nodes.length === 0) {
+                return;
+            }
+            if (offset >= total) {
+                window.scrollTo(window.pageXOffset, document.body.scrollHeight);
+                return;
+            }
+            var index = locate(offset);
+            var range = document.createRange();
+            var local = offset - starts[index];
+            range.setStart(nodes[index], local);
+            range.setEnd(nodes[index], Math.min(nodes[index].data.length, local + 1));
+            var rect = range.getBoundingClientRect();
+            window.scrollTo(window.pageXOffset, rect.top + window.pageYOffset);
+        },
+
+        // 视口顶部的文本偏移，文本节点按文档顺序排列，按位置二分查找
+        viewportOffset: function () {
+            sync();
+            if (nodes.length === 0) {
+                return 0;
+            }
+            var range = document.createRange();
+            var lo = 0;
+            var hi = nodes.length - 1;
+            while (lo < hi) {
+                var mid = (lo + hi) >> 1;
+                range.selectNodeContents(nodes[mid]);
+                if (range.getBoundingClientRect().bottom < 0) {
+                    lo = mid + 1;
+                } else {
+                    hi = mid;
+                }
+            }
+            return starts[lo];
+        },
+
+        // 绘制一批匹配，offsets为逗号分隔的偏移
+        highlight: function (offsets, length, current) {
+            var target = ensureLayer();
+            var fragment = document.createDocumentFragment();
+            var scrollX = window.pageXOffset;
+            var scrollY = window.pageYOffset;
+            var list = offsets ? offsets.split(',') : [];
+            for (var i = 0; i < list.length; i++) {
+                var offset = parseInt(list[i], 10);
+                var rects = rangeOf(offset, length).getClientRects();
+                for (var j = 0; j < rects.length; j++) {
+                    var mark = document.createElement('div');
+                    mark.style.cssText = 'position:absolute;border-radius:2px;'
+                        + 'left:' + (rects[j].left + scrollX) + 'px;top:' + (rects[j].top + scrollY) + 'px;'
+                        + 'width:' + rects[j].width + 'px;height:' + rects[j].height + 'px;'
+                        + 'background:' + (offset === current ? 'rgba(255,140,0,0.55)' : 'rgba(255,213,0,0.40)') + ';';
+                    fragment.appendChild(mark);
+                }
+            }
+            target.innerHTML = '';
+            target.appendChild(fragment);
+        },
+
+        // 滚动使匹配位于视口上部三分之一处
+        reveal: function (offset, length) {
+            var rect = rangeOf(offset, length).getBoundingClientRect();
+            window.scrollTo(window.pageXOffset, rect.top + window.pageYOffset - window.innerHeight / 3);
+        },
+
+        clear: function () {
+            if (layer) {
+                layer.innerHTML = '';
+            }
+        }
+    };
+
+    window.addEventListener('scroll', notifyViewport, false);
+    window.addEventListener('resize', notifyViewport, false);
+})();
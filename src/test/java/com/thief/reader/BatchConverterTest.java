@@ -0,0 +1,180 @@
+package com.thief.reader;
+
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDPageContentStream;
+import org.apache.pdfbox.pdmodel.font.PDType1Font;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.*;
+
+/**
+ * 批量转换测试类
+ */
+public class BatchConverterTest {
+    
+    @Test
+    public void testConvertTreeAndSkipUnchanged() throws IOException {
+        Path input = Files.createTempDirectory("convert_in");
+        Path output = Files.createTempDirectory("convert_out");
+        try {
+            Files.createDirectories(input.resolve("guide"));
+            Files.write(input.resolve("index.md"), "# 标题\n\n正文 <b>".getBytes(StandardCharsets.UTF_8));
+            Files.write(input.resolve("guide/notes.txt"), "第一行 <tag>\n第二行".getBytes(StandardCharsets.UTF_8));
+            Files.write(input.resolve("guide/image.png"), new byte[]{(byte) 0x89, 'P', 'N', 'G'});
+            writeSamplePdf(input.resolve("guide/manual.pdf").toFile());
+            
+            BatchConverter.Summary first = convert(input, output, BatchConverter.SkipMode.MTIME);
+            assertEquals(3, first.getConverted());
+            assertEquals(0, first.getSkipped());
+            assertEquals(0, first.getFailed());
+            String markdown = read(output.resolve("index.html"));
+            assertTrue(markdown.contains("<h1"));
+            assertTrue(markdown.contains("<style>"));
+            // 纯文本转义后放入保留空白的页面
+            String text = read(output.resolve("guide/notes.html"));
+            assertTrue(text.contains("plain-text"));
+            assertTrue(text.contains("&lt;tag&gt;"));
+            assertTrue(read(output.resolve("guide/manual.html")).contains("Batch manual"));
+            assertFalse(Files.exists(output.resolve("guide/image.html")));
+            
+            // 未修改的文件全部跳过
+            BatchConverter.Summary second = convert(input, output, BatchConverter.SkipMode.MTIME);
+            assertEquals(0, second.getConverted());
+            assertEquals(3, second.getSkipped());
+            
+            // 输入比输出新时重新转换
+            Path notes = input.resolve("guide/notes.txt");
+            Files.setLastModifiedTime(notes, FileTime.fromMillis(System.currentTimeMillis() + 60000));
+            BatchConverter.Summary third = convert(input, output, BatchConverter.SkipMode.MTIME);
+            assertEquals(1, third.getConverted());
+            assertEquals(2, third.getSkipped());
+        } finally {
+            deleteTree(input);
+            deleteTree(output);
+        }
+    }
+    
+    @Test
+    public void testSkipByHash() throws IOException {
+        Path input = Files.createTempDirectory("convert_in");
+        Path output = Files.createTempDirectory("convert_out");
+        try {
+            Path readme = input.resolve("readme.md");
+            Files.write(readme, "# 说明".getBytes(StandardCharsets.UTF_8));
+            assertEquals(1, convert(input, output, BatchConverter.SkipMode.HASH).getConverted());
+            assertTrue(Files.isRegularFile(output.resolve(BatchConverter.MANIFEST)));
+            
+            // 只修改时间而内容不变时跳过
+            Files.setLastModifiedTime(readme, FileTime.fromMillis(System.currentTimeMillis() + 60000));
+            BatchConverter.Summary touched = convert(input, output, BatchConverter.SkipMode.HASH);
+            assertEquals(0, touched.getConverted());
+            assertEquals(1, touched.getSkipped());
+            
+            Files.write(readme, "# 新的说明".getBytes(StandardCharsets.UTF_8));
+            assertEquals(1, convert(input, output, BatchConverter.SkipMode.HASH).getConverted());
+            assertTrue(read(output.resolve("readme.html")).contains("新的说明"));
+        } finally {
+            deleteTree(input);
+            deleteTree(output);
+        }
+    }
+    
+    @Test
+    public void testCommandLine() throws IOException {
+        Path input = Files.createTempDirectory("convert_in");
+        Path output = input.resolve("site");
+        try {
+            Files.write(input.resolve("a.md"), "# A".getBytes(StandardCharsets.UTF_8));
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            ByteArrayOutputStream err = new ByteArrayOutputStream();
+            int code = BatchConverter.run(new String[]{input.toString(), "-o", output.toString(), "-j", "2"},
+                    new PrintStream(out, true, "UTF-8"), new PrintStream(err, true, "UTF-8"));
+            assertEquals(0, code);
+            String summary = new String(out.toByteArray(), StandardCharsets.UTF_8);
+            assertTrue(summary.contains("文件/s"));
+            assertTrue(summary.contains("MB/s"));
+            // 输出目录位于输入目录中，再次转换时不处理输出
+            assertEquals(0, BatchConverter.run(new String[]{input.toString(), "-o", output.toString(), "--skip", "none"},
+                    new PrintStream(out, true, "UTF-8"), new PrintStream(err, true, "UTF-8")));
+            assertEquals(2, BatchConverter.run(new String[]{input.toString(), "--threads", "x"},
+                    new PrintStream(out, true, "UTF-8"), new PrintStream(err, true, "UTF-8")));
+        } finally {
+            deleteTree(input);
+        }
+    }
+    
+    @Test
+    public void testOutputCollision() throws IOException {
+        Path input = Files.createTempDirectory("convert_in");
+        Path output = Files.createTempDirectory("convert_out");
+        try {
+            Files.createDirectories(input.resolve("a"));
+            Files.createDirectories(input.resolve("b"));
+            Path first = input.resolve("a/readme.md");
+            Files.write(first, "# 第一个".getBytes(StandardCharsets.UTF_8));
+            Files.write(input.resolve("b/readme.md"), "# 第二个".getBytes(StandardCharsets.UTF_8));
+            ByteArrayOutputStream err = new ByteArrayOutputStream();
+            // 不同目录下的同名文件不能覆盖先输出的文件，同一文件重复出现只转换一次
+            BatchConverter.Summary summary = new BatchConverter(Arrays.asList(first.toFile(),
+                    input.resolve("b/readme.md").toFile(), first.toFile()), output.toFile(), 2,
+                    BatchConverter.SkipMode.NONE, new PrintStream(err, true, "UTF-8")).run();
+            assertEquals(1, summary.getConverted());
+            assertEquals(1, summary.getFailed());
+            assertTrue(new String(err.toByteArray(), StandardCharsets.UTF_8).contains("输出文件冲突"));
+            assertTrue(read(output.resolve("readme.html")).contains("第一个"));
+        } finally {
+            deleteTree(input);
+            deleteTree(output);
+        }
+    }
+    
+    @Test
+    public void testOutputName() {
+        assertEquals("docs/a.html", BatchConverter.outputName("docs/a.md"));
+        assertEquals("docs/.hidden.html", BatchConverter.outputName("docs/.hidden"));
+        assertEquals("v1.2/readme.html", BatchConverter.outputName("v1.2/readme"));
+    }
+    
+    private BatchConverter.Summary convert(Path input, Path output, BatchConverter.SkipMode mode) throws IOException {
+        return new BatchConverter(Collections.singletonList(input.toFile()), output.toFile(), 2, mode, System.err).run();
+    }
+    
+    private String read(Path file) throws IOException {
+        return new String(Files.readAllBytes(file), StandardCharsets.UTF_8);
+    }
+    
+    private void writeSamplePdf(File pdfFile) throws IOException {
+        try (PDDocument document = new PDDocument()) {
+            PDPage page = new PDPage();
+            document.addPage(page);
+            try (PDPageContentStream stream = new PDPageContentStream(document, page)) {
+                stream.beginText();
+                stream.setFont(PDType1Font.HELVETICA, 12);
+                stream.newLineAtOffset(72, 700);
+                stream.showText("Batch manual");
+                stream.endText();
+            }
+            document.save(pdfFile);
+        }
+    }
+    
+    private void deleteTree(Path root) throws IOException {
+        try (Stream<Path> paths = Files.walk(root)) {
+            paths.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+        }
+    }
+}
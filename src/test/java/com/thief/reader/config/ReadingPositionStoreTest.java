@@ -0,0 +1,56 @@
+package com.thief.reader.config;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import static org.junit.Assert.*;
+
+/**
+ * 阅读位置存储测试类
+ */
+public class ReadingPositionStoreTest {
+    
+    @Test
+    public void testPositionsSurviveReopen() throws IOException {
+        Path directory = Files.createTempDirectory("positions_test");
+        Path journal = directory.resolve("positions.journal");
+        File novel = File.createTempFile("novel", ".txt", directory.toFile());
+        File manual = File.createTempFile("manual", ".md", directory.toFile());
+        try {
+            ReadingPositionStore store = new ReadingPositionStore(journal);
+            store.put(novel, ReadingPosition.Unit.BYTE, 100);
+            store.put(novel, ReadingPosition.Unit.BYTE, 2048);
+            store.put(manual, ReadingPosition.Unit.CHAR, 512);
+            // 保存后立即可读，写入磁盘在之后进行
+            assertEquals(2048, store.get(novel).getOffset());
+            store.close();
+            // 同一文档的多次修改合并为一条记录
+            assertEquals(2, Files.readAllLines(journal, StandardCharsets.UTF_8).size());
+            
+            // 模拟异常退出留下的不完整记录
+            Files.write(journal, "{\"path\":".getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND);
+            ReadingPositionStore reopened = new ReadingPositionStore(journal);
+            ReadingPosition position = reopened.get(novel);
+            assertNotNull(position);
+            assertEquals(ReadingPosition.Unit.BYTE, position.getUnit());
+            assertEquals(2048, position.getOffset());
+            assertEquals(ReadingPosition.Unit.CHAR, reopened.get(manual).getUnit());
+            assertNull(reopened.get(new File(directory.toFile(), "unknown.txt")));
+            reopened.put(manual, ReadingPosition.Unit.CHAR, 1024);
+            reopened.close();
+            // 新记录不会接在不完整的记录后面
+            assertEquals(1024, new ReadingPositionStore(journal).get(manual).getOffset());
+        } finally {
+            novel.delete();
+            manual.delete();
+            Files.deleteIfExists(journal);
+            Files.deleteIfExists(directory);
+        }
+    }
+}
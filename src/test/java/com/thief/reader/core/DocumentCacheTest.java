@@ -0,0 +1,131 @@
+package com.thief.reader.core;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.*;
+
+/**
+ * 解析结果缓存测试类
+ */
+public class DocumentCacheTest {
+    
+    private static String repeat(char c, int count) {
+        StringBuilder sb = new StringBuilder(count);
+        for (int i = 0; i < count; i++) {
+            sb.append(c);
+        }
+        return sb.toString();
+    }
+    
+    @Test
+    public void testEvictsLeastRecentlyUsedByWeight() {
+        // 每项约 2KB + 开销，容量只够放两项
+        DocumentCache cache = new DocumentCache(5000);
+        DocumentCache.CacheKey a = new DocumentCache.CacheKey("/a", 1, 1, "");
+        DocumentCache.CacheKey b = new DocumentCache.CacheKey("/b", 1, 1, "");
+        DocumentCache.CacheKey c = new DocumentCache.CacheKey("/c", 1, 1, "");
+        
+        cache.put(a, repeat('a', 1000));
+        cache.put(b, repeat('b', 1000));
+        assertNotNull(cache.get(a));
+        cache.put(c, repeat('c', 1000));
+        
+        assertNull("最久未使用的项应该被淘汰", cache.get(b));
+        assertNotNull(cache.get(a));
+        assertNotNull(cache.get(c));
+        assertEquals(1, cache.getEvictionCount());
+        assertTrue(cache.getWeight() <= cache.getMaxWeight());
+        assertEquals(3, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+    }
+    
+    @Test
+    public void testOversizedEntryIsNotCached() {
+        DocumentCache cache = new DocumentCache(1000);
+        DocumentCache.CacheKey key = new DocumentCache.CacheKey("/big", 1, 1, "");
+        cache.put(key, repeat('x', 1000));
+        assertEquals(0, cache.size());
+    }
+    
+    @Test
+    public void testEngineReusesParseResult() throws IOException {
+        DocumentEngine engine = new DocumentEngine();
+        File tempFile = File.createTempFile("test_cache", ".txt");
+        Files.write(tempFile.toPath(), "缓存内容".getBytes("UTF-8"));
+        
+        try {
+            String first = engine.parseDocument(tempFile);
+            String second = engine.parseDocument(tempFile);
+            assertSame("第二次打开应该直接返回缓存结果", first, second);
+            assertEquals(1, engine.getCache().getHitCount());
+            
+            // 文件变化后缓存键随之变化
+            Files.write(tempFile.toPath(), "修改后的内容".getBytes("UTF-8"));
+            tempFile.setLastModified(tempFile.lastModified() + 2000);
+            assertEquals("修改后的内容", engine.parseDocument(tempFile));
+        } finally {
+            tempFile.delete();
+        }
+    }
+    
+    @Test
+    public void testDiskCacheRoundTripAndEviction() throws IOException {
+        Path directory = Files.createTempDirectory("render-cache");
+        File source = File.createTempFile("test_disk_cache", ".md");
+        Files.write(source.toPath(), "# 标题".getBytes("UTF-8"));
+        
+        try {
+            DiskRenderCache diskCache = new DiskRenderCache(directory, 1024 * 1024);
+            String hash = diskCache.contentHash(source);
+            assertNull(diskCache.get(hash, "MarkdownParser:1:"));
+            diskCache.put(hash, "MarkdownParser:1:", "<h1>标题</h1>");
+            assertEquals(64, hash.length());
+            diskCache.flushStatIndex();
+            
+            // 新实例模拟下次启动，哈希直接取自大小和修改时间索引
+            DiskRenderCache reopened = new DiskRenderCache(directory, 1024 * 1024);
+            assertEquals(hash, reopened.contentHash(source));
+            assertEquals("<h1>标题</h1>", reopened.get(hash, "MarkdownParser:1:"));
+            assertNull("解析器版本变化后不应命中", reopened.get(hash, "MarkdownParser:2:"));
+            
+            // 容量极小时写入后立即淘汰
+            DiskRenderCache tiny = new DiskRenderCache(directory, 1);
+            tiny.put(hash, "MarkdownParser:3:", repeat('x', 4096));
+            assertEquals(0, tiny.getTotalBytes());
+        } finally {
+            source.delete();
+            try (Stream<Path> files = Files.list(directory)) {
+                files.forEach(path -> path.toFile().delete());
+            }
+            Files.deleteIfExists(directory);
+        }
+    }
+    
+    @Test
+    public void testEngineFlushPersistsDiskCache() throws IOException {
+        Path directory = Files.createTempDirectory("render-cache");
+        File source = File.createTempFile("test_engine_flush", ".md");
+        Files.write(source.toPath(), ("# 标题\n\n" + repeat('x', 64 * 1024)).getBytes("UTF-8"));
+        
+        try {
+            DocumentEngine engine = new DocumentEngine(new DiskRenderCache(directory, 16 * 1024 * 1024));
+            engine.parseDocument(source);
+            // 退出前等待后台写入，之后立即退出也不会丢失缓存和哈希索引
+            engine.flush();
+            assertTrue(Files.isRegularFile(directory.resolve("stat-index.properties")));
+            assertTrue(new DiskRenderCache(directory, 16 * 1024 * 1024).getTotalBytes() > 0);
+        } finally {
+            source.delete();
+            try (Stream<Path> files = Files.list(directory)) {
+                files.forEach(path -> path.toFile().delete());
+            }
+            Files.deleteIfExists(directory);
+        }
+    }
+}
@@ -1,12 +1,20 @@
 package com.thief.reader.core;
 
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDPageContentStream;
+import org.apache.pdfbox.pdmodel.font.PDType1Font;
 import org.junit.Test;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
 
 import static org.junit.Assert.*;
 
@@ -55,6 +63,89 @@ public class DocumentEngineTest {
         }
     }
     
+    private void writeSamplePdf(Path pdfFile) throws IOException {
+        try (PDDocument document = new PDDocument()) {
+            for (int i = 1; i <= 3; i++) {
+                PDPage page = new PDPage();
+                document.addPage(page);
+                // 第二页保留为空白页
+                if (i == 2) {
+                    continue;
+                }
+                try (PDPageContentStream stream = new PDPageContentStream(document, page)) {
+                    stream.beginText();
+                    stream.setFont(PDType1Font.HELVETICA, 12);
+                    stream.newLineAtOffset(72, 700);
+                    stream.showText("Page " + i);
+                    stream.endText();
+                }
+            }
+            document.save(pdfFile.toFile());
+        }
+    }
+    
+    @Test
+    public void testPagedPdf() throws IOException {
+        DocumentEngine engine = new DocumentEngine();
+        Path pdfFile = tempDir.resolve("test.pdf");
+        writeSamplePdf(pdfFile);
+        
+        try (PagedPdfDocument document = engine.openPagedPdf(pdfFile.toFile())) {
+            assertEquals(3, document.pageCount());
+            assertTrue(document.pageText(2).contains("Page 3"));
+            assertTrue(document.pageText(0).contains("Page 1"));
+            assertFalse(document.pageText(1).contains("Page"));
+            assertTrue("访问过的页应该被缓存", document.isExtracted(2));
+        } finally {
+            Files.deleteIfExists(pdfFile);
+        }
+    }
+    
+    @Test
+    public void testSniffsPdfWithWrongExtension() throws IOException {
+        DocumentEngine engine = new DocumentEngine();
+        Path misnamedFile = tempDir.resolve("misnamed_pdf.txt");
+        writeSamplePdf(misnamedFile);
+        
+        try {
+            assertTrue(engine.isPagedPdf(misnamedFile.toFile()));
+            String result = engine.parseDocument(misnamedFile.toFile());
+            assertTrue("应该按PDF解析而不是按文本解析", result.contains("Page 3"));
+            assertSame("解析器实例应该被共享",
+                    engine.getRegistry().find(misnamedFile.toFile()), engine.getRegistry().get(PdfParser.class));
+        } finally {
+            Files.deleteIfExists(misnamedFile);
+        }
+    }
+    
+    @Test
+    public void testLoadDocumentAsync() throws Exception {
+        DocumentEngine engine = new DocumentEngine(null);
+        Path markdownFile = tempDir.resolve("test_async.md");
+        Path pdfFile = tempDir.resolve("test_async.pdf");
+        Files.write(markdownFile, "# 异步加载".getBytes(StandardCharsets.UTF_8));
+        writeSamplePdf(pdfFile);
+        
+        try {
+            List<Double> progress = new CopyOnWriteArrayList<>();
+            LoadedDocument markdown = engine.loadDocumentAsync(markdownFile.toFile(),
+                    (message, value) -> progress.add(value)).get(10, TimeUnit.SECONDS);
+            assertTrue(markdown.isHtml());
+            assertFalse(markdown.isPaged());
+            assertTrue(markdown.getContent().contains("异步加载"));
+            assertEquals(1.0, progress.get(progress.size() - 1), 0.0);
+            
+            try (LoadedDocument pdf = engine.loadDocumentAsync(pdfFile.toFile(), null).get(10, TimeUnit.SECONDS)) {
+                assertTrue(pdf.isPaged());
+                assertTrue("应该只提取第一页", pdf.getContent().contains("Page 1"));
+                assertEquals(3, pdf.getPagedContent().pageCount());
+            }
+        } finally {
+            Files.deleteIfExists(markdownFile);
+            Files.deleteIfExists(pdfFile);
+        }
+    }
+    
     @Test
     public void testUnsupportedFile() throws IOException {
         DocumentEngine engine = new DocumentEngine();
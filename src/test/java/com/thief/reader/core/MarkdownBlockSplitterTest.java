@@ -0,0 +1,165 @@
+package com.thief.reader.core;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+/**
+ * Markdown块拆分测试类
+ */
+public class MarkdownBlockSplitterTest {
+    
+    private static final String SOURCE =
+            "# 标题\n\n" +
+            "第一段。\n\n" +
+            "```java\n" +
+            "int a = 1;\n\n" +
+            "int b = 2;\n" +
+            "```\n\n" +
+            "- 列表项\n\n" +
+            "  列表项的第二段\n\n" +
+            "参见[文档][doc]。\n\n" +
+            "[doc]: http://example.com\n";
+    
+    @Test
+    public void testSplitsOnlyBetweenTopLevelBlocks() {
+        MarkdownBlockSplitter.Result result = MarkdownBlockSplitter.split(SOURCE, 1, 1);
+        assertTrue("应该拆分为多批", result.batchCount() > 3);
+        
+        StringBuilder rebuilt = new StringBuilder();
+        for (int i = 0; i < result.batchCount(); i++) {
+            String batch = SOURCE.substring(result.batchStart(i), result.batchEnd(i));
+            assertFalse("不应在代码块内部拆分", batch.startsWith("int b"));
+            assertFalse("不应拆开列表项的延续段落", batch.startsWith("  列表项的第二段"));
+            rebuilt.append(batch);
+        }
+        assertEquals(SOURCE, rebuilt.toString());
+        assertEquals("[doc]: http://example.com\n", result.getReferenceDefinitions());
+    }
+    
+    @Test
+    public void testFirstBatchBudget() {
+        MarkdownBlockSplitter.Result result = MarkdownBlockSplitter.split(SOURCE, SOURCE.length(), 1);
+        assertEquals("预算足够时不应拆分", 1, result.batchCount());
+    }
+    
+    @Test
+    public void testBatchesRenderIndependently() throws IOException {
+        MarkdownParser parser = new MarkdownParser();
+        StringBuilder source = new StringBuilder();
+        for (int i = 0; i < 2000; i++) {
+            source.append("第").append(i).append("段，参见[链接][ref]。\n\n");
+        }
+        source.append("[ref]: http://example.com/ref\n");
+        
+        try (MarkdownBlockDocument document = new MarkdownBlockDocument(parser, source.toString())) {
+            assertTrue(document.pageCount() > 1);
+            assertTrue(document.producesHtml());
+            String last = document.pageText(document.pageCount() - 1);
+            assertTrue(last.startsWith("<div class=\"md-block\">"));
+            assertTrue("引用式链接应该在每一批中都能解析", last.contains("href=\"http://example.com/ref\""));
+            assertTrue(document.pageText(0).contains("第0段"));
+        }
+    }
+    
+    private static String paragraphs(int count) {
+        StringBuilder source = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            source.append("第").append(i).append("段。\n\n");
+        }
+        return source.toString();
+    }
+    
+    /**
+     * 局部拆分的每个边界都必须是全文拆分时的顶层块起点，并且批次首尾相接
+     */
+    private static void assertValidBounds(String source, MarkdownBlockSplitter.Result result) {
+        MarkdownBlockSplitter.Result full = MarkdownBlockSplitter.split(source, 1, 1);
+        Set<Integer> starts = new HashSet<>();
+        for (int i = 0; i < full.batchCount(); i++) {
+            starts.add(full.batchStart(i));
+        }
+        assertEquals(0, result.batchStart(0));
+        for (int i = 0; i < result.batchCount(); i++) {
+            assertTrue("边界应该是顶层块的起点: " + result.batchStart(i), starts.contains(result.batchStart(i)));
+            assertTrue(result.batchStart(i) <= result.batchEnd(i));
+        }
+        assertEquals(source.length(), result.batchEnd(result.batchCount() - 1));
+    }
+    
+    @Test
+    public void testResplitOnlyChangedBatches() {
+        String source = paragraphs(100);
+        MarkdownBlockSplitter.Result old = MarkdownBlockSplitter.split(source, 1, 1);
+        String changed = source.replace("第50段。", "第50段，修改后更长。");
+        
+        MarkdownBlockSplitter.Edit edit = MarkdownBlockSplitter.resplit(source, old, changed, 1, 1);
+        assertEquals(50, edit.getFirstBatch());
+        assertEquals(1, edit.getRemovedBatches());
+        assertEquals(1, edit.getInsertedBatches());
+        assertEquals(old.batchCount(), edit.getResult().batchCount());
+        assertValidBounds(changed, edit.getResult());
+        
+        // 在批次开头插入新段落
+        String inserted = source.replace("第50段。", "新段落。\n\n第50段。");
+        edit = MarkdownBlockSplitter.resplit(source, old, inserted, 1, 1);
+        assertTrue(edit.getFirstBatch() >= 49);
+        assertEquals(old.batchCount() + 1, edit.getResult().batchCount());
+        assertValidBounds(inserted, edit.getResult());
+    }
+    
+    @Test
+    public void testResplitExtendsAcrossUnclosedFence() {
+        String source = paragraphs(20);
+        MarkdownBlockSplitter.Result old = MarkdownBlockSplitter.split(source, 1, 1);
+        // 未闭合的代码块吞掉之后的全部内容
+        String changed = source.replace("第10段。", "```\n第10段。");
+        
+        // 变化从批次开头开始，从上一批开始重新拆分
+        MarkdownBlockSplitter.Edit edit = MarkdownBlockSplitter.resplit(source, old, changed, 1, 1);
+        assertEquals(9, edit.getFirstBatch());
+        assertEquals(old.batchCount() - 9, edit.getRemovedBatches());
+        assertEquals(2, edit.getInsertedBatches());
+        assertValidBounds(changed, edit.getResult());
+    }
+    
+    @Test
+    public void testResplitReferenceChangeSplitsAll() {
+        String source = paragraphs(20) + "[ref]: http://example.com/a\n";
+        MarkdownBlockSplitter.Result old = MarkdownBlockSplitter.split(source, 1, 1);
+        String changed = source.replace("example.com/a", "example.com/b");
+        
+        MarkdownBlockSplitter.Edit edit = MarkdownBlockSplitter.resplit(source, old, changed, 1, 1);
+        assertEquals(0, edit.getFirstBatch());
+        assertEquals(old.batchCount(), edit.getRemovedBatches());
+        assertEquals("[ref]: http://example.com/b\n", edit.getResult().getReferenceDefinitions());
+    }
+    
+    @Test
+    public void testDocumentKeepsUnchangedBatches() throws IOException {
+        MarkdownParser parser = new MarkdownParser();
+        String source = paragraphs(20000);
+        try (MarkdownBlockDocument document = new MarkdownBlockDocument(parser, source)) {
+            int pages = document.pageCount();
+            assertTrue(pages > 3);
+            document.pageText(0);
+            document.pageText(pages - 1);
+            
+            String changed = source.replace("第19999段。", "最后一段被修改。");
+            assertNull("内容没有变化时不需要更新", document.diff(source, 1));
+            MarkdownBlockDocument.Update update = document.diff(changed, pages);
+            assertEquals(pages - 1, update.getFirstPage());
+            assertTrue(document.apply(update));
+            assertFalse("基于旧内容的变化不能重复应用", document.apply(update));
+            
+            assertEquals(pages, document.pageCount());
+            assertTrue("未变化的批次不需要重新渲染", document.isRendered(0));
+            assertTrue("已显示的批次在计算变化时已经渲染", document.isRendered(pages - 1));
+            assertTrue(document.pageText(pages - 1).contains("最后一段被修改"));
+        }
+    }
+}
@@ -37,4 +37,26 @@ public class MarkdownParserTest {
         // 清理临时文件
         tempFile.delete();
     }
-}
\ No newline at end of file
+    
+    @Test
+    public void testStylesUseCssVariables() {
+        MarkdownParser parser = new MarkdownParser();
+        String html = parser.wrapInStyledTemplate("<p>正文</p>");
+        
+        // 字体和缩放由CSS变量提供，渲染结果不随设置变化
+        assertTrue(html.contains("var(--reader-font-size"));
+        assertEquals("", parser.renderFingerprint());
+        
+        ReaderStyle style = new ReaderStyle(150.0, "KaiTi", 0.5);
+        assertEquals(24, style.getFontSizePx());
+        assertTrue(HtmlTemplate.styleScript(style).contains("--reader-font-size: 24px"));
+        assertTrue(HtmlTemplate.wrapText("a < b").contains("a &lt; b"));
+    }
+    
+    @Test
+    public void testFirstHeading() {
+        // 代码块中的#不是标题
+        assertEquals("使用说明", MarkdownParser.firstHeading("```\n# 注释\n```\n正文\n## 使用说明 ##\n# 第二个"));
+        assertNull(MarkdownParser.firstHeading("#标签不是标题\n正文"));
+    }
+}
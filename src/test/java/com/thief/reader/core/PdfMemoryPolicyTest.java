@@ -0,0 +1,99 @@
+package com.thief.reader.core;
+
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDPageContentStream;
+import org.apache.pdfbox.pdmodel.font.PDType1Font;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+
+import static org.junit.Assert.*;
+
+/**
+ * PDF内存策略测试类
+ */
+public class PdfMemoryPolicyTest {
+    
+    private static final long MB = 1024 * 1024;
+    
+    @Test
+    public void testAutoMode() {
+        PdfMemoryPolicy policy = PdfMemoryPolicy.auto();
+        // 小文件完全使用内存
+        PdfMemoryPolicy.Resolved small = policy.resolve(1 * MB, 512 * MB, 1024 * MB, 1);
+        assertEquals(PdfMemoryPolicy.Mode.MEMORY, small.getMode());
+        assertEquals(0, small.getMaxMainMemoryBytes());
+        // 可用堆内存足够但扣除保留部分后不够时不完全使用内存
+        assertEquals(PdfMemoryPolicy.Mode.MIXED, policy.resolve(40 * MB, 400 * MB, 1024 * MB, 1).getMode());
+        // 2GB的扫描件在1GB堆中使用混合模式，内存上限不超过256MB
+        PdfMemoryPolicy.Resolved huge = policy.resolve(2048 * MB, 900 * MB, 1024 * MB, 1);
+        assertEquals(PdfMemoryPolicy.Mode.MIXED, huge.getMode());
+        assertEquals(161 * MB, huge.getMaxMainMemoryBytes());
+        assertEquals(256 * MB, policy.resolve(2048 * MB, 4096 * MB, 4096 * MB, 1).getMaxMainMemoryBytes());
+        // 多个渲染文档平分内存上限
+        assertEquals(161 * MB / 3, policy.resolve(2048 * MB, 900 * MB, 1024 * MB, 3).getMaxMainMemoryBytes());
+        // 可用堆内存很少时只使用临时文件
+        assertEquals(PdfMemoryPolicy.Mode.FILE, policy.resolve(1 * MB, 32 * MB, 1024 * MB, 1).getMode());
+        assertEquals(PdfMemoryPolicy.Mode.FILE, policy.resolve(1 * MB, 300 * MB, 1024 * MB, 3).getMode());
+    }
+    
+    @Test
+    public void testConfiguredMode() {
+        PdfMemoryPolicy mixed = PdfMemoryPolicy.fromConfig("mixed", 64);
+        PdfMemoryPolicy.Resolved resolved = mixed.resolve(1 * MB, 512 * MB, 1024 * MB, 1);
+        assertEquals(PdfMemoryPolicy.Mode.MIXED, resolved.getMode());
+        assertEquals(64 * MB, resolved.getMaxMainMemoryBytes());
+        assertEquals("混合 64MB", resolved.toString());
+        assertEquals(PdfMemoryPolicy.Mode.MEMORY, PdfMemoryPolicy.fromConfig("memory", 0).resolve(2048 * MB, 32 * MB, 1024 * MB, 1).getMode());
+        assertEquals(PdfMemoryPolicy.Mode.AUTO, PdfMemoryPolicy.fromConfig("unknown", 0).getMode());
+    }
+    
+    @Test
+    public void testScratchFileSpill() throws IOException {
+        File pdfFile = File.createTempFile("thief-memory", ".pdf");
+        PdfMemoryPolicy previous = PdfParser.getMemoryPolicy();
+        try {
+            writeLargePdf(pdfFile);
+            long before = PdfMemoryPolicy.scratchBytes();
+            PdfParser.setMemoryPolicy(PdfMemoryPolicy.fromConfig("file", 0));
+            try (PDDocument document = PdfParser.loadDocument(pdfFile)) {
+                assertEquals(1, document.getNumberOfPages());
+                // 流数据写入临时文件而不是堆内存
+                assertTrue(PdfMemoryPolicy.scratchBytes() > before);
+                assertEquals("临时文件", ReaderMetrics.getInstance().getPdfMemory());
+            }
+            // 关闭文档时删除临时文件
+            assertEquals(before, PdfMemoryPolicy.scratchBytes());
+            
+            PdfParser.setMemoryPolicy(PdfMemoryPolicy.fromConfig("mixed", 1));
+            assertEquals("x", new PdfParser().parse(pdfFile).trim().substring(0, 1));
+            assertEquals("混合 1MB", ReaderMetrics.getInstance().getPdfMemory());
+        } finally {
+            PdfParser.setMemoryPolicy(previous);
+            pdfFile.delete();
+        }
+    }
+    
+    private void writeLargePdf(File pdfFile) throws IOException {
+        try (PDDocument document = new PDDocument()) {
+            PDPage page = new PDPage();
+            document.addPage(page);
+            try (PDPageContentStream stream = new PDPageContentStream(document, page)) {
+                stream.beginText();
+                stream.setFont(PDType1Font.HELVETICA, 12);
+                stream.newLineAtOffset(72, 700);
+                stream.showText("x");
+                stream.endText();
+                // 大量绘图指令，使内容流超过一个缓冲页
+                for (int i = 0; i < 20000; i++) {
+                    stream.addRect(i % 500, i % 700, 1, 1);
+                }
+                stream.fill();
+            }
+            document.save(pdfFile);
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package com.thief.reader.core;
+
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.junit.Test;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * PDF页面渲染测试类
+ */
+public class PdfPageRendererTest {
+    
+    @Test
+    public void testPageSizeAndDpi() throws Exception {
+        Path pdfFile = writeSamplePdf(4);
+        try (PdfPageRenderer renderer = PdfPageRenderer.open(pdfFile.toFile(), 2)) {
+            assertEquals(4, renderer.pageCount());
+            // 第二页旋转90度，宽高互换
+            assertEquals(612f, renderer.pageWidth(0), 0.01f);
+            assertEquals(792f, renderer.pageHeight(0), 0.01f);
+            assertEquals(792f, renderer.pageWidth(1), 0.01f);
+            assertEquals(612f, renderer.pageHeight(1), 0.01f);
+            
+            BufferedImage low = renderer.render(0, PdfRenderQuality.LOW.getDpi(), () -> true).get(10, TimeUnit.SECONDS);
+            assertEquals(612, low.getWidth());
+            assertEquals(792, low.getHeight());
+            BufferedImage thumbnail = renderer.render(1, PdfRenderQuality.THUMBNAIL_DPI, () -> true).get(10, TimeUnit.SECONDS);
+            assertEquals(264, thumbnail.getWidth());
+            assertEquals(204, thumbnail.getHeight());
+        } finally {
+            Files.deleteIfExists(pdfFile);
+        }
+    }
+    
+    @Test
+    public void testThumbnailsFirstAndCancel() throws Exception {
+        Path pdfFile = writeSamplePdf(6);
+        try (PdfPageRenderer renderer = PdfPageRenderer.open(pdfFile.toFile(), 1)) {
+            // 占住唯一的工作线程，之后的请求都进入队列
+            CountDownLatch release = new CountDownLatch(1);
+            CompletableFuture<BufferedImage> blocker = renderer.render(0, PdfRenderQuality.LOW.getDpi(), () -> {
+                try {
+                    release.await(10, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return true;
+            });
+            List<String> order = new CopyOnWriteArrayList<>();
+            List<CompletableFuture<BufferedImage>> futures = new ArrayList<>();
+            futures.add(track(renderer.render(1, PdfRenderQuality.HIGH.getDpi(), () -> true), "full-1", order));
+            futures.add(track(renderer.render(2, PdfRenderQuality.THUMBNAIL_DPI, () -> true), "thumb-2", order));
+            futures.add(track(renderer.render(3, PdfRenderQuality.THUMBNAIL_DPI, () -> true), "thumb-3", order));
+            CompletableFuture<BufferedImage> skipped = renderer.render(4, PdfRenderQuality.HIGH.getDpi(), () -> false);
+            release.countDown();
+            
+            blocker.get(10, TimeUnit.SECONDS);
+            for (CompletableFuture<BufferedImage> future : futures) {
+                future.get(10, TimeUnit.SECONDS);
+            }
+            // 缩略图优先，同一分辨率下新的请求优先
+            assertEquals(Arrays.asList("thumb-3", "thumb-2", "full-1"), order);
+            try {
+                skipped.get(10, TimeUnit.SECONDS);
+                fail("不再需要的页面不应渲染");
+            } catch (CancellationException | ExecutionException e) {
+                assertTrue(skipped.isCompletedExceptionally());
+            }
+        } finally {
+            Files.deleteIfExists(pdfFile);
+        }
+    }
+    
+    @Test
+    public void testRenderQualitySetting() {
+        assertEquals(PdfRenderQuality.LOW, PdfRenderQuality.fromSetting("低质量"));
+        assertEquals(PdfRenderQuality.HIGH, PdfRenderQuality.fromSetting("high"));
+        assertEquals(PdfRenderQuality.MEDIUM, PdfRenderQuality.fromSetting("中等质量"));
+        assertEquals(PdfRenderQuality.MEDIUM, PdfRenderQuality.fromSetting(null));
+        assertEquals("high", PdfRenderQuality.HIGH.configName());
+    }
+    
+    private CompletableFuture<BufferedImage> track(CompletableFuture<BufferedImage> future, String name, List<String> order) {
+        // 在工作线程中记录完成顺序
+        return future.whenComplete((image, error) -> order.add(name));
+    }
+    
+    private Path writeSamplePdf(int pages) throws IOException {
+        Path pdfFile = Files.createTempFile("thief-render", ".pdf");
+        try (PDDocument document = new PDDocument()) {
+            for (int i = 0; i < pages; i++) {
+                PDPage page = new PDPage(PDRectangle.LETTER);
+                if (i == 1) {
+                    page.setRotation(90);
+                }
+                document.addPage(page);
+            }
+            document.save(pdfFile.toFile());
+        }
+        return pdfFile;
+    }
+}
@@ -0,0 +1,73 @@
+package com.thief.reader.core;
+
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDPageContentStream;
+import org.apache.pdfbox.pdmodel.font.PDType1Font;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+
+import static org.junit.Assert.*;
+
+/**
+ * PDF解析器测试类
+ */
+public class PdfParserTest {
+    
+    @Test
+    public void testParallelMatchesSerial() throws IOException {
+        File pdfFile = File.createTempFile("thief-parallel", ".pdf");
+        try {
+            writeSamplePdf(pdfFile, 101);
+            PdfParser parser = new PdfParser();
+            String serial = parser.parse(pdfFile, 1);
+            // 分段数不能整除页数，最后一段较短
+            for (int threads : new int[]{2, 3, 8}) {
+                assertEquals(serial, parser.parse(pdfFile, threads));
+            }
+            int first = serial.indexOf("Page 1 ");
+            int last = serial.indexOf("Page 101 ");
+            assertTrue(first >= 0 && last > first);
+        } finally {
+            pdfFile.delete();
+        }
+    }
+    
+    @Test
+    public void testSmallDocumentIsSerial() throws IOException {
+        File pdfFile = File.createTempFile("thief-serial", ".pdf");
+        try {
+            writeSamplePdf(pdfFile, PdfParser.MIN_PARALLEL_PAGES - 1);
+            PdfParser parser = new PdfParser();
+            assertEquals(parser.parse(pdfFile, 1), parser.parse(pdfFile, 4));
+        } finally {
+            pdfFile.delete();
+        }
+    }
+    
+    private void writeSamplePdf(File pdfFile, int pages) throws IOException {
+        try (PDDocument document = new PDDocument()) {
+            for (int i = 1; i <= pages; i++) {
+                PDPage page = new PDPage();
+                document.addPage(page);
+                // 每隔几页保留空白页
+                if (i % 7 == 0) {
+                    continue;
+                }
+                try (PDPageContentStream stream = new PDPageContentStream(document, page)) {
+                    stream.beginText();
+                    stream.setFont(PDType1Font.HELVETICA, 12);
+                    stream.setLeading(14);
+                    stream.newLineAtOffset(72, 700);
+                    stream.showText("Page " + i + " begins here");
+                    stream.newLine();
+                    stream.showText("Second line of page " + i);
+                    stream.endText();
+                }
+            }
+            document.save(pdfFile);
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package com.thief.reader.core;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.Assume;
+import org.junit.Test;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * JFR事件测试类
+ */
+public class ReaderEventsTest {
+    
+    @Test
+    public void testLoadEmitsEvents() throws Exception {
+        Assume.assumeTrue(ReaderEvents.isAvailable());
+        File file = File.createTempFile("jfr", ".md");
+        Files.write(file.toPath(), "# 标题\n\n正文".getBytes(StandardCharsets.UTF_8));
+        Path dump = Files.createTempFile("reader", ".jfr");
+        try (Recording recording = new Recording()) {
+            recording.enable(DocumentLoadEvent.class).withThreshold(Duration.ZERO);
+            recording.enable(StageEvent.class).withThreshold(Duration.ZERO);
+            recording.start();
+            new DocumentEngine(null).loadDocument(file, null).close();
+            recording.stop();
+            recording.dump(dump);
+            
+            List<RecordedEvent> events = RecordingFile.readAllEvents(dump);
+            RecordedEvent load = null;
+            boolean markdownStage = false;
+            for (RecordedEvent event : events) {
+                String name = event.getEventType().getName();
+                if ("com.thief.reader.DocumentLoad".equals(name) && file.getPath().equals(event.getString("path"))) {
+                    load = event;
+                } else if ("com.thief.reader.LoadStage".equals(name)
+                        && ReaderMetrics.Stage.MARKDOWN.getLabel().equals(event.getString("stage"))) {
+                    markdownStage = file.getPath().equals(event.getString("path"));
+                }
+            }
+            assertNotNull("应该记录文档加载事件", load);
+            assertEquals(file.length(), load.getLong("fileSize"));
+            assertEquals("md", load.getString("fileType"));
+            assertEquals("UTF-8", load.getString("charset"));
+            assertEquals("whole", load.getString("kind"));
+            assertTrue(load.getBoolean("succeeded"));
+            assertTrue("阶段事件应该带有文件信息", markdownStage);
+        } finally {
+            file.delete();
+            Files.deleteIfExists(dump);
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package com.thief.reader.core;
+
+import org.junit.Test;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.io.File;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+/**
+ * 性能指标测试类
+ */
+public class ReaderMetricsTest {
+    
+    @Test
+    public void testHistogramPercentiles() {
+        ReaderMetrics.Histogram histogram = new ReaderMetrics.Histogram();
+        for (int i = 1; i <= 100; i++) {
+            histogram.record(i * 1000000L);
+        }
+        assertEquals(100, histogram.count());
+        assertEquals(50.5e6, histogram.meanNanos(), 1);
+        assertEquals(100000000L, histogram.maxNanos());
+        // 百分位取区间上界，误差不超过一倍
+        long p50 = histogram.percentileNanos(0.5);
+        assertTrue(p50 >= 50000000L && p50 <= 100000000L);
+        assertTrue(histogram.percentileNanos(0.95) <= histogram.maxNanos());
+    }
+    
+    @Test
+    public void testLoadIsTracedByStage() throws Exception {
+        File file = File.createTempFile("metrics", ".md");
+        Files.write(file.toPath(), "# 标题\n\n正文".getBytes(StandardCharsets.UTF_8));
+        ReaderMetrics metrics = ReaderMetrics.getInstance();
+        try (LoadedDocument document = new DocumentEngine(null).loadDocument(file, null)) {
+            LoadTrace trace = document.getTrace();
+            assertNotNull(trace);
+            assertSame(trace, metrics.getLastLoadTrace());
+            Map<ReaderMetrics.Stage, Long> stages = trace.getStageNanos();
+            assertTrue(stages.containsKey(ReaderMetrics.Stage.READ));
+            assertTrue(stages.containsKey(ReaderMetrics.Stage.MARKDOWN));
+            assertTrue(stages.containsKey(ReaderMetrics.Stage.TEMPLATE));
+            assertEquals(file.length(), trace.getBytes());
+            assertEquals("未命中", trace.getCacheResult());
+            
+            metrics.recordRender(trace, 5000000L);
+            assertTrue(trace.summary().contains("页面显示 5.0ms"));
+        } finally {
+            file.delete();
+        }
+        
+        // 同样的数据通过JMX导出
+        assertTrue(metrics.registerMBean());
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        Object loads = server.getAttribute(new ObjectName(ReaderMetrics.OBJECT_NAME), "LoadCount");
+        assertTrue((Long) loads >= 1);
+    }
+}
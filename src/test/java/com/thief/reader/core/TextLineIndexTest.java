@@ -0,0 +1,165 @@
+package com.thief.reader.core;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+/**
+ * 文本行索引测试类
+ */
+public class TextLineIndexTest {
+    
+    private TextLineIndex open(String text, Charset charset) throws IOException {
+        File tempFile = File.createTempFile("test_lines", ".txt");
+        tempFile.deleteOnExit();
+        Files.write(tempFile.toPath(), text.getBytes(charset));
+        return new TextLineIndex(TextWindowReader.open(tempFile, charset));
+    }
+    
+    private void assertLines(Charset charset) throws IOException {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < 300; i++) {
+            text.append("第").append(i).append("行").append(i % 2 == 0 ? "\r\n" : "\n");
+        }
+        text.append("没有换行符的最后一行");
+        
+        try (TextLineIndex index = open(text.toString(), charset)) {
+            // 分多次扫描，模拟后台逐段建立索引
+            while (!index.scan(100)) {
+                assertTrue(index.lineCount() <= 301);
+            }
+            assertEquals(301, index.lineCount());
+            assertEquals("第0行", index.line(0));
+            assertEquals("第1行", index.line(1));
+            assertEquals("第130行", index.line(130));
+            assertEquals("没有换行符的最后一行", index.line(300));
+        }
+    }
+    
+    @Test
+    public void testUtf8Lines() throws IOException {
+        assertLines(StandardCharsets.UTF_8);
+    }
+    
+    @Test
+    public void testGbkLines() throws IOException {
+        assertLines(Charset.forName("GBK"));
+    }
+    
+    @Test
+    public void testUtf16Lines() throws IOException {
+        assertLines(StandardCharsets.UTF_16LE);
+    }
+    
+    @Test
+    public void testLineAnchors() throws IOException {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < 500; i++) {
+            text.append("第").append(i).append("章\n");
+        }
+        
+        try (TextLineIndex index = open(text.toString(), StandardCharsets.UTF_8)) {
+            index.scan(100);
+            // 定位时按需继续建立索引
+            int line = index.lineAt(text.substring(0, text.indexOf("第321章")).getBytes(StandardCharsets.UTF_8).length);
+            assertEquals(321, line);
+            assertEquals("第321章", index.line(line));
+            long start = index.lineStart(line);
+            assertEquals(line, index.lineAt(start));
+            // 行中间的偏移属于该行
+            assertEquals(line, index.lineAt(start + 2));
+            assertEquals(0, index.lineAt(0));
+        }
+    }
+    
+    @Test
+    public void testLongLineIsSplit() throws IOException {
+        assertLongLineIsSplit(StandardCharsets.UTF_8, "超长的一行");
+    }
+    
+    @Test
+    public void testShiftJisLongLineIsSplit() throws IOException {
+        // 半角片假名是单字节，拆分点需要从行首逐字符确定
+        assertLongLineIsSplit(Charset.forName("Shift_JIS"), "ｶﾀｶﾅ漢字ﾃ");
+    }
+    
+    private void assertLongLineIsSplit(Charset charset, String piece) throws IOException {
+        StringBuilder text = new StringBuilder();
+        while (text.length() < TextLineIndex.MAX_LINE_BYTES) {
+            text.append(piece);
+        }
+        text.append('\n').append("下一行");
+        
+        try (TextLineIndex index = open(text.toString(), charset)) {
+            index.scan(Long.MAX_VALUE);
+            assertTrue(index.isComplete());
+            assertTrue("超长行应该被拆分为多行", index.lineCount() > 2);
+            StringBuilder rebuilt = new StringBuilder();
+            for (int i = 0; i < index.lineCount() - 1; i++) {
+                assertFalse("拆分点不能截断多字节字符", index.line(i).contains("�"));
+                rebuilt.append(index.line(i));
+            }
+            assertEquals(text.substring(0, text.indexOf("\n")), rebuilt.toString());
+            assertEquals("下一行", index.line(index.lineCount() - 1));
+        }
+    }
+    
+    private void assertFollowsAppendedBytes(Charset charset) throws IOException {
+        File tempFile = File.createTempFile("test_follow", ".txt");
+        tempFile.deleteOnExit();
+        Files.write(tempFile.toPath(), "第一行\n未结束".getBytes(charset));
+        byte[] appended = "的第二行\n第三行\n".getBytes(charset);
+        // 在多字节字符中间截断，模拟写入到一半时读取
+        int split = "的第".getBytes(charset).length - 1;
+        
+        try (TextLineIndex index = new TextLineIndex(TextWindowReader.open(tempFile, charset))) {
+            index.scan(tempFile.length());
+            assertEquals(2, index.lineCount());
+            assertEquals("未结束", index.line(1));
+            assertEquals("没有新内容", -1, index.extend());
+            
+            Files.write(tempFile.toPath(), Arrays.copyOf(appended, split), StandardOpenOption.APPEND);
+            assertEquals("未结束的最后一行需要重新读取", 1, index.extend());
+            assertEquals(2, index.lineCount());
+            assertEquals("不完整的字符留到下次读取", "未结束的", index.line(1));
+            
+            Files.write(tempFile.toPath(), Arrays.copyOfRange(appended, split, appended.length),
+                    StandardOpenOption.APPEND);
+            assertEquals(1, index.extend());
+            assertEquals(3, index.lineCount());
+            assertEquals("未结束的第二行", index.line(1));
+            assertEquals("第三行", index.line(2));
+            assertFalse(index.getReader().isReplaced());
+            
+            Files.write(tempFile.toPath(), "第四行".getBytes(charset), StandardOpenOption.APPEND);
+            assertEquals("上一行已经结束，从新的一行开始", 3, index.extend());
+            assertEquals("第四行", index.line(3));
+            
+            Files.write(tempFile.toPath(), "截断".getBytes(charset));
+            assertTrue("文件被截断后需要重新打开", index.getReader().isReplaced());
+        }
+    }
+    
+    @Test
+    public void testFollowUtf8() throws IOException {
+        assertFollowsAppendedBytes(StandardCharsets.UTF_8);
+    }
+    
+    @Test
+    public void testFollowGbk() throws IOException {
+        assertFollowsAppendedBytes(Charset.forName("GBK"));
+    }
+    
+    @Test
+    public void testFollowUtf16() throws IOException {
+        assertFollowsAppendedBytes(StandardCharsets.UTF_16LE);
+    }
+}
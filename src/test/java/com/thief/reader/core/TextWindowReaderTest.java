@@ -0,0 +1,105 @@
+package com.thief.reader.core;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import static org.junit.Assert.*;
+
+/**
+ * 窗口化文本读取器测试类
+ */
+public class TextWindowReaderTest {
+
+    private static String sampleText() {
+        return sampleText("行：窗口边界不能截断多字节字符。", "长行内容");
+    }
+
+    private static String sampleText(String line, String longLine) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 200; i++) {
+            sb.append("第").append(i).append(line);
+            // 偶尔插入超长行，测试没有换行符时的对齐
+            if (i % 50 == 0) {
+                for (int j = 0; j < 40; j++) {
+                    sb.append(longLine);
+                }
+            }
+            sb.append('\n');
+        }
+        return sb.toString();
+    }
+
+    private void assertWindowsRebuildText(Charset charset) throws IOException {
+        assertWindowsRebuildText(charset, sampleText());
+    }
+
+    private void assertWindowsRebuildText(Charset charset, String text) throws IOException {
+        File tempFile = File.createTempFile("test_window", ".txt");
+        Files.write(tempFile.toPath(), text.getBytes(charset));
+
+        try (TextWindowReader reader = TextWindowReader.open(tempFile, charset, 97)) {
+            assertTrue("应该拆分为多个窗口", reader.windowCount() > 1);
+            StringBuilder rebuilt = new StringBuilder();
+            long lastEnd = 0;
+            for (int i = 0; i < reader.windowCount(); i++) {
+                TextWindowReader.TextWindow window = reader.window(i);
+                assertEquals("窗口之间应该首尾相接", lastEnd, window.getStartByte());
+                assertFalse("不应出现替换字符", window.getText().contains("�"));
+                rebuilt.append(window.getText());
+                lastEnd = window.getEndByte();
+            }
+            assertEquals(reader.size(), lastEnd);
+            assertEquals(text, rebuilt.toString());
+
+            long middle = reader.size() / 2;
+            TextWindowReader.TextWindow window = reader.window(reader.windowIndexAt(middle));
+            assertTrue(window.getStartByte() <= middle && middle < window.getEndByte());
+        } finally {
+            tempFile.delete();
+        }
+    }
+
+    @Test
+    public void testUtf8Windows() throws IOException {
+        assertWindowsRebuildText(StandardCharsets.UTF_8);
+    }
+
+    @Test
+    public void testGbkWindows() throws IOException {
+        assertWindowsRebuildText(Charset.forName("GBK"));
+    }
+
+    @Test
+    public void testShiftJisWindows() throws IOException {
+        // 半角片假名是高位范围内的单字节，按奇偶判断会把窗口切在字符中间
+        assertWindowsRebuildText(Charset.forName("Shift_JIS"), sampleText("行：ｶﾀｶﾅと漢字の境界。", "ﾃｽﾄ長い行"));
+    }
+
+    @Test
+    public void testUtf16Windows() throws IOException {
+        assertWindowsRebuildText(StandardCharsets.UTF_16LE);
+    }
+
+    @Test
+    public void testBomIsSkipped() throws IOException {
+        File tempFile = File.createTempFile("test_window_bom", ".txt");
+        byte[] body = "带BOM的文本".getBytes(StandardCharsets.UTF_8);
+        byte[] bytes = new byte[body.length + 3];
+        bytes[0] = (byte) 0xEF;
+        bytes[1] = (byte) 0xBB;
+        bytes[2] = (byte) 0xBF;
+        System.arraycopy(body, 0, bytes, 3, body.length);
+        Files.write(tempFile.toPath(), bytes);
+
+        try (TextWindowReader reader = TextWindowReader.open(tempFile, StandardCharsets.UTF_8)) {
+            assertEquals("带BOM的文本", reader.window(0).getText());
+        } finally {
+            tempFile.delete();
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package com.thief.reader.search;
+
+import com.thief.reader.core.TextLineIndex;
+import com.thief.reader.core.TextWindowReader;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import static org.junit.Assert.*;
+
+/**
+ * 文档内查找的匹配索引测试类
+ */
+public class MatchIndexTest {
+    
+    @Test
+    public void testScanTextIgnoresCase() {
+        MatchIndex index = new MatchIndex("Reader");
+        index.scanText(0, "reader READER ReAdEr readereader", 0);
+        index.markComplete();
+        assertEquals(4, index.size());
+        assertEquals(0, index.offset(0));
+        assertEquals(7, index.offset(1));
+        assertEquals(21, index.offset(3));
+        assertTrue(index.isComplete());
+        
+        // 追加的文本按基准偏移接在后面
+        index.scanText(0, "..reader", 100);
+        assertEquals(102, index.offset(4));
+        assertEquals(2, index.indexAtOrAfter(0, 8));
+        assertEquals(5, index.indexAtOrAfter(0, 103));
+    }
+    
+    @Test
+    public void testScanLines() throws IOException {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < 1000; i++) {
+            text.append(i % 100 == 7 ? "第" + i + "行包含关键词" : "普通的一行").append('\n');
+        }
+        File tempFile = File.createTempFile("test_find", ".txt");
+        Files.write(tempFile.toPath(), text.toString().getBytes(StandardCharsets.UTF_8));
+        
+        try (TextLineIndex lines = new TextLineIndex(TextWindowReader.open(tempFile, StandardCharsets.UTF_8))) {
+            // 行索引只建立了一小部分，查找时继续建立
+            lines.scan(64);
+            MatchIndex index = new MatchIndex("关键词");
+            index.scanLines(lines, null);
+            assertTrue(index.isComplete());
+            assertEquals(10, index.size());
+            assertEquals(7, index.segment(0));
+            assertEquals(907, index.segment(9));
+            assertTrue(index.containsSegment(507));
+            assertFalse(index.containsSegment(508));
+            assertEquals(6, index.indexAtOrAfter(600, 0));
+        } finally {
+            tempFile.delete();
+        }
+    }
+}
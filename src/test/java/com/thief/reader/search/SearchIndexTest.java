@@ -0,0 +1,145 @@
+package com.thief.reader.search;
+
+import com.thief.reader.core.ParserRegistry;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.*;
+
+/**
+ * 全文索引测试类
+ */
+public class SearchIndexTest {
+    
+    private Path directory;
+    private Path indexDirectory;
+    
+    @Before
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("search_test");
+        indexDirectory = directory.resolve("index");
+    }
+    
+    @After
+    public void tearDown() throws IOException {
+        try (Stream<Path> paths = Files.walk(directory)) {
+            paths.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+        }
+    }
+    
+    private File write(String name, String content) throws IOException {
+        Path file = directory.resolve(name);
+        Files.write(file, content.getBytes(StandardCharsets.UTF_8));
+        return file.toFile();
+    }
+    
+    private static Map<String, int[]> termCounts(String text) {
+        Map<String, int[]> counts = new HashMap<>();
+        Tokenizer.tokenize(text, term -> counts.computeIfAbsent(term, key -> new int[1])[0]++);
+        return counts;
+    }
+    
+    private SearchIndexer openIndexer() {
+        return new SearchIndexer(new SearchIndex(indexDirectory), new ParserRegistry());
+    }
+    
+    @Test
+    public void testQueryTerms() {
+        assertEquals(Arrays.asList("阅读", "读器"), Tokenizer.queryTerms("阅读器"));
+        assertEquals(Arrays.asList("书"), Tokenizer.queryTerms("书"));
+        assertEquals(Arrays.asList("thief", "reader"), Tokenizer.queryTerms("Thief READER thief"));
+    }
+    
+    @Test
+    public void testSearchCjkAndLatin() throws IOException {
+        File first = write("first.txt", "今天天气很好，适合阅读小说。Thief Reader");
+        File second = write("second.md", "# 标题\n\n阅读器支持 Markdown 和 PDF。");
+        SearchIndexer indexer = openIndexer();
+        assertEquals(2, indexer.indexFiles(Arrays.asList(first, second)));
+        
+        SearchIndex index = indexer.getIndex();
+        assertEquals(2, index.search("阅读", 10).size());
+        List<SearchHit> hits = index.search("阅读器", 10);
+        assertEquals(1, hits.size());
+        assertEquals(second.getCanonicalFile(), hits.get(0).getFile());
+        assertEquals(first.getCanonicalFile(), index.search("reader", 10).get(0).getFile());
+        assertTrue(index.search("天气 markdown", 10).isEmpty());
+        assertTrue(index.search("不存在", 10).isEmpty());
+    }
+    
+    @Test
+    public void testIndexPersistsAcrossReopen() throws IOException {
+        File file = write("persist.txt", "持久化的倒排索引");
+        openIndexer().indexFiles(Arrays.asList(file));
+        
+        SearchIndexer reopened = openIndexer();
+        assertEquals(1, reopened.getIndex().documentCount());
+        assertEquals(1, reopened.getIndex().search("倒排", 10).size());
+        // 内容未变的文件不会重新索引
+        assertEquals(0, reopened.indexFiles(Arrays.asList(file)));
+    }
+    
+    @Test
+    public void testModifiedAndDeletedFiles() throws IOException {
+        File file = write("changing.txt", "旧的内容");
+        SearchIndexer indexer = openIndexer();
+        indexer.indexFiles(Arrays.asList(file));
+        
+        write("changing.txt", "新的文字");
+        assertTrue(file.setLastModified(file.lastModified() + 2000));
+        assertEquals(1, indexer.indexFiles(Arrays.asList(file)));
+        assertTrue(indexer.getIndex().search("旧的", 10).isEmpty());
+        assertEquals(1, indexer.getIndex().search("新的", 10).size());
+        
+        assertTrue(file.delete());
+        indexer.indexFiles(Arrays.asList(file));
+        assertEquals(0, indexer.getIndex().documentCount());
+        assertTrue(openIndexer().getIndex().search("新的", 10).isEmpty());
+    }
+    
+    @Test
+    public void testSearchDuringCommits() throws Exception {
+        SearchIndex index = new SearchIndex(indexDirectory);
+        File seed = write("seed.txt", "阅读 索引");
+        index.addDocument(seed, seed.length(), seed.lastModified(), termCounts("阅读 索引"), 2);
+        index.commit();
+        // 每次提交都会删除上一代的倒排列表文件，并发的查询不应读到已删除的文件
+        List<Throwable> errors = new CopyOnWriteArrayList<>();
+        Thread committer = new Thread(() -> {
+            try {
+                for (int i = 0; i < 200; i++) {
+                    File file = new File(directory.toFile(), "doc" + i + ".txt");
+                    index.addDocument(file, i, i, termCounts("阅读 第" + i + "篇"), 3);
+                    index.commit();
+                }
+            } catch (IOException | RuntimeException e) {
+                errors.add(e);
+            }
+        });
+        committer.start();
+        while (committer.isAlive()) {
+            try {
+                assertFalse(index.search("阅读", 10).isEmpty());
+            } catch (IOException | RuntimeException e) {
+                errors.add(e);
+                break;
+            }
+        }
+        committer.join();
+        assertTrue(errors.toString(), errors.isEmpty());
+    }
+}
@@ -0,0 +1,67 @@
+package com.thief.reader.util;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import static org.junit.Assert.*;
+
+/**
+ * 编码检测测试类
+ */
+public class CharsetDetectorTest {
+    
+    private static final String SIMPLIFIED = "第一章　夜色\n他走到窗前，看着外面的大雨，心里想着这些年发生的事情。" +
+            "我们不能再这样下去了，她说。于是他们决定明天一早就出发，去那个地方看看。\n";
+    private static final String TRADITIONAL = "第一章　夜色\n他走到窗前，看著外面的大雨，心裡想著這些年發生的事情。" +
+            "我們不能再這樣下去了，她說。於是他們決定明天一早就出發，去那個地方看看。\n";
+    private static final String JAPANESE = "第一章　夜\n彼は窓の前に立って、外の雨を見ながら、これまでのことを考えていた。" +
+            "もうこのままではいけない、と彼女は言った。\n";
+    
+    private static String repeat(String text, int times) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < times; i++) {
+            sb.append(text);
+        }
+        return sb.toString();
+    }
+    
+    @Test
+    public void testDetectsCjkEncodings() {
+        assertEquals(CharsetDetector.GB18030, CharsetDetector.detect(SIMPLIFIED.getBytes(Charset.forName("GBK"))));
+        assertEquals(CharsetDetector.BIG5, CharsetDetector.detect(TRADITIONAL.getBytes(CharsetDetector.BIG5)));
+        assertEquals(CharsetDetector.SHIFT_JIS, CharsetDetector.detect(JAPANESE.getBytes(CharsetDetector.SHIFT_JIS)));
+        assertEquals(StandardCharsets.UTF_8, CharsetDetector.detect(SIMPLIFIED.getBytes(StandardCharsets.UTF_8)));
+        assertEquals(StandardCharsets.UTF_8, CharsetDetector.detect("plain ascii".getBytes(StandardCharsets.US_ASCII)));
+    }
+    
+    @Test
+    public void testDetectsBom() {
+        byte[] body = "带BOM".getBytes(StandardCharsets.UTF_16LE);
+        byte[] content = new byte[body.length + 2];
+        content[0] = (byte) 0xFF;
+        content[1] = (byte) 0xFE;
+        System.arraycopy(body, 0, content, 2, body.length);
+        assertEquals(StandardCharsets.UTF_16LE, CharsetDetector.detect(content));
+        assertEquals(2, CharsetDetector.bomLength(content));
+    }
+    
+    @Test
+    public void testSamplesLargeFile() throws IOException {
+        File tempFile = File.createTempFile("test_charset", ".txt");
+        // 超过开头样本的大文件，抽样块从字符中间开始也不应影响结果
+        String text = repeat(SIMPLIFIED, 3000);
+        Files.write(tempFile.toPath(), text.getBytes(Charset.forName("GBK")));
+        
+        try {
+            assertEquals(CharsetDetector.GB18030, FileUtils.detectCharset(tempFile));
+            assertEquals(text, FileUtils.readText(tempFile));
+        } finally {
+            tempFile.delete();
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package com.thief.reader.util;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * 最近打开文件管理器测试类
+ */
+public class RecentFilesManagerTest {
+    
+    @Test
+    public void testOrderCapacityAndPersistence() throws IOException {
+        Path directory = Files.createTempDirectory("recent_test");
+        Path storage = directory.resolve("recent-files.json");
+        File a = new File(directory.toFile(), "a.md");
+        File b = new File(directory.toFile(), "b.txt");
+        File c = new File(directory.toFile(), "c.pdf");
+        try {
+            RecentFilesManager manager = new RecentFilesManager(storage, 2);
+            manager.addFile(a);
+            manager.addFile(b);
+            manager.addFile(a);
+            // 重新打开的文件移到最前
+            assertEquals(Arrays.asList(a.getAbsolutePath(), b.getAbsolutePath()), manager.getRecentFiles());
+            
+            manager.updateMetadata(b.getAbsolutePath(), false, 0, -1, null);
+            manager.updateMetadata(a.getAbsolutePath(), true, 42, 3, "标题");
+            // 更新元数据不改变顺序
+            assertEquals(a.getAbsolutePath(), manager.getRecentFiles().get(0));
+            
+            manager.addFile(c);
+            // 超出容量时移除最久未打开的文件
+            assertEquals(Arrays.asList(c.getAbsolutePath(), a.getAbsolutePath()), manager.getRecentFiles());
+            manager.flush();
+            
+            RecentFilesManager reopened = new RecentFilesManager(storage, 10);
+            List<RecentFilesManager.RecentDocument> documents = reopened.getRecentDocuments();
+            assertEquals(2, documents.size());
+            assertEquals(c.getAbsolutePath(), documents.get(0).getPath());
+            assertEquals("标题", documents.get(1).getDisplayName());
+            assertEquals(3, documents.get(1).getPageCount());
+            
+            reopened.setCapacity(1);
+            assertEquals(Arrays.asList(c.getAbsolutePath()), reopened.getRecentFiles());
+        } finally {
+            Files.deleteIfExists(storage);
+            // 后台写入可能仍在进行，目录在退出时删除
+            directory.toFile().deleteOnExit();
+        }
+    }
+}